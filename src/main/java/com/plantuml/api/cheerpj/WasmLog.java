@@ -47,6 +47,13 @@ public class WasmLog {
 
 	public static long start;
 
+	public static boolean isEnabled() {
+		// ::revert when __CORE__
+		return Log.isEnabled(Log.Level.INFO);
+//		return true;
+		// ::done
+	}
+
 	public static void log(String message) {
 		// ::revert when __CORE__
 		Log.info(message);
@@ -89,6 +89,7 @@ import net.sourceforge.plantuml.klimt.shape.TextBlock;
 import net.sourceforge.plantuml.klimt.shape.UDrawable;
 import net.sourceforge.plantuml.klimt.shape.URectangle;
 import net.sourceforge.plantuml.klimt.shape.UText;
+import net.sourceforge.plantuml.log.Trace;
 import net.sourceforge.plantuml.preproc.OptionKey;
 import net.sourceforge.plantuml.skin.ColorParam;
 import net.sourceforge.plantuml.skin.CornerParam;
@@ -259,22 +260,33 @@ public class ImageBuilder {
 		if (scaleFactor <= 0)
 			throw new IllegalStateException("Bad scaleFactor");
 		WasmLog.log("...image drawing...");
-		UGraphic ug = createUGraphic(dim, scaleFactor, diagram == null ? Pragma.createEmpty() : diagram.getPragma());
-
-		if (warnings.size() > 0) {
-			drawWarning(dimWarning, ug.apply(UTranslate.dy(5)), dim.getWidth());
-			ug = ug.apply(UTranslate.dy(dimWarning.getHeight() + 20));
-		}
+		UGraphic ug;
+		final Trace.Span draw = Trace.start(Trace.Phase.DRAW);
+		try {
+			ug = createUGraphic(dim, scaleFactor, diagram == null ? Pragma.createEmpty() : diagram.getPragma());
+
+			if (warnings.size() > 0) {
+				drawWarning(dimWarning, ug.apply(UTranslate.dy(5)), dim.getWidth());
+				ug = ug.apply(UTranslate.dy(dimWarning.getHeight() + 20));
+			}
 
-		maybeDrawBorder(ug, dim);
-		if (randomPixel)
-			drawRandomPoint(ug);
+			maybeDrawBorder(ug, dim);
+			if (randomPixel)
+				drawRandomPoint(ug);
 
-		ug = handwritten(ug.apply(new UTranslate(margin.getLeft(), margin.getTop())));
-		udrawable.drawU(ug);
-		ug.flushUg();
-		ug.writeToStream(os, metadata, 96);
-		os.flush();
+			ug = handwritten(ug.apply(new UTranslate(margin.getLeft(), margin.getTop())));
+			udrawable.drawU(ug);
+			ug.flushUg();
+		} finally {
+			draw.close();
+		}
+		final Trace.Span encode = Trace.start(Trace.Phase.ENCODE, fileFormatOption.getFileFormat().name());
+		try {
+			ug.writeToStream(os, metadata, 96);
+			os.flush();
+		} finally {
+			encode.close();
+		}
 
 		if (ug instanceof UGraphicG2d) {
 			final Set<Url> urls = ((UGraphicG2d) ug).getAllUrlsEncountered();
@@ -418,6 +430,8 @@ public class ImageBuilder {
 		option = option.withColorMapper(fileFormatOption.getColorMapper());
 		option = option.withLinkTarget(getSvgLinkTarget());
 		option = option.withFont(pragma.getValue(PragmaKey.SVG_FONT));
+		option = option.withStreaming(
+				OptionFlags.getInstance().isSvgStreaming() || pragma.isTrue(PragmaKey.SVG_STREAMING));
 		option = option.withPragma(pragma);
 		if (diagram != null) {
 			option = option.withTitle(diagram.getTitleDisplay());
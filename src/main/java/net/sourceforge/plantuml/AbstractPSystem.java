@@ -65,6 +65,7 @@ import net.sourceforge.plantuml.klimt.font.UFont;
 import net.sourceforge.plantuml.klimt.geom.HorizontalAlignment;
 import net.sourceforge.plantuml.klimt.geom.VerticalAlignment;
 import net.sourceforge.plantuml.klimt.shape.UText;
+import net.sourceforge.plantuml.log.Trace;
 import net.sourceforge.plantuml.preproc.PreprocessingArtifact;
 import net.sourceforge.plantuml.stats.StatsUtilsIncrement;
 import net.sourceforge.plantuml.style.ClockwiseTopRightBottomLeft;
@@ -214,7 +215,10 @@ public abstract class AbstractPSystem implements Diagram, WarningHandler {
 //					styleBuilder.printMe();
 //				}
 //			}
-			return exportDiagramNow(os, index, fileFormatOption);
+			try (Trace.Span span = Trace.start(Trace.Phase.LAYOUT)) {
+				span.setDiagramType(getClass().getSimpleName());
+				return exportDiagramNow(os, index, fileFormatOption);
+			}
 		} finally {
 			// ::comment when __CORE__
 			if (OptionFlags.getInstance().isEnableStats())
@@ -54,6 +54,7 @@ import net.sourceforge.plantuml.core.Diagram;
 import net.sourceforge.plantuml.error.PSystemErrorPreprocessor;
 import net.sourceforge.plantuml.jaws.Jaws;
 import net.sourceforge.plantuml.log.Logme;
+import net.sourceforge.plantuml.log.Trace;
 import net.sourceforge.plantuml.preproc.Defines;
 import net.sourceforge.plantuml.preproc.FileWithSuffix;
 import net.sourceforge.plantuml.preproc.PreprocessingArtifact;
@@ -82,6 +83,15 @@ public class BlockUml {
 		return Collections.unmodifiableSet(included);
 	}
 
+	/**
+	 * Returns <code>false</code> when preprocessing used the current time or
+	 * random values, as with <code>%date</code>, <code>%now</code> or
+	 * <code>%random</code>.
+	 */
+	public boolean isDeterministic() {
+		return preprocessingArtifact.isDeterministic();
+	}
+
 	@Deprecated
 	BlockUml(String... strings) {
 		this(convert(strings), Defines.createEmpty(), null, null, null);
@@ -121,6 +131,7 @@ public class BlockUml {
 	}
 
 	private boolean preprocessorError;
+	private Trace.Span preprocessing;
 
 //	/**
 //	 * @deprecated being kept for backwards compatibility, perhaps other projects
@@ -142,16 +153,19 @@ public class BlockUml {
 			this.data = new ArrayList<>(this.rawSource);
 			this.preprocessingArtifact = new PreprocessingArtifact();
 		} else {
-			final TimLoader timLoader = new TimLoader(definitions.getImportedFiles(), defines, charset, definitions,
-					this.rawSource.get(0));
-			this.included.addAll(timLoader.load(this.rawSource));
-			List<StringLocated> tmp = timLoader.getResultList();
-			tmp = Jaws.expands0(tmp);
-			tmp = Jaws.expandsJawsForPreprocessor(tmp);
-			this.data = tmp;
-			this.debug = timLoader.getDebug();
-			this.preprocessorError = timLoader.isPreprocessorError();
-			this.preprocessingArtifact = timLoader.getPreprocessingArtifact();
+			try (Trace.Span span = Trace.start(Trace.Phase.PREPROCESS)) {
+				this.preprocessing = span;
+				final TimLoader timLoader = new TimLoader(definitions.getImportedFiles(), defines, charset,
+						definitions, this.rawSource.get(0));
+				this.included.addAll(timLoader.load(this.rawSource));
+				List<StringLocated> tmp = timLoader.getResultList();
+				tmp = Jaws.expands0(tmp);
+				tmp = Jaws.expandsJawsForPreprocessor(tmp);
+				this.data = tmp;
+				this.debug = timLoader.getDebug();
+				this.preprocessorError = timLoader.isPreprocessorError();
+				this.preprocessingArtifact = timLoader.getPreprocessingArtifact();
+			}
 		}
 	}
 
@@ -186,10 +200,18 @@ public class BlockUml {
 
 	public Diagram getDiagram() {
 		if (system == null) {
-			if (preprocessorError)
+			if (preprocessorError) {
 				system = new PSystemErrorPreprocessor(data, debug, preprocessingArtifact);
-			else
-				system = new PSystemBuilder().createPSystem(data, rawSource, previous, preprocessingArtifact);
+			} else {
+				try (Trace.Span span = Trace.start(Trace.Phase.PARSE)) {
+					system = new PSystemBuilder().createPSystem(data, rawSource, previous, preprocessingArtifact);
+					span.setDiagramType(system.getClass().getSimpleName());
+				}
+			}
+			if (preprocessing != null) {
+				preprocessing.setDiagramType(system.getClass().getSimpleName());
+				preprocessing = null;
+			}
 		}
 		return system;
 	}
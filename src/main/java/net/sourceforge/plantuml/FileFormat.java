@@ -157,14 +157,26 @@ public enum FileFormat {
 		return getNormalStringBounder();
 	}
 
+	// Normal and SVG bounders both measure text through getJavaDimension()
+	private static final String JAVA_CACHE_KIND = "java";
+
 	private StringBounder getSvgStringBounder(final SvgCharSizeHack charSizeHack) {
 		return new StringBounderRaw(FileFormat.gg.getFontRenderContext()) {
 			public String toString() {
 				return "FileFormat::getSvgStringBounder";
 			}
 
+			@Override
+			protected String prepareText(String text) {
+				return charSizeHack.transformStringForSizeHack(text);
+			}
+
+			@Override
+			protected String getCacheKind() {
+				return JAVA_CACHE_KIND;
+			}
+
 			protected XDimension2D calculateDimensionInternal(UFont font, String text) {
-				text = charSizeHack.transformStringForSizeHack(text);
 				return getJavaDimension(font, text);
 			}
 
@@ -181,6 +193,11 @@ public enum FileFormat {
 				return "FileFormat::getNormalStringBounder";
 			}
 
+			@Override
+			protected String getCacheKind() {
+				return JAVA_CACHE_KIND;
+			}
+
 			protected XDimension2D calculateDimensionInternal(UFont font, String text) {
 				return getJavaDimension(font, text);
 			}
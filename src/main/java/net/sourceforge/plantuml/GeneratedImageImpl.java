@@ -50,16 +50,28 @@ public class GeneratedImageImpl implements GeneratedImage {
 	private final String description;
 	private final BlockUml blockUml;
 	private final int status;
+	private final boolean upToDate;
 
 	public final int getStatus() {
 		return status;
 	}
 
 	public GeneratedImageImpl(SFile pngFile, String description, BlockUml blockUml, int status) {
+		this(pngFile, description, blockUml, status, false);
+	}
+
+	private GeneratedImageImpl(SFile pngFile, String description, BlockUml blockUml, int status, boolean upToDate) {
 		this.blockUml = blockUml;
 		this.pngFile = pngFile;
 		this.description = description;
 		this.status = status;
+		this.upToDate = upToDate;
+	}
+
+	// An image that was kept from a previous run: only error-free diagrams are
+	// recorded, so there is no need to parse the diagram again to know that
+	static GeneratedImageImpl upToDate(SFile pngFile, String description, BlockUml blockUml) {
+		return new GeneratedImageImpl(pngFile, description, blockUml, 0, true);
 	}
 
 	public File getPngFile() {
@@ -71,6 +83,8 @@ public class GeneratedImageImpl implements GeneratedImage {
 	}
 
 	public int lineErrorRaw() {
+		if (upToDate)
+			return -1;
 		final Diagram system = blockUml.getDiagram();
 		if (system instanceof PSystemError) {
 			return ((PSystemError) system).getLineLocation().getPosition();
@@ -0,0 +1,327 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.sourceforge.plantuml.klimt.color.ColorMapper;
+import net.sourceforge.plantuml.log.Logme;
+import net.sourceforge.plantuml.preproc.FileWithSuffix;
+import net.sourceforge.plantuml.security.SFile;
+import net.sourceforge.plantuml.text.StringLocated;
+import net.sourceforge.plantuml.utils.Log;
+import net.sourceforge.plantuml.utils.SignatureUtils;
+import net.sourceforge.plantuml.version.Version;
+
+/**
+ * Index of the images already generated in an output directory.
+ * <p>
+ * For each diagram, the manifest stores a digest of the preprocessed source,
+ * of the content of every included file and of the output options, together
+ * with the names of the images that were written. When the digest has not
+ * changed and all images are still there, the diagram does not need to be
+ * parsed nor drawn again.
+ * <p>
+ * Manifests are loaded once per directory. They are written back every
+ * {@link #SAVE_INTERVAL_MS} while images are recorded, so that an interrupted
+ * run keeps most of its work, and by {@link #saveAll()} at the end of the run.
+ */
+public final class IncrementalManifest {
+	// ::remove file when __CORE__
+	// ::remove file when __HAXE__
+
+	public static final String FILENAME = ".plantuml-manifest";
+
+	private static final int MAGIC = 0x504D4632;
+	private static final int MAX_STRING_LENGTH = 64 * 1024 * 1024;
+	private static final long SAVE_INTERVAL_MS = 10 * 1000L;
+
+	private static final Map<String, IncrementalManifest> all = new HashMap<String, IncrementalManifest>();
+
+	private final SFile dir;
+	private final Map<String, Entry> entries = new TreeMap<String, Entry>();
+	private boolean modified;
+	private long lastSave = System.currentTimeMillis();
+
+	public static class Entry {
+
+		private final String digest;
+		private final String description;
+		private final List<String> outputs;
+
+		Entry(String digest, String description, List<String> outputs) {
+			this.digest = digest;
+			this.description = description;
+			this.outputs = Collections.unmodifiableList(new ArrayList<>(outputs));
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public List<String> getOutputs() {
+			return outputs;
+		}
+
+	}
+
+	private IncrementalManifest(SFile dir) {
+		this.dir = dir;
+	}
+
+	public static synchronized IncrementalManifest forDirectory(SFile dir) {
+		final String path = dir.getAbsolutePath();
+		IncrementalManifest result = all.get(path);
+		if (result == null) {
+			result = new IncrementalManifest(dir.getAbsoluteFile());
+			result.load();
+			all.put(path, result);
+		}
+		return result;
+	}
+
+	public static void saveAll() {
+		final List<IncrementalManifest> manifests;
+		synchronized (IncrementalManifest.class) {
+			manifests = new ArrayList<>(all.values());
+		}
+		for (IncrementalManifest manifest : manifests)
+			manifest.save();
+	}
+
+	public static String digest(BlockUml blockUml, FileFormatOption fileFormatOption) {
+		try {
+			final MessageDigest md = MessageDigest.getInstance("SHA-256");
+			md.update(Version.etag().getBytes(UTF_8));
+			md.update(optionsSignature(fileFormatOption).getBytes(UTF_8));
+			for (StringLocated s : blockUml.getData()) {
+				md.update(s.getString().getBytes(UTF_8));
+				md.update((byte) '\n');
+			}
+			final List<FileWithSuffix> included = new ArrayList<>(blockUml.getIncluded());
+			final List<String> names = new ArrayList<>();
+			for (FileWithSuffix f : included)
+				names.add(f.toString() + "#" + f.getSuffix());
+			Collections.sort(names);
+			for (String name : names)
+				md.update(name.getBytes(UTF_8));
+			for (FileWithSuffix f : included)
+				updateWithContent(md, f);
+
+			return SignatureUtils.toHexString(md.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			// An included file that cannot be read: never consider the block up to date
+			Log.info("Cannot compute digest: " + e);
+			return null;
+		}
+	}
+
+	private static String optionsSignature(FileFormatOption option) {
+		final ColorMapper colorMapper = option.getColorMapper();
+		return option.getFileFormat().name() + "/" + option.isWithMetadata() + "/" + option.getSvgLinkTarget() + "/"
+				+ option.getWatermark() + "/" + (colorMapper == null ? null : colorMapper.getClass().getName());
+	}
+
+	private static void updateWithContent(MessageDigest md, FileWithSuffix f) throws IOException {
+		final InputStream is = f.getRawInputStream();
+		if (is == null)
+			return;
+		try {
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = is.read(buffer)) != -1)
+				md.update(buffer, 0, read);
+		} finally {
+			is.close();
+		}
+	}
+
+	/**
+	 * Returns the entry recorded for this image if its digest is the same and if
+	 * every image it lists still exists, <code>null</code> otherwise.
+	 */
+	public synchronized Entry getUpToDate(SFile firstImage, String digest) {
+		if (digest == null)
+			return null;
+		final Entry entry = entries.get(firstImage.getName());
+		if (entry == null || entry.digest.equals(digest) == false)
+			return null;
+		for (String name : entry.outputs)
+			if (dir.file(name).exists() == false)
+				return null;
+
+		return entry;
+	}
+
+	public synchronized void record(SFile firstImage, String digest, String description, List<SFile> images) {
+		if (digest == null)
+			return;
+		final List<String> outputs = new ArrayList<>();
+		for (SFile image : images) {
+			if (image == null || dir.equals(image.getAbsoluteFile().getParentFile()) == false) {
+				// Not something we can check later on
+				entries.remove(firstImage.getName());
+				modified = true;
+				return;
+			}
+			outputs.add(image.getName());
+		}
+		entries.put(firstImage.getName(), new Entry(digest, description, outputs));
+		modified = true;
+		saveIfDue();
+	}
+
+	public synchronized void forget(SFile firstImage) {
+		if (entries.remove(firstImage.getName()) != null) {
+			modified = true;
+			saveIfDue();
+		}
+	}
+
+	private void saveIfDue() {
+		if (System.currentTimeMillis() - lastSave >= SAVE_INTERVAL_MS)
+			save();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	private SFile getFile() {
+		return dir.file(FILENAME);
+	}
+
+	private void load() {
+		final SFile file = getFile();
+		if (file.exists() == false)
+			return;
+
+		try (InputStream is = file.openFile()) {
+			if (is == null)
+				return;
+			final DataInputStream dis = new DataInputStream(new BufferedInputStream(is));
+			if (dis.readInt() != MAGIC)
+				return;
+			final int nb = dis.readInt();
+			for (int i = 0; i < nb; i++) {
+				final String key = readString(dis);
+				final String digest = readString(dis);
+				final String description = readString(dis);
+				final int nbOutputs = dis.readInt();
+				final List<String> outputs = new ArrayList<>();
+				for (int j = 0; j < nbOutputs; j++)
+					outputs.add(readString(dis));
+				entries.put(key, new Entry(digest, description, outputs));
+			}
+			Log.info("Read " + nb + " entries from " + file.getPrintablePath());
+		} catch (IOException e) {
+			Log.info("Ignoring unreadable manifest " + file.getPrintablePath() + ": " + e);
+			entries.clear();
+		}
+	}
+
+	private synchronized void save() {
+		if (modified == false)
+			return;
+
+		final SFile file = getFile();
+		final SFile tmp = dir.file(FILENAME + ".tmp");
+		try {
+			final OutputStream os = tmp.createBufferedOutputStream();
+			try {
+				final DataOutputStream dos = new DataOutputStream(os);
+				dos.writeInt(MAGIC);
+				dos.writeInt(entries.size());
+				for (Map.Entry<String, Entry> ent : entries.entrySet()) {
+					final Entry entry = ent.getValue();
+					writeString(dos, ent.getKey());
+					writeString(dos, entry.digest);
+					writeString(dos, entry.description);
+					dos.writeInt(entry.outputs.size());
+					for (String s : entry.outputs)
+						writeString(dos, s);
+				}
+				dos.flush();
+			} finally {
+				os.close();
+			}
+			if (tmp.renameTo(file) == false) {
+				file.delete();
+				if (tmp.renameTo(file) == false)
+					throw new IOException("Cannot rename " + tmp.getPrintablePath());
+			}
+			modified = false;
+		} catch (IOException e) {
+			Logme.error(e);
+			tmp.delete();
+		}
+		lastSave = System.currentTimeMillis();
+	}
+
+	// DataOutputStream.writeUTF() is limited to 64KB
+	private static void writeString(DataOutputStream dos, String s) throws IOException {
+		final byte[] bytes = s.getBytes(UTF_8);
+		dos.writeInt(bytes.length);
+		dos.write(bytes);
+	}
+
+	private static String readString(DataInputStream dis) throws IOException {
+		final int length = dis.readInt();
+		if (length < 0 || length > MAX_STRING_LENGTH)
+			throw new IOException("Bad string length " + length);
+		final byte[] bytes = new byte[length];
+		dis.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+}
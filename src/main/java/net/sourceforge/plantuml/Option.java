@@ -48,14 +48,17 @@ import java.util.Map;
 
 import net.sourceforge.plantuml.api.ApiWarning;
 import net.sourceforge.plantuml.dot.GraphvizRuntimeEnvironment;
+import net.sourceforge.plantuml.dot.GraphvizWorkerPool;
 import net.sourceforge.plantuml.dot.GraphvizUtils;
 import net.sourceforge.plantuml.file.FileGroup;
 import net.sourceforge.plantuml.klimt.color.ColorMapper;
+import net.sourceforge.plantuml.log.Trace;
 import net.sourceforge.plantuml.preproc.Defines;
 import net.sourceforge.plantuml.regex.Matcher2;
 import net.sourceforge.plantuml.regex.MyPattern;
 import net.sourceforge.plantuml.regex.Pattern2;
 import net.sourceforge.plantuml.security.SFile;
+import net.sourceforge.plantuml.stats.PhaseMetrics;
 import net.sourceforge.plantuml.stats.StatsUtils;
 import net.sourceforge.plantuml.utils.Log;
 
@@ -75,6 +78,7 @@ public class Option {
 	private String pipeDelimitor;
 	private boolean pipeMap = false;
 	private boolean pipeNoStdErr = false;
+	private int pipeWindow = -1;
 	private boolean syntax = false;
 	private boolean checkOnly = false;
 	// ::done
@@ -85,6 +89,8 @@ public class Option {
 	private boolean noerror = false;
 
 	private boolean duration = false;
+	private String traceFile = null;
+	private String metricsFile = null;
 	private boolean debugsvek = false;
 	private int nbThreads = 0;
 
@@ -95,9 +101,12 @@ public class Option {
 	private String picowebBindAddress = null;
 	private int picowebPort = -1;
 	private boolean picowebEnableStop = false;
+	private int picowebQueue = -1;
+	private String picowebCacheDir = null;
 	private int stdrpt = 0;
 	private boolean hideMetadata = false;
 	private boolean checkMetadata = false;
+	private boolean incremental = false;
 	private String filename;
 	// ::done
 	private int imageIndex = 0;
@@ -224,6 +233,15 @@ public class Option {
 					continue;
 
 				GraphvizRuntimeEnvironment.getInstance().setDotExecutable(StringUtils.eventuallyRemoveStartingAndEndingDoubleQuote(arg[i]));
+			} else if (s.equalsIgnoreCase("-graphvizworkers")) {
+				i++;
+				if (i == arg.length)
+					continue;
+
+				final String nb = arg[i];
+				if (nb.matches("\\d+"))
+					GraphvizWorkerPool.getInstance().setSize(Integer.parseInt(nb));
+
 			} else if (s.equalsIgnoreCase("-charset")) {
 				i++;
 				if (i == arg.length)
@@ -323,6 +341,15 @@ public class Option {
 			} else if (s.equalsIgnoreCase("-pipenostderr")) {
 				pipeNoStdErr = true;
 
+			} else if (s.equalsIgnoreCase("-pipewindow")) {
+				i++;
+				if (i == arg.length)
+					continue;
+
+				final String nb = arg[i];
+				if (nb.matches("\\d+") && Integer.parseInt(nb) > 0)
+					this.pipeWindow = Integer.parseInt(nb);
+
 			} else if (s.equalsIgnoreCase("-syntax")) {
 				syntax = true;
 				OptionFlags.getInstance().setQuiet(true);
@@ -330,6 +357,22 @@ public class Option {
 			} else if (s.equalsIgnoreCase("-duration")) {
 				duration = true;
 
+			} else if (s.equalsIgnoreCase("-trace")) {
+				i++;
+				if (i == arg.length)
+					continue;
+
+				traceFile = arg[i];
+				Trace.setEnabled(true);
+
+			} else if (s.equalsIgnoreCase("-metrics")) {
+				i++;
+				if (i == arg.length)
+					continue;
+
+				metricsFile = arg[i];
+				PhaseMetrics.setEnabled(true);
+
 			} else if (s.equalsIgnoreCase("-debugsvek") || s.equalsIgnoreCase("-debug_svek")) {
 				debugsvek = true;
 
@@ -459,6 +502,12 @@ public class Option {
 			} else if (s.equalsIgnoreCase("-checkmetadata")) {
 				checkMetadata = true;
 
+			} else if (s.equalsIgnoreCase("-incremental")) {
+				incremental = true;
+
+			} else if (s.equalsIgnoreCase("-svgstreaming")) {
+				OptionFlags.getInstance().setSvgStreaming(true);
+
 			} else if (s.equalsIgnoreCase("-stdrpt:1")) {
 				stdrpt = 1;
 
@@ -484,6 +533,22 @@ public class Option {
 				else
 					this.ftpPort = Integer.parseInt(s.substring(x + 1));
 
+			} else if (s.equalsIgnoreCase("-picowebqueue")) {
+				i++;
+				if (i == arg.length)
+					continue;
+
+				final String nb = arg[i];
+				if (nb.matches("\\d+"))
+					this.picowebQueue = Integer.parseInt(nb);
+
+			} else if (s.equalsIgnoreCase("-picowebcachedir")) {
+				i++;
+				if (i == arg.length)
+					continue;
+
+				this.picowebCacheDir = StringUtils.eventuallyRemoveStartingAndEndingDoubleQuote(arg[i]);
+
 			} else if (StringUtils.goLowerCase(s).startsWith("-picoweb")) {
 				final String[] parts = s.split(":");
 				this.picowebPort = parts.length > 1 ? Integer.parseInt(parts[1]) : 8080;
@@ -529,6 +594,14 @@ public class Option {
 	public boolean getPicowebEnableStop() {
 		return picowebEnableStop;
 	}
+
+	public int getPicowebQueue() {
+		return picowebQueue;
+	}
+
+	public String getPicowebCacheDir() {
+		return picowebCacheDir;
+	}
 	// ::done
 
 	private void addInConfig(BufferedReader br) throws IOException {
@@ -709,6 +782,14 @@ public class Option {
 		return duration;
 	}
 
+	public final String getTraceFile() {
+		return traceFile;
+	}
+
+	public final String getMetricsFile() {
+		return metricsFile;
+	}
+
 	public final int getNbThreads() {
 		return nbThreads;
 	}
@@ -788,10 +869,25 @@ public class Option {
 		return pipeNoStdErr;
 	}
 
+	/**
+	 * Maximum number of diagrams read from the pipe and not written yet, when
+	 * several threads are used.
+	 */
+	public final int getPipeWindow() {
+		if (pipeWindow > 0)
+			return pipeWindow;
+
+		return 2 * Math.max(1, nbThreads);
+	}
+
 	public final boolean isCheckMetadata() {
 		return checkMetadata;
 	}
 
+	public final boolean isIncremental() {
+		return incremental;
+	}
+
 	public final void setFilename(String filename) {
 		this.filename = filename;
 	}
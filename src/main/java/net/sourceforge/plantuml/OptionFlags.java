@@ -146,6 +146,7 @@ public class OptionFlags {
 	private boolean clipboard;
 	private String fileSeparator = "_";
 	private long timeoutMs = 15 * 60 * 1000L; // 15 minutes
+	private Boolean svgStreaming;
 	private SFile logData;
 
 	public final boolean isVerbose() {
@@ -323,6 +324,16 @@ public class OptionFlags {
 		this.enableStats = enableStats;
 	}
 
+	public final boolean isSvgStreaming() {
+		if (svgStreaming == null)
+			svgStreaming = isTrue(SecurityUtils.getenv("PLANTUML_SVG_STREAMING"));
+		return svgStreaming;
+	}
+
+	public final void setSvgStreaming(boolean svgStreaming) {
+		this.svgStreaming = svgStreaming;
+	}
+
 	public final long getTimeoutMs() {
 		return timeoutMs;
 	}
@@ -110,14 +110,17 @@ public class OptionPrint {
 		System.out.println("    -filedir xxx\tTo behave as if the PlantUML source is in this dir (only affects '-pipe' and PicoWeb 'POST /render')");
 		System.out.println("    -filename \"example.puml\"\tTo override %filename% variable");
 		System.out.println("    -graphvizdot \"exe\"\tTo specify dot executable");
+		System.out.println("    -graphvizworkers N\tTo keep (N) dot processes running and reuse them for SVG layouts");
 		System.out.println("    -gui\t\tTo run the graphical user interface");
 		System.out.println("    -h[elp]\t\tTo display this help message");
 		System.out.println("    -htmlstats\t\tTo output general statistics in file plantuml-stats.html");
+		System.out.println("    -incremental\t\tSkip diagrams whose source and included files have not changed");
 		System.out.println("    -I" + separator + "path" + separator + "to" + separator + "file\tTo include file as if '!include file' were used");
 		System.out.println("    -I" + separator + "path" + separator + "to" + separator + "*.puml\tTo include files with pattern");
 		System.out.println("    -language\t\tTo print the list of PlantUML keywords");
 		System.out.println("    -loopstats\t\tTo continuously print statistics about usage");
 		System.out.println("    -metadata\t\tTo retrieve PlantUML sources from PNG images");
+		System.out.println("    -metrics \"file\"\tTo write per diagram type and per phase timing metrics as JSON in \"file\"");
 		System.out.println("    -nbthread N\t\tTo use (N) threads for processing");
 		System.out.println("    -nbthread auto\tTo use " + Option.defaultNbThreads() + " threads for processing");
 		System.out.println("    -noerror\t\tTo skip images when error in diagrams");
@@ -125,9 +128,13 @@ public class OptionPrint {
 		System.out.println("    -o[utput] \"dir\"\tTo generate images in the specified directory");
 		System.out.println("    -overwrite\t\tTo allow to overwrite read only files");
 		System.out.println("    -Ppragma1=value\tTo set pragma as if '!pragma pragma1 value' were used");
+		System.out.println("    -Pgraphviz_output=json\tTo read layouts from 'dot -Tjson' instead of SVG (Graphviz 2.40 or later)");
 		System.out.println("    -p[ipe]\t\tTo use stdin for PlantUML source and stdout for PNG/SVG/EPS generation");
 		System.out.println("    -picoweb\t\tTo start internal HTTP Server. See https://plantuml.com/picoweb");
+		System.out.println("    -picowebcachedir \"dir\"\tTo spill PicoWeb rendered images to this dir when memory cache is full");
+		System.out.println("    -picowebqueue N\tTo answer 503 when more than N requests wait for a -nbthread render slot");
 		System.out.println("    -pipeimageindex N\tTo generate the Nth image with pipe option");
+		System.out.println("    -pipewindow N\tTo keep at most N diagrams in memory when using pipe with -nbthread");
 		System.out.println("    -preproc\t\tTo output preprocessor text of diagrams");
 		System.out.println("    -printfonts\t\tTo print fonts available on your system");
 		System.out.println("    -progress\t\tTo display a textual progress bar in console");
@@ -136,6 +143,7 @@ public class OptionPrint {
 		System.out.println("    -Sparam1=value\tTo set a skin parameter as if 'skinparam param1 value' were used");
 		System.out.println("    -splash\t\tTo display a splash screen with some progress bar");
 		System.out.println("    -stdlib\t\tTo print standard library info");
+		System.out.println("    -svgstreaming\tTo write SVG files without building a DOM tree (faster on large diagrams)");
 		System.out.println("    -syntax\t\tTo report any syntax error from standard input without generating images");
 		System.out.println("    -testdot\t\tTo test the installation of graphviz");
 		System.out.println("    -theme xxx\t\tTo use a specific theme");
@@ -146,6 +154,7 @@ public class OptionPrint {
 		System.out.println("    -tlatex\t\tTo generate images using LaTeX/Tikz format");
 		System.out.println("    -tpdf\t\tTo generate images using PDF format");
 		System.out.println("    -tpng\t\tTo generate images using PNG format (default)");
+		System.out.println("    -trace \"file\"\tTo record processing phase timings as a JSON trace in \"file\"");
 		System.out.println("    -tscxml\t\tTo generate SCXML file for state diagram");
 		System.out.println("    -tsvg\t\tTo generate images using SVG format");
 		System.out.println("    -ttxt\t\tTo generate images with ASCII art");
@@ -37,13 +37,18 @@ package net.sourceforge.plantuml;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.plantuml.api.cheerpj.WasmLog;
 
 import net.sourceforge.plantuml.activitydiagram.ActivityDiagramFactory;
 import net.sourceforge.plantuml.activitydiagram3.ActivityDiagramFactory3;
 import net.sourceforge.plantuml.api.PSystemFactory;
+import net.sourceforge.plantuml.api.PSystemFactorySniffer;
+import net.sourceforge.plantuml.command.PSystemCommandFactory;
 import net.sourceforge.plantuml.board.BoardDiagramFactory;
 import net.sourceforge.plantuml.bpm.BpmDiagramFactory;
 import net.sourceforge.plantuml.cheneer.ChenEerDiagramFactory;
@@ -92,6 +97,7 @@ import net.sourceforge.plantuml.openiconic.PSystemOpenIconicFactory;
 import net.sourceforge.plantuml.oregon.PSystemOregonFactory;
 import net.sourceforge.plantuml.preproc.PreprocessingArtifact;
 import net.sourceforge.plantuml.project.GanttDiagramFactory;
+import net.sourceforge.plantuml.regex.MyPattern;
 import net.sourceforge.plantuml.regex.RegexConcat;
 import net.sourceforge.plantuml.regexdiagram.PSystemRegexFactory;
 import net.sourceforge.plantuml.salt.PSystemSaltFactory;
@@ -114,8 +120,10 @@ import net.sourceforge.plantuml.yaml.YamlDiagramFactory;
  * Builds a diagram from pre-processed PlantUML source.
  *
  * <p>
- * Tries each of the factories (enumerated in the static block below) until one
- * succeeds.
+ * Tries each of the factories (enumerated in the static block below) that
+ * handle the type of the diagram until one succeeds. Factories that implement
+ * {@link PSystemFactorySniffer} are skipped when they know they cannot accept
+ * the source.
  *
  * @see AbstractPSystem
  */
@@ -151,14 +159,42 @@ public class PSystemBuilder {
 			if (diagramType == DiagramType.UNKNOWN)
 				return new PSystemUnsupported(umlSource, preprocessing);
 
-			final List<PSystemError> errors = new ArrayList<>();
-			for (PSystemFactory systemFactory : factories) {
-				if (diagramType != systemFactory.getDiagramType())
+			final List<PSystemFactory> candidates = factoriesByType.get(diagramType);
+			if (candidates == null)
+				return new PSystemUnsupported(umlSource, preprocessing);
+
+			final Map<PSystemFactory, PSystemError> failures = new IdentityHashMap<>();
+			int tried = 0;
+			int skipped = 0;
+			for (PSystemFactory systemFactory : candidates) {
+				if (systemFactory instanceof PSystemFactorySniffer
+						&& ((PSystemFactorySniffer) systemFactory).mayAccept(umlSource) == false) {
+					skipped++;
 					continue;
+				}
 
 				// WasmLog.log("...trying " + systemFactory.getClass().getName() + " ...");
+				tried++;
+				final Diagram sys = systemFactory.createSystem(umlSource, previous, preprocessing);
+				if (isOk(sys)) {
+					onceMoreDispatch(systemFactory, tried, skipped);
+					result = sys;
+					return sys;
+				}
+				failures.put(systemFactory, (PSystemError) sys);
+			}
+
+			// Nobody accepts this source: skipped factories are tried as well, so that
+			// the reported error is the same as if every factory had been tried
+			final List<PSystemError> errors = new ArrayList<>();
+			for (PSystemFactory systemFactory : candidates) {
+				if (failures.containsKey(systemFactory)) {
+					errors.add(failures.get(systemFactory));
+					continue;
+				}
 				final Diagram sys = systemFactory.createSystem(umlSource, previous, preprocessing);
 				if (isOk(sys)) {
+					Log.error("Factory " + systemFactory.getClass().getSimpleName() + " should not have been skipped");
 					result = sys;
 					return sys;
 				}
@@ -183,6 +219,9 @@ public class PSystemBuilder {
 
 	private static final List<PSystemFactory> factories = new ArrayList<>();
 
+	// Same factories, in the same order, indexed by the type of @start they accept
+	private static final Map<DiagramType, List<PSystemFactory>> factoriesByType = new EnumMap<>(DiagramType.class);
+
 	static {
 		factories.add(new PSystemWelcomeFactory());
 		factories.add(new PSystemColorsFactory());
@@ -276,6 +315,40 @@ public class PSystemBuilder {
 		factories.add(new PSystemRegexFactory());
 
 		factories.add(new ChenEerDiagramFactory());
+
+		for (PSystemFactory systemFactory : factories) {
+			List<PSystemFactory> list = factoriesByType.get(systemFactory.getDiagramType());
+			if (list == null) {
+				list = new ArrayList<>();
+				factoriesByType.put(systemFactory.getDiagramType(), list);
+			}
+			list.add(systemFactory);
+		}
+	}
+
+	/**
+	 * Initializes the commands of every factory and compiles their patterns.
+	 * Useful for long-running or multithreaded usages, where all diagrams then
+	 * start with a warm regex cache.
+	 */
+	public static void prewarm() {
+		final long now = System.currentTimeMillis();
+		for (PSystemFactory systemFactory : factories)
+			if (systemFactory instanceof PSystemCommandFactory)
+				((PSystemCommandFactory) systemFactory).prewarm();
+
+		Log.info("Patterns prewarmed in " + (System.currentTimeMillis() - now) + " ms: " + MyPattern.getCache());
+	}
+
+	static List<PSystemFactory> getFactories(DiagramType type) {
+		return factoriesByType.get(type);
+	}
+
+	private void onceMoreDispatch(PSystemFactory systemFactory, int tried, int skipped) {
+		// ::comment when __CORE__
+		if (OptionFlags.getInstance().isEnableStats())
+			StatsUtilsIncrement.onceMoreDispatch(systemFactory.getClass().getSimpleName(), tried, skipped);
+		// ::done
 	}
 
 	private boolean isOk(Diagram ps) {
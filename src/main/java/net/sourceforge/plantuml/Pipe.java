@@ -47,6 +47,14 @@ import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -80,6 +88,12 @@ public class Pipe {
 	public void managePipe(ErrorStatus error) throws IOException {
 		final boolean noStdErr = option.isPipeNoStdErr();
 
+		if (option.getNbThreads() > 1 && option.isComputeurl() == false && option.isSyntax() == false
+				&& option.isPipeMap() == false) {
+			manageParallelPipe(error, noStdErr);
+			return;
+		}
+
 		for (String source = readFirstDiagram(); source != null; source = readSubsequentDiagram()) {
 			final Defines defines = option.getDefaultDefines();
 			final SFile newCurrentDir = option.getFileDir() == null ? null : new SFile(option.getFileDir());
@@ -121,6 +135,127 @@ public class Pipe {
 
 	}
 
+	/**
+	 * Renders several diagrams at the same time while keeping the output in input
+	 * order.
+	 * <p>
+	 * A reader thread splits the input and submits each diagram to a pool of
+	 * <code>-nbthread</code> workers. The current thread writes the results in
+	 * the order they were read. At most <code>-pipewindow</code> diagrams are
+	 * pending at any time, so that memory stays bounded whatever the input size.
+	 */
+	private void manageParallelPipe(final ErrorStatus error, final boolean noStdErr) throws IOException {
+		final ExecutorService executor = Executors.newFixedThreadPool(option.getNbThreads());
+		final BlockingQueue<Future<PipeResult>> pending = new ArrayBlockingQueue<>(option.getPipeWindow());
+		final FutureTask<PipeResult> end = new FutureTask<>(new Callable<PipeResult>() {
+			public PipeResult call() {
+				return null;
+			}
+		});
+		end.run();
+
+		final Thread reader = new Thread(new Runnable() {
+			public void run() {
+				Future<PipeResult> last = end;
+				try {
+					for (String source = readFirstDiagram(); source != null; source = readSubsequentDiagram()) {
+						// Must be read here: "@@@format" lines may have changed it
+						final FileFormatOption fileFormatOption = option.getFileFormatOption();
+						final String diagram = source;
+						pending.put(executor.submit(new Callable<PipeResult>() {
+							public PipeResult call() throws IOException {
+								return renderDiagram(diagram, fileFormatOption);
+							}
+						}));
+					}
+				} catch (InterruptedException e) {
+					return;
+				} catch (final Exception e) {
+					// Reported by the writer, once previous diagrams are written
+					final FutureTask<PipeResult> failure = new FutureTask<>(new Callable<PipeResult>() {
+						public PipeResult call() throws Exception {
+							throw e;
+						}
+					});
+					failure.run();
+					last = failure;
+				}
+				try {
+					pending.put(last);
+				} catch (InterruptedException e) {
+				}
+			}
+		}, "PipeReader");
+		reader.setDaemon(true);
+		reader.start();
+
+		try {
+			Future<PipeResult> next;
+			while ((next = pending.take()) != end) {
+				final PipeResult result = next.get();
+				if (noStdErr) {
+					ps.write(result.info);
+					if (result.hasError == false)
+						ps.write(result.image);
+				} else {
+					ps.write(result.image);
+					System.err.write(result.info);
+				}
+				if (result.hasError)
+					error.goWithError();
+				else
+					error.goOk();
+
+				if (option.getPipeDelimitor() != null)
+					ps.println(option.getPipeDelimitor());
+
+				ps.flush();
+			}
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		} finally {
+			reader.interrupt();
+			executor.shutdownNow();
+		}
+	}
+
+	private PipeResult renderDiagram(String source, FileFormatOption fileFormatOption) throws IOException {
+		final Defines defines = option.getDefaultDefines();
+		final SFile newCurrentDir = option.getFileDir() == null ? null : new SFile(option.getFileDir());
+		final SourceStringReader sourceStringReader = new SourceStringReader(defines, source, UTF_8,
+				option.getConfig(), newCurrentDir);
+
+		final ByteArrayOutputStream image = new ByteArrayOutputStream();
+		final DiagramDescription result = sourceStringReader.outputImage(image, option.getImageIndex(),
+				fileFormatOption);
+
+		final ByteArrayOutputStream info = new ByteArrayOutputStream();
+		final PrintStream infoStream = new PrintStream(info);
+		printInfo(infoStream, sourceStringReader);
+		infoStream.close();
+
+		final boolean hasError = result != null && "(error)".equalsIgnoreCase(result.getDescription());
+		return new PipeResult(image.toByteArray(), info.toByteArray(), hasError);
+	}
+
+	static class PipeResult {
+		private final byte[] image;
+		private final byte[] info;
+		private final boolean hasError;
+
+		PipeResult(byte[] image, byte[] info, boolean hasError) {
+			this.image = image;
+			this.info = info;
+			this.hasError = hasError;
+		}
+	}
+
 	private void createPipeMapForDiagram(SourceStringReader sourceStringReader, ErrorStatus error) throws IOException {
 		final String result = sourceStringReader.getCMapData(option.getImageIndex(), option.getFileFormatOption());
 		// https://forum.plantuml.net/10049/2019-pipemap-diagrams-containing-links-give-zero-exit-code
@@ -47,29 +47,40 @@ import java.io.InputStream;
 import java.io.PrintWriter;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.UIManager;
 
+import net.sourceforge.plantuml.SourceFileReaderAbstract.ScheduledBlock;
 import net.sourceforge.plantuml.code.NoPlantumlCompressionException;
 import net.sourceforge.plantuml.code.Transcoder;
 import net.sourceforge.plantuml.code.TranscoderUtil;
 import net.sourceforge.plantuml.file.FileGroup;
 import net.sourceforge.plantuml.file.SuggestedFile;
 import net.sourceforge.plantuml.ftp.FtpServer;
+import net.sourceforge.plantuml.json.WriterConfig;
 import net.sourceforge.plantuml.klimt.drawing.svg.SvgGraphics;
+import net.sourceforge.plantuml.klimt.shape.TextBlockUtils;
 import net.sourceforge.plantuml.klimt.sprite.SpriteGrayLevel;
 import net.sourceforge.plantuml.klimt.sprite.SpriteUtils;
 import net.sourceforge.plantuml.log.Logme;
+import net.sourceforge.plantuml.log.Trace;
+import net.sourceforge.plantuml.picoweb.ImageCache;
 import net.sourceforge.plantuml.picoweb.PicoWebServer;
+import net.sourceforge.plantuml.picoweb.RenderLimiter;
 import net.sourceforge.plantuml.png.MetadataTag;
 import net.sourceforge.plantuml.preproc.Stdlib;
 import net.sourceforge.plantuml.security.SFile;
 import net.sourceforge.plantuml.security.SImageIO;
 import net.sourceforge.plantuml.security.SecurityUtils;
+import net.sourceforge.plantuml.stats.PhaseMetrics;
 import net.sourceforge.plantuml.stats.StatsUtils;
 import net.sourceforge.plantuml.swing.ClipboardLoop;
 import net.sourceforge.plantuml.swing.MainWindow;
@@ -228,6 +239,15 @@ public class Run {
 			Log.error("Duration = " + duration + " seconds");
 		}
 
+		if (option.getTraceFile() != null)
+			writeTrace(option.getTraceFile());
+
+		if (option.getMetricsFile() != null)
+			writeMetrics(option.getMetricsFile());
+
+		if (Log.isEnabled(Log.Level.INFO))
+			Log.info("TextBlock memoization avoided " + TextBlockUtils.getAvoidedRecomputations() + " recomputations");
+
 		if (OptionFlags.getInstance().isGui() == false) {
 			if (error.hasError() || error.isNoData())
 				option.getStdrpt().finalMessage(error);
@@ -280,6 +300,21 @@ public class Run {
 	static private final String httpProtocol = "http://";
 	static private final String httpsProtocol = "https://";
 
+	private static void writeTrace(String path) throws IOException {
+		try (PrintWriter pw = new SFile(path).createPrintWriter("UTF-8")) {
+			Trace.exportJson(pw);
+		}
+		Log.info("Trace written to " + path);
+	}
+
+	private static void writeMetrics(String path) throws IOException {
+		try (PrintWriter pw = new SFile(path).createPrintWriter("UTF-8")) {
+			PhaseMetrics.toJson().writeTo(pw, WriterConfig.PRETTY_PRINT);
+			pw.println();
+		}
+		Log.info("Metrics written to " + path);
+	}
+
 	private static void encodeSprite(List<String> result) throws IOException {
 		SpriteGrayLevel level = SpriteGrayLevel.GRAY_16;
 		boolean compressed = false;
@@ -352,8 +387,13 @@ public class Run {
 	}
 
 	private static void goPicoweb(Option option) throws IOException {
+		final int nbRenders = option.getNbThreads() > 0 ? option.getNbThreads() : Option.defaultNbThreads();
+		final int queue = option.getPicowebQueue() >= 0 ? option.getPicowebQueue() : 4 * nbRenders;
+		final SFile spillDir = option.getPicowebCacheDir() == null ? null : new SFile(option.getPicowebCacheDir());
+		final ImageCache imageCache = new ImageCache(ImageCache.DEFAULT_MAX_BYTES, spillDir);
+		PSystemBuilder.prewarm();
 		PicoWebServer.startServer(option.getPicowebPort(), option.getPicowebBindAddress(),
-				option.getPicowebEnableStop());
+				option.getPicowebEnableStop(), new RenderLimiter(nbRenders, queue), imageCache);
 	}
 
 	public static void printFonts() {
@@ -386,6 +426,8 @@ public class Run {
 			}
 			processArgs(option, error);
 		} finally {
+			if (option.isIncremental())
+				IncrementalManifest.saveAll();
 			if (lockFile != null) {
 				lockFile.delete();
 			}
@@ -428,36 +470,131 @@ public class Run {
 		}
 	}
 
-	private static void multithread(final Option option, final ErrorStatus error) throws InterruptedException {
+	static void multithread(final Option option, final ErrorStatus error) throws InterruptedException {
 		Log.info("Using several threads: " + option.getNbThreads());
-		final ExecutorService executor = Executors.newFixedThreadPool(option.getNbThreads());
 
-		int nb = 0;
+		final List<File> files = new ArrayList<>();
 		for (String s : option.getResult()) {
 			final FileGroup group = new FileGroup(s, option.getExcludes(), option);
-			for (final File f : group.getFiles()) {
-				incTotal(1);
-				nb++;
+			files.addAll(group.getFiles());
+		}
+		foundNbFiles(files.size());
+
+		final ExecutorService executor = Executors.newFixedThreadPool(option.getNbThreads());
+		try {
+			if (option.isComputeurl() || option.getPreprocessorOutputMode() != null) {
+				incTotal(files.size());
+				for (final File f : files)
+					executor.submit(new Runnable() {
+						public void run() {
+							if (error.hasError() && option.isFailfastOrFailfast2())
+								return;
+
+							try {
+								manageFileInternal(f, option, error);
+							} catch (IOException e) {
+								Logme.error(e);
+							} catch (InterruptedException e) {
+								Logme.error(e);
+							}
+							incDone(error.hasError());
+						}
+					});
+				return;
+			}
+
+			// Each file is read, and the names of its images reserved, by one task
+			// that then submits the exports of its diagrams. Only a few files are read
+			// ahead, so that the parsed diagrams of the whole run are never held
+			// together, and failfast stops reading new files.
+			final int readAhead = 2 * option.getNbThreads();
+			final Semaphore window = new Semaphore(readAhead);
+			for (final File f : files) {
+				window.acquire();
+				if (error.hasError() && option.isFailfastOrFailfast2()) {
+					window.release();
+					break;
+				}
 				executor.submit(new Runnable() {
 					public void run() {
-						if (error.hasError() && option.isFailfastOrFailfast2()) {
-							return;
-						}
-						try {
-							manageFileInternal(f, option, error);
-						} catch (IOException e) {
-							Logme.error(e);
-						} catch (InterruptedException e) {
-							Logme.error(e);
-						}
-						incDone(error.hasError());
+						scheduleAndExport(executor, f, option, error, window);
 					}
 				});
 			}
+			window.acquire(readAhead);
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+		}
+	}
+
+	private static void scheduleAndExport(ExecutorService executor, File f, final Option option,
+			final ErrorStatus error, final Semaphore window) {
+		List<ScheduledBlock> blocks = Collections.emptyList();
+		try {
+			if (error.hasError() == false || option.isFailfastOrFailfast2() == false)
+				blocks = scheduleFile(f, option);
+		} catch (Throwable t) {
+			Logme.error(t);
+		}
+		if (blocks.size() == 0) {
+			window.release();
+			return;
+		}
+
+		// Most expensive diagrams first: the longest renderings start early and
+		// smaller ones fill the gaps
+		sortByCost(blocks);
+		incTotal(blocks.size());
+		final AtomicInteger remaining = new AtomicInteger(blocks.size());
+		for (final ScheduledBlock block : blocks)
+			executor.submit(new Runnable() {
+				public void run() {
+					try {
+						exportBlock(block, option, error);
+					} finally {
+						if (remaining.decrementAndGet() == 0)
+							window.release();
+					}
+				}
+			});
+	}
+
+	static List<ScheduledBlock> scheduleFile(File f, Option option) throws IOException {
+		Log.info("Working on " + f.getPath());
+		final List<ScheduledBlock> result = createSourceFileReader(f, option).scheduleBlocks();
+		if (result.size() == 0) {
+			Log.error("Warning: no image in " + f.getPath());
+			option.getStdrpt().printInfo(System.err, null);
+		}
+		return result;
+	}
+
+	static void sortByCost(List<ScheduledBlock> blocks) {
+		Collections.sort(blocks, new Comparator<ScheduledBlock>() {
+			public int compare(ScheduledBlock block1, ScheduledBlock block2) {
+				return Integer.compare(block2.getCost(), block1.getCost());
+			}
+		});
+	}
+
+	static void exportBlock(ScheduledBlock block, Option option, ErrorStatus error) {
+		if (error.hasError() && option.isFailfastOrFailfast2())
+			return;
+
+		try {
+			final List<GeneratedImage> result = block.export();
+			final Stdrpt rpt = option.getStdrpt();
+			for (BlockUml s : block.getBlocks()) {
+				if (block.isUpToDate(s))
+					continue;
+				rpt.printInfo(System.err, s.getDiagram());
+			}
+			hasErrors(block.getFile(), result, error, rpt);
+		} catch (IOException e) {
+			Logme.error(e);
 		}
-		foundNbFiles(nb);
-		executor.shutdown();
-		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+		incDone(error.hasError());
 	}
 
 	private static void foundNbFiles(int nb) {
@@ -482,24 +619,7 @@ public class Run {
 			extractMetadata(f);
 			return;
 		}
-		final ISourceFileReader sourceFileReader;
-		if (option.getOutputFile() == null) {
-			File outputDir = option.getOutputDir();
-			if (outputDir != null && outputDir.getPath().endsWith("$")) {
-				final String path = outputDir.getPath();
-				outputDir = new File(path.substring(0, path.length() - 1)).getAbsoluteFile();
-				sourceFileReader = new SourceFileReaderCopyCat(option.getDefaultDefines(f), f, outputDir,
-						option.getConfig(), option.getCharset(), option.getFileFormatOption());
-			} else {
-				sourceFileReader = new SourceFileReader(option.getDefaultDefines(f), f, outputDir, option.getConfig(),
-						option.getCharset(), option.getFileFormatOption());
-			}
-		} else {
-			sourceFileReader = new SourceFileReaderHardFile(option.getDefaultDefines(f), f, option.getOutputFile(),
-					option.getConfig(), option.getCharset(), option.getFileFormatOption());
-		}
-		sourceFileReader.setCheckMetadata(option.isCheckMetadata());
-		((SourceFileReaderAbstract) sourceFileReader).setNoerror(option.isNoerror());
+		final SourceFileReaderAbstract sourceFileReader = createSourceFileReader(f, option);
 
 		if (option.isComputeurl()) {
 			error.goOk();
@@ -532,12 +652,37 @@ public class Run {
 			return;
 		}
 		for (BlockUml s : sourceFileReader.getBlocks()) {
+			if (sourceFileReader.isUpToDate(s))
+				continue;
 			rpt.printInfo(System.err, s.getDiagram());
 		}
 
 		hasErrors(f, result, error, rpt);
 	}
 
+	private static SourceFileReaderAbstract createSourceFileReader(File f, Option option) throws IOException {
+		final SourceFileReaderAbstract sourceFileReader;
+		if (option.getOutputFile() == null) {
+			File outputDir = option.getOutputDir();
+			if (outputDir != null && outputDir.getPath().endsWith("$")) {
+				final String path = outputDir.getPath();
+				outputDir = new File(path.substring(0, path.length() - 1)).getAbsoluteFile();
+				sourceFileReader = new SourceFileReaderCopyCat(option.getDefaultDefines(f), f, outputDir,
+						option.getConfig(), option.getCharset(), option.getFileFormatOption());
+			} else {
+				sourceFileReader = new SourceFileReader(option.getDefaultDefines(f), f, outputDir, option.getConfig(),
+						option.getCharset(), option.getFileFormatOption());
+			}
+		} else {
+			sourceFileReader = new SourceFileReaderHardFile(option.getDefaultDefines(f), f, option.getOutputFile(),
+					option.getConfig(), option.getCharset(), option.getFileFormatOption());
+		}
+		sourceFileReader.setCheckMetadata(option.isCheckMetadata());
+		sourceFileReader.setNoerror(option.isNoerror());
+		sourceFileReader.setIncremental(option.isIncremental());
+		return sourceFileReader;
+	}
+
 	private static void extractPreproc(Option option, final ISourceFileReader sourceFileReader) throws IOException {
 		final String charset = option.getCharset();
 		for (BlockUml blockUml : sourceFileReader.getBlocks()) {
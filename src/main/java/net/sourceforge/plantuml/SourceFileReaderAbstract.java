@@ -50,9 +50,11 @@ import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import net.atmp.CucaDiagram;
 import net.sourceforge.plantuml.api.ImageDataSimple;
 import net.sourceforge.plantuml.argon2.Constants.Messages;
 import net.sourceforge.plantuml.core.Diagram;
@@ -66,6 +68,7 @@ import net.sourceforge.plantuml.preproc.Defines;
 import net.sourceforge.plantuml.preproc.FileWithSuffix;
 import net.sourceforge.plantuml.security.SFile;
 import net.sourceforge.plantuml.security.SecurityUtils;
+import net.sourceforge.plantuml.sequencediagram.SequenceDiagram;
 import net.sourceforge.plantuml.utils.Log;
 import net.sourceforge.plantuml.version.Version;
 
@@ -78,6 +81,8 @@ public abstract class SourceFileReaderAbstract implements ISourceFileReader {
 	private FileFormatOption fileFormatOption;
 	private boolean checkMetadata;
 	private boolean noerror;
+	private boolean incremental;
+	private final Set<BlockUml> upToDate = new HashSet<>();
 
 	final private Charset charset;
 
@@ -169,24 +174,206 @@ public abstract class SourceFileReaderAbstract implements ISourceFileReader {
 		Log.info("Reading file: " + file);
 
 		cpt = 0;
+		final List<GeneratedImage> result = exportInSequence(builder.getBlockUmls());
+
+		Log.info("Number of image(s): " + result.size());
+
+		return Collections.unmodifiableList(result);
+	}
+
+	private List<GeneratedImage> exportInSequence(List<BlockUml> blocks) throws IOException {
 		final List<GeneratedImage> result = new ArrayList<>();
+		for (BlockUml blockUml : blocks) {
+			final ScheduledBlock block = new ScheduledBlock(blockUml, getSuggestedFile(blockUml));
+			final List<GeneratedImage> images = block.exportSingle();
+			if (block.isFatal())
+				return images;
+
+			if (images.size() > 1)
+				cpt += images.size() - 1;
+
+			result.addAll(images);
+		}
+		return result;
+	}
+
+	/**
+	 * Reserves the output names of all the diagrams of the file, in source order,
+	 * so that they can then be exported in any order, possibly in parallel.
+	 * <p>
+	 * The name of a diagram depends on the number of images written by the
+	 * previous ones. When this number cannot be known before drawing, the diagram
+	 * and all the following ones are exported in sequence by the last returned
+	 * block.
+	 */
+	final List<ScheduledBlock> scheduleBlocks() throws IOException {
+		Log.info("Reading file: " + file);
+
+		cpt = 0;
+		final List<ScheduledBlock> result = new ArrayList<>();
+		final List<BlockUml> all = builder.getBlockUmls();
+		for (int i = 0; i < all.size(); i++) {
+			final int cptBefore = cpt;
+			final ScheduledBlock block = new ScheduledBlock(all.get(i), getSuggestedFile(all.get(i)));
+			if (block.isFatal()) {
+				result.add(block);
+				break;
+			}
+			final int nbImages = block.getNbImages();
+			if (nbImages < 0) {
+				result.add(new ScheduledBlock(all.subList(i, all.size()), cptBefore));
+				break;
+			}
+			if (nbImages > 1)
+				cpt += nbImages - 1;
 
-		for (BlockUml blockUml : builder.getBlockUmls()) {
-			final SuggestedFile suggested = getSuggestedFile(blockUml);
+			result.add(block);
+		}
+		return result;
+	}
+
+	/**
+	 * One diagram of the file whose output name is already reserved, or the tail
+	 * of the file when it has to be exported in sequence.
+	 */
+	final class ScheduledBlock {
+
+		private final List<BlockUml> blocks;
+		private final int cptStart;
+
+		private final BlockUml blockUml;
+		private final SuggestedFile suggested;
+		private final SFile currentDir;
+
+		private IncrementalManifest manifest;
+		private String digest;
+		private List<GeneratedImage> upToDateImages;
+		private Diagram system;
+		private Throwable crash;
+
+		private ScheduledBlock(BlockUml blockUml, SuggestedFile suggested) {
+			this.blocks = Collections.singletonList(blockUml);
+			this.cptStart = -1;
+			this.blockUml = blockUml;
+			this.suggested = suggested;
+			this.currentDir = FileSystem.getInstance().getCurrentDir();
+			if (incremental && checkManifest())
+				return;
 
-			final Diagram system;
 			try {
-				system = blockUml.getDiagram();
+				this.system = blockUml.getDiagram();
 			} catch (Throwable t) {
 				Logme.error(t);
+				this.crash = t;
+			}
+		}
+
+		private ScheduledBlock(List<BlockUml> tail, int cptStart) {
+			this.blocks = tail;
+			this.cptStart = cptStart;
+			this.blockUml = null;
+			this.suggested = null;
+			this.currentDir = FileSystem.getInstance().getCurrentDir();
+		}
+
+		private boolean checkManifest() {
+			final SFile first = suggested.getFile(0);
+			manifest = IncrementalManifest.forDirectory(first.getAbsoluteFile().getParentFile());
+			digest = IncrementalManifest.digest(blockUml, fileFormatOption);
+			final IncrementalManifest.Entry entry = manifest.getUpToDate(first, digest);
+			if (entry == null)
+				return false;
+
+			Log.info("Skipping " + first.getPrintablePath() + " because it is up to date.");
+			upToDate.add(blockUml);
+			upToDateImages = new ArrayList<>();
+			for (String name : entry.getOutputs())
+				upToDateImages.add(GeneratedImageImpl.upToDate(first.getAbsoluteFile().getParentFile().file(name),
+						entry.getDescription(), blockUml));
+			return true;
+		}
+
+		// A crash stops the export of the whole file
+		private boolean isFatal() {
+			return crash != null && OptionFlags.getInstance().isSilentlyCompletelyIgnoreErrors() == false
+					&& noerror == false;
+		}
+
+		public List<BlockUml> getBlocks() {
+			return blocks;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public boolean isUpToDate(BlockUml blockUml) {
+			return SourceFileReaderAbstract.this.isUpToDate(blockUml);
+		}
+
+		/**
+		 * Number of preprocessed lines, used as an estimation of the cost of the
+		 * export.
+		 */
+		public int getCost() {
+			if (upToDateImages != null)
+				return 0;
+
+			int result = 0;
+			for (BlockUml b : blocks)
+				result += b.getData().size();
+			return result;
+		}
+
+		// Must give the same number as exportSingle(), or -1 when only drawing can
+		// tell
+		private int getNbImages() {
+			if (upToDateImages != null)
+				return upToDateImages.size();
+
+			if (crash != null || system instanceof PSystemError)
+				return 1;
+
+			final int result;
+			if (system instanceof NewpagedDiagram || system instanceof SequenceDiagram)
+				result = system.getNbImages();
+			else if (system instanceof CucaDiagram && fileFormatOption.getFileFormat() == FileFormat.HTML)
+				return -1;
+			else if (system instanceof TitledDiagram && fileFormatOption.getFileFormat() == FileFormat.PNG)
+				result = ((TitledDiagram) system).getSplitPagesHorizontal()
+						* ((TitledDiagram) system).getSplitPagesVertical();
+			else
+				result = 1;
+
+			// An up to date multi-pages diagram gives only one image
+			if (result > 1 && checkMetadata)
+				return -1;
+
+			return result;
+		}
+
+		public List<GeneratedImage> export() throws IOException {
+			FileSystem.getInstance().setCurrentDir(currentDir);
+			if (blockUml != null)
+				return exportSingle();
+
+			cpt = cptStart;
+			return exportInSequence(blocks);
+		}
+
+		private List<GeneratedImage> exportSingle() throws IOException {
+			if (upToDateImages != null)
+				return upToDateImages;
+
+			if (crash != null) {
 				if (OptionFlags.getInstance().isSilentlyCompletelyIgnoreErrors() || noerror)
-					continue;
+					return Collections.emptyList();
 
-				return getCrashedImage(blockUml, t, suggested.getFile(0));
+				return getCrashedImage(blockUml, crash, suggested.getFile(0));
 			}
 
 			if (OptionFlags.getInstance().isSilentlyCompletelyIgnoreErrors() && system instanceof PSystemError)
-				continue;
+				return Collections.emptyList();
 
 			OptionFlags.getInstance().logData(SFile.fromFile(file), system);
 			final List<FileImageData> exportDiagrams;
@@ -197,22 +384,29 @@ public abstract class SourceFileReaderAbstract implements ISourceFileReader {
 			} else
 				exportDiagrams = PSystemUtils.exportDiagrams(system, suggested, fileFormatOption, checkMetadata);
 
-			if (exportDiagrams.size() > 1)
-				cpt += exportDiagrams.size() - 1;
-
+			final List<GeneratedImage> result = new ArrayList<>();
+			final String desc = "[" + file.getName() + "] " + system.getDescription();
+			final List<SFile> written = new ArrayList<>();
+			boolean ok = system instanceof PSystemError == false;
 			for (FileImageData fdata : exportDiagrams) {
-				final String desc = "[" + file.getName() + "] " + system.getDescription();
 				final SFile f = fdata.getFile();
 				exportWarnOrErrIfWord(f, system);
 				final GeneratedImage generatedImage = new GeneratedImageImpl(f, desc, blockUml, fdata.getStatus());
 				result.add(generatedImage);
+				written.add(f);
+				if (fdata.getStatus() != 0)
+					ok = false;
 			}
 
-		}
+			if (manifest != null)
+				if (ok && written.size() > 0)
+					manifest.record(suggested.getFile(0), digest, desc, written);
+				else
+					manifest.forget(suggested.getFile(0));
 
-		Log.info("Number of image(s): " + result.size());
+			return result;
+		}
 
-		return Collections.unmodifiableList(result);
 	}
 
 	abstract protected SuggestedFile getSuggestedFile(BlockUml blockUml) throws FileNotFoundException;
@@ -222,6 +416,18 @@ public abstract class SourceFileReaderAbstract implements ISourceFileReader {
 
 	}
 
+	/**
+	 * When set, diagrams recorded as up to date in the {@link IncrementalManifest}
+	 * of their output directory are neither parsed nor drawn again.
+	 */
+	protected final void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	final boolean isUpToDate(BlockUml blockUml) {
+		return upToDate.contains(blockUml);
+	}
+
 	final protected String getFileName() {
 		return file.getName();
 	}
@@ -36,10 +36,20 @@
 package net.sourceforge.plantuml.code;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+// ::comment when __CORE__
+import java.util.zip.DataFormatException;
+// ::done
 import java.util.zip.Deflater;
+// ::comment when __CORE__
+import java.util.zip.Inflater;
+// ::done
 
 import net.sourceforge.plantuml.code.deflate.ByteBitInputStream;
 import net.sourceforge.plantuml.code.deflate.Decompressor;
+import net.sourceforge.plantuml.code.deflate.OutputStreamProtected;
 
 public class CompressionZlib implements Compression {
 
@@ -48,6 +58,69 @@ public class CompressionZlib implements Compression {
 	// ::done
 	private static final int COMPRESSION_LEVEL = 9;
 
+	private static final int POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Keeps a few idle zlib streams, so that their native memory is reused
+	 * instead of waiting for finalization. Streams that do not fit in the pool
+	 * are ended right away.
+	 */
+	static abstract class Pool<T> {
+
+		private final BlockingQueue<T> idle = new ArrayBlockingQueue<T>(POOL_SIZE);
+
+		T acquire() {
+			final T result = idle.poll();
+			if (result == null)
+				return create();
+
+			return result;
+		}
+
+		void release(T stream) {
+			reset(stream);
+			if (idle.offer(stream) == false)
+				end(stream);
+		}
+
+		abstract T create();
+
+		abstract void reset(T stream);
+
+		abstract void end(T stream);
+
+	}
+
+	private static final Pool<Deflater> deflaters = new Pool<Deflater>() {
+		Deflater create() {
+			return new Deflater(COMPRESSION_LEVEL, true);
+		}
+
+		void reset(Deflater stream) {
+			stream.reset();
+		}
+
+		void end(Deflater stream) {
+			stream.end();
+		}
+	};
+
+	// ::comment when __CORE__
+	private static final Pool<Inflater> inflaters = new Pool<Inflater>() {
+		Inflater create() {
+			return new Inflater(true);
+		}
+
+		void reset(Inflater stream) {
+			stream.reset();
+		}
+
+		void end(Inflater stream) {
+			stream.end();
+		}
+	};
+	// ::done
+
 	public byte[] compress(byte[] in) {
 		// ::comment when __CORE__
 		if (USE_ZOPFLI)
@@ -57,24 +130,34 @@ public class CompressionZlib implements Compression {
 		if (in.length == 0)
 			return null;
 
-		int len = in.length * 2;
-		if (len < 1000)
-			len = 1000;
-
-		// Compress the bytes
-		final Deflater compresser = new Deflater(COMPRESSION_LEVEL, true);
-		compresser.setInput(in);
-		compresser.finish();
-
-		final byte[] output = new byte[len];
-		final int compressedDataLength = compresser.deflate(output);
-		if (compresser.finished() == false)
-			return null;
+		final Deflater compresser = deflaters.acquire();
+		try {
+			compresser.setInput(in);
+			compresser.finish();
 
-		return copyArray(output, compressedDataLength);
+			final ByteArrayOutputStream result = new ByteArrayOutputStream(Math.max(1000, in.length / 2));
+			final byte[] buffer = new byte[4096];
+			while (compresser.finished() == false) {
+				final int length = compresser.deflate(buffer);
+				result.write(buffer, 0, length);
+			}
+			return result.toByteArray();
+		} finally {
+			deflaters.release(compresser);
+		}
 	}
 
 	public ByteArray decompress(byte[] input) throws NoPlantumlCompressionException {
+		// ::comment when __CORE__
+		try {
+			final byte[] result = inflate(input);
+			if (result != null)
+				return ByteArray.from(result);
+
+		} catch (DataFormatException e) {
+			// Malformed for zlib: let the pure Java decoder give its own verdict
+		}
+		// ::done
 		final byte padded[] = new byte[input.length + 256];
 		System.arraycopy(input, 0, padded, 0, input.length);
 
@@ -86,10 +169,33 @@ public class CompressionZlib implements Compression {
 		}
 	}
 
-	private byte[] copyArray(final byte[] data, final int len) {
-		final byte[] result = new byte[len];
-		System.arraycopy(data, 0, result, 0, len);
-		return result;
+	// ::comment when __CORE__
+	/**
+	 * Decodes with the native zlib, under the same size limit as the pure Java
+	 * decoder. Returns <code>null</code> when the stream is truncated: the pure
+	 * Java decoder reads it as if it were padded with zeros, and that behaviour
+	 * is kept.
+	 */
+	private static byte[] inflate(byte[] input) throws DataFormatException, NoPlantumlCompressionException {
+		final Inflater decompresser = inflaters.acquire();
+		try {
+			decompresser.setInput(input);
+			final ByteArrayOutputStream result = new ByteArrayOutputStream(Math.max(1000, input.length * 4));
+			final byte[] buffer = new byte[8192];
+			while (decompresser.finished() == false) {
+				final int length = decompresser.inflate(buffer);
+				if (length == 0 && decompresser.finished() == false)
+					return null;
+
+				result.write(buffer, 0, length);
+				if (result.size() > OutputStreamProtected.MAX_OUTPUT_SIZE)
+					throw new NoPlantumlCompressionException("Too big");
+			}
+			return result.toByteArray();
+		} finally {
+			inflaters.release(decompresser);
+		}
 	}
+	// ::done
 
 }
@@ -49,4 +49,8 @@ public interface Command<D extends Diagram> {
 	
 	boolean isEligibleFor(ParserPass pass);	
 
+	// Lower case words one of which starts the (trimmed) first line of anything
+	// this command accepts, or null if the command may start with anything
+	String[] getLeadingKeywords();
+
 }
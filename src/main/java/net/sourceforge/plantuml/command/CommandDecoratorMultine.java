@@ -80,6 +80,15 @@ public class CommandDecoratorMultine<D extends Diagram> implements Command<D> {
 		return CommandControl.OK_PARTIAL;
 	}
 
+	final SingleLineCommand2<D> getCommand() {
+		return cmd;
+	}
+
+	// Accepts any line as a possible start of a multiline block
+	public String[] getLeadingKeywords() {
+		return null;
+	}
+
 	public String[] getDescription() {
 		return cmd.getDescription();
 	}
@@ -0,0 +1,128 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.command;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.plantuml.regex.LeadingKeywords;
+import net.sourceforge.plantuml.text.StringLocated;
+
+/**
+ * Finds, for a line, the commands that may accept it.
+ * <p>
+ * Commands declaring {@link Command#getLeadingKeywords()} are stored in a trie
+ * over their keywords. The other ones are always candidates. Candidates are
+ * returned in the original order of the command list, so that the first
+ * matching command is still the same.
+ */
+final class CommandIndex {
+
+	private final List<Command<?>> commands;
+	private final List<Command<?>> always;
+	private final BitSet alwaysBits = new BitSet();
+	private final Node root = new Node();
+
+	static class Node {
+		private final Map<Character, Node> children = new HashMap<Character, Node>();
+		private BitSet commands;
+
+		Node child(char c) {
+			Node result = children.get(c);
+			if (result == null) {
+				result = new Node();
+				children.put(c, result);
+			}
+			return result;
+		}
+	}
+
+	CommandIndex(List<Command<?>> commands) {
+		this.commands = new ArrayList<>(commands);
+		final List<Command<?>> tmp = new ArrayList<>();
+		for (int i = 0; i < commands.size(); i++) {
+			final Command<?> cmd = commands.get(i);
+			final String[] keywords = cmd.getLeadingKeywords();
+			if (keywords == null || keywords.length == 0) {
+				tmp.add(cmd);
+				alwaysBits.set(i);
+				continue;
+			}
+			for (String keyword : keywords) {
+				Node node = root;
+				for (int j = 0; j < keyword.length(); j++)
+					node = node.child(keyword.charAt(j));
+				if (node.commands == null)
+					node.commands = new BitSet();
+				node.commands.set(i);
+			}
+		}
+		this.always = Collections.unmodifiableList(tmp);
+	}
+
+	List<Command<?>> getCommands() {
+		return Collections.unmodifiableList(commands);
+	}
+
+	List<Command<?>> getCandidates(StringLocated line) {
+		final String s = line.getTrimmed().getString();
+		BitSet found = null;
+		Node node = root;
+		for (int i = 0; i < s.length(); i++) {
+			node = node.children.get(LeadingKeywords.toLowerAscii(s.charAt(i)));
+			if (node == null)
+				break;
+			if (node.commands != null) {
+				if (found == null)
+					found = (BitSet) alwaysBits.clone();
+				found.or(node.commands);
+			}
+		}
+		if (found == null)
+			return always;
+
+		final List<Command<?>> result = new ArrayList<>(found.cardinality());
+		for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1))
+			result.add(commands.get(i));
+
+		return result;
+	}
+
+}
@@ -54,6 +54,14 @@ public abstract class CommandMultilines<S extends Diagram> implements Command<S>
 
 	public abstract String getPatternEnd();
 
+	final void compilePatterns() {
+		MyPattern.cmpile(getPatternEnd());
+	}
+
+	public String[] getLeadingKeywords() {
+		return null;
+	}
+
 	public String[] getDescription() {
 		return new String[] { "START: " + starting.pattern(), "END: " + getPatternEnd() };
 	}
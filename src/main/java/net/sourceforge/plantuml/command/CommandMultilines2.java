@@ -38,6 +38,7 @@ package net.sourceforge.plantuml.command;
 import net.sourceforge.plantuml.core.Diagram;
 import net.sourceforge.plantuml.klimt.color.NoSuchColorException;
 import net.sourceforge.plantuml.regex.IRegex;
+import net.sourceforge.plantuml.regex.LeadingKeywords;
 import net.sourceforge.plantuml.regex.Matcher2;
 import net.sourceforge.plantuml.regex.MyPattern;
 import net.sourceforge.plantuml.text.StringLocated;
@@ -66,6 +67,15 @@ public abstract class CommandMultilines2<S extends Diagram> implements Command<S
 
 	public abstract String getPatternEnd();
 
+	final void compilePatterns() {
+		starting.getPattern();
+		MyPattern.cmpile(getPatternEnd());
+	}
+
+	public String[] getLeadingKeywords() {
+		return LeadingKeywords.of(starting);
+	}
+
 	public String[] getDescription() {
 		return new String[] { "START: " + starting.getPattern(), "END: " + getPatternEnd() };
 	}
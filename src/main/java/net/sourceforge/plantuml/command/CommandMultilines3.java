@@ -38,6 +38,7 @@ package net.sourceforge.plantuml.command;
 import net.sourceforge.plantuml.core.Diagram;
 import net.sourceforge.plantuml.klimt.color.NoSuchColorException;
 import net.sourceforge.plantuml.regex.IRegex;
+import net.sourceforge.plantuml.regex.LeadingKeywords;
 import net.sourceforge.plantuml.regex.RegexConcat;
 import net.sourceforge.plantuml.text.StringLocated;
 import net.sourceforge.plantuml.utils.BlocLines;
@@ -61,6 +62,15 @@ public abstract class CommandMultilines3<S extends Diagram> implements Command<S
 
 	public abstract RegexConcat getPatternEnd2();
 
+	final void compilePatterns() {
+		starting.getPattern();
+		getPatternEnd2().getPattern();
+	}
+
+	public String[] getLeadingKeywords() {
+		return LeadingKeywords.of(starting);
+	}
+
 	public String[] getDescription() {
 		return new String[] { "START: " + starting.getPattern(), "END: " + getPatternEnd2().getPattern() };
 	}
@@ -57,6 +57,10 @@ public abstract class CommandMultilinesBracket<S extends Diagram> implements Com
 		return false;
 	}
 
+	public String[] getLeadingKeywords() {
+		return null;
+	}
+
 	public String[] getDescription() {
 		return new String[] { "BRACKET: " + starting.pattern() };
 	}
@@ -44,21 +44,24 @@ import net.sourceforge.plantuml.EmbeddedDiagram;
 import net.sourceforge.plantuml.ErrorUml;
 import net.sourceforge.plantuml.ErrorUmlType;
 import net.sourceforge.plantuml.Previous;
+import net.sourceforge.plantuml.api.PSystemFactorySniffer;
 import net.sourceforge.plantuml.core.Diagram;
 import net.sourceforge.plantuml.core.DiagramType;
 import net.sourceforge.plantuml.core.UmlSource;
 import net.sourceforge.plantuml.error.PSystemError;
 import net.sourceforge.plantuml.error.PSystemErrorUtils;
 import net.sourceforge.plantuml.preproc.PreprocessingArtifact;
+import net.sourceforge.plantuml.regex.MyPattern;
 import net.sourceforge.plantuml.text.StringLocated;
 import net.sourceforge.plantuml.utils.BlocLines;
 import net.sourceforge.plantuml.utils.LineLocation;
 import net.sourceforge.plantuml.utils.StartUtils;
 import net.sourceforge.plantuml.version.IteratorCounter2;
 
-public abstract class PSystemCommandFactory extends PSystemAbstractFactory {
+public abstract class PSystemCommandFactory extends PSystemAbstractFactory implements PSystemFactorySniffer {
 
 	private final List<Command> cmds = new ArrayList<>();
+	private CommandIndex index;
 
 	protected abstract void initCommandsList(List<Command> cmds);
 
@@ -107,6 +110,28 @@ public abstract class PSystemCommandFactory extends PSystemAbstractFactory {
 
 	}
 
+	/**
+	 * The first line after the start line is necessarily the beginning of a
+	 * command: if no command accepts it, parsing would fail right there.
+	 */
+	@Override
+	public boolean mayAccept(UmlSource source) {
+		if (source.isEmpty())
+			return true;
+
+		final IteratorCounter2 it = source.iterator2();
+		it.next();
+		if (it.hasNext() == false || StartUtils.isArobaseEndDiagram(it.peek().getString()))
+			return true;
+
+		final BlocLines single = BlocLines.single(it.peek());
+		for (Command<?> cmd : getIndex().getCandidates(it.peek()))
+			if (cmd.isValid(single) != CommandControl.NOT_OK)
+				return true;
+
+		return false;
+	}
+
 	private Diagram finalizeDiagram(AbstractPSystem sys, UmlSource source, IteratorCounter2 it, PreprocessingArtifact preprocessing) {
 		if (sys == null)
 			return null;
@@ -166,12 +191,7 @@ public abstract class PSystemCommandFactory extends PSystemAbstractFactory {
 
 	private Step getCandidate(final IteratorCounter2 it) {
 		final BlocLines single = BlocLines.single(it.peek());
-		synchronized (cmds) {
-			if (cmds.size() == 0)
-				initCommandsList(cmds);
-		}
-
-		for (Command cmd : cmds) {
+		for (Command<?> cmd : getIndex().getCandidates(it.peek())) {
 			final CommandControl result = cmd.isValid(single);
 			if (result == CommandControl.OK) {
 				it.next();
@@ -190,6 +210,48 @@ public abstract class PSystemCommandFactory extends PSystemAbstractFactory {
 		return null;
 	}
 
+	/**
+	 * Builds the command list and compiles the patterns of its commands, so that
+	 * the first diagrams parsed do not pay for it. Stops when the pattern cache
+	 * is half full, so that warming never evicts anything.
+	 */
+	public void prewarm() {
+		for (Command<?> cmd : getIndex().getCommands()) {
+			if (MyPattern.getCache().size() >= MyPattern.getCache().getMaxSize() / 2)
+				return;
+			compilePatterns(cmd);
+		}
+	}
+
+	private static void compilePatterns(Command<?> cmd) {
+		if (cmd instanceof ProtectedCommand)
+			compilePatterns(((ProtectedCommand) cmd).getCommand());
+		else if (cmd instanceof CommandDecoratorMultine)
+			compilePatterns(((CommandDecoratorMultine) cmd).getCommand());
+		else if (cmd instanceof SingleLineCommand2)
+			((SingleLineCommand2) cmd).compilePatterns();
+		else if (cmd instanceof CommandMultilines2)
+			((CommandMultilines2) cmd).compilePatterns();
+		else if (cmd instanceof CommandMultilines3)
+			((CommandMultilines3) cmd).compilePatterns();
+		else if (cmd instanceof CommandMultilines)
+			((CommandMultilines) cmd).compilePatterns();
+	}
+
+	private CommandIndex getIndex() {
+		synchronized (cmds) {
+			if (index == null) {
+				if (cmds.size() == 0)
+					initCommandsList(cmds);
+				final List<Command<?>> all = new ArrayList<>(cmds.size());
+				for (Command<?> cmd : cmds)
+					all.add(cmd);
+				index = new CommandIndex(all);
+			}
+			return index;
+		}
+	}
+
 	private BlocLines isMultilineCommandOk(IteratorCounter2 it, Command cmd) {
 		BlocLines lines = BlocLines.create();
 		int nb = 0;
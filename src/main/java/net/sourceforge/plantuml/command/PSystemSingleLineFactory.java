@@ -39,6 +39,7 @@ import net.sourceforge.plantuml.AbstractPSystem;
 import net.sourceforge.plantuml.ErrorUml;
 import net.sourceforge.plantuml.ErrorUmlType;
 import net.sourceforge.plantuml.Previous;
+import net.sourceforge.plantuml.api.PSystemFactorySniffer;
 import net.sourceforge.plantuml.core.Diagram;
 import net.sourceforge.plantuml.core.DiagramType;
 import net.sourceforge.plantuml.core.UmlSource;
@@ -50,7 +51,7 @@ import net.sourceforge.plantuml.utils.LineLocation;
 import net.sourceforge.plantuml.utils.StartUtils;
 import net.sourceforge.plantuml.version.IteratorCounter2;
 
-public abstract class PSystemSingleLineFactory extends PSystemAbstractFactory {
+public abstract class PSystemSingleLineFactory extends PSystemAbstractFactory implements PSystemFactorySniffer {
 
 	protected abstract AbstractPSystem executeLine(UmlSource source, String line, PreprocessingArtifact preprocessing);
 
@@ -58,6 +59,11 @@ public abstract class PSystemSingleLineFactory extends PSystemAbstractFactory {
 		super(DiagramType.UML);
 	}
 
+	@Override
+	final public boolean mayAccept(UmlSource source) {
+		return source.getTotalLineCount() == 3;
+	}
+
 	@Override
 	final public Diagram createSystem(UmlSource source, Previous previous, PreprocessingArtifact preprocessing) {
 
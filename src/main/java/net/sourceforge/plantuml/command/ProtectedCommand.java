@@ -75,6 +75,14 @@ public class ProtectedCommand<S extends Diagram> implements Command<S> {
 		return cmd.isValid(lines);
 	}
 
+	final Command<S> getCommand() {
+		return cmd;
+	}
+
+	public String[] getLeadingKeywords() {
+		return cmd.getLeadingKeywords();
+	}
+
 	public String[] getDescription() {
 		return cmd.getDescription();
 	}
@@ -41,6 +41,7 @@ import net.sourceforge.plantuml.core.Diagram;
 import net.sourceforge.plantuml.error.PSystemError;
 import net.sourceforge.plantuml.klimt.color.NoSuchColorException;
 import net.sourceforge.plantuml.regex.IRegex;
+import net.sourceforge.plantuml.regex.LeadingKeywords;
 import net.sourceforge.plantuml.regex.RegexResult;
 import net.sourceforge.plantuml.text.StringLocated;
 import net.sourceforge.plantuml.utils.BlocLines;
@@ -64,6 +65,14 @@ public abstract class SingleLineCommand2<S extends Diagram> implements Command<S
 		return false;
 	}
 
+	final void compilePatterns() {
+		pattern.getPattern();
+	}
+
+	public String[] getLeadingKeywords() {
+		return LeadingKeywords.of(pattern);
+	}
+
 	public String[] getDescription() {
 		return new String[] { pattern.getClass().getName() };
 	}
@@ -66,6 +66,10 @@ public abstract class UBrexSingleLineCommand2<S extends Diagram> implements Comm
 		return false;
 	}
 
+	public String[] getLeadingKeywords() {
+		return null;
+	}
+
 	public String[] getDescription() {
 		return new String[] { pattern.getClass().getName() };
 	}
@@ -108,8 +108,12 @@ abstract class AbstractGraphviz implements Graphviz {
 		try {
 			Log.info("Starting Graphviz process " + Arrays.asList(cmd));
 			Log.info("DotString size: " + dotString.length());
-			p = new ProcessRunner(cmd);
-			state = p.run(dotString.getBytes(), os);
+			if (usePool())
+				state = GraphvizWorkerPool.getInstance().render(cmd, dotString.getBytes(), os);
+			if (state == null) {
+				p = new ProcessRunner(cmd);
+				state = p.run(dotString.getBytes(), os);
+			}
 			Log.info("Ending process ok");
 		} catch (Throwable e) {
 			Logme.error(e);
@@ -135,6 +139,11 @@ abstract class AbstractGraphviz implements Graphviz {
 		return state;
 	}
 
+	private boolean usePool() {
+		// Workers are framed on SVG documents, so other formats still fork one process
+		return type.length == 1 && "svg".equals(type[0]) && GraphvizWorkerPool.getInstance().isEnabled();
+	}
+
 	final public ExeState getExeState() {
 		return ExeState.checkFile(dotExe);
 	}
@@ -46,6 +46,8 @@ public interface GraphvizVersion {
 	public boolean isVizjs();
 
 	public boolean ignoreHorizontalLinks();
+
+	public boolean supportsJsonOutput();
 	// ::done
 
 }
@@ -65,6 +65,10 @@ public class GraphvizVersionFinder {
 		public boolean ignoreHorizontalLinks() {
 			return false;
 		}
+
+		public boolean supportsJsonOutput() {
+			return false;
+		}
 	};
 
 	public GraphvizVersionFinder(File dotExe) {
@@ -110,6 +114,10 @@ public class GraphvizVersionFinder {
 				return false;
 			}
 
+			public boolean supportsJsonOutput() {
+				return v >= 240;
+			}
+
 		};
 	}
 
@@ -0,0 +1,417 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.dot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.sourceforge.plantuml.OptionFlags;
+import net.sourceforge.plantuml.StringUtils;
+import net.sourceforge.plantuml.security.SecurityUtils;
+import net.sourceforge.plantuml.utils.Log;
+
+/**
+ * Pool of long-lived <code>dot -Tsvg</code> processes.
+ * <p>
+ * Graphviz renders every graph it reads from its standard input, one after the
+ * other. Each request is written to a worker followed by two copies of an empty
+ * sentinel graph with a unique name: dot only renders a graph once it has read
+ * the first token of the next one, so the second copy guarantees that the first
+ * copy is rendered. Everything read before the first sentinel document belongs
+ * to the request, sentinel documents left over from previous requests are
+ * skipped.
+ * <p>
+ * When dot reports an error for a request, or produces no document for it, the
+ * request is not served by the pool, so that the one-shot process reports the
+ * error as usual. A worker that does not reach the sentinel shortly after an
+ * error is killed.
+ * <p>
+ * The pool is disabled by default. It is enabled with the
+ * <code>-graphvizworkers N</code> flag or the
+ * <code>PLANTUML_GRAPHVIZ_WORKERS</code> environment variable. When a worker
+ * cannot serve a request, the caller falls back to a one-shot
+ * {@link ProcessRunner}.
+ */
+public final class GraphvizWorkerPool {
+	// ::remove file when __CORE__
+
+	private static final String SENTINEL = "plantuml_sentinel_";
+	private static final String TITLE = "<!-- Title: ";
+	private static final int MAX_REQUESTS_PER_WORKER = 1000;
+	private static final long ERROR_GRACE_MS = 500;
+
+	private static final GraphvizWorkerPool singleton = new GraphvizWorkerPool();
+
+	private final Map<String, Slots> slots = new ConcurrentHashMap<String, Slots>();
+	private final ScheduledThreadPoolExecutor watchdog;
+	private volatile int size = -1;
+
+	private GraphvizWorkerPool() {
+		this.watchdog = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				final Thread result = new Thread(r, "graphviz-watchdog");
+				result.setDaemon(true);
+				return result;
+			}
+		});
+		this.watchdog.setRemoveOnCancelPolicy(true);
+	}
+
+	public static GraphvizWorkerPool getInstance() {
+		return singleton;
+	}
+
+	public void setSize(int size) {
+		this.size = Math.max(0, size);
+	}
+
+	public int getSize() {
+		if (size == -1) {
+			final String env = SecurityUtils.getenv("PLANTUML_GRAPHVIZ_WORKERS");
+			if (StringUtils.isNotEmpty(env) && env.matches("\\d+"))
+				size = Integer.parseInt(env);
+			else
+				size = 0;
+		}
+		return size;
+	}
+
+	public boolean isEnabled() {
+		return getSize() > 0;
+	}
+
+	/**
+	 * Renders <code>dotString</code> with a pooled worker.
+	 *
+	 * @return the state of the rendering, or <code>null</code> if the pool could
+	 *         not serve the request and nothing has been written to
+	 *         <code>os</code>
+	 */
+	ProcessState render(String[] cmd, byte[] dotString, OutputStream os) {
+		final Slots pool = getSlots(cmd);
+		try {
+			pool.permits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		Worker worker = null;
+		try {
+			worker = pool.borrow();
+			final ProcessState state = worker.render(dotString, os, watchdog);
+			if (state == null || state.differs(ProcessState.TERMINATED_OK()) == false) {
+				pool.giveBack(worker);
+				worker = null;
+			}
+			return state;
+		} catch (IOException e) {
+			Log.info("Graphviz worker failed: " + e);
+			return null;
+		} finally {
+			if (worker != null)
+				worker.destroy();
+			pool.permits.release();
+		}
+	}
+
+	private Slots getSlots(String[] cmd) {
+		final String key = Arrays.asList(cmd).toString();
+		Slots result = slots.get(key);
+		if (result == null) {
+			slots.putIfAbsent(key, new Slots(cmd, getSize()));
+			result = slots.get(key);
+		}
+		return result;
+	}
+
+	static class Slots {
+
+		private final String[] cmd;
+		private final Semaphore permits;
+		private final LinkedBlockingDeque<Worker> idle = new LinkedBlockingDeque<Worker>();
+
+		Slots(String[] cmd, int size) {
+			this.cmd = cmd;
+			this.permits = new Semaphore(size);
+		}
+
+		Worker borrow() throws IOException {
+			Worker worker;
+			while ((worker = idle.pollFirst()) != null) {
+				if (worker.isHealthy())
+					return worker;
+
+				Log.info("Discarding dead Graphviz worker");
+				worker.destroy();
+			}
+			Log.info("Starting Graphviz worker " + Arrays.asList(cmd));
+			return new Worker(cmd);
+		}
+
+		void giveBack(Worker worker) {
+			if (worker.isHealthy() && worker.getServed() < MAX_REQUESTS_PER_WORKER)
+				idle.offerFirst(worker);
+			else
+				worker.destroy();
+		}
+
+	}
+
+	static class Worker {
+
+		private final Process process;
+		private final OutputStream stdin;
+		private final InputStream stdout;
+		private final byte[] buffer = new byte[8192];
+		private int pos;
+		private int limit;
+		private long sentinel;
+		private int served;
+		private volatile boolean failed;
+		private boolean broken;
+		private volatile Runnable onError;
+
+		Worker(String[] cmd) throws IOException {
+			this.process = new ProcessBuilder(cmd).start();
+			this.stdin = process.getOutputStream();
+			this.stdout = process.getInputStream();
+			final Thread drain = new Thread(new Runnable() {
+				public void run() {
+					drainErrorStream(process.getErrorStream());
+				}
+			}, "graphviz-worker-stderr");
+			drain.setDaemon(true);
+			drain.start();
+		}
+
+		private void drainErrorStream(InputStream is) {
+			final ByteArrayOutputStream line = new ByteArrayOutputStream();
+			try {
+				int c;
+				while ((c = is.read()) != -1)
+					if (c == '\n') {
+						reportError(new String(line.toByteArray(), StandardCharsets.UTF_8));
+						line.reset();
+					} else {
+						line.write(c);
+					}
+			} catch (IOException e) {
+				// The worker has been destroyed
+			}
+		}
+
+		private void reportError(String line) {
+			Log.info("Graphviz worker: " + line);
+			// Warnings do not prevent the graph from being rendered
+			if (line.startsWith("Error")) {
+				failed = true;
+				final Runnable callback = onError;
+				if (callback != null)
+					callback.run();
+			}
+		}
+
+		boolean isHealthy() {
+			return broken == false && process.isAlive();
+		}
+
+		int getServed() {
+			return served;
+		}
+
+		ProcessState render(byte[] dotString, OutputStream os, ScheduledThreadPoolExecutor watchdog)
+				throws IOException {
+			final long id = ++sentinel;
+			served++;
+			final byte[] trailer = ("\ndigraph " + SENTINEL + id + " {}\ndigraph " + SENTINEL + id + " {}\n")
+					.getBytes(StandardCharsets.UTF_8);
+
+			final AtomicBoolean finished = new AtomicBoolean(false);
+			final AtomicBoolean killed = new AtomicBoolean(false);
+			final Runnable kill = new Runnable() {
+				public void run() {
+					if (finished.get())
+						return;
+					killed.set(true);
+					process.destroyForcibly();
+				}
+			};
+			final ScheduledFuture<?> timeout = watchdog.schedule(kill, OptionFlags.getInstance().getTimeoutMs(),
+					TimeUnit.MILLISECONDS);
+			failed = false;
+			onError = new Runnable() {
+				public void run() {
+					watchdog.schedule(kill, ERROR_GRACE_MS, TimeUnit.MILLISECONDS);
+				}
+			};
+
+			try {
+				stdin.write(dotString);
+				stdin.write(trailer);
+				stdin.flush();
+
+				final ByteArrayOutputStream document = new ByteArrayOutputStream();
+				byte[] result = null;
+				long documentSentinel = -1;
+				byte[] line;
+				while ((line = readLine()) != null) {
+					if (startsWith(line, 0, "<?xml")) {
+						document.reset();
+						documentSentinel = -1;
+					}
+					document.write(line);
+					if (contains(line, TITLE + SENTINEL))
+						documentSentinel = getSentinelId(line);
+
+					if (contains(line, "</svg>")) {
+						if (documentSentinel == id)
+							break;
+						if (documentSentinel == -1)
+							result = document.toByteArray();
+						// Otherwise, this is a sentinel left over from a previous request
+						document.reset();
+					}
+				}
+				if (line == null)
+					broken = true;
+				if (failed) {
+					Log.info("Graphviz worker reported an error");
+					return null;
+				}
+				if (line == null) {
+					if (killed.get())
+						return ProcessState.TIMEOUT();
+					throw new IOException("Graphviz worker exited");
+				}
+				if (result == null) {
+					Log.info("No output from Graphviz worker");
+					return null;
+				}
+
+				os.write(result);
+				return ProcessState.TERMINATED_OK();
+			} catch (IOException e) {
+				broken = true;
+				if (failed)
+					return null;
+				if (killed.get())
+					return ProcessState.TIMEOUT();
+				throw e;
+			} finally {
+				finished.set(true);
+				onError = null;
+				timeout.cancel(false);
+			}
+		}
+
+		private static long getSentinelId(byte[] line) {
+			final String s = new String(line, StandardCharsets.UTF_8);
+			final int start = s.indexOf(SENTINEL) + SENTINEL.length();
+			int end = start;
+			while (end < s.length() && Character.isDigit(s.charAt(end)))
+				end++;
+			if (end == start)
+				return -1;
+			return Long.parseLong(s.substring(start, end));
+		}
+
+		private byte[] readLine() throws IOException {
+			final ByteArrayOutputStream line = new ByteArrayOutputStream();
+			while (true) {
+				if (pos == limit) {
+					limit = stdout.read(buffer);
+					pos = 0;
+					if (limit == -1) {
+						limit = 0;
+						return null;
+					}
+				}
+				final byte c = buffer[pos++];
+				line.write(c);
+				if (c == '\n')
+					return line.toByteArray();
+			}
+		}
+
+		private static boolean contains(byte[] line, String s) {
+			final int last = line.length - s.length();
+			for (int i = 0; i <= last; i++)
+				if (startsWith(line, i, s))
+					return true;
+			return false;
+		}
+
+		private static boolean startsWith(byte[] line, int offset, String prefix) {
+			if (line.length < offset + prefix.length())
+				return false;
+			for (int i = 0; i < prefix.length(); i++)
+				if (line[offset + i] != prefix.charAt(i))
+					return false;
+			return true;
+		}
+
+		void destroy() {
+			try {
+				stdin.close();
+			} catch (IOException e) {
+				// Nothing we can really do
+			}
+			process.destroy();
+			try {
+				if (process.waitFor(500, TimeUnit.MILLISECONDS) == false)
+					process.destroyForcibly();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				process.destroyForcibly();
+			}
+		}
+
+	}
+
+}
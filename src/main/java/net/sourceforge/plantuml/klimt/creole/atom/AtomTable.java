@@ -82,6 +82,8 @@ public class AtomTable extends AbstractAtom implements Atom {
 	private final Map<Atom, Position> positions = new HashMap<Atom, Position>();
 	private final HColor lineColor;
 	private Class<? extends StringBounder> lastCaller;
+	private double[] startingX;
+	private double[] startingY;
 
 	public AtomTable(HColor lineColor) {
 		this.lineColor = lineColor;
@@ -171,6 +173,16 @@ public class AtomTable extends AbstractAtom implements Atom {
 				positions.put(cell, pos);
 			}
 		}
+		// Column and line offsets only depend on the cell dimensions, so they are
+		// computed once here instead of for each cell
+		startingX = new double[getNbCols() + 1];
+		for (int i = 0; i < getNbCols(); i++)
+			startingX[i + 1] = startingX[i] + getColWidth(i);
+
+		startingY = new double[getNbLines() + 1];
+		for (int i = 0; i < getNbLines(); i++)
+			startingY[i + 1] = startingY[i] + getLineHeight(i);
+
 		for (int i = 0; i < lines.size(); i++) {
 			for (int j = 0; j < lines.get(i).size(); j++) {
 				final Atom cell = lines.get(i).cells.get(j);
@@ -184,35 +196,19 @@ public class AtomTable extends AbstractAtom implements Atom {
 	}
 
 	private double getStartingX(int col) {
-		double result = 0;
-		for (int i = 0; i < col; i++)
-			result += getColWidth(i);
-
-		return result;
+		return startingX[col];
 	}
 
 	private double getEndingX(int col) {
-		double result = 0;
-		for (int i = 0; i <= col; i++)
-			result += getColWidth(i);
-
-		return result;
+		return startingX[col + 1];
 	}
 
 	private double getStartingY(int line) {
-		double result = 0;
-		for (int i = 0; i < line; i++)
-			result += getLineHeight(i);
-
-		return result;
+		return startingY[line];
 	}
 
 	private double getEndingY(int line) {
-		double result = 0;
-		for (int i = 0; i <= line; i++)
-			result += getLineHeight(i);
-
-		return result;
+		return startingY[line + 1];
 	}
 
 	private double getColWidth(int col) {
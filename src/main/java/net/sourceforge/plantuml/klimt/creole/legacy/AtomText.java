@@ -99,8 +99,10 @@ public final class AtomText extends AbstractAtom implements Atom {
 	@JawsStrange
 	public XDimension2D calculateDimension(StringBounder stringBounder) {
 		final XDimension2D rect = stringBounder.calculateDimension(fontConfiguration.getFont(), text);
-		Log.debug("g2d=" + rect);
-		Log.debug("Size for " + text + " is " + rect);
+		if (Log.isEnabled(Log.Level.DEBUG)) {
+			Log.debug("g2d=" + rect);
+			Log.debug("Size for " + text + " is " + rect);
+		}
 		double h = rect.getHeight();
 		if (h < 10)
 			h = 10;
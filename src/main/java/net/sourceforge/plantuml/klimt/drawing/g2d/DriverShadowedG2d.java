@@ -43,26 +43,9 @@ import java.awt.geom.Area;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.ConvolveOp;
-import java.awt.image.Kernel;
-
-import net.sourceforge.plantuml.utils.Log;
 
 public class DriverShadowedG2d {
 
-	private ConvolveOp getConvolveOp(int blurRadius, double dpiFactor) {
-		final float[] elements = new float[(int) (blurRadius * blurRadius * dpiFactor)];
-		for (int k = 0; k < elements.length; k++) {
-			elements[k] = (float) (1.0 / elements.length);
-		}
-		final Kernel myKernel = new Kernel((int) (blurRadius * Math.sqrt(dpiFactor)),
-				(int) (blurRadius * Math.sqrt(dpiFactor)), elements);
-
-		// if EDGE_NO_OP is not selected, EDGE_ZERO_FILL is the default which
-		// creates a black border
-		return new ConvolveOp(myKernel, ConvolveOp.EDGE_NO_OP, null);
-	}
-
 	private final Color color = new Color(170, 170, 170);
 	private final Color colorLine = new Color(30, 30, 30);
 
@@ -70,36 +53,11 @@ public class DriverShadowedG2d {
 		if (dpiFactor < 1) {
 			dpiFactor = 1;
 		}
-		final Rectangle2D bounds = shape.getBounds2D();
-		final double ww = bounds.getMaxX() - bounds.getMinX();
-		final double hh = bounds.getMaxY() - bounds.getMinY();
-
-		final double w = (ww + deltaShadow * 2 + 6) * dpiFactor;
-		final double h = (hh + deltaShadow * 2 + 6) * dpiFactor;
-		BufferedImage destination = null;
-		try {
-			destination = new BufferedImage((int) w, (int) h, BufferedImage.TYPE_INT_ARGB);
-			final Graphics2D gg = destination.createGraphics();
-			gg.scale(dpiFactor, dpiFactor);
-			gg.translate(deltaShadow - bounds.getMinX(), deltaShadow - bounds.getMinY());
-			final boolean isLine = shape instanceof Line2D.Double;
-			if (isLine) {
-				gg.setColor(colorLine);
-				gg.draw(shape);
-			} else {
-				gg.setColor(color);
-				gg.fill(shape);
-			}
-			gg.dispose();
-
-			final ConvolveOp simpleBlur = getConvolveOp(6, dpiFactor);
-			destination = simpleBlur.filter(destination, null);
-		} catch (OutOfMemoryError error) {
-			Log.info("Warning: Cannot draw shadow, image too big.");
-		} catch (Exception e) {
-			Log.info("Warning: Cannot draw shadow: " + e);
-		}
+		final boolean isLine = shape instanceof Line2D.Double;
+		final BufferedImage destination = ShadowBlur.getShadow(shape, isLine ? colorLine : color, isLine == false,
+				deltaShadow, dpiFactor);
 		if (destination != null) {
+			final Rectangle2D bounds = shape.getBounds2D();
 			final AffineTransform at = g2d.getTransform();
 			g2d.scale(1 / dpiFactor, 1 / dpiFactor);
 			g2d.drawImage(destination, (int) (bounds.getMinX() * dpiFactor), (int) (bounds.getMinY() * dpiFactor),
@@ -112,29 +70,9 @@ public class DriverShadowedG2d {
 		if (dpiFactor < 1) {
 			dpiFactor = 1;
 		}
-		final Rectangle2D bounds = shape.getBounds2D();
-		final double ww = bounds.getMaxX() - bounds.getMinX();
-		final double hh = bounds.getMaxY() - bounds.getMinY();
-
-		final double w = (ww + deltaShadow * 2 + 6) * dpiFactor;
-		final double h = (hh + deltaShadow * 2 + 6) * dpiFactor;
-		BufferedImage destination = null;
-		try {
-			destination = new BufferedImage((int) w, (int) h, BufferedImage.TYPE_INT_ARGB);
-			final Graphics2D gg = destination.createGraphics();
-			gg.scale(dpiFactor, dpiFactor);
-			gg.translate(deltaShadow - bounds.getMinX(), deltaShadow - bounds.getMinY());
-			gg.draw(shape);
-			gg.dispose();
-
-			final ConvolveOp simpleBlur = getConvolveOp(6, dpiFactor);
-			destination = simpleBlur.filter(destination, null);
-		} catch (OutOfMemoryError error) {
-			Log.info("Warning: Cannot draw shadow, image too big.");
-		} catch (Exception e) {
-			Log.info("Warning: Cannot draw shadow: " + e);
-		}
+		final BufferedImage destination = ShadowBlur.getShadow(shape, null, false, deltaShadow, dpiFactor);
 		if (destination != null) {
+			final Rectangle2D bounds = shape.getBounds2D();
 			final AffineTransform at = g2d.getTransform();
 			g2d.scale(1 / dpiFactor, 1 / dpiFactor);
 			g2d.drawImage(destination, (int) (bounds.getMinX() * dpiFactor), (int) (bounds.getMinY() * dpiFactor),
@@ -147,29 +85,9 @@ public class DriverShadowedG2d {
 		if (dpiFactor < 1) {
 			dpiFactor = 1;
 		}
-		final Rectangle2D bounds = shape.getBounds2D();
-		final double ww = bounds.getMaxX() - bounds.getMinX();
-		final double hh = bounds.getMaxY() - bounds.getMinY();
-
-		final double w = (ww + deltaShadow * 2 + 6) * dpiFactor;
-		final double h = (hh + deltaShadow * 2 + 6) * dpiFactor;
-		BufferedImage destination = null;
-		try {
-			destination = new BufferedImage((int) w, (int) h, BufferedImage.TYPE_INT_ARGB);
-			final Graphics2D gg = destination.createGraphics();
-			gg.scale(dpiFactor, dpiFactor);
-			gg.translate(deltaShadow - bounds.getMinX(), deltaShadow - bounds.getMinY());
-			gg.draw(shape);
-			gg.dispose();
-
-			final ConvolveOp simpleBlur = getConvolveOp(6, dpiFactor);
-			destination = simpleBlur.filter(destination, null);
-		} catch (OutOfMemoryError error) {
-			Log.info("Warning: Cannot draw shadow, image too big.");
-		} catch (Exception e) {
-			Log.info("Warning: Cannot draw shadow: " + e);
-		}
+		final BufferedImage destination = ShadowBlur.getShadow(shape, null, false, deltaShadow, dpiFactor);
 		if (destination != null) {
+			final Rectangle2D bounds = shape.getBounds2D();
 			final AffineTransform at = g2d.getTransform();
 			g2d.scale(1 / dpiFactor, 1 / dpiFactor);
 			final Shape sav = g2d.getClip();
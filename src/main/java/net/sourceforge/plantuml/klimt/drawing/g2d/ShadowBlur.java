@@ -0,0 +1,390 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.klimt.drawing.g2d;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Kernel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sourceforge.plantuml.utils.ByteBudgetCache;
+import net.sourceforge.plantuml.utils.Log;
+
+/**
+ * Renders the blurred images used as shadows by {@link DriverShadowedG2d}.
+ * <p>
+ * The shape is drawn without antialiasing, so each pixel of the mask is either
+ * transparent or the shadow color. The box blur then only depends on how many
+ * pixels of each window are set: those counts are computed with running sums,
+ * and mapped to the final pixel through a table calibrated once against
+ * {@link ConvolveOp}, so that the result stays identical to the former
+ * <code>ConvolveOp</code> rendering. Masks that do not fit this model fall back
+ * to <code>ConvolveOp</code>.
+ * <p>
+ * Blurred images are cached by shape geometry in device space, so identical
+ * boxes share a single shadow.
+ */
+final class ShadowBlur {
+
+	private static final int BLUR_RADIUS = 6;
+	private static final long MAX_PIXELS = 32L * 1024 * 1024;
+	private static final int MAX_SCRATCH_PIXELS = 4 * 1024 * 1024;
+
+	private static final ByteBudgetCache<Key, BufferedImage> cache = new ByteBudgetCache<Key, BufferedImage>(
+			16L * 1024 * 1024);
+	private static final ConcurrentMap<String, int[]> calibrations = new ConcurrentHashMap<String, int[]>();
+
+	private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	private ShadowBlur() {
+	}
+
+	static class Scratch {
+
+		private BufferedImage image;
+		private int[] rowCounts = new int[0];
+		private int[] columnCounts = new int[0];
+
+		BufferedImage getImage(int width, int height) {
+			if ((long) width * height > MAX_SCRATCH_PIXELS)
+				return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+			if (image == null || image.getWidth() < width || image.getHeight() < height) {
+				final int newWidth = Math.max(width, image == null ? 0 : image.getWidth());
+				final int newHeight = Math.max(height, image == null ? 0 : image.getHeight());
+				if ((long) newWidth * newHeight > MAX_SCRATCH_PIXELS)
+					image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+				else
+					image = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_ARGB);
+			}
+
+			final int[] pixels = getPixels(image);
+			final int stride = image.getWidth();
+			for (int y = 0; y < height; y++)
+				Arrays.fill(pixels, y * stride, y * stride + width, 0);
+
+			return image;
+		}
+
+		int[] getRowCounts(int size) {
+			if (size > MAX_SCRATCH_PIXELS)
+				return new int[size];
+			if (rowCounts.length < size)
+				rowCounts = new int[size];
+			return rowCounts;
+		}
+
+		int[] getColumnCounts(int size) {
+			if (size > MAX_SCRATCH_PIXELS)
+				return new int[size];
+			if (columnCounts.length < size)
+				columnCounts = new int[size];
+			return columnCounts;
+		}
+
+	}
+
+	static class Key {
+
+		private final Color color;
+		private final boolean fill;
+		private final int width;
+		private final int height;
+		private final int[] types;
+		private final double[] coords;
+		private final int hash;
+
+		Key(Color color, boolean fill, int width, int height, int[] types, double[] coords) {
+			this.color = color;
+			this.fill = fill;
+			this.width = width;
+			this.height = height;
+			this.types = types;
+			this.coords = coords;
+			this.hash = 31 * (31 * (31 * (color == null ? 0 : color.hashCode()) + width) + height)
+					+ 31 * Arrays.hashCode(types) + Arrays.hashCode(coords);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Key == false)
+				return false;
+
+			final Key other = (Key) obj;
+			return hash == other.hash && fill == other.fill && width == other.width && height == other.height
+					&& (color == null ? other.color == null : color.equals(other.color))
+					&& Arrays.equals(types, other.types) && Arrays.equals(coords, other.coords);
+		}
+
+	}
+
+	/**
+	 * Returns the shadow of a shape, or <code>null</code> if it cannot be drawn.
+	 *
+	 * @param color the color used to draw the mask, or <code>null</code> to keep
+	 *              the default color of a new image
+	 * @param fill  whether the shape is filled or only drawn
+	 */
+	static BufferedImage getShadow(Shape shape, Color color, boolean fill, double deltaShadow, double dpiFactor) {
+		final Rectangle2D bounds = shape.getBounds2D();
+		final double ww = bounds.getMaxX() - bounds.getMinX();
+		final double hh = bounds.getMaxY() - bounds.getMinY();
+
+		final double w = (ww + deltaShadow * 2 + 6) * dpiFactor;
+		final double h = (hh + deltaShadow * 2 + 6) * dpiFactor;
+		if (w * h > MAX_PIXELS) {
+			Log.info("Warning: Cannot draw shadow, image too big.");
+			return null;
+		}
+
+		final AffineTransform at = AffineTransform.getScaleInstance(dpiFactor, dpiFactor);
+		at.translate(deltaShadow - bounds.getMinX(), deltaShadow - bounds.getMinY());
+
+		final Key key = createKey(shape, at, color, fill, (int) w, (int) h);
+		final BufferedImage cached = cache.get(key);
+		if (cached != null)
+			return cached;
+
+		BufferedImage result = null;
+		try {
+			result = render(shape, at, color, fill, (int) w, (int) h, dpiFactor);
+		} catch (OutOfMemoryError error) {
+			Log.info("Warning: Cannot draw shadow, image too big.");
+		} catch (Exception e) {
+			Log.info("Warning: Cannot draw shadow: " + e);
+		}
+		if (result != null)
+			cache.put(key, result, 4L * result.getWidth() * result.getHeight());
+
+		return result;
+	}
+
+	private static Key createKey(Shape shape, AffineTransform at, Color color, boolean fill, int width,
+			int height) {
+		int[] types = new int[16];
+		double[] coords = new double[96];
+		int nbSegments = 0;
+		int nbCoords = 0;
+		final double[] segment = new double[6];
+		for (PathIterator it = shape.getPathIterator(at); it.isDone() == false; it.next()) {
+			final int type = it.currentSegment(segment);
+			if (nbSegments == types.length)
+				types = Arrays.copyOf(types, nbSegments * 2);
+			if (nbCoords + 6 > coords.length)
+				coords = Arrays.copyOf(coords, coords.length * 2);
+
+			types[nbSegments++] = type;
+			for (int i = 0; i < nbCoordsOf(type); i++)
+				coords[nbCoords++] = segment[i];
+		}
+		return new Key(color, fill, width, height, Arrays.copyOf(types, nbSegments), Arrays.copyOf(coords, nbCoords));
+	}
+
+	private static int nbCoordsOf(int segmentType) {
+		switch (segmentType) {
+		case PathIterator.SEG_MOVETO:
+		case PathIterator.SEG_LINETO:
+			return 2;
+		case PathIterator.SEG_QUADTO:
+			return 4;
+		case PathIterator.SEG_CUBICTO:
+			return 6;
+		}
+		return 0;
+	}
+
+	private static BufferedImage render(Shape shape, AffineTransform at, Color color, boolean fill, int width,
+			int height, double dpiFactor) {
+		final Scratch tmp = scratch.get();
+		final BufferedImage mask = tmp.getImage(width, height);
+		final Graphics2D gg = mask.createGraphics();
+		gg.clipRect(0, 0, width, height);
+		gg.transform(at);
+		if (color != null)
+			gg.setColor(color);
+		if (fill)
+			gg.fill(shape);
+		else
+			gg.draw(shape);
+		gg.dispose();
+
+		final int size = (int) (BLUR_RADIUS * Math.sqrt(dpiFactor));
+		final int nbElements = (int) (BLUR_RADIUS * BLUR_RADIUS * dpiFactor);
+		final BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		if (blur(tmp, mask, result, size, nbElements) == false) {
+			final BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			copy.getRaster().setRect(mask.getRaster().createChild(0, 0, width, height, 0, 0, null));
+			return getConvolveOp(size, nbElements).filter(copy, null);
+		}
+		return result;
+	}
+
+	/**
+	 * Box blur of a two-color mask. Pixels closer to the border than half the
+	 * kernel are copied, as <code>ConvolveOp.EDGE_NO_OP</code> does.
+	 */
+	private static boolean blur(Scratch tmp, BufferedImage mask, BufferedImage result, int size, int nbElements) {
+		final int width = result.getWidth();
+		final int height = result.getHeight();
+		final int half = size / 2;
+		if (width < size || height < size)
+			return false;
+
+		final int[] src = getPixels(mask);
+		final int stride = mask.getWidth();
+		final int[] dest = getPixels(result);
+
+		int color = 0;
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++) {
+				final int pixel = src[y * stride + x];
+				if (pixel == 0)
+					continue;
+				if (color == 0)
+					color = pixel;
+				else if (pixel != color)
+					return false;
+			}
+
+		for (int y = 0; y < height; y++)
+			System.arraycopy(src, y * stride, dest, y * width, width);
+
+		if (color == 0)
+			return true;
+
+		final int[] lut = getCalibration(color, size, nbElements);
+		// Only the last size rows of horizontal counts are needed: they are kept in
+		// a ring, row y in slot y % size
+		final int[] rowCounts = tmp.getRowCounts(size * width);
+		final int[] columnCounts = tmp.getColumnCounts(width);
+		Arrays.fill(columnCounts, 0, width, 0);
+
+		for (int y = 0; y < height; y++) {
+			final int line = y * stride;
+			final int slot = (y % size) * width;
+			int count = 0;
+			for (int x = 0; x < size; x++)
+				if (src[line + x] != 0)
+					count++;
+
+			rowCounts[slot + half] = count;
+			for (int x = half + 1; x < width - half; x++) {
+				if (src[line + x - half - 1] != 0)
+					count--;
+				if (src[line + x - half + size - 1] != 0)
+					count++;
+				rowCounts[slot + x] = count;
+			}
+
+			for (int x = half; x < width - half; x++)
+				columnCounts[x] += rowCounts[slot + x];
+
+			final int outY = y - size + 1 + half;
+			if (outY >= half && outY < height - half)
+				for (int x = half; x < width - half; x++)
+					dest[outY * width + x] = lut[columnCounts[x]];
+
+			if (y - size + 1 >= 0) {
+				final int oldest = ((y - size + 1) % size) * width;
+				for (int x = half; x < width - half; x++)
+					columnCounts[x] -= rowCounts[oldest + x];
+			}
+
+		}
+		return true;
+	}
+
+	/**
+	 * Value of a blurred pixel, as computed by {@link ConvolveOp}, for each
+	 * number of set pixels in its window.
+	 */
+	private static int[] getCalibration(int color, int size, int nbElements) {
+		final String key = color + " " + size + " " + nbElements;
+		int[] result = calibrations.get(key);
+		if (result == null) {
+			result = new int[size * size + 1];
+			final ConvolveOp op = getConvolveOp(size, nbElements);
+			final int dim = 3 * size;
+			final int target = (size + size / 2) * dim + size + size / 2;
+			for (int count = 0; count < result.length; count++) {
+				final BufferedImage image = new BufferedImage(dim, dim, BufferedImage.TYPE_INT_ARGB);
+				final int[] pixels = getPixels(image);
+				for (int i = 0; i < count; i++)
+					pixels[(size + i / size) * dim + size + i % size] = color;
+
+				result[count] = getPixels(op.filter(image, null))[target];
+			}
+			calibrations.put(key, result);
+		}
+		return result;
+	}
+
+	private static ConvolveOp getConvolveOp(int size, int nbElements) {
+		final float[] elements = new float[nbElements];
+		for (int k = 0; k < elements.length; k++)
+			elements[k] = (float) (1.0 / elements.length);
+
+		final Kernel myKernel = new Kernel(size, size, elements);
+
+		// if EDGE_NO_OP is not selected, EDGE_ZERO_FILL is the default which
+		// creates a black border
+		return new ConvolveOp(myKernel, ConvolveOp.EDGE_NO_OP, null);
+	}
+
+	private static int[] getPixels(BufferedImage image) {
+		return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+}
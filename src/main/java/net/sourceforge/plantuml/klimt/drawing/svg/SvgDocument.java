@@ -0,0 +1,64 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.klimt.drawing.svg;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.xml.transform.TransformerException;
+
+/**
+ * Builds and writes the SVG document of a {@link SvgGraphics}.
+ */
+interface SvgDocument {
+	// ::remove file when __HAXE__
+
+	SvgElement getRoot();
+
+	/**
+	 * Creates an element that is complete once appended to its parent.
+	 */
+	SvgElement createElement(String tagName);
+
+	/**
+	 * Creates an element that may still get attributes or children after being
+	 * appended to its parent.
+	 */
+	SvgElement createLiveElement(String tagName);
+
+	void write(OutputStream os) throws TransformerException, IOException;
+
+}
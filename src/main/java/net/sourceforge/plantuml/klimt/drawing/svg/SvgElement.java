@@ -0,0 +1,65 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.klimt.drawing.svg;
+
+/**
+ * The small subset of an XML element used by {@link SvgGraphics}, so that the
+ * same drawing code can feed either a DOM tree or the streaming writer.
+ */
+interface SvgElement {
+	// ::remove file when __HAXE__
+
+	String getTagName();
+
+	void setAttribute(String name, String value);
+
+	void setTextContent(String text);
+
+	void appendChild(SvgElement child);
+
+	void appendCData(String data);
+
+	void appendComment(String comment);
+
+	/**
+	 * Appends an already serialized SVG fragment, which is copied verbatim to the
+	 * output.
+	 */
+	void appendInlined(String key, String xml);
+
+	boolean hasChildren();
+
+}
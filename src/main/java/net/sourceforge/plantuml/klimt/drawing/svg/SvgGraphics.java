@@ -52,19 +52,10 @@ import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 import net.sourceforge.plantuml.klimt.color.HColor.TransparentFillBehavior;
-import org.w3c.dom.CDATASection;
-import org.w3c.dom.Comment;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 import net.sourceforge.plantuml.FileUtils;
 import net.sourceforge.plantuml.code.TranscoderUtil;
@@ -83,7 +74,6 @@ import net.sourceforge.plantuml.security.SecurityUtils;
 import net.sourceforge.plantuml.skin.PragmaKey;
 import net.sourceforge.plantuml.utils.Base64Coder;
 import net.sourceforge.plantuml.utils.Log;
-import net.sourceforge.plantuml.xml.XmlFactories;
 
 import static net.sourceforge.plantuml.klimt.color.HColor.TransparentFillBehavior.WITH_FILL_NONE;
 
@@ -108,10 +98,10 @@ public class SvgGraphics {
 	private static final String XLINK_HREF1 = "href";
 	private static final String XLINK_HREF2 = "xlink:href";
 
-	final private Document document;
-	final private Element root;
-	final private Element defs;
-	final private Element gRoot;
+	final private SvgDocument document;
+	final private SvgElement root;
+	final private SvgElement defs;
+	final private SvgElement gRoot;
 
 	private String fill = "black";
 	private String stroke = "black";
@@ -129,7 +119,7 @@ public class SvgGraphics {
 
 	private final SvgOption option;
 
-	private Element pendingBackground;
+	private SvgElement pendingBackground;
 	private boolean robotoAdded = false;
 
 	final protected void ensureVisible(double x, double y) {
@@ -143,9 +133,9 @@ public class SvgGraphics {
 
 	public SvgGraphics(long seed, SvgOption option) {
 		try {
+			this.option = option;
 			this.document = getDocument();
 
-			this.option = option;
 			final XDimension2D minDim = option.getMinDim();
 			ensureVisible(minDim.getWidth(), minDim.getHeight());
 
@@ -166,11 +156,11 @@ public class SvgGraphics {
 				defs.appendChild(getPathHover(option.getHover()));
 
 			if (option.isInteractive()) {
-				final Element styles = getStylesForInteractiveMode();
+				final SvgElement styles = getStylesForInteractiveMode();
 				if (styles != null)
 					defs.appendChild(styles);
 
-				final Element script = getScriptForInteractiveMode();
+				final SvgElement script = getScriptForInteractiveMode();
 				if (script != null)
 					defs.appendChild(script);
 			}
@@ -203,7 +193,7 @@ public class SvgGraphics {
 		if (robotoAdded)
 			return;
 		// https://stackoverflow.com/questions/36253961/using-google-fonts-with-svg-object
-		final Element style = document.createElement("style");
+		final SvgElement style = document.createElement("style");
 		style.setAttribute("type", "text/css");
 		style.setTextContent(
 				"@import url('https://fonts.googleapis.com/css?family=Roboto:400,100,100italic,300,300italic,400italic,500,500italic,700,700italic,900,900italic');");
@@ -214,19 +204,18 @@ public class SvgGraphics {
 	private void paintBackcolor(String back) {
 		setFillColor(back);
 		setStrokeColor(null);
-		pendingBackground = createRectangleInternal(0, 0, 0, 0);
+		pendingBackground = createRectangleInternal(document.createLiveElement("rect"), 0, 0, 0, 0);
 		getG().appendChild(pendingBackground);
 	}
 
-	private Element getStylesForInteractiveMode() {
-		final Element style = simpleElement("style");
+	private SvgElement getStylesForInteractiveMode() {
+		final SvgElement style = document.createElement("style");
 		final String text = getData(option.getInteractiveBaseFilename() + ".css");
 		if (text == null)
 			return null;
 
-		final CDATASection cdata = document.createCDATASection(text);
 		style.setAttribute("type", "text/css");
-		style.appendChild(cdata);
+		style.appendCData(text);
 		return style;
 	}
 
@@ -258,8 +247,8 @@ public class SvgGraphics {
 //		return style;
 //	}
 
-	private Element getScriptForInteractiveMode() {
-		final Element script = document.createElement("script");
+	private SvgElement getScriptForInteractiveMode() {
+		final SvgElement script = document.createElement("script");
 		final String text = getData(option.getInteractiveBaseFilename() + ".js");
 		if (text == null)
 			return null;
@@ -281,11 +270,10 @@ public class SvgGraphics {
 		return null;
 	}
 
-	private Element getPathHover(String hover) {
-		final Element style = simpleElement("style");
-		final CDATASection cdata = document.createCDATASection("path:hover { stroke: " + hover + " !important;}");
+	private SvgElement getPathHover(String hover) {
+		final SvgElement style = document.createElement("style");
 		style.setAttribute("type", "text/css");
-		style.appendChild(cdata);
+		style.appendCData("path:hover { stroke: " + hover + " !important;}");
 		return style;
 	}
 
@@ -295,26 +283,25 @@ public class SvgGraphics {
 
 	// This method returns a reference to a simple XML
 	// element node that has no attributes.
-	private Element simpleElement(String type) {
-		final Element theElement = document.createElement(type);
+	private SvgElement simpleElement(String type) {
+		final SvgElement theElement = document.createLiveElement(type);
 		root.appendChild(theElement);
 		return theElement;
 	}
 
-	private Document getDocument() throws ParserConfigurationException {
-		final DocumentBuilder builder = XmlFactories.newDocumentBuilder();
-		final Document document = builder.newDocument();
-		document.setXmlStandalone(true);
-		return document;
+	private SvgDocument getDocument() throws ParserConfigurationException {
+		if (option.isStreaming())
+			return new SvgStreamDocument();
+
+		return new SvgDomDocument();
 	}
 
 	// This method returns a reference to a root node that
 	// has already been appended to the document.
-	private Element getRootNode() {
-		// Create the root node named svg and append it to
+	private SvgElement getRootNode() {
+		// The root node named svg is created along with
 		// the document.
-		final Element svg = document.createElement("svg");
-		document.appendChild(svg);
+		final SvgElement svg = document.getRoot();
 
 		// Set some attributes on the root node that are
 		// required for proper rendering. Note that the
@@ -327,7 +314,7 @@ public class SvgGraphics {
 
 		if (option.getTitle() != null) {
 			// Create a title element and set its text
-			final Element title = document.createElement("title");
+			final SvgElement title = document.createElement("title");
 			title.setTextContent(option.getTitle());
 			svg.appendChild(title);
 		}
@@ -338,7 +325,7 @@ public class SvgGraphics {
 	public void svgEllipse(double x, double y, double xRadius, double yRadius, double deltaShadow) {
 		manageShadow(deltaShadow);
 		if (hidden == false) {
-			final Element elt = document.createElement("ellipse");
+			final SvgElement elt = document.createElement("ellipse");
 			elt.setAttribute("cx", format(x));
 			elt.setAttribute("cy", format(y));
 			elt.setAttribute("rx", format(xRadius));
@@ -355,7 +342,7 @@ public class SvgGraphics {
 		if (hidden == false) {
 			final String path = "M" + format(x1) + "," + format(y1) + " A" + format(rx) + "," + format(ry) + " 0 0 0 "
 					+ format(x2) + " " + format(y2);
-			final Element elt = document.createElement("path");
+			final SvgElement elt = document.createElement("path");
 			elt.setAttribute("d", path);
 			fillMe(elt);
 			styleMe(elt);
@@ -371,7 +358,7 @@ public class SvgGraphics {
 		final List<Object> key = Arrays.asList((Object) color1, color2, policy);
 		String id = gradients.get(key);
 		if (id == null) {
-			final Element elt = document.createElement("linearGradient");
+			final SvgElement elt = document.createElement("linearGradient");
 			if (policy == '|') {
 				elt.setAttribute("x1", "0%");
 				elt.setAttribute("y1", "50%");
@@ -397,10 +384,10 @@ public class SvgGraphics {
 			gradients.put(key, id);
 			elt.setAttribute("id", id);
 
-			final Element stop1 = document.createElement("stop");
+			final SvgElement stop1 = document.createElement("stop");
 			stop1.setAttribute("stop-color", color1);
 			stop1.setAttribute("offset", "0%");
-			final Element stop2 = document.createElement("stop");
+			final SvgElement stop2 = document.createElement("stop");
 			stop2.setAttribute("stop-color", color2);
 			stop2.setAttribute("offset", "100%");
 
@@ -442,7 +429,7 @@ public class SvgGraphics {
 		this.strokeDasharray = strokeDasharray;
 	}
 
-	public final Element getG() {
+	private SvgElement getG() {
 		if (pendingElements.size() == 0)
 			return gRoot;
 
@@ -458,7 +445,7 @@ public class SvgGraphics {
 		}
 		manageShadow(deltaShadow);
 		if (hidden == false) {
-			final Element elt = createRectangleInternal(x, y, width, height);
+			final SvgElement elt = createRectangleInternal(document.createElement("rect"), x, y, width, height);
 			addFilterShadowId(elt, deltaShadow);
 			if (rx > 0 && ry > 0) {
 				elt.setAttribute("rx", format(rx));
@@ -475,8 +462,7 @@ public class SvgGraphics {
 		ensureVisible(x + width + 2 * deltaShadow, y + height + 2 * deltaShadow);
 	}
 
-	private Element createRectangleInternal(double x, double y, double width, double height) {
-		final Element elt = document.createElement("rect");
+	private SvgElement createRectangleInternal(SvgElement elt, double x, double y, double width, double height) {
 		elt.setAttribute("x", format(x));
 		elt.setAttribute("y", format(y));
 		elt.setAttribute("width", format(width));
@@ -489,7 +475,7 @@ public class SvgGraphics {
 	public void svgLine(double x1, double y1, double x2, double y2, double deltaShadow) {
 		manageShadow(deltaShadow);
 		if (hidden == false) {
-			final Element elt = document.createElement("line");
+			final SvgElement elt = document.createElement("line");
 			elt.setAttribute("x1", format(x1));
 			elt.setAttribute("y1", format(y1));
 			elt.setAttribute("x2", format(x2));
@@ -502,7 +488,7 @@ public class SvgGraphics {
 		ensureVisible(x2 + 2 * deltaShadow, y2 + 2 * deltaShadow);
 	}
 
-	private void styleMe(Element elt) {
+	private void styleMe(SvgElement elt) {
 		if (strokeWidth.equals("0"))
 			return;
 
@@ -521,7 +507,7 @@ public class SvgGraphics {
 		assert points.length % 2 == 0;
 		manageShadow(deltaShadow);
 		if (hidden == false) {
-			final Element elt = document.createElement("polygon");
+			final SvgElement elt = document.createElement("polygon");
 			final StringBuilder sb = new StringBuilder();
 			for (double coord : points) {
 				if (sb.length() > 0)
@@ -546,7 +532,7 @@ public class SvgGraphics {
 			String fontStyle, String textDecoration, double textLength, Map<String, String> attributes,
 			String textBackColor) {
 		if (hidden == false) {
-			final Element elt = document.createElement("text");
+			final SvgElement elt = document.createElement("text");
 			// required for web-kit based browsers
 			// elt.setAttribute("text-rendering", "geometricPrecision");
 			elt.setAttribute("x", format(x));
@@ -634,7 +620,7 @@ public class SvgGraphics {
 			return id;
 
 		id = getIdFilterBackColor(color);
-		final Element filter = document.createElement("filter");
+		final SvgElement filter = document.createElement("filter");
 		filter.setAttribute("id", id);
 		filter.setAttribute("x", "0");
 		filter.setAttribute("y", "0");
@@ -646,43 +632,7 @@ public class SvgGraphics {
 		return id;
 	}
 
-	private Transformer getTransformer() throws TransformerException {
-		final Transformer transformer = XmlFactories.newTransformer();
-		Log.info("Transformer=" + transformer.getClass());
-
-		// // Sets the standalone property in the first line of
-		// // the output file.
-		transformer.setOutputProperty(OutputKeys.STANDALONE, "no");
-		transformer.setOutputProperty(OutputKeys.ENCODING, "us-ascii");
-		// transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, "SVG 1.1");
-		// transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-
-		return transformer;
-	}
-
 	public void createXml(OutputStream os) throws TransformerException, IOException {
-		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		createXmlInternal(baos);
-		String s = new String(baos.toByteArray());
-		for (Map.Entry<String, String> ent : images.entrySet()) {
-			final String k = "<" + ent.getKey() + "/>";
-			s = s.replace(k, ent.getValue());
-		}
-		s = removeXmlHeader(s);
-		// s = s.replace("<", "\n<").replace(">", ">\n");
-		os.write(s.getBytes());
-	}
-
-	private String removeXmlHeader(String s) {
-		s = s.replaceFirst("^<\\?xml [^<>]+?\\>", "");
-		return s;
-	}
-
-	private void createXmlInternal(OutputStream os) throws TransformerException {
-		// Get a DOMSource object that represents the
-		// Document object
-		final DOMSource source = new DOMSource(document);
-
 		final int maxXscaled = (int) (maxX * option.getScale());
 		final int maxYscaled = (int) (maxY * option.getScale());
 		String style = "width:" + maxXscaled + "px;height:" + maxYscaled + "px;";
@@ -706,11 +656,7 @@ public class SvgGraphics {
 			pendingBackground.setAttribute("height", format(maxY));
 		}
 
-		// Get a StreamResult object that points to the
-		// screen. Then transform the DOM sending XML to
-		// the screen.
-		final StreamResult scrResult = new StreamResult(os);
-		getTransformer().transform(source, scrResult);
+		document.write(os);
 	}
 
 	public void svgPath(double x, double y, UPath path, double deltaShadow) {
@@ -751,7 +697,7 @@ public class SvgGraphics {
 
 		}
 		if (hidden == false) {
-			final Element elt = document.createElement("path");
+			final SvgElement elt = document.createElement("path");
 			elt.setAttribute("d", sb.toString().trim());
 			styleMe(elt);
 			fillMe(elt);
@@ -768,7 +714,7 @@ public class SvgGraphics {
 		}
 	}
 
-	private void fillMe(Element elt) {
+	private void fillMe(SvgElement elt) {
 		if (fill.matches("#[0-9A-Fa-f]{8}")) {
 			elt.setAttribute("fill", fill.substring(0, 7));
 			final double opacity = Integer.parseInt(fill.substring(7), 16) / 255.0;
@@ -778,7 +724,7 @@ public class SvgGraphics {
 		}
 	}
 
-	private void addFilterShadowId(final Element elt, double deltaShadow) {
+	private void addFilterShadowId(final SvgElement elt, double deltaShadow) {
 		if (deltaShadow > 0)
 			elt.setAttribute("filter", "url(#" + shadowId + ")");
 
@@ -840,7 +786,7 @@ public class SvgGraphics {
 
 	public void fill(int windingRule) {
 		if (hidden == false) {
-			final Element elt = document.createElement("path");
+			final SvgElement elt = document.createElement("path");
 			elt.setAttribute("d", currentPath.toString());
 			fillMe(elt);
 			getG().appendChild(elt);
@@ -877,7 +823,7 @@ public class SvgGraphics {
 
 	public void svgImage(BufferedImage image, double x, double y) throws IOException {
 		if (hidden == false) {
-			final Element elt = document.createElement("image");
+			final SvgElement elt = document.createElement("image");
 			elt.setAttribute("width", format(image.getWidth()));
 			elt.setAttribute("height", format(image.getHeight()));
 			elt.setAttribute("x", format(x));
@@ -890,17 +836,16 @@ public class SvgGraphics {
 		ensureVisible(x + image.getWidth(), y + image.getHeight());
 	}
 
-	private final Map<String, String> images = new HashMap<String, String>();
+	private int inlinedImages = 0;
 
 	private void svgImageUnsecure(UImageSvg image, double x, double y) {
 		if (hidden == false) {
 			String svg = manageScale(image);
 			final String pos = "<svg x=\"" + format(x) + "\" y=\"" + format(y) + "\">";
 			svg = pos + svg.substring(5);
-			final String key = "imagesvginlined" + image.getMD5Hex() + images.size();
-			final Element elt =  document.createElement(key);
-			getG().appendChild(elt);
-			images.put(key, svg);
+			final String key = "imagesvginlined" + image.getMD5Hex() + inlinedImages;
+			getG().appendInlined(key, svg);
+			inlinedImages++;
 		}
 		ensureVisible(x, y);
 		ensureVisible(x + image.getData("width"), y + image.getData("height"));
@@ -914,7 +859,7 @@ public class SvgGraphics {
 
 		// https://developer.mozilla.org/fr/docs/Web/SVG/Element/image
 		if (hidden == false) {
-			final Element elt = document.createElement("image");
+			final SvgElement elt = document.createElement("image");
 			elt.setAttribute("width", format(image.getWidth()));
 			elt.setAttribute("height", format(image.getHeight()));
 			elt.setAttribute("x", format(x));
@@ -980,7 +925,7 @@ public class SvgGraphics {
 		if (deltaShadow != 0) {
 			if (withShadow == false) {
 				// <filter id="f1" x="0" y="0" width="120%" height="120%">
-				final Element filter = document.createElement("filter");
+				final SvgElement filter = document.createElement("filter");
 				filter.setAttribute("id", shadowId);
 				filter.setAttribute("x", "-1");
 				filter.setAttribute("y", "-1");
@@ -998,9 +943,9 @@ public class SvgGraphics {
 		}
 	}
 
-	private void addFilter(Element filter, String name, String... data) {
+	private void addFilter(SvgElement filter, String name, String... data) {
 		assert data.length % 2 == 0;
-		final Element elt = document.createElement(name);
+		final SvgElement elt = document.createElement(name);
 		for (int i = 0; i < data.length; i += 2)
 			elt.setAttribute(data[i], data[i + 1]);
 
@@ -1030,14 +975,12 @@ public class SvgGraphics {
 		// ::comment when __CORE__
 		final String signature = getMetadataHex(metadata).replace("--", "- -");
 		final String comment = "SRC=[" + signature + "]";
-		final Comment commentElement = document.createComment(comment);
-		getG().appendChild(commentElement);
+		getG().appendComment(comment);
 		// ::done
 	}
 
 	public void addComment(String comment) {
-		final Comment commentElement = document.createComment(comment);
-		getG().appendChild(commentElement);
+		getG().appendComment(comment);
 	}
 
 	private static class LinkData {
@@ -1072,7 +1015,7 @@ public class SvgGraphics {
 			return sb.toString().replaceAll("\\\\n", "\n");
 		}
 
-		public void updateAttributesOf(Element element) {
+		public void updateAttributesOf(SvgElement element) {
 			element.setAttribute("target", target);
 			element.setAttribute(XLINK_HREF1, url);
 			element.setAttribute(XLINK_HREF2, url);
@@ -1086,7 +1029,7 @@ public class SvgGraphics {
 		}
 	}
 
-	private final List<Element> pendingElements = new ArrayList<>();
+	private final List<SvgElement> pendingElements = new ArrayList<>();
 
 	/*
 	 * Note: SVG does not support nested links (<a> within <a>). Thus, we manage
@@ -1100,9 +1043,9 @@ public class SvgGraphics {
 	 * SVG group.
 	 */
 	private void closeTopPendingElement() {
-		final Element element = pendingElements.get(0);
+		final SvgElement element = pendingElements.get(0);
 		pendingElements.remove(0);
-		if (element.getFirstChild() != null)
+		if (element.hasChildren())
 			getG().appendChild(element);
 	}
 
@@ -1120,7 +1063,7 @@ public class SvgGraphics {
 		}
 
 		// Check for invalid state: no links should remain pending
-		for (Element elt : pendingElements)
+		for (SvgElement elt : pendingElements)
 			if (elt.getTagName().equals("a"))
 				throw new IllegalStateException();
 
@@ -1200,7 +1143,7 @@ public class SvgGraphics {
 
 			for (Map.Entry<UGroupType, String> typeIdent : typeIdents.entrySet()) {
 				if (typeIdent.getKey() == UGroupType.TITLE) {
-					Element title = document.createElement(UGroupType.TITLE.getSvgKeyAttributeName());
+					SvgElement title = document.createElement(UGroupType.TITLE.getSvgKeyAttributeName());
 					title.setTextContent(typeIdent.getValue());
 					pendingElements.get(0).appendChild(title);
 				}
@@ -1238,7 +1181,7 @@ public class SvgGraphics {
 		} else {
 			for (Map.Entry<UGroupType, String> typeIdent : typeIdents.entrySet()) {
 				if (typeIdent.getKey() == UGroupType.TITLE) {
-					Element title = document.createElement(UGroupType.TITLE.getSvgKeyAttributeName());
+					SvgElement title = document.createElement(UGroupType.TITLE.getSvgKeyAttributeName());
 					title.setTextContent(typeIdent.getValue());
 					pendingElements.get(0).appendChild(title);
 				}
@@ -59,6 +59,7 @@ public class SvgOption {
 	private String font;
 	private String title;
 	private String interactiveBaseFilename;
+	private boolean streaming;
 	private final Map<String, String> rootAttributes = new LinkedHashMap<>();
 
 	public String getInteractiveBaseFilename() {
@@ -140,6 +141,15 @@ public class SvgOption {
 		return this;
 	}
 
+	/**
+	 * Writes the SVG without building a DOM tree. The output is the same, this is
+	 * only faster and lighter on large diagrams.
+	 */
+	public SvgOption withStreaming(boolean streaming) {
+		this.streaming = streaming;
+		return this;
+	}
+
 	public SvgOption withFont(String font) {
 		this.font = font;
 		return this;
@@ -162,6 +172,10 @@ public class SvgOption {
 		return interactiveBaseFilename != null;
 	}
 
+	public boolean isStreaming() {
+		return streaming;
+	}
+
 	public LengthAdjust getLengthAdjust() {
 		return lengthAdjust;
 	}
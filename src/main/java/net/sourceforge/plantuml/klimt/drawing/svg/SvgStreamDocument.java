@@ -0,0 +1,327 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.klimt.drawing.svg;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming backend: elements are serialized to text as soon as they are
+ * appended to their parent, so no DOM tree is kept and no
+ * {@link javax.xml.transform.Transformer} is needed.
+ * <p>
+ * Only the root, its direct children (<code>defs</code> and the main
+ * <code>g</code>) and the background rectangle are live elements: they are
+ * written when the document itself is written, because their content or
+ * attributes are only known at the end.
+ * <p>
+ * The output mimics the JDK serializer used by {@link SvgDomDocument} with the
+ * <code>us-ascii</code> encoding: attributes sorted by name with namespace
+ * declarations first, non ASCII characters as numeric references, empty
+ * elements collapsed.
+ */
+class SvgStreamDocument implements SvgDocument {
+	// ::remove file when __HAXE__
+
+	private static final String LINE_SEPARATOR = System.lineSeparator();
+
+	private final StreamElement root = new StreamElement("svg", true);
+
+	@Override
+	public SvgElement getRoot() {
+		return root;
+	}
+
+	@Override
+	public SvgElement createElement(String tagName) {
+		return new StreamElement(tagName, false);
+	}
+
+	@Override
+	public SvgElement createLiveElement(String tagName) {
+		return new StreamElement(tagName, true);
+	}
+
+	@Override
+	public void write(OutputStream os) throws IOException {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(os, Charset.defaultCharset()));
+		root.writeTo(writer);
+		writer.flush();
+	}
+
+	static class StreamElement implements SvgElement {
+
+		private static final String[] NO_ATTRIBUTES = new String[0];
+
+		private final String tagName;
+		private final boolean live;
+		// Names and values, sorted by name
+		private String[] attributes = NO_ATTRIBUTES;
+		private int attributesCount;
+		// Serialized content, as StringBuilder, or live elements
+		private final List<Object> parts = new ArrayList<>();
+
+		StreamElement(String tagName, boolean live) {
+			this.tagName = tagName;
+			this.live = live;
+		}
+
+		@Override
+		public String getTagName() {
+			return tagName;
+		}
+
+		@Override
+		public void setAttribute(String name, String value) {
+			int low = 0;
+			int high = attributesCount - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				final int cmp = attributes[2 * mid].compareTo(name);
+				if (cmp == 0) {
+					attributes[2 * mid + 1] = value;
+					return;
+				}
+				if (cmp < 0)
+					low = mid + 1;
+				else
+					high = mid - 1;
+			}
+			if (2 * attributesCount == attributes.length)
+				attributes = Arrays.copyOf(attributes, Math.max(8, 2 * attributes.length));
+
+			System.arraycopy(attributes, 2 * low, attributes, 2 * low + 2, 2 * (attributesCount - low));
+			attributes[2 * low] = name;
+			attributes[2 * low + 1] = value;
+			attributesCount++;
+		}
+
+		@Override
+		public void setTextContent(String text) {
+			parts.clear();
+			if (text != null && text.length() > 0)
+				escape(tail(), text, false);
+		}
+
+		@Override
+		public void appendChild(SvgElement child) {
+			final StreamElement elt = (StreamElement) child;
+			if (elt.live) {
+				parts.add(elt);
+				return;
+			}
+			final StringBuilder sb = tail();
+			elt.appendStartTag(sb);
+			if (elt.parts.size() == 0) {
+				sb.append("/>");
+				return;
+			}
+			sb.append('>');
+			// The child is complete: its serialized content is moved, not copied
+			parts.addAll(elt.parts);
+			tail().append("</").append(elt.tagName).append('>');
+		}
+
+		@Override
+		public void appendCData(String data) {
+			if (data.length() == 0)
+				return;
+
+			final StringBuilder sb = tail();
+			// As with the DOM serializer, the section is opened upfront unless it starts
+			// with a character reference, while splits and newlines keep its state
+			boolean open = isCDataReference(data.codePointAt(0)) == false;
+			if (open)
+				sb.append("<![CDATA[");
+			for (int i = 0; i < data.length(); i++) {
+				final int c = data.codePointAt(i);
+				if (c > 0xFFFF)
+					i++;
+				if (data.startsWith("]]>", i)) {
+					sb.append("]]]]><![CDATA[>");
+					i += 2;
+				} else if (c == '\n') {
+					sb.append(LINE_SEPARATOR);
+				} else if (isCDataReference(c)) {
+					if (open)
+						sb.append("]]>");
+					open = false;
+					sb.append("&#").append(c).append(';');
+				} else {
+					if (open == false)
+						sb.append("<![CDATA[");
+					open = true;
+					sb.append((char) c);
+				}
+			}
+			if (open)
+				sb.append("]]>");
+		}
+
+		private static boolean isCDataReference(int c) {
+			return c >= 0x80 || (c < 0x20 && c != '\t' && c != '\n' && c != '\r');
+		}
+
+		@Override
+		public void appendComment(String comment) {
+			final StringBuilder sb = tail();
+			sb.append("<!--");
+			for (int i = 0; i < comment.length(); i++) {
+				final int c = comment.codePointAt(i);
+				if (c > 0xFFFF)
+					i++;
+				if (c == '\n')
+					sb.append(LINE_SEPARATOR);
+				else if (c < 0x80)
+					sb.append((char) c);
+				else
+					sb.append('?');
+				// Like the DOM serializer, never write "--" nor "--->"
+				if (c == '-' && (i == comment.length() - 1 || comment.charAt(i + 1) == '-'))
+					sb.append(' ');
+			}
+			sb.append("-->");
+		}
+
+		@Override
+		public void appendInlined(String key, String xml) {
+			tail().append(xml);
+		}
+
+		@Override
+		public boolean hasChildren() {
+			return parts.size() > 0;
+		}
+
+		private StringBuilder tail() {
+			if (parts.size() > 0) {
+				final Object last = parts.get(parts.size() - 1);
+				if (last instanceof StringBuilder)
+					return (StringBuilder) last;
+			}
+			final StringBuilder result = new StringBuilder();
+			parts.add(result);
+			return result;
+		}
+
+		private void appendStartTag(StringBuilder sb) {
+			sb.append('<').append(tagName);
+			// Namespace declarations come first, as with the DOM serializer
+			for (int i = 0; i < attributesCount; i++)
+				if (attributes[2 * i].startsWith("xmlns"))
+					appendAttribute(sb, i);
+
+			for (int i = 0; i < attributesCount; i++)
+				if (attributes[2 * i].startsWith("xmlns") == false)
+					appendAttribute(sb, i);
+		}
+
+		private void appendAttribute(StringBuilder sb, int i) {
+			sb.append(' ').append(attributes[2 * i]).append("=\"");
+			escape(sb, attributes[2 * i + 1], true);
+			sb.append('"');
+		}
+
+		void writeTo(Writer writer) throws IOException {
+			final StringBuilder start = new StringBuilder();
+			appendStartTag(start);
+			if (parts.size() == 0) {
+				writer.append(start).append("/>");
+				return;
+			}
+			writer.append(start).append('>');
+			for (Object part : parts)
+				if (part instanceof StreamElement)
+					((StreamElement) part).writeTo(writer);
+				else
+					writer.append((StringBuilder) part);
+
+			writer.append("</").append(tagName).append('>');
+		}
+
+	}
+
+	static void escape(StringBuilder sb, String s, boolean attribute) {
+		for (int i = 0; i < s.length(); i++) {
+			final int c = s.codePointAt(i);
+			if (c > 0xFFFF)
+				i++;
+			switch (c) {
+			case '<':
+				sb.append("&lt;");
+				break;
+			case '>':
+				sb.append("&gt;");
+				break;
+			case '&':
+				sb.append("&amp;");
+				break;
+			case '"':
+				if (attribute)
+					sb.append("&quot;");
+				else
+					sb.append('"');
+				break;
+			case '\n':
+				if (attribute)
+					sb.append("&#10;");
+				else
+					sb.append(LINE_SEPARATOR);
+				break;
+			case '\t':
+				if (attribute)
+					sb.append("&#9;");
+				else
+					sb.append('\t');
+				break;
+			default:
+				// DEL is kept as is in attributes only
+				if (c < 0x20 || c > 0x7F || (c == 0x7F && attribute == false))
+					sb.append("&#").append(c).append(';');
+				else
+					sb.append((char) c);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.klimt.font;
+
+import net.sourceforge.plantuml.klimt.geom.XDimension2D;
+import net.sourceforge.plantuml.utils.BoundedCache;
+
+/**
+ * Process-wide memoization of text measurements done by {@link StringBounderRaw}.
+ * <p>
+ * Entries are keyed by the kind of bounder, the font and the text, so that
+ * bounders measuring text the same way share their results.
+ */
+public final class StringBounderCache {
+	// ::remove file when __HAXE__
+
+	private static final BoundedCache<Key, XDimension2D> dimensions = new BoundedCache<Key, XDimension2D>(16384);
+	private static final BoundedCache<Key, Double> descents = new BoundedCache<Key, Double>(4096);
+
+	private StringBounderCache() {
+	}
+
+	static class Key {
+		private final String kind;
+		private final UFont font;
+		private final String text;
+		private final int hash;
+
+		Key(String kind, UFont font, String text) {
+			this.kind = kind;
+			this.font = font;
+			this.text = text;
+			this.hash = 31 * (31 * kind.hashCode() + font.hashCode()) + text.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Key == false)
+				return false;
+
+			final Key other = (Key) obj;
+			return this.hash == other.hash && this.kind.equals(other.kind) && this.text.equals(other.text)
+					&& this.font.equals(other.font);
+		}
+	}
+
+	static XDimension2D calculateDimension(StringBounderRaw bounder, String kind, UFont font, String text) {
+		final Key key = new Key(kind, font, text);
+		XDimension2D result = dimensions.get(key);
+		if (result == null) {
+			result = bounder.calculateDimensionInternal(font, text);
+			dimensions.put(key, result);
+		}
+		return result;
+	}
+
+	static double getDescent(StringBounderRaw bounder, String kind, UFont font, String text) {
+		final Key key = new Key(kind, font, text);
+		Double result = descents.get(key);
+		if (result == null) {
+			result = bounder.getDescentInternal(font, text);
+			descents.put(key, result);
+		}
+		return result;
+	}
+
+	public static BoundedCache<?, ?> getDimensions() {
+		return dimensions;
+	}
+
+	public static BoundedCache<?, ?> getDescents() {
+		return descents;
+	}
+
+	public static void clear() {
+		dimensions.clear();
+		descents.clear();
+	}
+
+}
@@ -51,27 +51,61 @@ public abstract class StringBounderRaw implements StringBounder {
 		this.frc = frc;
 	}
 
+	/**
+	 * Returns the name under which measurements of this bounder are shared in
+	 * {@link StringBounderCache}, or <code>null</code> if they should not be
+	 * cached. Two bounders returning the same kind must measure text exactly the
+	 * same way.
+	 */
+	protected String getCacheKind() {
+		return null;
+	}
+
+	/**
+	 * Gives a chance to change the text before it is measured.
+	 */
+	protected String prepareText(String text) {
+		return text;
+	}
+
+	private XDimension2D calculateDimensionCached(UFont font, String text) {
+		text = prepareText(text);
+		final String kind = getCacheKind();
+		if (kind == null || font == null)
+			return calculateDimensionInternal(font, text);
+
+		return StringBounderCache.calculateDimension(this, kind, font, text);
+	}
+
 	public final XDimension2D calculateDimension(UFont font, String text) {
 		if (font == null) {
-			return calculateDimensionInternal(null, text);
+			return calculateDimensionCached(null, text);
 		}
 		if (RichText.isRich(text)) {
 			double width = 0;
 			double height = 0;
 			for (StyledString s : StyledString.build(text)) {
 				final UFont newFont = s.getStyle().mutateFont(font);
-				final XDimension2D rect = calculateDimensionInternal(newFont, s.getText());
+				final XDimension2D rect = calculateDimensionCached(newFont, s.getText());
 				width += rect.getWidth();
 				height = Math.max(height, rect.getHeight());
 			}
 			return new XDimension2D(width, height);
 		}
-		return calculateDimensionInternal(font, text);
+		return calculateDimensionCached(font, text);
 	}
 
 	protected abstract XDimension2D calculateDimensionInternal(UFont font, String text);
 
 	public double getDescent(UFont font, String text) {
+		final String kind = getCacheKind();
+		if (kind == null)
+			return getDescentInternal(font, text);
+
+		return StringBounderCache.getDescent(this, kind, font, text);
+	}
+
+	protected double getDescentInternal(UFont font, String text) {
 		final LineMetrics lineMetrics = font.getUnderlayingFont(UFontContext.G2D).getLineMetrics(text, frc);
 		final double descent = lineMetrics.getDescent();
 		return descent;
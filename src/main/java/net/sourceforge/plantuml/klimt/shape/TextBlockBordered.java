@@ -135,8 +135,9 @@ public class TextBlockBordered extends AbstractTextBlock implements TextBlock {
 			ug.draw(polygon);
 		}
 		TextBlock toDraw = textBlock;
-		if (textBlock instanceof SheetBlock2)
-			toDraw = ((SheetBlock2) textBlock).enlargeMe(left, right);
+		final TextBlock inner = TextBlockUtils.unmemoize(textBlock);
+		if (inner instanceof SheetBlock2)
+			toDraw = ((SheetBlock2) inner).enlargeMe(left, right);
 
 		toDraw.drawU(ugOriginal.apply(color).apply(new UTranslate(left, top)));
 	}
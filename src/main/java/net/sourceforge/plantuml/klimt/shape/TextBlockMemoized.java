@@ -0,0 +1,166 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.klimt.shape;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import net.atmp.InnerStrategy;
+import net.sourceforge.plantuml.klimt.color.HColor;
+import net.sourceforge.plantuml.klimt.drawing.UGraphic;
+import net.sourceforge.plantuml.klimt.font.StringBounder;
+import net.sourceforge.plantuml.klimt.geom.MagneticBorder;
+import net.sourceforge.plantuml.klimt.geom.MinMax;
+import net.sourceforge.plantuml.klimt.geom.XDimension2D;
+import net.sourceforge.plantuml.klimt.geom.XRectangle2D;
+import net.sourceforge.plantuml.security.SecurityUtils;
+import net.sourceforge.plantuml.svek.Ports;
+import net.sourceforge.plantuml.svek.WithPorts;
+
+/**
+ * Remembers the dimension and the limits of an immutable text block.
+ * <p>
+ * Values are kept for the last {@link StringBounder} only, compared by
+ * identity, which is enough for the layout and the drawing of a diagram. Blocks
+ * opt in through {@link TextBlockUtils#memoize(TextBlock)}.
+ */
+class TextBlockMemoized implements TextBlock, WithPorts {
+	// ::remove file when __HAXE__
+
+	static final boolean ENABLED = !"false".equalsIgnoreCase(SecurityUtils.getenv("PLANTUML_TEXTBLOCK_MEMOIZE"));
+
+	private static final LongAdder avoided = new LongAdder();
+
+	private final TextBlock textBlock;
+
+	private volatile Memo<XDimension2D> dimension;
+	private volatile Memo<MinMax> minMax;
+	private volatile Memo<MinMax> limits;
+	private volatile Memo<MinMax> limitsFromZero;
+
+	static class Memo<V> {
+		private final StringBounder stringBounder;
+		private final V value;
+
+		Memo(StringBounder stringBounder, V value) {
+			this.stringBounder = stringBounder;
+			this.value = value;
+		}
+	}
+
+	TextBlockMemoized(TextBlock textBlock) {
+		this.textBlock = textBlock;
+	}
+
+	static long getAvoided() {
+		return avoided.sum();
+	}
+
+	TextBlock getTextBlock() {
+		return textBlock;
+	}
+
+	@Override
+	public void drawU(UGraphic ug) {
+		textBlock.drawU(ug);
+	}
+
+	@Override
+	public XDimension2D calculateDimension(StringBounder stringBounder) {
+		final Memo<XDimension2D> memo = dimension;
+		if (memo != null && memo.stringBounder == stringBounder) {
+			avoided.increment();
+			return memo.value;
+		}
+		final XDimension2D result = textBlock.calculateDimension(stringBounder);
+		dimension = new Memo<XDimension2D>(stringBounder, result);
+		return result;
+	}
+
+	@Override
+	public MinMax getMinMax(StringBounder stringBounder) {
+		final Memo<MinMax> memo = minMax;
+		if (memo != null && memo.stringBounder == stringBounder) {
+			avoided.increment();
+			return memo.value;
+		}
+		final MinMax result = textBlock.getMinMax(stringBounder);
+		minMax = new Memo<MinMax>(stringBounder, result);
+		return result;
+	}
+
+	// Result of the dry run done by TextBlockUtils.getMinMax()
+	MinMax getLimits(StringBounder stringBounder, boolean initToZero) {
+		final Memo<MinMax> memo = initToZero ? limitsFromZero : limits;
+		if (memo != null && memo.stringBounder == stringBounder) {
+			avoided.increment();
+			return memo.value;
+		}
+		final MinMax result = TextBlockUtils.getMinMaxSlow(textBlock, stringBounder, initToZero);
+		if (initToZero)
+			limitsFromZero = new Memo<MinMax>(stringBounder, result);
+		else
+			limits = new Memo<MinMax>(stringBounder, result);
+		return result;
+	}
+
+	@Override
+	public XRectangle2D getInnerPosition(String member, StringBounder stringBounder, InnerStrategy strategy) {
+		return textBlock.getInnerPosition(member, stringBounder, strategy);
+	}
+
+	@Override
+	public MagneticBorder getMagneticBorder() {
+		return textBlock.getMagneticBorder();
+	}
+
+	@Override
+	public HColor getBackcolor() {
+		return textBlock.getBackcolor();
+	}
+
+	@Override
+	public Ports getPorts(StringBounder stringBounder) {
+		if (textBlock instanceof WithPorts)
+			return ((WithPorts) textBlock).getPorts(stringBounder);
+		return new Ports();
+	}
+
+	@Override
+	public String toString() {
+		return textBlock.toString();
+	}
+
+}
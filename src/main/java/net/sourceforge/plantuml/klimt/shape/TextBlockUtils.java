@@ -141,11 +141,45 @@ public class TextBlockUtils {
 	// }
 
 	public static MinMax getMinMax(UDrawable tb, StringBounder stringBounder, boolean initToZero) {
+		if (tb instanceof TextBlockMemoized)
+			return ((TextBlockMemoized) tb).getLimits(stringBounder, initToZero);
+
+		return getMinMaxSlow(tb, stringBounder, initToZero);
+	}
+
+	static MinMax getMinMaxSlow(UDrawable tb, StringBounder stringBounder, boolean initToZero) {
 		final LimitFinder limitFinder = LimitFinder.create(stringBounder, initToZero);
 		tb.drawU(limitFinder);
 		return limitFinder.getMinMax();
 	}
 
+	/**
+	 * Wraps a text block so that its dimension and limits are computed once per
+	 * {@link StringBounder}. The block and everything it draws must not change
+	 * afterwards.
+	 */
+	public static TextBlock memoize(TextBlock textBlock) {
+		if (TextBlockMemoized.ENABLED == false || textBlock instanceof TextBlockMemoized)
+			return textBlock;
+
+		return new TextBlockMemoized(textBlock);
+	}
+
+	static TextBlock unmemoize(TextBlock textBlock) {
+		if (textBlock instanceof TextBlockMemoized)
+			return ((TextBlockMemoized) textBlock).getTextBlock();
+
+		return textBlock;
+	}
+
+	/**
+	 * Number of dimension and limit computations saved by memoized text blocks
+	 * since startup.
+	 */
+	public static long getAvoidedRecomputations() {
+		return TextBlockMemoized.getAvoided();
+	}
+
 	public static boolean isEmpty(TextBlock text, StringBounder dummyStringBounder) {
 		if (text == null || text == EMPTY_TEXT_BLOCK)
 			return true;
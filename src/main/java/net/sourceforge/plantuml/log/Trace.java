@@ -0,0 +1,393 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.log;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sourceforge.plantuml.security.SecurityUtils;
+// ::comment when __CORE__
+import net.sourceforge.plantuml.stats.PhaseMetrics;
+// ::done
+
+/**
+ * Lightweight span timing of the main processing phases.
+ * <p>
+ * Tracing is off by default and then costs two volatile reads per span, one
+ * for tracing and one for {@link PhaseMetrics}. It can be switched on with
+ * {@link #setEnabled(boolean)}, with the <code>-trace</code> command line flag
+ * or with the <code>PLANTUML_TRACE</code> environment variable. Each thread
+ * records its spans in its own bounded buffer, so that recording never takes a
+ * lock. The collected spans can be exported using the Chrome trace event
+ * format, which is readable by <code>chrome://tracing</code> or Perfetto: at
+ * the end of a <code>-trace</code> run, or from the PicoWeb <code>/trace</code>
+ * route, which also drops them. Only the most recent buffers of terminated
+ * threads are kept until the next export. Closed spans also feed
+ * {@link PhaseMetrics} when it is enabled.
+ */
+public final class Trace {
+
+	/**
+	 * Processing phases. LAYOUT covers the whole export of a diagram, so DRAW and
+	 * ENCODE spans are nested into it.
+	 */
+	public enum Phase {
+		PREPROCESS, PARSE, LAYOUT, DRAW, ENCODE;
+
+		private final String label = name().toLowerCase();
+
+		public String getLabel() {
+			return label;
+		}
+	}
+
+	/**
+	 * A running span. Spans are meant to be used with try-with-resources.
+	 */
+	public static class Span implements AutoCloseable {
+
+		private final Phase phase;
+		private final String detail;
+		private final Span parent;
+		private final long start;
+		private final long allocatedAtStart;
+		private String diagramType;
+		private long duration = -1;
+		private long allocated;
+		private long childDuration;
+		private long childAllocated;
+		private boolean reported;
+
+		private Span(Phase phase, String detail, Span parent, long start, long allocatedAtStart) {
+			this.phase = phase;
+			this.detail = detail;
+			this.parent = parent;
+			this.start = start;
+			this.allocatedAtStart = allocatedAtStart;
+		}
+
+		/**
+		 * Sets the diagram this span is working on. It may be called after
+		 * {@link #close()}, when the type was not known yet, as for preprocessing.
+		 */
+		public void setDiagramType(String type) {
+			if (phase == null)
+				return;
+			this.diagramType = type;
+			if (duration >= 0)
+				report();
+		}
+
+		@Override
+		public void close() {
+			if (phase == null || duration >= 0)
+				return;
+			duration = System.nanoTime() - start;
+			if (allocatedAtStart >= 0)
+				allocated = allocatedBytes() - allocatedAtStart;
+			open.set(parent);
+			if (parent != null) {
+				parent.childDuration += duration;
+				parent.childAllocated += allocated;
+				if (diagramType == null)
+					diagramType = parent.diagramType;
+			}
+			if (enabled)
+				currentBuffer().add(phase, detail, diagramType, start, duration);
+			report();
+		}
+
+		private void report() {
+			if (reported || diagramType == null)
+				return;
+			reported = true;
+			// ::comment when __CORE__
+			if (PhaseMetrics.isEnabled())
+				PhaseMetrics.record(phase, diagramType, duration - childDuration, allocated - childAllocated);
+			// ::done
+		}
+	}
+
+	private static final Span NONE = new Span(null, null, null, 0, -1);
+
+	private static final int INITIAL_CAPACITY = 256;
+	private static final int CAPACITY = 16 * 1024;
+
+	static final int MAX_DEAD_BUFFERS = 64;
+
+	private static final long origin = System.nanoTime();
+	private static final AtomicInteger threadIds = new AtomicInteger();
+	private static final ConcurrentLinkedQueue<Buffer> buffers = new ConcurrentLinkedQueue<Buffer>();
+
+	private static volatile boolean enabled = "true".equalsIgnoreCase(SecurityUtils.getenv("PLANTUML_TRACE"));
+	private static volatile int generation;
+
+	private static final ThreadLocal<Buffer> current = new ThreadLocal<Buffer>();
+	private static final ThreadLocal<Span> open = new ThreadLocal<Span>();
+
+	private Trace() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean value) {
+		enabled = value;
+	}
+
+	public static Span start(Phase phase) {
+		return start(phase, null);
+	}
+
+	public static Span start(Phase phase, String detail) {
+		final boolean metrics = isMetricsEnabled();
+		if (enabled == false && metrics == false)
+			return NONE;
+		// Read before the clock, so that the measure itself is not timed
+		final long allocatedAtStart = metrics ? allocatedBytes() : -1;
+		final Span result = new Span(phase, detail, open.get(), System.nanoTime(), allocatedAtStart);
+		open.set(result);
+		return result;
+	}
+
+	private static boolean isMetricsEnabled() {
+		// ::comment when __CORE__
+		if (PhaseMetrics.isEnabled())
+			return true;
+		// ::done
+		return false;
+	}
+
+	private static long allocatedBytes() {
+		// ::comment when __CORE__
+		if (PhaseMetrics.isEnabled())
+			return PhaseMetrics.allocatedBytes();
+		// ::done
+		return -1;
+	}
+
+	/**
+	 * Drops every span recorded so far.
+	 */
+	public static synchronized void reset() {
+		generation++;
+		buffers.clear();
+	}
+
+	/**
+	 * Writes all the spans recorded so far as a JSON document.
+	 */
+	public static void exportJson(Appendable out) throws IOException {
+		final int gen = generation;
+		final List<Buffer> all = new ArrayList<Buffer>();
+		for (Buffer buffer : buffers)
+			if (buffer.generation == gen)
+				all.add(buffer);
+		appendJson(out, all);
+	}
+
+	/**
+	 * Writes all the spans recorded so far as a JSON document, and drops them.
+	 * Spans closed meanwhile go to the next export.
+	 */
+	public static void exportJsonAndReset(Appendable out) throws IOException {
+		final List<Buffer> all = new ArrayList<Buffer>();
+		synchronized (Trace.class) {
+			final int gen = generation++;
+			for (Iterator<Buffer> it = buffers.iterator(); it.hasNext();) {
+				final Buffer buffer = it.next();
+				if (buffer.generation > gen)
+					continue;
+				it.remove();
+				if (buffer.generation == gen)
+					all.add(buffer);
+			}
+		}
+		appendJson(out, all);
+	}
+
+	private static void appendJson(Appendable out, List<Buffer> all) throws IOException {
+		out.append("{\"traceEvents\":[");
+		boolean first = true;
+		for (Buffer buffer : all)
+			first = buffer.appendJson(out, first);
+		out.append("],\"displayTimeUnit\":\"ms\"}\n");
+	}
+
+	private static Buffer currentBuffer() {
+		Buffer result = current.get();
+		if (result == null || result.generation != generation) {
+			pruneDeadBuffers();
+			result = new Buffer(generation, threadIds.incrementAndGet(), Thread.currentThread());
+			current.set(result);
+			buffers.add(result);
+		}
+		return result;
+	}
+
+	// Buffers are queued by creation, so the oldest dead ones go first
+	private static void pruneDeadBuffers() {
+		int dead = 0;
+		for (Buffer buffer : buffers)
+			if (buffer.isAlive() == false)
+				dead++;
+
+		for (Iterator<Buffer> it = buffers.iterator(); dead > MAX_DEAD_BUFFERS && it.hasNext();)
+			if (it.next().isAlive() == false) {
+				it.remove();
+				dead--;
+			}
+	}
+
+	static int getBufferCount() {
+		return buffers.size();
+	}
+
+	// Written by its owner thread only, and read by exportJson() up to the
+	// published size. The arrays grow before the size is published, so a reader
+	// always sees arrays large enough.
+	static class Buffer {
+
+		private final int generation;
+		private final int tid;
+		private final String threadName;
+		private final WeakReference<Thread> thread;
+		private Phase[] phases = new Phase[INITIAL_CAPACITY];
+		private String[] details = new String[INITIAL_CAPACITY];
+		private String[] types = new String[INITIAL_CAPACITY];
+		private long[] starts = new long[INITIAL_CAPACITY];
+		private long[] durations = new long[INITIAL_CAPACITY];
+		private volatile int size;
+		private volatile int dropped;
+
+		private Buffer(int generation, int tid, Thread thread) {
+			this.generation = generation;
+			this.tid = tid;
+			this.threadName = thread.getName();
+			this.thread = new WeakReference<Thread>(thread);
+		}
+
+		private boolean isAlive() {
+			final Thread t = thread.get();
+			return t != null && t.isAlive();
+		}
+
+		private void add(Phase phase, String detail, String type, long start, long duration) {
+			final int n = size;
+			if (n == CAPACITY) {
+				dropped++;
+				return;
+			}
+			if (n == phases.length)
+				grow();
+			phases[n] = phase;
+			details[n] = detail;
+			types[n] = type;
+			starts[n] = start;
+			durations[n] = duration;
+			size = n + 1;
+		}
+
+		private void grow() {
+			final int capacity = Math.min(CAPACITY, 2 * phases.length);
+			phases = Arrays.copyOf(phases, capacity);
+			details = Arrays.copyOf(details, capacity);
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			durations = Arrays.copyOf(durations, capacity);
+		}
+
+		private boolean appendJson(Appendable out, boolean first) throws IOException {
+			final int n = size;
+			final Phase[] phases = this.phases;
+			final String[] details = this.details;
+			final String[] types = this.types;
+			final long[] starts = this.starts;
+			final long[] durations = this.durations;
+			if (first == false)
+				out.append(',');
+			out.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(Integer.toString(tid));
+			out.append(",\"args\":{\"name\":");
+			appendString(out, threadName);
+			out.append(",\"dropped\":").append(Integer.toString(dropped)).append("}}");
+			for (int i = 0; i < n; i++) {
+				out.append(",\n{\"name\":\"").append(phases[i].getLabel());
+				out.append("\",\"cat\":\"plantuml\",\"ph\":\"X\",\"ts\":");
+				out.append(Long.toString((starts[i] - origin) / 1000L));
+				out.append(",\"dur\":").append(Long.toString(durations[i] / 1000L));
+				out.append(",\"pid\":1,\"tid\":").append(Integer.toString(tid));
+				if (details[i] != null || types[i] != null) {
+					out.append(",\"args\":{");
+					if (types[i] != null) {
+						out.append("\"type\":");
+						appendString(out, types[i]);
+					}
+					if (details[i] != null) {
+						if (types[i] != null)
+							out.append(',');
+						out.append("\"detail\":");
+						appendString(out, details[i]);
+					}
+					out.append('}');
+				}
+				out.append('}');
+			}
+			return false;
+		}
+	}
+
+	private static void appendString(Appendable out, String s) throws IOException {
+		out.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			if (c == '"' || c == '\\')
+				out.append('\\').append(c);
+			else if (c < 0x20)
+				out.append(String.format("\\u%04x", (int) c));
+			else
+				out.append(c);
+		}
+		out.append('"');
+	}
+
+}
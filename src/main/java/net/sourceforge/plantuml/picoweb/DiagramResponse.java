@@ -0,0 +1,111 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.picoweb;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A rendered diagram, ready to be sent: the HTTP return code, the headers that
+ * describe the diagram and the image itself.
+ * <p>
+ * Headers that change at each response (date, quote...) are not stored here,
+ * so that instances can be kept in {@link ImageCache}.
+ */
+public class DiagramResponse {
+
+	private final String returnCode;
+	private final List<String> headers;
+	private final byte[] data;
+
+	public DiagramResponse(String returnCode, List<String> headers, byte[] data) {
+		this.returnCode = returnCode;
+		this.headers = Collections.unmodifiableList(new ArrayList<>(headers));
+		this.data = data;
+	}
+
+	public String getReturnCode() {
+		return returnCode;
+	}
+
+	public List<String> getHeaders() {
+		return headers;
+	}
+
+	public byte[] getData() {
+		return data;
+	}
+
+	public long getSizeInBytes() {
+		long result = data.length;
+		for (String s : headers)
+			result += 2 * s.length();
+
+		return result;
+	}
+
+	public void save(OutputStream os) throws IOException {
+		final DataOutputStream dos = new DataOutputStream(os);
+		dos.writeUTF(returnCode);
+		dos.writeInt(headers.size());
+		for (String s : headers)
+			dos.writeUTF(s);
+
+		dos.writeInt(data.length);
+		dos.write(data);
+		dos.flush();
+	}
+
+	public static DiagramResponse load(InputStream is) throws IOException {
+		final DataInputStream dis = new DataInputStream(is);
+		final String returnCode = dis.readUTF();
+		final int nbHeaders = dis.readInt();
+		final List<String> headers = new ArrayList<>();
+		for (int i = 0; i < nbHeaders; i++)
+			headers.add(dis.readUTF());
+
+		final byte[] data = new byte[dis.readInt()];
+		dis.readFully(data);
+		return new DiagramResponse(returnCode, headers, data);
+	}
+
+}
@@ -0,0 +1,273 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.picoweb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sourceforge.plantuml.log.Logme;
+import net.sourceforge.plantuml.security.SFile;
+
+/**
+ * Keeps rendered diagrams, so that the server does not render twice the same
+ * URL.
+ * <p>
+ * Keys are computed from the output format, the encoded source and the
+ * PlantUML version, so they can also be used as HTTP ETag. The most recently
+ * used entries are kept in memory within a byte budget. When a spill directory
+ * is given, entries evicted from memory are written there and read back on
+ * demand. The spill directory has its own byte budget: the least recently used
+ * files are deleted when it is exceeded.
+ */
+public class ImageCache {
+
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+	public static final long DEFAULT_MAX_DISK_BYTES = 512L * 1024 * 1024;
+
+	private final long maxBytes;
+	private final SFile spillDir;
+	private final long maxDiskBytes;
+
+	private final Map<String, DiagramResponse> memory = new LinkedHashMap<String, DiagramResponse>(16, 0.75F, true);
+	private long memoryBytes;
+
+	private final Map<String, Long> disk = new LinkedHashMap<String, Long>(16, 0.75F, true);
+	private long diskBytes;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public ImageCache(long maxBytes, SFile spillDir) {
+		this(maxBytes, spillDir, DEFAULT_MAX_DISK_BYTES);
+	}
+
+	public ImageCache(long maxBytes, SFile spillDir, long maxDiskBytes) {
+		this.maxBytes = maxBytes;
+		this.spillDir = spillDir;
+		this.maxDiskBytes = maxDiskBytes;
+		if (spillDir != null) {
+			spillDir.mkdirs();
+			loadSpillDir();
+		}
+	}
+
+	// Files left by a previous run are kept, oldest first, within the budget.
+	// Temporary files are leftovers of interrupted writes.
+	private void loadSpillDir() {
+		final List<SFile> files = new ArrayList<>();
+		for (SFile f : spillDir.listFiles()) {
+			final String name = f.getName();
+			if (name.endsWith(".tmp"))
+				f.delete();
+			else if (name.endsWith(".bin") && f.isFile())
+				files.add(f);
+		}
+		Collections.sort(files, new Comparator<SFile>() {
+			public int compare(SFile f1, SFile f2) {
+				return Long.compare(f1.lastModified(), f2.lastModified());
+			}
+		});
+		for (SFile f : files) {
+			final String name = f.getName();
+			addToDisk(name.substring(0, name.length() - ".bin".length()), f.length());
+		}
+	}
+
+	public static ImageCache byDefault() {
+		return new ImageCache(DEFAULT_MAX_BYTES, null);
+	}
+
+	public DiagramResponse get(String key) {
+		DiagramResponse result;
+		synchronized (memory) {
+			result = memory.get(key);
+		}
+		if (result == null && spillDir != null && isOnDisk(key)) {
+			result = readFromDisk(key);
+			if (result != null)
+				put(key, result);
+		}
+		if (result == null)
+			misses.incrementAndGet();
+		else
+			hits.incrementAndGet();
+
+		return result;
+	}
+
+	public void put(String key, DiagramResponse response) {
+		final List<Map.Entry<String, DiagramResponse>> evicted = new ArrayList<>();
+		synchronized (memory) {
+			final DiagramResponse old = memory.put(key, response);
+			if (old != null)
+				memoryBytes -= old.getSizeInBytes();
+
+			memoryBytes += response.getSizeInBytes();
+			final Iterator<Map.Entry<String, DiagramResponse>> it = memory.entrySet().iterator();
+			while (memoryBytes > maxBytes && it.hasNext()) {
+				final Map.Entry<String, DiagramResponse> eldest = it.next();
+				it.remove();
+				memoryBytes -= eldest.getValue().getSizeInBytes();
+				evicted.add(eldest);
+			}
+		}
+		if (spillDir != null)
+			for (Map.Entry<String, DiagramResponse> ent : evicted)
+				writeToDisk(ent.getKey(), ent.getValue());
+
+	}
+
+	private boolean isOnDisk(String key) {
+		synchronized (disk) {
+			return disk.get(key) != null;
+		}
+	}
+
+	private void addToDisk(String key, long size) {
+		final List<String> evicted = new ArrayList<>();
+		synchronized (disk) {
+			final Long old = disk.put(key, size);
+			if (old != null)
+				diskBytes -= old;
+
+			diskBytes += size;
+			final Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+			while (diskBytes > maxDiskBytes && it.hasNext()) {
+				final Map.Entry<String, Long> eldest = it.next();
+				it.remove();
+				diskBytes -= eldest.getValue();
+				evicted.add(eldest.getKey());
+			}
+		}
+		for (String k : evicted)
+			getSpillFile(k).delete();
+
+	}
+
+	private SFile getSpillFile(String key) {
+		return spillDir.file(key + ".bin");
+	}
+
+	private DiagramResponse readFromDisk(String key) {
+		final SFile file = getSpillFile(key);
+		if (file.exists() == false)
+			return null;
+
+		final InputStream is = file.openFile();
+		if (is == null)
+			return null;
+
+		try {
+			return DiagramResponse.load(is);
+		} catch (IOException e) {
+			Logme.error(e);
+			return null;
+		} finally {
+			try {
+				is.close();
+			} catch (IOException e) {
+				Logme.error(e);
+			}
+		}
+	}
+
+	private void writeToDisk(String key, DiagramResponse response) {
+		if (response.getSizeInBytes() > maxDiskBytes || isOnDisk(key))
+			return;
+
+		final SFile file = getSpillFile(key);
+		// Write in a temporary file first, so that a concurrent reader never
+		// sees a truncated entry
+		final SFile tmp = spillDir.file(key + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			final OutputStream os = tmp.createBufferedOutputStream();
+			try {
+				response.save(os);
+			} finally {
+				os.close();
+			}
+			if (tmp.renameTo(file))
+				addToDisk(key, file.length());
+			else
+				tmp.delete();
+		} catch (IOException e) {
+			Logme.error(e);
+			tmp.delete();
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int getMemoryCount() {
+		synchronized (memory) {
+			return memory.size();
+		}
+	}
+
+	public long getMemoryBytes() {
+		synchronized (memory) {
+			return memoryBytes;
+		}
+	}
+
+	public int getDiskCount() {
+		synchronized (disk) {
+			return disk.size();
+		}
+	}
+
+	public long getDiskBytes() {
+		synchronized (disk) {
+			return diskBytes;
+		}
+	}
+
+}
@@ -48,10 +48,19 @@ import java.io.PrintWriter;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import net.sourceforge.plantuml.BlockUml;
 import net.sourceforge.plantuml.ErrorUml;
@@ -71,20 +80,40 @@ import net.sourceforge.plantuml.json.Json;
 import net.sourceforge.plantuml.json.JsonArray;
 import net.sourceforge.plantuml.json.JsonObject;
 import net.sourceforge.plantuml.log.Logme;
+import net.sourceforge.plantuml.log.Trace;
 import net.sourceforge.plantuml.preproc.PreprocessingArtifact;
 import net.sourceforge.plantuml.security.SFile;
+import net.sourceforge.plantuml.stats.PhaseMetrics;
 import net.sourceforge.plantuml.text.StringLocated;
 import net.sourceforge.plantuml.utils.LineLocationImpl;
+import net.sourceforge.plantuml.utils.SignatureUtils;
 import net.sourceforge.plantuml.version.Version;
 
 public class PicoWebServer implements Runnable {
 	// ::remove folder when __CORE__
 
+	private static final int MAX_CONNECTIONS = 256;
+	private static final int KEEP_ALIVE_TIMEOUT_MS = 15 * 1000;
+	private static final int MAX_REQUESTS_PER_CONNECTION = 1000;
+
+	private static final RenderLimiter defaultRenderLimiter = RenderLimiter.byDefault();
+	private static final ImageCache defaultImageCache = ImageCache.byDefault();
+
+	private static final Pattern remoteInclude = Pattern.compile("(?i)!(include|import|theme)[^\\n]*://");
+
 	private final Socket connect;
+	private final RenderLimiter renderLimiter;
+	private final ImageCache imageCache;
 	private static boolean enableStop;
 
 	public PicoWebServer(Socket c) {
+		this(c, defaultRenderLimiter, defaultImageCache);
+	}
+
+	public PicoWebServer(Socket c, RenderLimiter renderLimiter, ImageCache imageCache) {
 		this.connect = c;
+		this.renderLimiter = renderLimiter;
+		this.imageCache = imageCache;
 	}
 
 	public static void main(String[] args) throws IOException {
@@ -93,18 +122,58 @@ public class PicoWebServer implements Runnable {
 
 	public static void startServer(final int port, final String bindAddress, final boolean argEnableStop)
 			throws IOException {
+		startServer(port, bindAddress, argEnableStop, defaultRenderLimiter, defaultImageCache);
+	}
+
+	public static void startServer(final int port, final String bindAddress, final boolean argEnableStop,
+			final RenderLimiter renderLimiter, final ImageCache imageCache) throws IOException {
 		PicoWebServer.enableStop = argEnableStop;
 		final InetAddress bindAddress1 = bindAddress == null ? null : InetAddress.getByName(bindAddress);
 		final ServerSocket serverConnect = new ServerSocket(port, 50, bindAddress1);
 		System.err.println("webPort=" + serverConnect.getLocalPort());
-		serverLoop(serverConnect);
+		serverLoop(serverConnect, renderLimiter, imageCache);
 	}
 
 	public static void serverLoop(final ServerSocket serverConnect) throws IOException {
+		serverLoop(serverConnect, defaultRenderLimiter, defaultImageCache);
+	}
+
+	public static void serverLoop(final ServerSocket serverConnect, final RenderLimiter renderLimiter,
+			final ImageCache imageCache) throws IOException {
+		PhaseMetrics.setEnabled(true);
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(0, MAX_CONNECTIONS, 60L, TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger cpt = new AtomicInteger();
+
+					public Thread newThread(Runnable r) {
+						final Thread thread = new Thread(r, "PicoWebServer-" + cpt.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
 		while (true) {
-			final PicoWebServer myServer = new PicoWebServer(serverConnect.accept());
-			final Thread thread = new Thread(myServer);
-			thread.start();
+			final Socket socket = serverConnect.accept();
+			try {
+				executor.execute(new PicoWebServer(socket, renderLimiter, imageCache));
+			} catch (RejectedExecutionException e) {
+				// Every connection thread is busy: we do not want to queue more sockets
+				refuseConnection(socket);
+			}
+		}
+	}
+
+	private static void refuseConnection(Socket socket) {
+		try {
+			final OutputStream os = socket.getOutputStream();
+			new PicoWebServer(socket).sendError(new ServiceUnavailable503("Too many connections"), os);
+		} catch (Throwable e) {
+			Logme.error(e);
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				Logme.error(e);
+			}
 		}
 	}
 
@@ -113,43 +182,21 @@ public class PicoWebServer implements Runnable {
 		BufferedOutputStream out = null;
 
 		try {
+			connect.setSoTimeout(KEEP_ALIVE_TIMEOUT_MS);
 			in = new BufferedInputStream(connect.getInputStream());
 			out = new BufferedOutputStream(connect.getOutputStream());
 
-			final ReceivedHTTPRequest request = ReceivedHTTPRequest.fromStream(in);
-			if (request.getMethod().equals("GET")) {
-				if (request.getPath().startsWith("/png/") && handleGET(request, out, FileFormat.PNG))
-					return;
-				if (request.getPath().startsWith("/plantuml/png/") && handleGET(request, out, FileFormat.PNG))
-					return;
-				if (request.getPath().startsWith("/svg/") && handleGET(request, out, FileFormat.SVG))
-					return;
-				if (request.getPath().startsWith("/plantuml/svg/") && handleGET(request, out, FileFormat.SVG))
-					return;
-				if (request.getPath().startsWith("/txt/") && handleGET(request, out, FileFormat.ATXT))
-					return;
-				if (request.getPath().startsWith("/plantuml/txt/") && handleGET(request, out, FileFormat.ATXT))
-					return;
-				if (request.getPath().startsWith("/utxt/") && handleGET(request, out, FileFormat.UTXT))
-					return;
-				if (request.getPath().startsWith("/plantuml/utxt/") && handleGET(request, out, FileFormat.UTXT))
-					return;
-				if (request.getPath().startsWith("/serverinfo") && handleInfo(out))
-					return;
-				if (request.getPath().startsWith("/plantuml/serverinfo") && handleInfo(out))
-					return;
-				if (enableStop && (request.getPath().startsWith("/stopserver")
-						|| request.getPath().startsWith("/plantuml/stopserver")) && handleStop(out))
-					return;
-
-			} else if (request.getMethod().equals("POST") && request.getPath().equals("/render")) {
-				handleRenderRequest(request, out);
-				return;
+			// Requests are answered in the order they are received, so pipelined
+			// requests of a persistent connection are naturally supported
+			for (int i = 0; i < MAX_REQUESTS_PER_CONNECTION; i++) {
+				if (i > 0 && waitForNextRequest(in) == false)
+					break;
+
+				final ReceivedHTTPRequest request = ReceivedHTTPRequest.fromStream(in);
+				final boolean reusable = serve(request, out);
+				if (reusable == false || request.isKeepAlive() == false)
+					break;
 			}
-			write(out, "HTTP/1.1 302 Found");
-			write(out, "Location: /plantuml/png/oqbDJyrBuGh8ISmh2VNrKGZ8JCuFJqqAJYqgIotY0aefG5G00000");
-			write(out, "");
-			out.flush();
 
 		} catch (Throwable e) {
 			try {
@@ -159,8 +206,10 @@ public class PicoWebServer implements Runnable {
 			}
 		} finally {
 			try {
-				in.close();
-				out.close();
+				if (in != null)
+					in.close();
+				if (out != null)
+					out.close();
 				connect.close();
 			} catch (Throwable e) {
 				Logme.error(e);
@@ -168,6 +217,71 @@ public class PicoWebServer implements Runnable {
 		}
 	}
 
+	private boolean waitForNextRequest(BufferedInputStream in) throws IOException {
+		try {
+			in.mark(1);
+			if (in.read() == -1)
+				return false;
+
+			in.reset();
+			return true;
+		} catch (SocketTimeoutException e) {
+			// Idle persistent connection
+			return false;
+		}
+	}
+
+	/**
+	 * Answers one request.
+	 * 
+	 * @return <code>true</code> if the connection can be used for another request
+	 */
+	private boolean serve(ReceivedHTTPRequest request, BufferedOutputStream out) throws Exception {
+		if (request.getMethod().equals("GET")) {
+			if (request.getPath().startsWith("/png/") && handleGET(request, out, FileFormat.PNG))
+				return true;
+			if (request.getPath().startsWith("/plantuml/png/") && handleGET(request, out, FileFormat.PNG))
+				return true;
+			if (request.getPath().startsWith("/svg/") && handleGET(request, out, FileFormat.SVG))
+				return true;
+			if (request.getPath().startsWith("/plantuml/svg/") && handleGET(request, out, FileFormat.SVG))
+				return true;
+			if (request.getPath().startsWith("/txt/") && handleGET(request, out, FileFormat.ATXT))
+				return true;
+			if (request.getPath().startsWith("/plantuml/txt/") && handleGET(request, out, FileFormat.ATXT))
+				return true;
+			if (request.getPath().startsWith("/utxt/") && handleGET(request, out, FileFormat.UTXT))
+				return true;
+			if (request.getPath().startsWith("/plantuml/utxt/") && handleGET(request, out, FileFormat.UTXT))
+				return true;
+			if (request.getPath().startsWith("/serverinfo") && handleInfo(out))
+				return true;
+			if (request.getPath().startsWith("/plantuml/serverinfo") && handleInfo(out))
+				return true;
+			if (request.getPath().startsWith("/metrics") && handleMetrics(out))
+				return true;
+			if (request.getPath().startsWith("/plantuml/metrics") && handleMetrics(out))
+				return true;
+			if (request.getPath().startsWith("/trace") && handleTrace(out))
+				return true;
+			if (request.getPath().startsWith("/plantuml/trace") && handleTrace(out))
+				return true;
+			if (enableStop && (request.getPath().startsWith("/stopserver")
+					|| request.getPath().startsWith("/plantuml/stopserver")) && handleStop(out))
+				return false;
+
+		} else if (request.getMethod().equals("POST") && request.getPath().equals("/render")) {
+			handleRenderRequest(request, out);
+			return true;
+		}
+		write(out, "HTTP/1.1 302 Found");
+		write(out, "Location: /plantuml/png/oqbDJyrBuGh8ISmh2VNrKGZ8JCuFJqqAJYqgIotY0aefG5G00000");
+		write(out, "Content-length: 0");
+		write(out, "");
+		out.flush();
+		return true;
+	}
+
 	private boolean handleStop(BufferedOutputStream out) throws IOException {
 		write(out, "HTTP/1.1 " + "200");
 		write(out, "Cache-Control: no-cache");
@@ -200,17 +314,64 @@ public class PicoWebServer implements Runnable {
 		write(out, "Server: PlantUML PicoWebServer " + Version.versionString());
 		write(out, "Date: " + new Date());
 		write(out, "Content-Type: application/json");
-		write(out, "");
 
 		final JsonArray formats = new JsonArray();
 		formats.add("png");
 		formats.add("svg");
 		formats.add("txt");
+		final JsonObject cache = Json.object() //
+				.add("hits", imageCache.getHits()) //
+				.add("misses", imageCache.getMisses()) //
+				.add("entries", imageCache.getMemoryCount()) //
+				.add("bytes", imageCache.getMemoryBytes()); //
 		final JsonObject json = Json.object() //
 				.add("version", Version.versionString()) //
 				.add("PicoWebServer", true) //
-				.add("formats", formats); //
-		write(out, json.toString());
+				.add("formats", formats) //
+				.add("cache", cache); //
+		final byte[] content = (json.toString() + "\r\n").getBytes(UTF_8);
+		write(out, "Content-length: " + content.length);
+		write(out, "");
+		out.write(content);
+
+		out.flush();
+
+		return true;
+	}
+
+	private boolean handleMetrics(BufferedOutputStream out) throws IOException {
+		write(out, "HTTP/1.1 " + "200");
+		write(out, "Cache-Control: no-cache");
+		write(out, "Server: PlantUML PicoWebServer " + Version.versionString());
+		write(out, "Date: " + new Date());
+		write(out, "Content-Type: text/plain; version=0.0.4; charset=utf-8");
+
+		final StringBuilder sb = new StringBuilder();
+		PhaseMetrics.exportPrometheus(sb);
+		final byte[] content = sb.toString().getBytes(UTF_8);
+		write(out, "Content-length: " + content.length);
+		write(out, "");
+		out.write(content);
+
+		out.flush();
+
+		return true;
+	}
+
+	private boolean handleTrace(BufferedOutputStream out) throws IOException {
+		write(out, "HTTP/1.1 " + "200");
+		write(out, "Cache-Control: no-cache");
+		write(out, "Server: PlantUML PicoWebServer " + Version.versionString());
+		write(out, "Date: " + new Date());
+		write(out, "Content-Type: application/json; charset=utf-8");
+
+		// Each call returns the spans closed since the previous one
+		final StringBuilder sb = new StringBuilder();
+		Trace.exportJsonAndReset(sb);
+		final byte[] content = sb.toString().getBytes(UTF_8);
+		write(out, "Content-length: " + content.length);
+		write(out, "");
+		out.write(content);
 
 		out.flush();
 
@@ -221,6 +382,19 @@ public class PicoWebServer implements Runnable {
 			throws IOException {
 		final int x = request.getPath().lastIndexOf('/');
 		final String compressed = request.getPath().substring(x + 1);
+
+		// The URL fully determines the image, so it can be used as ETag
+		final String etag = Version.etag() + SignatureUtils.getMD5Hex(format.name() + "/" + compressed);
+		if (request.matchesEtag(etag)) {
+			sendNotModified(out, etag);
+			return true;
+		}
+		final DiagramResponse cached = imageCache.get(etag);
+		if (cached != null) {
+			sendDiagram(out, cached, etag);
+			return true;
+		}
+
 		final Transcoder transcoder = TranscoderUtil.getDefaultTranscoderProtected();
 		final String source = transcoder.decode(compressed);
 		final SourceStringReader ssr = new SourceStringReader(source);
@@ -228,17 +402,42 @@ public class PicoWebServer implements Runnable {
 		final FileFormatOption fileFormatOption = new FileFormatOption(format);
 		final List<BlockUml> blocks = ssr.getBlocks();
 		if (blocks.size() > 0) {
-			final Diagram system = blocks.get(0).getDiagram();
+			final Diagram system;
+			final ImageData imageData;
 			final ByteArrayOutputStream os = new ByteArrayOutputStream();
-			final ImageData imageData = system.exportDiagram(os, 0, fileFormatOption);
+			renderLimiter.enter();
+			try {
+				system = blocks.get(0).getDiagram();
+				imageData = system.exportDiagram(os, 0, fileFormatOption);
+			} finally {
+				renderLimiter.exit();
+			}
 			os.close();
-			sendDiagram(out, system, fileFormatOption, httpReturnCode(imageData.getStatus()), imageData,
-					os.toByteArray());
+			final DiagramResponse response = buildResponse(system, fileFormatOption,
+					httpReturnCode(imageData.getStatus()), imageData, os.toByteArray());
+			if (isCacheable(blocks.get(0), source)) {
+				imageCache.put(etag, response);
+				sendDiagram(out, response, etag);
+			} else {
+				sendDiagram(out, response, null);
+			}
 			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Diagrams including local files or URLs, or using the current time or random
+	 * values, may change while their encoded source does not, so they are never
+	 * cached.
+	 */
+	private boolean isCacheable(BlockUml block, String source) {
+		if (block.getIncluded().size() > 0 || block.isDeterministic() == false)
+			return false;
+
+		return remoteInclude.matcher(source).find() == false;
+	}
+
 	private void handleRenderRequest(ReceivedHTTPRequest request, BufferedOutputStream out) throws Exception {
 		if (request.getBody().length == 0) {
 			throw new BadRequest400("No request body");
@@ -268,75 +467,114 @@ public class PicoWebServer implements Runnable {
 		final Diagram system;
 		final ImageData imageData;
 
-		if (ssr.getBlocks().size() == 0) {
-			system = PSystemErrorUtils.buildV2(null,
-					new ErrorUml(SYNTAX_ERROR, "No valid @start/@end found, please check the version", 0,
-							new LineLocationImpl("", null), null),
-					null, Collections.<StringLocated>emptyList(), new PreprocessingArtifact());
-			imageData = ssr.noValidStartFound(os, option.getFileFormatOption());
-		} else {
-			system = ssr.getBlocks().get(0).getDiagram();
-			imageData = system.exportDiagram(os, 0, option.getFileFormatOption());
+		renderLimiter.enter();
+		try {
+			if (ssr.getBlocks().size() == 0) {
+				system = PSystemErrorUtils.buildV2(null,
+						new ErrorUml(SYNTAX_ERROR, "No valid @start/@end found, please check the version", 0,
+								new LineLocationImpl("", null), null),
+						null, Collections.<StringLocated>emptyList(), new PreprocessingArtifact());
+				imageData = ssr.noValidStartFound(os, option.getFileFormatOption());
+			} else {
+				system = ssr.getBlocks().get(0).getDiagram();
+				imageData = system.exportDiagram(os, 0, option.getFileFormatOption());
+			}
+		} finally {
+			renderLimiter.exit();
 		}
 
-		sendDiagram(out, system, option.getFileFormatOption(), "200", imageData, os.toByteArray());
+		sendDiagram(out, buildResponse(system, option.getFileFormatOption(), "200", imageData, os.toByteArray()),
+				null);
 	}
 
-	private void sendDiagram(final BufferedOutputStream out, final Diagram system,
-			final FileFormatOption fileFormatOption, final String returnCode, final ImageData imageData,
-			final byte[] fileData) throws IOException {
+	private DiagramResponse buildResponse(final Diagram system, final FileFormatOption fileFormatOption,
+			final String returnCode, final ImageData imageData, final byte[] fileData) throws IOException {
 
-		write(out, "HTTP/1.1 " + returnCode);
-		write(out, "Cache-Control: no-cache");
-		write(out, "Server: PlantUML PicoWebServer " + Version.versionString());
-		write(out, "Date: " + new Date());
-		write(out, "Access-Control-Allow-Origin: *");
-		write(out, "Content-type: " + fileFormatOption.getFileFormat().getMimeType());
-		write(out, "Content-length: " + fileData.length);
-		write(out, "X-PlantUML-Diagram-Width: " + imageData.getWidth());
-		write(out, "X-PlantUML-Diagram-Height: " + imageData.getHeight());
-		write(out, "X-PlantUML-Diagram-Description: " + system.getDescription().getDescription());
+		final List<String> headers = new ArrayList<>();
+		headers.add("Access-Control-Allow-Origin: *");
+		headers.add("Content-type: " + fileFormatOption.getFileFormat().getMimeType());
+		headers.add("Content-length: " + fileData.length);
+		headers.add("X-PlantUML-Diagram-Width: " + imageData.getWidth());
+		headers.add("X-PlantUML-Diagram-Height: " + imageData.getHeight());
+		headers.add("X-PlantUML-Diagram-Description: " + system.getDescription().getDescription());
 		if (system instanceof PSystemError) {
 			final PSystemError error = (PSystemError) system;
 			for (ErrorUml err : error.getErrorsUml()) {
-				write(out, "X-PlantUML-Diagram-Error: " + err.getError());
-				write(out, "X-PlantUML-Diagram-Error-Line: " + (1 + err.getLineLocation().getPosition()));
+				headers.add("X-PlantUML-Diagram-Error: " + err.getError());
+				headers.add("X-PlantUML-Diagram-Error-Line: " + (1 + err.getLineLocation().getPosition()));
 			}
 		}
 		if (system.getTitleDisplay() != null && system.getTitleDisplay().size() == 1) {
 			final String encode = URLEncoder.encode(system.getTitleDisplay().asList().get(0).toString(), "UTF-8");
 			if (encode.length() < 256)
-				write(out, "X-PlantUML-Diagram-Title: " + encode);
+				headers.add("X-PlantUML-Diagram-Title: " + encode);
 		}
+		return new DiagramResponse(returnCode, headers, fileData);
+	}
+
+	private void sendDiagram(final BufferedOutputStream out, final DiagramResponse response, final String etag)
+			throws IOException {
+
+		write(out, "HTTP/1.1 " + response.getReturnCode());
+		write(out, "Cache-Control: no-cache");
+		write(out, "Server: PlantUML PicoWebServer " + Version.versionString());
+		write(out, "Date: " + new Date());
+		if (etag != null)
+			write(out, "ETag: \"" + etag + "\"");
+
+		for (String header : response.getHeaders())
+			write(out, header);
 
 		write(out, "X-Patreon: Support us on https://plantuml.com/patreon");
 		write(out, "X-Donate: https://plantuml.com/paypal");
 		write(out, "X-Quote: " + StringUtils.rot(QuoteUtils.getSomeQuote()));
 		write(out, "");
 		out.flush();
-		out.write(fileData);
+		out.write(response.getData());
+		out.flush();
+	}
+
+	private void sendNotModified(final BufferedOutputStream out, final String etag) throws IOException {
+		write(out, "HTTP/1.1 304 Not Modified");
+		write(out, "Cache-Control: no-cache");
+		write(out, "Server: PlantUML PicoWebServer " + Version.versionString());
+		write(out, "Date: " + new Date());
+		write(out, "ETag: \"" + etag + "\"");
+		write(out, "");
 		out.flush();
 	}
 
-	private void sendError(Throwable e, BufferedOutputStream out) throws Exception {
+	private void sendError(Throwable e, OutputStream out) throws Exception {
 		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		final PrintWriter printWriter = new PrintWriter(baos);
 
-		if (e instanceof BadRequest400 && e.getCause() == null) {
+		if ((e instanceof BadRequest400 || e instanceof ServiceUnavailable503) && e.getCause() == null) {
 			printWriter.write(e.getMessage());
 		} else {
 			e.printStackTrace(printWriter);
 		}
 		printWriter.close();
 
-		write(out, "HTTP/1.1 " + (e instanceof BadRequest400 ? "400 Bad Request" : "500 Internal Server Error"));
+		write(out, "HTTP/1.1 " + httpErrorCode(e));
 		write(out, "Content-type: text/plain");
+		if (e instanceof ServiceUnavailable503)
+			write(out, "Retry-After: 1");
 		write(out, "Content-length: " + baos.size());
 		write(out, "");
 		out.write(baos.toByteArray());
 		out.flush();
 	}
 
+	private String httpErrorCode(Throwable e) {
+		if (e instanceof BadRequest400)
+			return "400 Bad Request";
+
+		if (e instanceof ServiceUnavailable503)
+			return "503 Service Unavailable";
+
+		return "500 Internal Server Error";
+	}
+
 	private String httpReturnCode(int status) {
 		if (status == 0 || status == 200) {
 			return "200 OK";
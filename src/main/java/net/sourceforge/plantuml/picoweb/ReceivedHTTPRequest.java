@@ -7,6 +7,8 @@ import java.util.StringTokenizer;
 public class ReceivedHTTPRequest {
 
 	private static final String CONTENT_LENGTH_HEADER = "content-length: ";
+	private static final String CONNECTION_HEADER = "connection:";
+	private static final String IF_NONE_MATCH_HEADER = "if-none-match:";
 
 	private String method;
 
@@ -14,6 +16,12 @@ public class ReceivedHTTPRequest {
 
 	private byte[] body;
 
+	private String version;
+
+	private String connection;
+
+	private String ifNoneMatch;
+
 	public String getMethod() {
 		return method;
 	}
@@ -26,6 +34,35 @@ public class ReceivedHTTPRequest {
 		return body;
 	}
 
+	/**
+	 * Tells if the connection can be reused for further requests. This is the
+	 * default for HTTP/1.1 unless the client sends "Connection: close".
+	 */
+	public boolean isKeepAlive() {
+		if (connection != null && connection.equalsIgnoreCase("close"))
+			return false;
+
+		return "HTTP/1.1".equalsIgnoreCase(version);
+	}
+
+	/**
+	 * Tells if the client already has the version of the resource identified by
+	 * this ETag.
+	 */
+	public boolean matchesEtag(String etag) {
+		if (ifNoneMatch == null)
+			return false;
+
+		if (ifNoneMatch.equals("*"))
+			return true;
+
+		for (String tag : ifNoneMatch.split(","))
+			if (tag.trim().replace("W/", "").replace("\"", "").equals(etag))
+				return true;
+
+		return false;
+	}
+
 	public static ReceivedHTTPRequest fromStream(InputStream in) throws IOException {
 		final ReceivedHTTPRequest request = new ReceivedHTTPRequest();
 
@@ -38,6 +75,7 @@ public class ReceivedHTTPRequest {
 
 		request.method = tokenizer.nextToken().toUpperCase();
 		request.path = tokenizer.nextToken();
+		request.version = tokenizer.nextToken();
 
 		// Headers
 		int contentLength = 0;
@@ -48,6 +86,10 @@ public class ReceivedHTTPRequest {
 				break;
 			} else if (line.toLowerCase().startsWith(CONTENT_LENGTH_HEADER)) {
 				contentLength = parseContentLengthHeader(line);
+			} else if (line.toLowerCase().startsWith(CONNECTION_HEADER)) {
+				request.connection = line.substring(CONNECTION_HEADER.length()).trim();
+			} else if (line.toLowerCase().startsWith(IF_NONE_MATCH_HEADER)) {
+				request.ifNoneMatch = line.substring(IF_NONE_MATCH_HEADER.length()).trim();
 			}
 		}
 
@@ -0,0 +1,90 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.picoweb;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the number of diagrams rendered at the same time by the server.
+ * <p>
+ * At most <code>maxRunning</code> renders run concurrently, and at most
+ * <code>maxWaiting</code> further requests wait for their turn. Requests
+ * beyond that are refused, so that the server answers 503 instead of piling
+ * up work it cannot do.
+ */
+public class RenderLimiter {
+
+	private final Semaphore running;
+	private final int maxPending;
+	private final AtomicInteger pending = new AtomicInteger();
+
+	public RenderLimiter(int maxRunning, int maxWaiting) {
+		if (maxRunning <= 0 || maxWaiting < 0)
+			throw new IllegalArgumentException();
+		this.running = new Semaphore(maxRunning, true);
+		this.maxPending = maxRunning + maxWaiting;
+	}
+
+	public static RenderLimiter byDefault() {
+		final int nb = Runtime.getRuntime().availableProcessors();
+		return new RenderLimiter(nb, 4 * nb);
+	}
+
+	public void enter() throws ServiceUnavailable503 {
+		if (pending.incrementAndGet() > maxPending) {
+			pending.decrementAndGet();
+			throw new ServiceUnavailable503("Server busy, please retry later");
+		}
+		try {
+			running.acquire();
+		} catch (InterruptedException e) {
+			pending.decrementAndGet();
+			Thread.currentThread().interrupt();
+			throw new ServiceUnavailable503("Server is stopping");
+		}
+	}
+
+	public void exit() {
+		running.release();
+		pending.decrementAndGet();
+	}
+
+	public int getPending() {
+		return pending.get();
+	}
+
+}
@@ -0,0 +1,13 @@
+package net.sourceforge.plantuml.picoweb;
+
+import java.io.IOException;
+
+public class ServiceUnavailable503 extends IOException {
+    // ::remove folder when __HAXE__
+
+	private static final long serialVersionUID = 1L;
+
+	public ServiceUnavailable503(String message) {
+		super(message);
+	}
+}
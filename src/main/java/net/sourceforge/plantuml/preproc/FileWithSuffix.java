@@ -44,6 +44,7 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.Charset;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -87,6 +88,20 @@ public class FileWithSuffix {
 		return new InputStreamReader(is, charset);
 	}
 
+	public List<String> getLines(Charset charset) throws IOException {
+		if (file == null) {
+			return null;
+		}
+		return IncludeCache.getLines(this, charset);
+	}
+
+	public InputStream getRawInputStream() throws IOException {
+		if (file == null) {
+			return null;
+		}
+		return file.openFile();
+	}
+
 	private InputStream getDataFromZip(InputStream is, String name) throws IOException {
 		final ZipInputStream zis = new ZipInputStream(is);
 		ZipEntry ze = zis.getNextEntry();
@@ -170,6 +185,14 @@ public class FileWithSuffix {
 		return description;
 	}
 
+	SFile getUnderlyingFile() {
+		return file.getUnderlyingFile();
+	}
+
+	String getEntry() {
+		return entry;
+	}
+
 	public final String getSuffix() {
 		return suffix;
 	}
@@ -0,0 +1,143 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.preproc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sourceforge.plantuml.StringUtils;
+import net.sourceforge.plantuml.security.SFile;
+import net.sourceforge.plantuml.security.SecurityUtils;
+import net.sourceforge.plantuml.utils.ByteBudgetCache;
+
+/**
+ * Process-wide cache of the lines of local files used by <code>!include</code>,
+ * <code>!includesub</code> and <code>!theme</code>.
+ * <p>
+ * Entries are keyed by canonical path, zip entry and charset, and are checked
+ * against the modification time and size of the file at each use. The memory
+ * budget is set by <code>PLANTUML_INCLUDE_CACHE_SIZE</code> (megabytes, 32 by
+ * default).
+ */
+final class IncludeCache {
+
+	private static final ByteBudgetCache<String, Content> cache = new ByteBudgetCache<String, Content>(
+			1024L * 1024 * getBudget());
+
+	static class Content {
+
+		private final long lastModified;
+		private final long length;
+		private final List<String> lines;
+
+		Content(long lastModified, long length, List<String> lines) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.lines = lines;
+		}
+
+		boolean isUpToDate(SFile file) {
+			return file.lastModified() == lastModified && file.length() == length;
+		}
+
+		long getWeight() {
+			long result = 64;
+			for (String s : lines)
+				result += 40 + 2L * s.length();
+			return result;
+		}
+
+	}
+
+	private IncludeCache() {
+	}
+
+	private static long getBudget() {
+		final String value = SecurityUtils.getenv("PLANTUML_INCLUDE_CACHE_SIZE");
+		if (StringUtils.isNotEmpty(value) && value.matches("\\d+") && Long.parseLong(value) > 0)
+			return Long.parseLong(value);
+		return 32;
+	}
+
+	static List<String> getLines(FileWithSuffix f, Charset charset) throws IOException {
+		final SFile file = f.getUnderlyingFile();
+		final String key = charset.name() + " " + file.getCanonicalFile().getAbsolutePath() + " " + f + " "
+				+ f.getEntry();
+
+		final Content cached = cache.get(key);
+		if (cached != null && cached.isUpToDate(file))
+			return cached.lines;
+
+		final long lastModified = file.lastModified();
+		final long length = file.length();
+		final List<String> lines = read(f, charset);
+		if (lines == null)
+			return null;
+
+		final Content content = new Content(lastModified, length, lines);
+		if (content.isUpToDate(file))
+			cache.put(key, content, content.getWeight());
+
+		return lines;
+	}
+
+	private static List<String> read(FileWithSuffix f, Charset charset) throws IOException {
+		final Reader reader = f.getReader(charset);
+		if (reader == null)
+			return null;
+
+		final List<String> result = new ArrayList<>();
+		final BufferedReader br = new BufferedReader(reader);
+		try {
+			String s;
+			while ((s = br.readLine()) != null)
+				result.add(ReadLineReader.cleanLine(s));
+		} finally {
+			br.close();
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	static void clear() {
+		cache.clear();
+	}
+
+}
@@ -52,6 +52,20 @@ public class PreprocessingArtifact implements WarningHandler {
 
 	private final Set<Warning> warnings = new LinkedHashSet<>();
 
+	private boolean deterministic = true;
+
+	/**
+	 * Records that the preprocessed text depends on the current time or on random
+	 * values, so that the same source may give another diagram.
+	 */
+	public void setNonDeterministic() {
+		this.deterministic = false;
+	}
+
+	public boolean isDeterministic() {
+		return deterministic;
+	}
+
 	@Override
 	public void addWarning(Warning warning) {
 		this.warnings.add(warning);
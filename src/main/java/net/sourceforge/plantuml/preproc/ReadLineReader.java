@@ -87,6 +87,10 @@ public class ReadLineReader implements ReadLine {
 		// Log.debug("Line truncated from " + s.length() + " to " + LIMIT);
 		// s = s.substring(0, LIMIT);
 		// }
+		return new StringLocated(cleanLine(s), location);
+	}
+
+	static String cleanLine(String s) {
 		if (s.startsWith("\uFEFF"))
 			s = s.substring(1);
 
@@ -103,7 +107,7 @@ public class ReadLineReader implements ReadLine {
 		// char c = s.charAt(i);
 		// System.err.println("X " + Integer.toHexString((int) c) + " " + c);
 		// }
-		return new StringLocated(s, location);
+		return s;
 	}
 
 	public void close() throws IOException {
@@ -38,8 +38,8 @@ package net.sourceforge.plantuml.preproc;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.Reader;
 import java.nio.charset.Charset;
+import java.util.List;
 
 import net.sourceforge.plantuml.log.Logme;
 import net.sourceforge.plantuml.preproc2.ReadFilterMergeLines;
@@ -105,11 +105,11 @@ public class StartDiagramExtractReader implements ReadLine {
 
 	private static ReadLine getReadLine(FileWithSuffix f2, StringLocated s, Charset charset) {
 		try {
-			final Reader tmp1 = f2.getReader(charset);
-			if (tmp1 == null)
+			final List<String> lines = f2.getLines(charset);
+			if (lines == null)
 				return new ReadLineSimple(s, "Cannot open " + f2.getDescription());
 
-			return uncommentAndMerge(ReadLineReader.create(tmp1, f2.getDescription()));
+			return uncommentAndMerge(new ReadLineCached(lines, f2.getDescription(), null));
 		} catch (IOException e) {
 			return new ReadLineSimple(s, e.toString());
 		}
@@ -120,7 +120,7 @@ public class StartDiagramExtractReader implements ReadLine {
 	}
 
 	private static ReadLine getReadLine(SURL url, StringLocated s, Charset charset) {
-		final InputStream tmp = url.openStream();
+		final InputStream tmp = url.openCachedStream();
 		if (tmp == null)
 			return new ReadLineSimple(s, "Cannot connect");
 
@@ -14,11 +14,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
-import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,6 +34,7 @@ import net.sourceforge.plantuml.klimt.creole.atom.AtomImg;
 import net.sourceforge.plantuml.log.Logme;
 import net.sourceforge.plantuml.security.SFile;
 import net.sourceforge.plantuml.utils.Base64Coder;
+import net.sourceforge.plantuml.utils.ByteBudgetCache;
 import net.sourceforge.plantuml.utils.Log;
 // ::uncomment when __CORE__
 //import java.io.FileInputStream;
@@ -65,10 +66,15 @@ public class Stdlib {
 	private static final String SEPARATOR = "\uF8FF";
 	private static final Pattern sizePattern = Pattern.compile("\\[(\\d+)x(\\d+)/16\\]");
 
-	private final Map<String, SoftReference<String>> cache = new ConcurrentHashMap<String, SoftReference<String>>();
+	private static final long CACHE_BUDGET = 64L * 1024 * 1024;
+	private static final long MAX_CACHED_BLOCK = CACHE_BUDGET / 8;
+	private static final ByteBudgetCache<String, byte[]> cache = new ByteBudgetCache<String, byte[]>(CACHE_BUDGET);
 
 	private final String name;
 	private final Map<String, String> info = new HashMap<String, String>();
+	private Map<String, Entry> index;
+	private ImageHeader imageHeader;
+	private final Set<String> largeBlocks = new HashSet<String>();
 
 	private Stdlib(String name, String info) throws IOException {
 		this.name = name;
@@ -146,95 +152,255 @@ public class Stdlib {
 	}
 
 	/*private*/ public String loadResource(String file) throws IOException {
-		final SoftReference<String> cached = cache.get(file.toLowerCase());
-		if (cached != null) {
-			final String cachedResult = cached.get();
-			if (cachedResult != null) {
-				// Log.info("Using cache for " + file);
-				return cachedResult;
+		final String key = name + "/" + file.toLowerCase();
+		final byte[] cached = cache.get(key);
+		if (cached != null)
+			return new String(cached, UTF_8);
+
+		// One load at a time per library, so that concurrent includes of the same
+		// file decompress it only once
+		synchronized (this) {
+			final byte[] loaded = cache.get(key);
+			if (loaded != null)
+				return new String(loaded, UTF_8);
+
+			final String result = loadResourceNoCache(file);
+			if (result != null) {
+				final byte[] bytes = result.getBytes(UTF_8);
+				cache.put(key, bytes, bytes.length);
 			}
+			return result;
 		}
+	}
+
+	private String loadResourceNoCache(String file) throws IOException {
 		Log.info("No cache for " + file);
-		final DataInputStream dataStream = getDataStream();
-		if (dataStream == null)
+		final Entry entry = getIndex().get(file.toLowerCase());
+		if (entry == null) {
+			Log.info("Not found " + file);
 			return null;
+		}
 
-		dataStream.readUTF();
-		final InputStream spriteStream = getSpriteStream();
-		if (spriteStream == null) {
+		final DataInputStream dataStream = new DataInputStream(openBlock("-abx.repx", entry.data));
+		InputStream spriteStream = null;
+		InputStream dataImagePngBase64Stream = null;
+		try {
+			final StringBuilder found = new StringBuilder();
+			while (true) {
+				String s = dataStream.readUTF();
+				if (s.equals(SEPARATOR))
+					return found.toString();
+
+				if (s.contains(AtomImg.DATA_IMAGE_PNG_BASE64)) {
+					if (dataImagePngBase64Stream == null)
+						dataImagePngBase64Stream = openBlock("-ghx.repx",
+								entry.image == -1 ? getImageHeader().start : entry.image);
+
+					final String base64 = readOneImage(dataImagePngBase64Stream, getImageHeader().colors);
+					s = s.replaceFirst(AtomImg.DATA_IMAGE_PNG_BASE64, AtomImg.DATA_IMAGE_PNG_BASE64 + base64);
+				}
+
+				found.append(s);
+				found.append("\n");
+				if (isSpriteLine(s)) {
+					final Matcher m = sizePattern.matcher(s);
+					final boolean ok = m.find();
+					if (ok == false)
+						throw new IOException(s);
+
+					final int width = Integer.parseInt(m.group(1));
+					final int height = Integer.parseInt(m.group(2));
+					if (spriteStream == null)
+						spriteStream = openBlock("-dex.repx", entry.sprite);
+					final String sprite = readSprite(width, height, spriteStream);
+					found.append(sprite);
+					found.append("}\n");
+				}
+			}
+		} finally {
 			dataStream.close();
-			return null;
+			if (spriteStream != null)
+				spriteStream.close();
+			if (dataImagePngBase64Stream != null)
+				dataImagePngBase64Stream.close();
 		}
-		InputStream dataImagePngBase64Stream = null;
-		final List<Integer> colors = new ArrayList<>();
+	}
+
+	static class Entry {
+		private final int data;
+		private final int sprite;
+		private final int image;
+
+		Entry(int data, int sprite, int image) {
+			this.data = data;
+			this.sprite = sprite;
+			this.image = image;
+		}
+	}
+
+	static class ImageHeader {
+		private final List<Integer> colors;
+		private final int start;
+
+		ImageHeader(List<Integer> colors, int start) {
+			this.colors = colors;
+			this.start = start;
+		}
+	}
+
+	/**
+	 * Scans the library once and records, for each file, where its lines start
+	 * in the decompressed data and where its sprites and images start in the
+	 * decompressed sprite and image blocks. Images are only read to know their
+	 * sizes.
+	 */
+	private synchronized Map<String, Entry> getIndex() throws IOException {
+		if (index != null)
+			return index;
+
+		final Map<String, Entry> result = new HashMap<String, Entry>();
+		byte[] data = getBlock("-abx.repx");
+		if (data == null)
+			data = readBlock("-abx.repx", Long.MAX_VALUE);
+		final ByteArrayInputStream bais = new ByteArrayInputStream(data);
+		final DataInputStream dataStream = new DataInputStream(bais);
+		dataStream.readUTF();
+		// Images are read in sequence, only to know their sizes
+		InputStream images = null;
+		int sprite = 0;
+		int image = -1;
 		try {
-			StringBuilder found = null;
 			while (true) {
 				final String filename = dataStream.readUTF();
-				if (filename.equals(SEPARATOR)) {
-					Log.info("Not found " + filename);
-					return null;
-				}
-				if (filename.equalsIgnoreCase(file))
-					found = new StringBuilder();
+				if (filename.equals(SEPARATOR))
+					break;
+
+				final String key = filename.toLowerCase();
+				if (result.containsKey(key) == false)
+					result.put(key, new Entry(data.length - bais.available(), sprite, image));
 
 				while (true) {
-					String s = dataStream.readUTF();
-					if (s.equals(SEPARATOR)) {
-						if (found != null) {
-							final String result = found.toString();
-							cache.put(file.toLowerCase(), new SoftReference<>(result));
-							return result;
-						}
+					final String s = dataStream.readUTF();
+					if (s.equals(SEPARATOR))
 						break;
-					}
 
 					if (s.contains(AtomImg.DATA_IMAGE_PNG_BASE64)) {
-						if (dataImagePngBase64Stream == null) {
-							dataImagePngBase64Stream = getDataImagePngBase64();
-							final int size = read2bytes(dataImagePngBase64Stream);
-							for (int i = 0; i < size; i++) {
-								final int alpha = read1byte(dataImagePngBase64Stream);
-								final int red = read1byte(dataImagePngBase64Stream);
-								final int green = read1byte(dataImagePngBase64Stream);
-								final int blue = read1byte(dataImagePngBase64Stream);
-								final int rgb = (alpha << 24) + (red << 16) + (green << 8) + blue;
-								colors.add(rgb);
-							}
+						if (images == null) {
+							if (image == -1)
+								image = getImageHeader().start;
+							images = openBlock("-ghx.repx", image);
 						}
-						final String base64 = readOneImage(dataImagePngBase64Stream, colors);
-						s = s.replaceFirst(AtomImg.DATA_IMAGE_PNG_BASE64, AtomImg.DATA_IMAGE_PNG_BASE64 + base64);
-					}
-
-					if (found != null) {
-						found.append(s);
-						found.append("\n");
+						final int width = read1byte(images);
+						final int height = read1byte(images);
+						skipFully(images, 2L * width * height);
+						image += 2 + 2 * width * height;
 					}
 					if (isSpriteLine(s)) {
 						final Matcher m = sizePattern.matcher(s);
-						final boolean ok = m.find();
-						if (ok == false)
+						if (m.find() == false)
 							throw new IOException(s);
 
 						final int width = Integer.parseInt(m.group(1));
 						final int height = Integer.parseInt(m.group(2));
-						if (found == null) {
-							skipSprite(width, height, spriteStream);
-						} else {
-							final String sprite = readSprite(width, height, spriteStream);
-							found.append(sprite);
-							found.append("}\n");
-						}
+						sprite += (height + 1) / 2 * width;
 					}
 				}
 			}
 		} finally {
-			dataStream.close();
-			spriteStream.close();
-			if (dataImagePngBase64Stream != null)
-				dataImagePngBase64Stream.close();
+			if (images != null)
+				images.close();
 		}
+		Log.info("Indexed " + result.size() + " files in " + name);
+		index = result;
+		return index;
+	}
+
+	private synchronized ImageHeader getImageHeader() throws IOException {
+		if (imageHeader != null)
+			return imageHeader;
+
+		try (InputStream is = openBlock("-ghx.repx", 0)) {
+			final List<Integer> colors = new ArrayList<>();
+			final int size = read2bytes(is);
+			for (int i = 0; i < size; i++) {
+				final int alpha = read1byte(is);
+				final int red = read1byte(is);
+				final int green = read1byte(is);
+				final int blue = read1byte(is);
+				final int rgb = (alpha << 24) + (red << 16) + (green << 8) + blue;
+				colors.add(rgb);
+			}
+			imageHeader = new ImageHeader(colors, 2 + 4 * size);
+		}
+		return imageHeader;
+	}
 
+	/**
+	 * Returns the decompressed content of one of the library files, or null when
+	 * it is larger than {@link #MAX_CACHED_BLOCK}: such files are streamed
+	 * instead, so that a single library cannot fill the cache.
+	 */
+	private synchronized byte[] getBlock(String extension) throws IOException {
+		if (largeBlocks.contains(extension))
+			return null;
+
+		final String key = name + extension;
+		byte[] result = cache.get(key);
+		if (result == null) {
+			result = readBlock(extension, MAX_CACHED_BLOCK);
+			if (result == null) {
+				largeBlocks.add(extension);
+				return null;
+			}
+			cache.put(key, result, result.length);
+		}
+		return result;
+	}
+
+	private byte[] readBlock(String extension, long limit) throws IOException {
+		try (InputStream is = new BrotliInputStream(getInternalInputStream(name, extension))) {
+			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[65536];
+			int length;
+			while ((length = is.read(buffer)) != -1) {
+				if (baos.size() + length > limit)
+					return null;
+				baos.write(buffer, 0, length);
+			}
+			return baos.toByteArray();
+		}
+	}
+
+	/**
+	 * Opens a library file, decompressed and positioned at this offset.
+	 */
+	private InputStream openBlock(String extension, int offset) throws IOException {
+		final byte[] block = getBlock(extension);
+		if (block != null)
+			return new ByteArrayInputStream(block, offset, block.length - offset);
+
+		final InputStream result = new BufferedInputStream(
+				new BrotliInputStream(getInternalInputStream(name, extension)), 65536);
+		try {
+			skipFully(result, offset);
+		} catch (IOException e) {
+			result.close();
+			throw e;
+		}
+		return result;
+	}
+
+	private static void skipFully(InputStream is, long n) throws IOException {
+		while (n > 0) {
+			final long skipped = is.skip(n);
+			if (skipped > 0) {
+				n -= skipped;
+			} else {
+				if (is.read() == -1)
+					throw new IOException("Unexpected end of stdlib data");
+				n--;
+			}
+		}
 	}
 
 	private String readOneImage(InputStream is, List<Integer> colors) throws IOException {
@@ -256,11 +422,6 @@ public class Stdlib {
 
 	}
 
-	private void skipSprite(int width, int height, InputStream inputStream) throws IOException {
-		final int nbLines = (height + 1) / 2;
-		inputStream.skip(nbLines * width);
-	}
-
 	private String readSprite(int width, int height, InputStream inputStream) throws IOException {
 		final int nbLines = (height + 1) / 2;
 		final StringBuilder result = new StringBuilder();
@@ -304,21 +465,11 @@ public class Stdlib {
 	}
 
 	private DataInputStream getDataStream() throws IOException {
-		return getDataStream(name);
+		return new DataInputStream(openBlock("-abx.repx", 0));
 	}
 
 	private InputStream getSpriteStream() throws IOException {
-		final InputStream raw = getInternalInputStream(name, "-dex.repx");
-		if (raw == null)
-			return null;
-		return new BrotliInputStream(raw);
-	}
-
-	private InputStream getDataImagePngBase64() throws IOException {
-		final InputStream raw = getInternalInputStream(name, "-ghx.repx");
-		if (raw == null)
-			return null;
-		return new BrotliInputStream(raw);
+		return openBlock("-dex.repx", 0);
 	}
 
 	private static InputStream getInternalInputStream(String fullname, String extension) throws FileNotFoundException {
@@ -168,7 +168,7 @@ public class PreprocessorUtils {
 
 	public static ReadLine getReaderInclude(SURL url, StringLocated s, Charset charset)
 			throws EaterException, UnsupportedEncodingException {
-		final InputStream is = url.openStream();
+		final InputStream is = url.openCachedStream();
 		if (is == null)
 			throw new EaterException("Cannot open URL", s);
 
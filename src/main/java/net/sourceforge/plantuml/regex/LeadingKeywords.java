@@ -0,0 +1,223 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the literal words one of which must start any line matched by a
+ * regex.
+ * <p>
+ * Only simple shapes are recognized, such as <code>^class</code> or
+ * <code>^(?:abstract|class)</code>. For anything else <code>null</code> is
+ * returned, meaning that the regex may match lines starting with anything.
+ * Words are returned in lower case, as patterns are compiled case
+ * insensitive.
+ */
+public final class LeadingKeywords {
+
+	private LeadingKeywords() {
+	}
+
+	public static String[] of(IRegex regex) {
+		final List<String> result = find(regex, true);
+		if (result == null)
+			return null;
+
+		return result.toArray(new String[result.size()]);
+	}
+
+	private static List<String> find(IRegex regex, boolean top) {
+		if (regex instanceof RegexConcat) {
+			final List<IRegex> partials = ((RegexConcat) regex).partials();
+			if (top && (partials.size() < 2 || partials.get(0) != RegexLeaf.start()))
+				return null;
+
+			return find(partials.get(top ? 1 : 0), false);
+		}
+		if (regex instanceof RegexOr) {
+			final List<String> result = new ArrayList<>();
+			for (IRegex partial : ((RegexOr) regex).partials()) {
+				final List<String> tmp = find(partial, false);
+				if (tmp == null)
+					return null;
+				result.addAll(tmp);
+			}
+			return result;
+		}
+		if (regex instanceof RegexLeaf && top == false)
+			return fromPattern(((RegexLeaf) regex).getPattern());
+
+		return null;
+	}
+
+	static List<String> fromPattern(String pattern) {
+		if (pattern.startsWith("(")) {
+			final int close = getClosingParenthesis(pattern);
+			if (close == -1)
+				return null;
+
+			if (close + 1 < pattern.length() && isQuantifier(pattern.charAt(close + 1))
+					&& pattern.charAt(close + 1) != '+')
+				return null;
+
+			String inside = pattern.substring(1, close);
+			if (inside.startsWith("?:"))
+				inside = inside.substring(2);
+			else if (inside.startsWith("?"))
+				return null;
+
+			return fromAlternatives(splitTopLevel(inside));
+		}
+		final List<String> alternatives = splitTopLevel(pattern);
+		// Outside of a group, an alternative would not be anchored to the start of line
+		if (alternatives == null || alternatives.size() > 1)
+			return null;
+
+		return fromAlternatives(alternatives);
+	}
+
+	private static List<String> fromAlternatives(List<String> alternatives) {
+		if (alternatives == null)
+			return null;
+
+		final List<String> result = new ArrayList<>();
+		for (String alternative : alternatives) {
+			final String word = literalStart(alternative);
+			if (word == null)
+				return null;
+			result.add(word);
+		}
+		return result;
+	}
+
+	private static String literalStart(String alternative) {
+		if (alternative.startsWith("("))
+			return null;
+
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < alternative.length(); i++) {
+			final char c = alternative.charAt(i);
+			if (isWordChar(c) == false)
+				break;
+
+			final char next = i + 1 < alternative.length() ? alternative.charAt(i + 1) : '\0';
+			if (isQuantifier(next) && next != '+')
+				break;
+
+			sb.append(toLowerAscii(c));
+			if (next == '+')
+				break;
+		}
+		if (sb.length() == 0)
+			return null;
+
+		return sb.toString();
+	}
+
+	private static List<String> splitTopLevel(String pattern) {
+		final List<String> result = new ArrayList<>();
+		int level = 0;
+		int start = 0;
+		for (int i = 0; i < pattern.length(); i++) {
+			final char c = pattern.charAt(i);
+			if (c == '\\') {
+				i++;
+			} else if (c == '[') {
+				i = skipClass(pattern, i);
+				if (i == -1)
+					return null;
+			} else if (c == '(') {
+				level++;
+			} else if (c == ')') {
+				level--;
+			} else if (c == '|' && level == 0) {
+				result.add(pattern.substring(start, i));
+				start = i + 1;
+			}
+		}
+		result.add(pattern.substring(start));
+		return result;
+	}
+
+	private static int getClosingParenthesis(String pattern) {
+		int level = 0;
+		for (int i = 0; i < pattern.length(); i++) {
+			final char c = pattern.charAt(i);
+			if (c == '\\') {
+				i++;
+			} else if (c == '[') {
+				i = skipClass(pattern, i);
+				if (i == -1)
+					return -1;
+			} else if (c == '(') {
+				level++;
+			} else if (c == ')') {
+				level--;
+				if (level == 0)
+					return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int skipClass(String pattern, int i) {
+		for (i++; i < pattern.length(); i++) {
+			final char c = pattern.charAt(i);
+			if (c == '\\')
+				i++;
+			else if (c == ']')
+				return i;
+		}
+		return -1;
+	}
+
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	private static boolean isQuantifier(char c) {
+		return c == '?' || c == '*' || c == '+' || c == '{';
+	}
+
+	public static char toLowerAscii(char c) {
+		if (c >= 'A' && c <= 'Z')
+			return (char) (c + ('a' - 'A'));
+		return c;
+	}
+
+}
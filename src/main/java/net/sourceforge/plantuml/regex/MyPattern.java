@@ -35,56 +35,33 @@
  */
 package net.sourceforge.plantuml.regex;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.regex.Pattern;
 
 import net.sourceforge.plantuml.jaws.Jaws;
-
-class MaxSizeHashMap<K, V> extends LinkedHashMap<K, V> {
-	private final int maxSize;
-
-	public MaxSizeHashMap(int maxSize) {
-		this.maxSize = maxSize;
-	}
-
-	@Override
-	protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-		return size() > maxSize;
-	}
-}
+import net.sourceforge.plantuml.utils.BoundedCache;
 
 // Splitter.java to be finished
 public abstract class MyPattern {
 
-	private static final Map<String, Pattern2> cache = new MaxSizeHashMap<>(512);
+	// Shared by all parsing threads: lookups never lock
+	private static final BoundedCache<String, Pattern2> cache = new BoundedCache<>(2048);
 
 	private static final Pattern2 EMPTY = new Pattern2(Pattern.compile(""));
 
-//	static int CPT1;
-//	static int CPT2;
+	public static BoundedCache<String, Pattern2> getCache() {
+		return cache;
+	}
 
 	public static Pattern2 cmpile(final String p) {
 		if (p == null || p.length() == 0) {
 			return EMPTY;
 		}
-//		CPT1++;
-		Pattern2 result = null;
-		synchronized (cache) {
-			result = cache.get(p);
-			if (result != null) {
-				return result;
-			}
-		}
-		assert result == null;
-		result = new Pattern2(Pattern.compile(transform(p), Pattern.CASE_INSENSITIVE));
-
-		synchronized (cache) {
+		Pattern2 result = cache.get(p);
+		if (result == null) {
+			// Two threads may compile the same pattern: both results are equivalent
+			result = new Pattern2(Pattern.compile(transform(p), Pattern.CASE_INSENSITIVE));
 			cache.put(p, result);
-//			CPT2++;
-//			System.err.println("CPT= " + CPT1 + " / " + CPT2 + " " + cache.size());
 		}
-
 		return result;
 	}
 
@@ -199,6 +199,9 @@ public class SURL {
 //			System.err.println("SURL::getBytes " + e);
 //		}
 //	return null;
+//}
+//public InputStream openCachedStream() {
+//	return openStream();
 //}
 	// ::done
 
@@ -343,6 +346,33 @@ public class SURL {
 	 * @return data loaded data from endpoint
 	 */
 	public byte[] getBytes() {
+		return getWithCredentials(new GetRequest<byte[]>() {
+			public Callable<byte[]> create(Proxy proxy, SecurityAuthentication authentication) {
+				return requestWithGetAndResponse(internal, proxy, authentication, null);
+			}
+		});
+	}
+
+	/**
+	 * Downloads this URL for the {@link UrlCache}. When <code>previous</code> is
+	 * not null, it is revalidated with a conditional request and returned as is
+	 * if the server answers 304.
+	 *
+	 * @return the new entry, or null in case of error
+	 */
+	UrlCache.Entry fetch(final UrlCache.Entry previous) {
+		return getWithCredentials(new GetRequest<UrlCache.Entry>() {
+			public Callable<UrlCache.Entry> create(Proxy proxy, SecurityAuthentication authentication) {
+				return requestWithRevalidation(internal, proxy, authentication, previous);
+			}
+		});
+	}
+
+	interface GetRequest<T> {
+		Callable<T> create(Proxy proxy, SecurityAuthentication authentication);
+	}
+
+	private <T> T getWithCredentials(GetRequest<T> request) {
 		if (isUrlOk() == false)
 			return null;
 
@@ -359,9 +389,8 @@ public class SURL {
 			}
 
 			try {
-				final Future<byte[]> result = EXE
-						.submit(requestWithGetAndResponse(internal, credentials.getProxy(), authentication, null));
-				final byte[] data = result.get(SecurityUtils.getSecurityProfile().getTimeout(), TimeUnit.MILLISECONDS);
+				final Future<T> result = EXE.submit(request.create(credentials.getProxy(), authentication));
+				final T data = result.get(SecurityUtils.getSecurityProfile().getTimeout(), TimeUnit.MILLISECONDS);
 				if (data != null)
 					return data;
 
@@ -512,6 +541,43 @@ public class SURL {
 		};
 	}
 
+	/**
+	 * Creates a GET request that revalidates a cached entry.
+	 *
+	 * @param url            URL to request
+	 * @param proxy          proxy to apply
+	 * @param authentication the authentication to use
+	 * @param previous       the cached entry, or null
+	 * @return the callable handler.
+	 */
+	private static Callable<UrlCache.Entry> requestWithRevalidation(final URL url, final Proxy proxy,
+			final SecurityAuthentication authentication, final UrlCache.Entry previous) {
+		return new Callable<UrlCache.Entry>() {
+			public UrlCache.Entry call() throws IOException {
+				final URLConnection connection = proxy == null ? url.openConnection() : url.openConnection(proxy);
+				if (connection == null)
+					return null;
+
+				configure(connection);
+				final HttpURLConnection http = (HttpURLConnection) connection;
+				applyEndpointAccessAuthentication(http, authentication);
+				if (previous != null && previous.getEtag() != null)
+					http.setRequestProperty("If-None-Match", previous.getEtag());
+				if (previous != null && previous.getLastModified() != null)
+					http.setRequestProperty("If-Modified-Since", previous.getLastModified());
+
+				if (previous != null && http.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					http.disconnect();
+					return previous.revalidated();
+				}
+
+				final byte[] data = retrieveResponseAsBytes(http);
+				return new UrlCache.Entry(data, http.getHeaderField("ETag"), http.getHeaderField("Last-Modified"),
+						System.currentTimeMillis());
+			}
+		};
+	}
+
 	/**
 	 * Creates a POST request and response handler with a simple String content. The
 	 * content will be identified as form or JSON data. The charset encoding can be
@@ -634,6 +700,25 @@ public class SURL {
 		return null;
 	}
 
+	/**
+	 * Like {@link #openStream()}, but served from the process-wide
+	 * {@link UrlCache}, so that a file included several times, or by several
+	 * diagrams, is downloaded once.
+	 */
+	public InputStream openCachedStream() {
+		if (isUrlOk()) {
+			final byte[] data = UrlCache.getInstance().getBytes(this);
+			if (data != null)
+				return new ByteArrayInputStream(data);
+
+		}
+		return null;
+	}
+
+	String getCacheKey() {
+		return securityIdentifier + " " + internal.toString();
+	}
+
 	/**
 	 * Informs, if SecurityCredentials are configured for this connection.
 	 *
@@ -0,0 +1,257 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.security;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import net.sourceforge.plantuml.StringUtils;
+import net.sourceforge.plantuml.log.Logme;
+import net.sourceforge.plantuml.utils.ByteBudgetCache;
+import net.sourceforge.plantuml.utils.Log;
+
+/**
+ * Process-wide cache of files included from URLs.
+ * <p>
+ * Entries are keyed by URL and credentials. An entry younger than the TTL is
+ * used as is; an older one is revalidated with <code>If-None-Match</code> and
+ * <code>If-Modified-Since</code>. Concurrent requests for the same URL share a
+ * single download.
+ * <p>
+ * It is configured with <code>PLANTUML_URL_CACHE_TTL</code> (seconds, 60 by
+ * default), <code>PLANTUML_URL_CACHE_SIZE</code> (megabytes kept in memory, 16
+ * by default) and <code>PLANTUML_URL_CACHE_DIR</code>, an optional directory
+ * where responses fetched without credentials are also stored.
+ */
+final class UrlCache {
+	// ::remove file when __CORE__
+
+	private static final int MAGIC = 0x50554331;
+
+	private static UrlCache singleton;
+
+	private final ByteBudgetCache<String, Entry> memory;
+	private final ConcurrentMap<String, FutureTask<Entry>> pending = new ConcurrentHashMap<String, FutureTask<Entry>>();
+	private final long ttlMs;
+	private final SFile dir;
+
+	static class Entry {
+
+		private final byte[] data;
+		private final String etag;
+		private final String lastModified;
+		private final long validated;
+
+		Entry(byte[] data, String etag, String lastModified, long validated) {
+			this.data = data;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.validated = validated;
+		}
+
+		Entry revalidated() {
+			return new Entry(data, etag, lastModified, System.currentTimeMillis());
+		}
+
+		String getEtag() {
+			return etag;
+		}
+
+		String getLastModified() {
+			return lastModified;
+		}
+
+	}
+
+	UrlCache(long ttlMs, long budget, SFile dir) {
+		this.ttlMs = ttlMs;
+		this.memory = new ByteBudgetCache<String, Entry>(budget);
+		this.dir = dir;
+	}
+
+	static synchronized UrlCache getInstance() {
+		if (singleton == null) {
+			final String dir = SecurityUtils.getenv("PLANTUML_URL_CACHE_DIR");
+			singleton = new UrlCache(1000L * getenvLong("PLANTUML_URL_CACHE_TTL", 60),
+					1024L * 1024 * getenvLong("PLANTUML_URL_CACHE_SIZE", 16),
+					StringUtils.isNotEmpty(dir) ? new SFile(dir) : null);
+		}
+		return singleton;
+	}
+
+	private static long getenvLong(String name, long defaultValue) {
+		final String value = SecurityUtils.getenv(name);
+		if (StringUtils.isNotEmpty(value) && value.matches("\\d+"))
+			return Long.parseLong(value);
+		return defaultValue;
+	}
+
+	byte[] getBytes(final SURL url) {
+		final String key = url.getCacheKey();
+		final boolean onDisk = dir != null && url.isAuthorizationConfigured() == false;
+
+		Entry cached = memory.get(key);
+		if (cached == null && onDisk)
+			cached = readFromDisk(key);
+
+		if (cached != null && System.currentTimeMillis() - cached.validated < ttlMs)
+			return cached.data;
+
+		final Entry previous = cached;
+		final FutureTask<Entry> task = new FutureTask<Entry>(new Callable<Entry>() {
+			public Entry call() {
+				final Entry result = url.fetch(previous);
+				if (result != null) {
+					memory.put(key, result, result.data.length);
+					if (onDisk)
+						writeToDisk(key, result);
+				}
+				return result;
+			}
+		});
+
+		FutureTask<Entry> running = pending.putIfAbsent(key, task);
+		if (running == null) {
+			running = task;
+			try {
+				task.run();
+			} finally {
+				pending.remove(key, task);
+			}
+		} else {
+			Log.info("Waiting for concurrent download of " + url);
+		}
+
+		try {
+			final Entry result = running.get();
+			return result == null ? null : result.data;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			Logme.error(e);
+			return null;
+		}
+	}
+
+	private SFile getFile(String key) {
+		try {
+			final MessageDigest md = MessageDigest.getInstance("SHA-256");
+			final byte[] digest = md.digest(key.getBytes(StandardCharsets.UTF_8));
+			final StringBuilder sb = new StringBuilder();
+			for (byte b : digest)
+				sb.append(String.format("%02x", b & 0xFF));
+			return dir.file(sb.toString() + ".url");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private Entry readFromDisk(String key) {
+		final SFile file = getFile(key);
+		if (file.exists() == false)
+			return null;
+
+		try (InputStream is = file.openFile()) {
+			if (is == null)
+				return null;
+
+			final DataInputStream dis = new DataInputStream(is);
+			if (dis.readInt() != MAGIC || dis.readUTF().equals(key) == false)
+				return null;
+
+			final String etag = readNullable(dis);
+			final String lastModified = readNullable(dis);
+			final long validated = dis.readLong();
+			final byte[] data = new byte[dis.readInt()];
+			dis.readFully(data);
+			final Entry result = new Entry(data, etag, lastModified, validated);
+			memory.put(key, result, data.length);
+			return result;
+		} catch (IOException e) {
+			Log.info("Cannot read cached URL " + file + ": " + e);
+			return null;
+		}
+	}
+
+	private void writeToDisk(String key, Entry entry) {
+		dir.mkdirs();
+		final SFile file = getFile(key);
+		final SFile tmp = dir.file(file.getName() + ".tmp");
+		try {
+			try (BufferedOutputStream os = tmp.createBufferedOutputStream()) {
+				final DataOutputStream dos = new DataOutputStream(os);
+				dos.writeInt(MAGIC);
+				dos.writeUTF(key);
+				writeNullable(dos, entry.etag);
+				writeNullable(dos, entry.lastModified);
+				dos.writeLong(entry.validated);
+				dos.writeInt(entry.data.length);
+				dos.write(entry.data);
+				dos.flush();
+			}
+			file.delete();
+			if (tmp.renameTo(file) == false)
+				tmp.delete();
+		} catch (IOException e) {
+			Log.info("Cannot write cached URL " + file + ": " + e);
+		}
+	}
+
+	private static String readNullable(DataInputStream dis) throws IOException {
+		if (dis.readBoolean())
+			return dis.readUTF();
+		return null;
+	}
+
+	private static void writeNullable(DataOutputStream dos, String value) throws IOException {
+		dos.writeBoolean(value != null);
+		if (value != null)
+			dos.writeUTF(value);
+	}
+
+}
@@ -36,7 +36,6 @@
 package net.sourceforge.plantuml.sequencediagram.graphic;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -52,41 +51,63 @@ public class ConstraintSet {
 	private final ParticipantBoxSimple lastborder;
 
 	final private List<Pushable> participantList = new ArrayList<>();
-	final private Map<List<Pushable>, Constraint> constraints = new HashMap<List<Pushable>, Constraint>();
+	final private Map<Pushable, Integer> indexes = new HashMap<Pushable, Integer>();
+
+	// constraints[i][j - i - 1] links participant i to participant j, for i < j.
+	// Rows are allocated on first use.
+	final private Constraint[][] constraints;
 
 	public ConstraintSet(Collection<? extends Pushable> all, double freeX) {
 		this.participantList.add(firstBorder = new ParticipantBoxSimple(0, "LEFT"));
 		this.participantList.addAll(all);
 		this.participantList.add(lastborder = new ParticipantBoxSimple(freeX, "RIGHT"));
+		for (int i = participantList.size() - 1; i >= 0; i--)
+			this.indexes.put(participantList.get(i), i);
+
+		this.constraints = new Constraint[participantList.size()][];
 	}
 
 	@Override
 	public String toString() {
-		return constraints.values().toString();
+		final List<Constraint> result = new ArrayList<>();
+		for (Constraint[] row : constraints)
+			if (row != null)
+				for (Constraint c : row)
+					if (c != null)
+						result.add(c);
+
+		return result.toString();
 	}
 
 	public double getMaxX() {
 		return lastborder.getCenterX(null);
 	}
 
-	public Constraint getConstraint(Pushable p1, Pushable p2) {
-		if (p1 == null || p2 == null || p1 == p2)
+	private int indexOf(Pushable p) {
+		final Integer result = indexes.get(p);
+		if (result == null)
 			throw new IllegalArgumentException();
 
-		final int i1 = participantList.indexOf(p1);
-		final int i2 = participantList.indexOf(p2);
-		if (i1 == -1 || i2 == -1)
+		return result;
+	}
+
+	public Constraint getConstraint(Pushable p1, Pushable p2) {
+		if (p1 == null || p2 == null || p1 == p2)
 			throw new IllegalArgumentException();
 
+		final int i1 = indexOf(p1);
+		final int i2 = indexOf(p2);
 		if (i1 > i2)
 			return getConstraint(p2, p1);
 
-		final List<Pushable> key = Arrays.asList(p1, p2);
-		Constraint result = constraints.get(key);
-		if (result == null) {
-			result = new Constraint(p1, p2);
-			constraints.put(key, result);
-		}
+		Constraint[] row = constraints[i1];
+		if (row == null)
+			row = constraints[i1] = new Constraint[participantList.size() - i1 - 1];
+
+		Constraint result = row[i2 - i1 - 1];
+		if (result == null)
+			result = row[i2 - i1 - 1] = new Constraint(p1, p2);
+
 		return result;
 	}
 
@@ -107,26 +128,22 @@ public class ConstraintSet {
 	}
 
 	private Pushable getOtherParticipant(Pushable p, int delta) {
-		final int i = participantList.indexOf(p);
-		if (i == -1)
-			throw new IllegalArgumentException();
-
-		return participantList.get(i + delta);
+		return participantList.get(indexOf(p) + delta);
 	}
 
+	// Constraints are enforced from the shortest to the longest ones, and from
+	// left to right for a given length. Pairs without any constraint are skipped:
+	// they cannot push anything.
 	public void takeConstraintIntoAccount(StringBounder stringBounder) {
-		for (int dist = 1; dist < participantList.size(); dist++)
-			pushEverybody(stringBounder, dist);
-
-	}
+		final int size = participantList.size();
+		for (int dist = 1; dist < size; dist++)
+			for (int i = 0; i < size - dist; i++) {
+				final Constraint[] row = constraints[i];
+				if (row == null || row[dist - 1] == null)
+					continue;
 
-	private void pushEverybody(StringBounder stringBounder, int dist) {
-		for (int i = 0; i < participantList.size() - dist; i++) {
-			final Pushable p1 = participantList.get(i);
-			final Pushable p2 = participantList.get(i + dist);
-			final Constraint c = getConstraint(p1, p2);
-			ensureSpaceAfter(stringBounder, p1, p2, c.getValue());
-		}
+				ensureSpaceAfter(stringBounder, i, i + dist, row[dist - 1].getValue());
+			}
 	}
 
 	public void pushToLeftParticipantBox(double deltaX, Pushable firstToChange, boolean including) {
@@ -135,36 +152,33 @@ public class ConstraintSet {
 
 		Objects.requireNonNull(firstToChange);
 		// freeX += deltaX;
-		boolean founded = false;
-		for (Pushable box : participantList) {
-			if (box.equals(firstToChange)) {
-				founded = true;
-				if (including == false)
-					continue;
+		final Integer first = indexes.get(firstToChange);
+		if (first == null)
+			return;
 
-			}
-			if (founded)
-				box.pushToLeft(deltaX);
+		pushFrom(deltaX, including ? first : first + 1);
+	}
 
-		}
+	private void pushFrom(double deltaX, int first) {
+		for (int i = first; i < participantList.size(); i++)
+			participantList.get(i).pushToLeft(deltaX);
 	}
 
 	public void pushToLeft(double delta) {
 		pushToLeftParticipantBox(delta, firstBorder, true);
 	}
 
-	private void ensureSpaceAfter(StringBounder stringBounder, Pushable p1, Pushable p2, double space) {
-		if (p1.equals(p2))
-			throw new IllegalArgumentException();
+	private void ensureSpaceAfter(StringBounder stringBounder, int i1, int i2, double space) {
+		final double x1 = participantList.get(i1).getCenterX(stringBounder);
+		final double x2 = participantList.get(i2).getCenterX(stringBounder);
+		if (x1 > x2) {
+			if (x1 - x2 < space)
+				pushFrom(space - (x1 - x2), i1);
 
-		if (p1.getCenterX(stringBounder) > p2.getCenterX(stringBounder)) {
-			ensureSpaceAfter(stringBounder, p2, p1, space);
 			return;
 		}
-		assert p1.getCenterX(stringBounder) < p2.getCenterX(stringBounder);
-		final double existingSpace = p2.getCenterX(stringBounder) - p1.getCenterX(stringBounder);
-		if (existingSpace < space)
-			pushToLeftParticipantBox(space - existingSpace, p2, true);
+		if (x2 - x1 < space)
+			pushFrom(space - (x2 - x1), i2);
 
 	}
 
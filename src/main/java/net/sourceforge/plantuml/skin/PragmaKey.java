@@ -50,6 +50,7 @@ public enum PragmaKey {
 	DEFAULT_LABEL_ANGLE, //
 	DEFAULT_LABEL_DISTANCE, //
 	GRAPH_ATTRIBUTES, //
+	GRAPHVIZ_OUTPUT, //
 	HORIZONTAL_LINE_BETWEEN_DIFFERENT_PACKAGE_ALLOWED, //
 	KERMOR, //
 	LABEL_ANGLE, //
@@ -58,6 +59,7 @@ public enum PragmaKey {
 	SHOW_DEPRECATION, //
 	SVG_FONT, //
 	SVG_INTERACTIVE, //
+	SVG_STREAMING, //
 	SVEK_TRACE, //
 	TEOZ, //
 	TEX_SYSTEM, //
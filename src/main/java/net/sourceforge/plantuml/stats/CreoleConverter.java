@@ -67,6 +67,10 @@ public class CreoleConverter {
 		result.add(" ");
 		printTableCreole(result, stats.getCurrentSessionByFormat());
 		result.add(" ");
+		printTableCreole(result, stats.getCurrentSessionByFactory());
+		result.add(" ");
+		printTableCreole(result, stats.getCurrentSessionByCache());
+		result.add(" ");
 		result.add("<b><size:16>General statistics since ever</b>");
 		printTableCreole(result, stats.getAllByDiagramType());
 		result.add(" ");
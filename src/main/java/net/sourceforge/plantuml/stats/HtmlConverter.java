@@ -74,6 +74,10 @@ public class HtmlConverter {
 			printTableHtml(result, currentSessionByDiagramType);
 			result.append("<p>");
 			printTableHtml(result, stats.getCurrentSessionByFormat());
+			result.append("<p>");
+			printTableHtml(result, stats.getCurrentSessionByFactory());
+			result.append("<p>");
+			printTableHtml(result, stats.getCurrentSessionByCache());
 		}
 		result.append("<h2>General statistics since ever</h2>");
 		printTableHtml(result, stats.getAllByDiagramType());
@@ -0,0 +1,284 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.stats;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.sourceforge.plantuml.json.Json;
+import net.sourceforge.plantuml.json.JsonArray;
+import net.sourceforge.plantuml.json.JsonObject;
+import net.sourceforge.plantuml.log.Trace;
+import net.sourceforge.plantuml.security.SecurityUtils;
+
+/**
+ * Latency histograms and allocated bytes, per diagram type and per processing
+ * phase.
+ * <p>
+ * Samples come from the {@link Trace} spans. Layout is recorded as self time:
+ * the draw and encode spans nested into it are not counted twice. Allocated
+ * bytes are measured on the running thread, when the JVM supports it.
+ */
+public class PhaseMetrics {
+	// ::remove file when __CORE__
+	// ::remove file when __HAXE__
+
+	// Upper bounds of the histogram buckets, in seconds
+	private static final double[] BOUNDS = { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1,
+			2.5, 5, 10, 30, 60 };
+
+	private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+	static {
+		for (int i = 0; i < BOUNDS.length; i++)
+			BOUNDS_NANOS[i] = (long) (BOUNDS[i] * 1000L * 1000L * 1000L);
+	}
+
+	private static final Trace.Phase[] PHASES = Trace.Phase.values();
+
+	private static final ConcurrentMap<String, Series[]> byType = new ConcurrentHashMap<String, Series[]>();
+
+	private static volatile boolean enabled = "true".equalsIgnoreCase(SecurityUtils.getenv("PLANTUML_METRICS"));
+	private static volatile boolean allocationSupported = true;
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean value) {
+		enabled = value;
+	}
+
+	public static void reset() {
+		byType.clear();
+	}
+
+	/**
+	 * Bytes allocated so far by the current thread, or -1 when the JVM cannot
+	 * tell.
+	 */
+	public static long allocatedBytes() {
+		if (allocationSupported == false)
+			return -1;
+		try {
+			return Allocation.current();
+		} catch (LinkageError e) {
+			// java.lang.management itself is missing
+			allocationSupported = false;
+			return -1;
+		}
+	}
+
+	public static void record(Trace.Phase phase, String type, long nanos, long bytes) {
+		Series[] series = byType.get(type);
+		if (series == null) {
+			final Series[] created = new Series[PHASES.length];
+			for (int i = 0; i < created.length; i++)
+				created[i] = new Series();
+			byType.putIfAbsent(type, created);
+			series = byType.get(type);
+		}
+		series[phase.ordinal()].add(nanos, bytes);
+	}
+
+	/**
+	 * Writes the metrics using the Prometheus text exposition format.
+	 */
+	public static void exportPrometheus(Appendable out) throws IOException {
+		final Map<String, Series[]> sorted = new TreeMap<String, Series[]>(byType);
+
+		out.append("# HELP plantuml_phase_duration_seconds Processing time by diagram type and phase\n");
+		out.append("# TYPE plantuml_phase_duration_seconds histogram\n");
+		for (Map.Entry<String, Series[]> ent : sorted.entrySet())
+			for (Trace.Phase phase : PHASES) {
+				final Series s = ent.getValue()[phase.ordinal()];
+				final long count = s.count.sum();
+				if (count == 0)
+					continue;
+				final String labels = "type=\"" + escape(ent.getKey()) + "\",phase=\"" + phase.getLabel() + "\"";
+				long cumul = 0;
+				for (int i = 0; i < BOUNDS.length; i++) {
+					cumul += s.buckets[i].sum();
+					out.append("plantuml_phase_duration_seconds_bucket{").append(labels);
+					out.append(",le=\"").append(Double.toString(BOUNDS[i])).append("\"} ");
+					out.append(Long.toString(cumul)).append('\n');
+				}
+				out.append("plantuml_phase_duration_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ");
+				out.append(Long.toString(count)).append('\n');
+				out.append("plantuml_phase_duration_seconds_sum{").append(labels).append("} ");
+				out.append(Double.toString(s.nanos.sum() / 1e9)).append('\n');
+				out.append("plantuml_phase_duration_seconds_count{").append(labels).append("} ");
+				out.append(Long.toString(count)).append('\n');
+			}
+
+		out.append("# HELP plantuml_phase_allocated_bytes_total Bytes allocated by diagram type and phase\n");
+		out.append("# TYPE plantuml_phase_allocated_bytes_total counter\n");
+		for (Map.Entry<String, Series[]> ent : sorted.entrySet())
+			for (Trace.Phase phase : PHASES) {
+				final Series s = ent.getValue()[phase.ordinal()];
+				if (s.count.sum() == 0)
+					continue;
+				out.append("plantuml_phase_allocated_bytes_total{type=\"").append(escape(ent.getKey()));
+				out.append("\",phase=\"").append(phase.getLabel()).append("\"} ");
+				out.append(Long.toString(s.bytes.sum())).append('\n');
+			}
+	}
+
+	/**
+	 * Returns the metrics as JSON, with approximated percentiles in
+	 * milliseconds.
+	 */
+	public static JsonObject toJson() {
+		final JsonObject types = Json.object();
+		for (Map.Entry<String, Series[]> ent : new TreeMap<String, Series[]>(byType).entrySet()) {
+			final JsonObject phases = Json.object();
+			for (Trace.Phase phase : PHASES) {
+				final Series s = ent.getValue()[phase.ordinal()];
+				final long count = s.count.sum();
+				if (count == 0)
+					continue;
+				final JsonArray buckets = new JsonArray();
+				for (LongAdder bucket : s.buckets)
+					buckets.add(bucket.sum());
+				phases.add(phase.getLabel(), Json.object() //
+						.add("count", count) //
+						.add("sum_ms", s.nanos.sum() / 1e6) //
+						.add("p50_ms", s.percentile(0.50) / 1e6) //
+						.add("p90_ms", s.percentile(0.90) / 1e6) //
+						.add("p99_ms", s.percentile(0.99) / 1e6) //
+						.add("max_ms", s.max.get() / 1e6) //
+						.add("allocated_bytes", s.bytes.sum()) //
+						.add("buckets", buckets));
+			}
+			types.add(ent.getKey(), phases);
+		}
+		final JsonArray bounds = new JsonArray();
+		for (double b : BOUNDS)
+			bounds.add(b * 1000);
+		return Json.object().add("bucket_bounds_ms", bounds).add("types", types);
+	}
+
+	private static String escape(String label) {
+		return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	static class Series {
+
+		private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+		private final LongAdder count = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+		private final AtomicLong max = new AtomicLong();
+
+		Series() {
+			for (int i = 0; i < buckets.length; i++)
+				buckets[i] = new LongAdder();
+		}
+
+		void add(long duration, long allocated) {
+			int i = 0;
+			while (i < BOUNDS_NANOS.length && duration > BOUNDS_NANOS[i])
+				i++;
+			buckets[i].increment();
+			count.increment();
+			nanos.add(duration);
+			if (allocated > 0)
+				bytes.add(allocated);
+			long current = max.get();
+			while (duration > current && max.compareAndSet(current, duration) == false)
+				current = max.get();
+		}
+
+		// Upper bound of the bucket holding the requested quantile, capped by the
+		// largest value seen
+		long percentile(double quantile) {
+			final long total = count.sum();
+			if (total == 0)
+				return 0;
+			final long rank = (long) Math.ceil(quantile * total);
+			long cumul = 0;
+			for (int i = 0; i < BOUNDS_NANOS.length; i++) {
+				cumul += buckets[i].sum();
+				if (cumul >= rank)
+					return Math.min(BOUNDS_NANOS[i], max.get());
+			}
+			return max.get();
+		}
+	}
+
+	// Kept apart so that a JVM without com.sun.management only loses this
+	// measure: the extension interface is only reached through reflection
+	static class Allocation {
+
+		private static final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		private static final Method getThreadAllocatedBytes = init();
+
+		private static Method init() {
+			try {
+				final Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+				if (type.isInstance(bean) == false)
+					return null;
+				if (Boolean.TRUE.equals(type.getMethod("isThreadAllocatedMemorySupported").invoke(bean)) == false)
+					return null;
+				return type.getMethod("getThreadAllocatedBytes", long.class);
+			} catch (Exception e) {
+				// Not available on this JVM
+			} catch (LinkageError e) {
+				// Not available on this JVM
+			}
+			return null;
+		}
+
+		static long current() {
+			if (getThreadAllocatedBytes == null)
+				return -1;
+			try {
+				return (Long) getThreadAllocatedBytes.invoke(bean, Thread.currentThread().getId());
+			} catch (Exception e) {
+				return -1;
+			}
+		}
+	}
+
+}
@@ -41,10 +41,13 @@ import java.util.Map;
 import java.util.TreeSet;
 
 import net.sourceforge.plantuml.api.NumberAnalyzed;
+import net.sourceforge.plantuml.klimt.font.StringBounderCache;
+import net.sourceforge.plantuml.regex.MyPattern;
 import net.sourceforge.plantuml.stats.api.Stats;
 import net.sourceforge.plantuml.stats.api.StatsColumn;
 import net.sourceforge.plantuml.stats.api.StatsLine;
 import net.sourceforge.plantuml.stats.api.StatsTable;
+import net.sourceforge.plantuml.utils.BoundedCache;
 
 public class StatsImpl implements Stats {
 
@@ -55,16 +58,18 @@ public class StatsImpl implements Stats {
 
 	private final Map<String, ParsedGenerated> byTypeEver;
 	private final Map<String, ParsedGenerated> byTypeCurrent;
+	private final Map<String, DispatchCounter> byFactoryCurrent;
 
 	private final ParsedGenerated fullEver;
 	private final HistoricalData historicalData;
 
 	StatsImpl(Map<String, ParsedGenerated> byTypeEver, Map<String, ParsedGenerated> byTypeCurrent,
-			FormatCounter formatCounterCurrent, FormatCounter formatCounterEver, HistoricalData historicalData,
-			ParsedGenerated fullEver) {
+			Map<String, DispatchCounter> byFactoryCurrent, FormatCounter formatCounterCurrent,
+			FormatCounter formatCounterEver, HistoricalData historicalData, ParsedGenerated fullEver) {
 		// this.jvmcounting = jvmcounting;
 		this.byTypeEver = byTypeEver;
 		this.byTypeCurrent = byTypeCurrent;
+		this.byFactoryCurrent = byFactoryCurrent;
 		this.formatCounterCurrent = formatCounterCurrent;
 		this.formatCounterEver = formatCounterEver;
 		this.fullEver = fullEver;
@@ -108,6 +113,25 @@ public class StatsImpl implements Stats {
 		return new StatsLineImpl(result);
 	}
 
+	private StatsLine createLineByFactory(String key, NumberAnalyzed tried, NumberAnalyzed skipped) {
+		final Map<StatsColumn, Object> result = new EnumMap<StatsColumn, Object>(StatsColumn.class);
+		result.put(StatsColumn.FACTORY, key);
+		result.put(StatsColumn.SELECTED_COUNT, tried.getNb());
+		result.put(StatsColumn.TRIED_COUNT, tried.getSum());
+		result.put(StatsColumn.SKIPPED_COUNT, skipped.getSum());
+		return new StatsLineImpl(result);
+	}
+
+	private StatsLine createLineByCache(String key, BoundedCache<?, ?> cache) {
+		final Map<StatsColumn, Object> result = new EnumMap<StatsColumn, Object>(StatsColumn.class);
+		result.put(StatsColumn.CACHE, key);
+		result.put(StatsColumn.CACHE_SIZE, (long) cache.size());
+		result.put(StatsColumn.HIT_COUNT, cache.getHits());
+		result.put(StatsColumn.MISS_COUNT, cache.getMisses());
+		result.put(StatsColumn.EVICTION_COUNT, cache.getEvictions());
+		return new StatsLineImpl(result);
+	}
+
 	public StatsTable getLastSessions() {
 		final StatsTableImpl result = new StatsTableImpl("Statistics");
 		for (ParsedGenerated histo : historicalData.getHistorical()) {
@@ -124,6 +148,28 @@ public class StatsImpl implements Stats {
 		return formatCounterCurrent.getStatsTable("current format");
 	}
 
+	public StatsTable getCurrentSessionByFactory() {
+		final StatsTableImpl result = new StatsTableImpl("current factory");
+		final NumberAnalyzed totalTried = new NumberAnalyzed();
+		final NumberAnalyzed totalSkipped = new NumberAnalyzed();
+		for (String key : new TreeSet<>(byFactoryCurrent.keySet())) {
+			final DispatchCounter counter = byFactoryCurrent.get(key);
+			totalTried.add(counter.tried());
+			totalSkipped.add(counter.skipped());
+			result.addLine(createLineByFactory(key, counter.tried(), counter.skipped()));
+		}
+		result.addLine(createLineByFactory("Total", totalTried, totalSkipped));
+		return result;
+	}
+
+	public StatsTable getCurrentSessionByCache() {
+		final StatsTableImpl result = new StatsTableImpl("current cache");
+		result.addLine(createLineByCache("Regex patterns", MyPattern.getCache()));
+		result.addLine(createLineByCache("Text dimensions", StringBounderCache.getDimensions()));
+		result.addLine(createLineByCache("Text descents", StringBounderCache.getDescents()));
+		return result;
+	}
+
 	public StatsTable getAllByFormat() {
 		return formatCounterEver.getStatsTable("all format");
 	}
@@ -66,6 +66,8 @@ public class StatsUtils {
 	static ConcurrentMap<String, ParsedGenerated> byTypeEver = new ConcurrentHashMap<String, ParsedGenerated>();
 	static ConcurrentMap<String, ParsedGenerated> byTypeCurrent = new ConcurrentHashMap<String, ParsedGenerated>();
 
+	static ConcurrentMap<String, DispatchCounter> byFactoryCurrent = new ConcurrentHashMap<String, DispatchCounter>();
+
 	static FormatCounter formatCounterCurrent = new FormatCounter("currentformat.");
 	static FormatCounter formatCounterEver = new FormatCounter("format.");
 
@@ -76,8 +78,8 @@ public class StatsUtils {
 	static boolean realTimeStats = false;
 
 	public static Stats getStats() {
-		return new StatsImpl(byTypeEver, byTypeCurrent, formatCounterCurrent, formatCounterEver, historicalData,
-				fullEver);
+		return new StatsImpl(byTypeEver, byTypeCurrent, byFactoryCurrent, formatCounterCurrent, formatCounterEver,
+				historicalData, fullEver);
 	}
 
 	private final static int VERSION = 14;
@@ -58,6 +58,8 @@ public class StatsUtilsIncrement {
 	final private static ConcurrentMap<String, ParsedGenerated> byTypeEver = StatsUtils.byTypeEver;
 	final private static ConcurrentMap<String, ParsedGenerated> byTypeCurrent = StatsUtils.byTypeCurrent;
 
+	final private static ConcurrentMap<String, DispatchCounter> byFactoryCurrent = StatsUtils.byFactoryCurrent;
+
 	final private static FormatCounter formatCounterCurrent = StatsUtils.formatCounterCurrent;
 	final private static FormatCounter formatCounterEver = StatsUtils.formatCounterEver;
 
@@ -77,6 +79,16 @@ public class StatsUtilsIncrement {
 		realTimeExport();
 	}
 
+	public static void onceMoreDispatch(String factory, int tried, int skipped) {
+		DispatchCounter n = byFactoryCurrent.get(factory);
+		if (n == null) {
+			byFactoryCurrent.putIfAbsent(factory, new DispatchCounter());
+			n = byFactoryCurrent.get(factory);
+		}
+		n.tried().addValue(tried);
+		n.skipped().addValue(skipped);
+	}
+
 	public static void onceMoreGenerate(long duration, Class<? extends Diagram> type, FileFormat fileFormat) {
 		if (StatsUtils.fullEver == null || StatsUtils.historicalData == null) {
 			return;
@@ -85,6 +85,8 @@ public class XmlConverter {
 		addNode(root, document, stats.getLastSessions());
 		addNode(root, document, stats.getCurrentSessionByDiagramType());
 		addNode(root, document, stats.getCurrentSessionByFormat());
+		addNode(root, document, stats.getCurrentSessionByFactory());
+		addNode(root, document, stats.getCurrentSessionByCache());
 		addNode(root, document, stats.getAllByDiagramType());
 		addNode(root, document, stats.getAllByFormat());
 
@@ -150,6 +152,10 @@ public class XmlConverter {
 		printTableHtml(result, stats.getCurrentSessionByDiagramType());
 		result.append("<p>");
 		printTableHtml(result, stats.getCurrentSessionByFormat());
+		result.append("<p>");
+		printTableHtml(result, stats.getCurrentSessionByFactory());
+		result.append("<p>");
+		printTableHtml(result, stats.getCurrentSessionByCache());
 		result.append("<h2>General statistics since ever</h2>");
 		printTableHtml(result, stats.getAllByDiagramType());
 		result.append("<p>");
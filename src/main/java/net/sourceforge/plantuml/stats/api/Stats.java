@@ -43,6 +43,10 @@ public interface Stats {
 
 	public StatsTable getCurrentSessionByFormat();
 
+	public StatsTable getCurrentSessionByFactory();
+
+	public StatsTable getCurrentSessionByCache();
+
 	public StatsTable getAllByDiagramType();
 
 	public StatsTable getAllByFormat();
@@ -41,7 +41,10 @@ public enum StatsColumn {
 	LAST("Last"), DURATION_STRING("Duration"), PARSED_COUNT("# Parsed"), PARSED_MEAN_TIME("Mean parsing\\ntime (ms)"),
 	PARSED_STANDARD_DEVIATION("Standard\\ndeviation (ms)"), PARSED_MAX_TIME("Max parsing\\ntime (ms)"),
 	GENERATED_COUNT("# Generated"), GENERATED_MEAN_TIME("Mean generation\\ntime (ms)"),
-	GENERATED_STANDARD_DEVIATION("Standard\\ndeviation (ms)"), GENERATED_MAX_TIME("Max generation\\ntime (ms)");
+	GENERATED_STANDARD_DEVIATION("Standard\\ndeviation (ms)"), GENERATED_MAX_TIME("Max generation\\ntime (ms)"),
+	FACTORY("Factory"), SELECTED_COUNT("# Selected"), TRIED_COUNT("# Factories\\ntried"),
+	SKIPPED_COUNT("# Factories\\nskipped"), CACHE("Cache"), CACHE_SIZE("Size"), HIT_COUNT("# Hits"),
+	MISS_COUNT("# Misses"), EVICTION_COUNT("# Evictions");
 
 	private final String title;
 
@@ -35,12 +35,17 @@
  */
 package net.sourceforge.plantuml.style;
 
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import net.sourceforge.plantuml.skin.SkinParam;
 import net.sourceforge.plantuml.utils.Log;
@@ -48,37 +53,94 @@ import net.sourceforge.plantuml.utils.Log;
 public class StyleBuilder implements AutomaticCounter {
     // ::remove file when __HAXE__
 
+	// The styles of the skin, shared between diagrams and never modified
+	private final StyleBuilder skin;
+	// Without skin, all the styles. Otherwise, the styles loaded or muted on top of
+	// the skin.
 	private final Map<StyleSignatureBasic, Style> stylesMap = new LinkedHashMap<StyleSignatureBasic, Style>();
 	private final Set<StyleSignatureBasic> printedForLog;
 	private final SkinParam skinParam;
 	private int counter;
+	private boolean shared;
+
+	// Merged styles never change once computed: they are cached until loadInternal
+	// changes this builder, muteStyle returning a new one
+	private volatile StyleIndex index;
+	private final ConcurrentMap<StyleSignatureBasic, Style> merged = new ConcurrentHashMap<>();
+	private final ConcurrentMap<List<Object>, Style> mergedSpecial = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
 
 	public void printMe() {
-		for (Entry<StyleSignatureBasic, Style> ent : stylesMap.entrySet())
+		for (Entry<StyleSignatureBasic, Style> ent : getAllStyles().entrySet())
 			ent.getValue().printMe();
 
 	}
 
-	private StyleBuilder(SkinParam skinParam, Set<StyleSignatureBasic> printedForLog) {
+	private StyleBuilder(SkinParam skinParam, StyleBuilder skin) {
 		this.skinParam = skinParam;
+		this.skin = skin;
 		this.printedForLog = new LinkedHashSet<>();
 	}
 
 	public StyleBuilder(SkinParam skinParam) {
-		this(skinParam, new LinkedHashSet<StyleSignatureBasic>());
+		this(skinParam, (StyleBuilder) null);
+	}
+
+	/**
+	 * Marks this builder as a parsed skin that can be shared between diagrams, and
+	 * so that must not be changed anymore.
+	 */
+	StyleBuilder share() {
+		if (skin != null)
+			throw new IllegalStateException();
+
+		this.shared = true;
+		return this;
+	}
+
+	/**
+	 * Returns a new builder for a diagram, using this shared skin. Changes made on
+	 * the new builder do not copy the styles of the skin.
+	 */
+	StyleBuilder forSkinParam(SkinParam skinParam) {
+		if (shared == false)
+			throw new IllegalStateException();
+
+		final StyleBuilder result = new StyleBuilder(skinParam, this);
+		result.counter = this.counter;
+		return result;
 	}
 
 	public final SkinParam getSkinParam() {
 		return skinParam;
 	}
 
+	private Style getStyle(StyleSignatureBasic signature) {
+		final Style result = stylesMap.get(signature);
+		if (result == null && skin != null)
+			return skin.stylesMap.get(signature);
+
+		return result;
+	}
+
+	private Map<StyleSignatureBasic, Style> getAllStyles() {
+		if (skin == null)
+			return stylesMap;
+
+		// Changed styles keep the position they have in the skin, new ones come last
+		final Map<StyleSignatureBasic, Style> result = new LinkedHashMap<StyleSignatureBasic, Style>(skin.stylesMap);
+		result.putAll(stylesMap);
+		return result;
+	}
+
 	public Style createStyle(String name) {
 		if (name.contains(StyleSignatureBasic.STAR))
 			throw new IllegalArgumentException();
 
 		name = name.toLowerCase();
 		final StyleSignatureBasic signature = new StyleSignatureBasic(name);
-		final Style result = stylesMap.get(signature);
+		final Style result = getStyle(signature);
 		if (result == null)
 			return new Style(signature, new EnumMap<PName, Value>(PName.class));
 
@@ -86,17 +148,15 @@ public class StyleBuilder implements AutomaticCounter {
 	}
 
 	public StyleBuilder muteStyle(Style modifiedStyle) {
-		final Map<StyleSignatureBasic, Style> copy = new LinkedHashMap<StyleSignatureBasic, Style>(stylesMap);
 		final StyleSignatureBasic signature = modifiedStyle.getSignature();
-		final Style orig = copy.get(signature);
-		if (orig == null) {
-			copy.put(signature, modifiedStyle);
-		} else {
-			final Style tmp = orig.mergeWith(modifiedStyle, MergeStrategy.OVERWRITE_EXISTING_VALUE);
-			copy.put(signature, tmp);
-		}
-		final StyleBuilder result = new StyleBuilder(skinParam, this.printedForLog);
-		result.stylesMap.putAll(copy);
+		final Style orig = getStyle(signature);
+		final StyleBuilder result = new StyleBuilder(skinParam, skin);
+		result.stylesMap.putAll(stylesMap);
+		if (orig == null)
+			result.stylesMap.put(signature, modifiedStyle);
+		else
+			result.stylesMap.put(signature, orig.mergeWith(modifiedStyle, MergeStrategy.OVERWRITE_EXISTING_VALUE));
+
 		result.counter = this.counter;
 		return result;
 	}
@@ -104,14 +164,36 @@ public class StyleBuilder implements AutomaticCounter {
 	public void loadInternal(StyleSignatureBasic signature, Style newStyle) {
 		if (signature.isStarred())
 			throw new IllegalArgumentException();
+		if (shared)
+			throw new IllegalStateException();
 
-		final Style orig = this.stylesMap.get(signature);
+		final Style orig = getStyle(signature);
 		if (orig == null) {
 			this.stylesMap.put(signature, newStyle);
 		} else {
 			final Style tmp = orig.mergeWith(newStyle, MergeStrategy.OVERWRITE_EXISTING_VALUE);
 			this.stylesMap.put(signature, tmp);
 		}
+		this.index = null;
+		this.merged.clear();
+		this.mergedSpecial.clear();
+	}
+
+	private StyleIndex getIndex() {
+		StyleIndex result = this.index;
+		if (result == null) {
+			result = new StyleIndex(getAllStyles());
+			this.index = result;
+		}
+		return result;
+	}
+
+	public long getCacheHits() {
+		return hits.sum();
+	}
+
+	public long getCacheMisses() {
+		return misses.sum();
 	}
 
 	public int getNextInt() {
@@ -123,18 +205,31 @@ public class StyleBuilder implements AutomaticCounter {
 		if (added)
 			Log.info("Using style " + signature);
 
-		Style result = null;
-		for (Entry<StyleSignatureBasic, Style> ent : stylesMap.entrySet()) {
-			final StyleSignatureBasic key = ent.getKey();
-			if (key.matchAll(signature) == false)
-				continue;
+		if (skin != null && stylesMap.isEmpty())
+			return skin.getMergedStyleInternal(signature);
 
+		return getMergedStyleInternal(signature);
+	}
+
+	private Style getMergedStyleInternal(StyleSignatureBasic signature) {
+		Style result = merged.get(signature);
+		if (result != null) {
+			hits.increment();
+			return result;
+		}
+		misses.increment();
+
+		final StyleIndex styles = getIndex();
+		for (int position : styles.getMatching(signature)) {
 			if (result == null)
-				result = ent.getValue();
+				result = styles.getStyle(position);
 			else
-				result = result.mergeWith(ent.getValue(), MergeStrategy.OVERWRITE_EXISTING_VALUE);
+				result = result.mergeWith(styles.getStyle(position), MergeStrategy.OVERWRITE_EXISTING_VALUE);
 
 		}
+		if (result != null)
+			merged.put(signature, result);
+
 		return result;
 	}
 
@@ -143,14 +238,25 @@ public class StyleBuilder implements AutomaticCounter {
 		if (added)
 			Log.info("Using style " + signature);
 
-		Style result = null;
-		for (Entry<StyleSignatureBasic, Style> ent : stylesMap.entrySet()) {
-			final StyleSignatureBasic key = ent.getKey();
-			if (key.matchAll(signature) == false)
-				continue;
+		if (skin != null && stylesMap.isEmpty())
+			return skin.getMergedStyleSpecialInternal(signature, deltaPriority);
 
-			Style tmp = ent.getValue();
-			if (key.isStarred())
+		return getMergedStyleSpecialInternal(signature, deltaPriority);
+	}
+
+	private Style getMergedStyleSpecialInternal(StyleSignatureBasic signature, int deltaPriority) {
+		final List<Object> key = Arrays.<Object>asList(signature, deltaPriority);
+		Style result = mergedSpecial.get(key);
+		if (result != null) {
+			hits.increment();
+			return result;
+		}
+		misses.increment();
+
+		final StyleIndex styles = getIndex();
+		for (int position : styles.getMatching(signature)) {
+			Style tmp = styles.getStyle(position);
+			if (styles.getKey(position).isStarred())
 				tmp = tmp.deltaPriority(deltaPriority);
 
 			if (result == null)
@@ -159,6 +265,9 @@ public class StyleBuilder implements AutomaticCounter {
 				result = result.mergeWith(tmp, MergeStrategy.OVERWRITE_EXISTING_VALUE);
 
 		}
+		if (result != null)
+			mergedSpecial.put(key, result);
+
 		return result;
 	}
 
@@ -0,0 +1,154 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.style;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Immutable snapshot of the styles of a {@link StyleBuilder}, indexed by name.
+ * <p>
+ * A style only matches a signature that contains all its names, so each style
+ * is filed under its least frequent name: a lookup only tests the styles filed
+ * under the names of the signature. Star and depth names are never used as
+ * index, since they match without being contained. Matching styles are returned
+ * in declaration order, which is the order used to merge them.
+ */
+class StyleIndex {
+	// ::remove file when __HAXE__
+
+	private final StyleSignatureBasic[] keys;
+	private final Style[] styles;
+	private final Map<String, int[]> byName = new HashMap<String, int[]>();
+	private final int[] unindexed;
+
+	StyleIndex(Map<StyleSignatureBasic, Style> stylesMap) {
+		final int size = stylesMap.size();
+		this.keys = new StyleSignatureBasic[size];
+		this.styles = new Style[size];
+		final Map<String, Integer> frequencies = new HashMap<String, Integer>();
+		int i = 0;
+		for (Entry<StyleSignatureBasic, Style> ent : stylesMap.entrySet()) {
+			keys[i] = ent.getKey();
+			styles[i] = ent.getValue();
+			for (String name : keys[i].getNames()) {
+				final Integer count = frequencies.get(name);
+				frequencies.put(name, count == null ? 1 : count + 1);
+			}
+			i++;
+		}
+
+		final Map<String, List<Integer>> positions = new HashMap<String, List<Integer>>();
+		final List<Integer> others = new ArrayList<Integer>();
+		for (i = 0; i < size; i++) {
+			final String name = getIndexName(keys[i], frequencies);
+			if (name == null) {
+				others.add(i);
+				continue;
+			}
+			List<Integer> list = positions.get(name);
+			if (list == null) {
+				list = new ArrayList<Integer>();
+				positions.put(name, list);
+			}
+			list.add(i);
+		}
+		for (Entry<String, List<Integer>> ent : positions.entrySet())
+			byName.put(ent.getKey(), toArray(ent.getValue()));
+
+		this.unindexed = toArray(others);
+	}
+
+	private static String getIndexName(StyleSignatureBasic key, Map<String, Integer> frequencies) {
+		final boolean starred = key.isStarred();
+		String result = null;
+		for (String name : key.getNames()) {
+			if (name.equals(StyleSignatureBasic.STAR))
+				continue;
+			if (starred && name.startsWith("depth("))
+				continue;
+			if (result == null || frequencies.get(name) < frequencies.get(result))
+				result = name;
+		}
+		return result;
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		final int[] result = new int[list.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = list.get(i);
+		return result;
+	}
+
+	StyleSignatureBasic getKey(int position) {
+		return keys[position];
+	}
+
+	Style getStyle(int position) {
+		return styles[position];
+	}
+
+	/**
+	 * Returns the positions of the styles matching the signature, in declaration
+	 * order.
+	 */
+	int[] getMatching(StyleSignatureBasic signature) {
+		final BitSet candidates = new BitSet(keys.length);
+		for (int position : unindexed)
+			candidates.set(position);
+
+		for (String name : signature.getNames()) {
+			final int[] positions = byName.get(name);
+			if (positions != null)
+				for (int position : positions)
+					candidates.set(position);
+		}
+
+		final int[] result = new int[candidates.cardinality()];
+		int count = 0;
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1))
+			if (keys[i].matchAll(signature))
+				result[count++] = i;
+
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+}
@@ -47,12 +47,16 @@ import net.sourceforge.plantuml.skin.SkinParam;
 import net.sourceforge.plantuml.style.parser.StyleParser;
 import net.sourceforge.plantuml.style.parser.StyleParsingException;
 import net.sourceforge.plantuml.utils.BlocLines;
+import net.sourceforge.plantuml.utils.BoundedCache;
 import net.sourceforge.plantuml.utils.LineLocationImpl;
 import net.sourceforge.plantuml.utils.Log;
 
 public class StyleLoader {
     // ::remove file when __HAXE__
 
+	// Parsed skins, shared between diagrams. Local files are keyed by date and size.
+	private static final BoundedCache<String, StyleBuilder> SKINS = new BoundedCache<String, StyleBuilder>(64);
+
 	private final SkinParam skinParam;
 
 	public StyleLoader(SkinParam skinParam) {
@@ -62,7 +66,38 @@ public class StyleLoader {
 	private StyleBuilder styleBuilder;
 
 	public StyleBuilder loadSkin(String filename) throws IOException, StyleParsingException {
-		this.styleBuilder = new StyleBuilder(skinParam);
+		final String key = getCacheKey(filename);
+		StyleBuilder skin = SKINS.get(key);
+		if (skin == null) {
+			skin = parseSkin(filename).share();
+			SKINS.put(key, skin);
+		}
+		return skin.forSkinParam(skinParam);
+	}
+
+	private static String getCacheKey(String filename) {
+		// ::uncomment when __CORE__
+//		return filename;
+		// ::done
+
+		// ::comment when __CORE__
+		SFile localFile = new SFile(filename);
+		try {
+			if (localFile.exists() == false)
+				localFile = FileSystem.getInstance().getFile(filename);
+		} catch (IOException e) {
+			return filename;
+		}
+		if (localFile.exists() == false)
+			return filename;
+
+		return filename + " " + localFile.getAbsolutePath() + " " + localFile.lastModified() + " "
+				+ localFile.length();
+		// ::done
+	}
+
+	private StyleBuilder parseSkin(String filename) throws IOException, StyleParsingException {
+		this.styleBuilder = new StyleBuilder(null);
 
 		final InputStream internalIs = getInputStreamForStyle(filename);
 		if (internalIs == null) {
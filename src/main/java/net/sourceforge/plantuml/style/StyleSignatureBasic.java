@@ -54,6 +54,7 @@ public class StyleSignatureBasic implements StyleSignature {
 	public static final String STAR = "*";
 	private final Set<String> names = new LinkedHashSet<>();
 	private final boolean withDot;
+	private int hash;
 
 	public StyleSignatureBasic(String s) {
 		if (s.contains(STAR) || s.contains("&") || s.contains("-"))
@@ -136,7 +137,10 @@ public class StyleSignatureBasic implements StyleSignature {
 
 	@Override
 	public int hashCode() {
-		return names.hashCode();
+		// names never change after construction, and signatures are cache keys
+		if (hash == 0)
+			hash = names.hashCode();
+		return hash;
 	}
 
 	@Override
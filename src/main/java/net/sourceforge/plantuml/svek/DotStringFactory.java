@@ -45,13 +45,14 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import net.sourceforge.plantuml.StringUtils;
 import net.sourceforge.plantuml.dot.DotSplines;
 import net.sourceforge.plantuml.dot.Graphviz;
 import net.sourceforge.plantuml.dot.GraphvizRuntimeEnvironment;
 import net.sourceforge.plantuml.dot.GraphvizUtils;
 import net.sourceforge.plantuml.dot.GraphvizVersion;
 import net.sourceforge.plantuml.dot.ProcessState;
+import net.sourceforge.plantuml.dot.UnparsableGraphvizException;
+import net.sourceforge.plantuml.json.Json;
 import net.sourceforge.plantuml.klimt.font.StringBounder;
 import net.sourceforge.plantuml.klimt.geom.Moveable;
 import net.sourceforge.plantuml.klimt.geom.Rankdir;
@@ -60,6 +61,8 @@ import net.sourceforge.plantuml.security.SFile;
 import net.sourceforge.plantuml.skin.PragmaKey;
 import net.sourceforge.plantuml.skin.UmlDiagramType;
 import net.sourceforge.plantuml.style.ISkinParam;
+import net.sourceforge.plantuml.text.BackSlash;
+import net.sourceforge.plantuml.utils.Log;
 import net.sourceforge.plantuml.utils.Position;
 import net.sourceforge.plantuml.vizjs.GraphvizJs;
 import net.sourceforge.plantuml.vizjs.GraphvizJsRuntimeException;
@@ -317,6 +320,126 @@ public final class DotStringFactory implements Moveable {
 		return s;
 	}
 
+	private boolean useJsonOutput() {
+		final String value = root.diagram.getPragma().getValue(PragmaKey.GRAPHVIZ_OUTPUT);
+		return "json".equalsIgnoreCase(value) && getGraphvizVersion().supportsJsonOutput();
+	}
+
+	/**
+	 * Lays the graph out with <code>dot -Tjson</code> when
+	 * <code>!pragma graphviz_output json</code> is set, and reads the positions
+	 * straight from the json objects.
+	 * 
+	 * @return <code>false</code> when the json output is not requested or cannot
+	 *         be read: {@link #getSvg} and {@link #solve(String)} must be used
+	 *         instead.
+	 */
+	public boolean solveFromJson(StringBounder stringBounder, DotMode dotMode, BaseFile basefile,
+			String[] dotOptions) throws IOException {
+		if (useJsonOutput() == false)
+			return false;
+
+		final String dotString = createDotString(stringBounder, dotMode, dotOptions);
+		if (basefile != null) {
+			final SFile f = basefile.getTraceFile("svek.dot");
+			SvekUtils.traceString(f, dotString);
+		}
+
+		final Graphviz graphviz = GraphvizRuntimeEnvironment.getInstance().create(skinParam, dotString, "json");
+		if (graphviz instanceof GraphvizJs)
+			return false;
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final ProcessState state = graphviz.createFile3(baos);
+		baos.close();
+		if (state.differs(ProcessState.TERMINATED_OK()))
+			throw new IllegalStateException("Timeout4 " + state, state.getCause());
+
+		final String json = new String(baos.toByteArray(), UTF_8);
+		if (basefile != null) {
+			final SFile f = basefile.getTraceFile("svek.json");
+			SvekUtils.traceString(f, json);
+		}
+
+		final GraphvizJsonLayout layout;
+		try {
+			layout = new GraphvizJsonLayout(Json.parse(json).asObject());
+		} catch (RuntimeException e) {
+			// Older or unusual Graphviz output: use the SVG path instead
+			Log.info("Cannot read Graphviz json output: " + e);
+			return false;
+		}
+		try {
+			solve(layout);
+		} catch (RuntimeException e) {
+			Log.error("Exception " + e);
+			throw new UnparsableGraphvizException(e, null, json,
+					root.diagram.getSource().getPlainString(BackSlash.lineSeparator()));
+		}
+		return true;
+	}
+
+	private void solve(GraphvizJsonLayout layout) {
+		for (SvekNode node : getBibliotekon().allNodes()) {
+			final String uid = node.getUid();
+			if (node.getType() == ShapeType.RECTANGLE || node.getType() == ShapeType.RECTANGLE_HTML_FOR_PORTS
+					|| node.getType() == ShapeType.RECTANGLE_WITH_CIRCLE_INSIDE || node.getType() == ShapeType.FOLDER
+					|| node.getType() == ShapeType.DIAMOND || node.getType() == ShapeType.RECTANGLE_PORT) {
+				final XPoint2D min = SvekUtils.getMinXY(layout.getNodePoints(uid).get(0));
+				node.moveDelta(min.getX(), min.getY());
+			} else if (node.getType() == ShapeType.ROUND_RECTANGLE) {
+				List<XPoint2D> points = layout.getNodeBezier(uid);
+				if (points == null) {
+					final List<List<XPoint2D>> all = layout.getNodePoints(uid);
+					points = new ArrayList<>();
+					for (int i = 0; i < 4 && i < all.size(); i++)
+						points.addAll(all.get(i));
+				}
+				final XPoint2D min = SvekUtils.getMinXY(points);
+				node.moveDelta(min.getX(), min.getY());
+			} else if (node.getType() == ShapeType.OCTAGON || node.getType() == ShapeType.HEXAGON) {
+				final List<XPoint2D> points = layout.getNodePoints(uid).get(0);
+				final XPoint2D min = SvekUtils.getMinXY(points);
+				node.moveDelta(min.getX(), min.getY());
+				node.setPolygon(min.getX(), min.getY(), points);
+			} else if (node.getType() == ShapeType.CIRCLE || node.getType() == ShapeType.OVAL) {
+				final double ellipse[] = layout.getNodeEllipse(uid);
+				node.moveDelta(ellipse[0] - ellipse[2], ellipse[1] - ellipse[3]);
+			} else {
+				throw new IllegalStateException(node.getType().toString() + " " + uid);
+			}
+		}
+
+		for (Cluster cluster : getBibliotekon().allCluster()) {
+			if (cluster.getGroup().isPacked())
+				continue;
+
+			final List<XPoint2D> points = layout.getClusterPoints(cluster.getClusterId());
+			cluster.setPosition(SvekUtils.getMinXY(points), SvekUtils.getMaxXY(points));
+
+			if (cluster.getTitleAndAttributeWidth() == 0 || cluster.getTitleAndAttributeHeight() == 0)
+				continue;
+
+			cluster.setTitlePosition(SvekUtils.getMinXY(layout.getClusterLabelPoints(cluster.getTitleColor())));
+
+			if (root.diagram.getPragma().isTrue(PragmaKey.KERMOR)) {
+				if (cluster.getGroup().getNotes(Position.TOP).size() > 0)
+					cluster.setNoteTopPosition(
+							SvekUtils.getMinXY(layout.getClusterLabelPoints(cluster.getColorNoteTop())));
+				if (cluster.getGroup().getNotes(Position.BOTTOM).size() > 0)
+					cluster.setNoteBottomPosition(
+							SvekUtils.getMinXY(layout.getClusterLabelPoints(cluster.getColorNoteBottom())));
+			}
+		}
+
+		for (SvekEdge line : getBibliotekon().allLines())
+			line.solveLine(layout);
+
+		for (SvekEdge line : getBibliotekon().allLines())
+			line.manageCollision(getBibliotekon().allNodes());
+
+	}
+
 	public boolean illegalDotExe() {
 		final Graphviz graphviz = GraphvizRuntimeEnvironment.getInstance().create(skinParam, "svg");
 		if (graphviz instanceof GraphvizJs)
@@ -345,7 +468,7 @@ public final class DotStringFactory implements Moveable {
 		final Point2DFunction move = new YDelta(fullHeight);
 		final SvgResult svgResult = new SvgResult(svg, move);
 		for (SvekNode node : getBibliotekon().allNodes()) {
-			int idx = svg.indexOf("<title>" + node.getUid() + "</title>");
+			int idx = svgResult.getTitleIndex(node.getUid());
 			if (node.getType() == ShapeType.RECTANGLE || node.getType() == ShapeType.RECTANGLE_HTML_FOR_PORTS
 					|| node.getType() == ShapeType.RECTANGLE_WITH_CIRCLE_INSIDE || node.getType() == ShapeType.FOLDER
 					|| node.getType() == ShapeType.DIAMOND || node.getType() == ShapeType.RECTANGLE_PORT) {
@@ -391,7 +514,7 @@ public final class DotStringFactory implements Moveable {
 			if (cluster.getGroup().isPacked())
 				continue;
 
-			int idx = getClusterIndex(svg, cluster.getColor());
+			int idx = svgResult.getClusterIndex(cluster.getColor());
 			final int starting = idx;
 			final List<XPoint2D> points = svgResult.substring(starting).extractList(SvgResult.POINTS_EQUALS);
 			final XPoint2D min = SvekUtils.getMinXY(points);
@@ -401,19 +524,20 @@ public final class DotStringFactory implements Moveable {
 			if (cluster.getTitleAndAttributeWidth() == 0 || cluster.getTitleAndAttributeHeight() == 0)
 				continue;
 
-			idx = getClusterIndex(svg, cluster.getTitleColor());
+			idx = svgResult.getClusterIndex(cluster.getTitleColor());
 			final List<XPoint2D> pointsTitle = svgResult.substring(idx).extractList(SvgResult.POINTS_EQUALS);
 			cluster.setTitlePosition(SvekUtils.getMinXY(pointsTitle));
 
 			if (root.diagram.getPragma().isTrue(PragmaKey.KERMOR)) {
 				if (cluster.getGroup().getNotes(Position.TOP).size() > 0) {
-					final List<XPoint2D> noteUp = svgResult.substring(getClusterIndex(svg, cluster.getColorNoteTop()))
+					final List<XPoint2D> noteUp = svgResult
+							.substring(svgResult.getClusterIndex(cluster.getColorNoteTop()))
 							.extractList(SvgResult.POINTS_EQUALS);
 					cluster.setNoteTopPosition(SvekUtils.getMinXY(noteUp));
 				}
 				if (cluster.getGroup().getNotes(Position.BOTTOM).size() > 0) {
 					final List<XPoint2D> noteBottom = svgResult
-							.substring(getClusterIndex(svg, cluster.getColorNoteBottom()))
+							.substring(svgResult.getClusterIndex(cluster.getColorNoteBottom()))
 							.extractList(SvgResult.POINTS_EQUALS);
 					cluster.setNoteBottomPosition(SvekUtils.getMinXY(noteBottom));
 				}
@@ -428,19 +552,6 @@ public final class DotStringFactory implements Moveable {
 
 	}
 
-	private int getClusterIndex(final String svg, int colorInt) {
-		final String colorString = StringUtils.goLowerCase(StringUtils.sharp000000(colorInt));
-		final String keyTitle1 = "=\"" + colorString + "\"";
-		int idx = svg.indexOf(keyTitle1);
-		if (idx == -1) {
-			final String keyTitle2 = "stroke:" + colorString + ";";
-			idx = svg.indexOf(keyTitle2);
-		}
-		if (idx == -1)
-			throw new IllegalStateException("Cannot find color " + colorString);
-
-		return idx;
-	}
 	// ::done
 
 	public void moveDelta(double deltaX, double deltaY) {
@@ -271,6 +271,17 @@ public final class GraphvizImageBuilder {
 						|| SecurityUtils.getSecurityProfile() == SecurityProfile.SANDBOX))
 			basefile = new BaseFile(null);
 
+		try {
+			if (dotStringFactory.solveFromJson(stringBounder, dotMode, basefile, dotStrings)) {
+				final SvekResult result = new SvekResult(dotData, dotStringFactory);
+				this.maxX = dotStringFactory.getBibliotekon().getMaxX();
+				return result;
+			}
+		} catch (IOException e) {
+			return GraphvizCrash.build(source.getPlainString(BackSlash.lineSeparator()),
+					GraphvizRuntimeEnvironment.getInstance().graphviz244onWindows(), e);
+		}
+
 		final String svg;
 		try {
 			svg = dotStringFactory.getSvg(stringBounder, dotMode, basefile, dotStrings);
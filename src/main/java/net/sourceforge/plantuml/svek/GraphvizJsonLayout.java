@@ -0,0 +1,383 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.svek;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import net.sourceforge.plantuml.StringUtils;
+import net.sourceforge.plantuml.json.JsonArray;
+import net.sourceforge.plantuml.json.JsonObject;
+import net.sourceforge.plantuml.json.JsonValue;
+import net.sourceforge.plantuml.klimt.geom.XCubicCurve2D;
+import net.sourceforge.plantuml.klimt.geom.XPoint2D;
+import net.sourceforge.plantuml.klimt.shape.DotPath;
+
+/**
+ * Reads the <code>dot -Tjson</code> output of a svek graph.
+ * <p>
+ * Nodes and clusters are found in <code>objects[]</code> by their
+ * <code>name</code>, edges in <code>edges[]</code> by the <code>id</code>
+ * attribute written by {@link SvekEdge#appendLine}. Positions come from the
+ * drawing operations (<code>_draw_</code>, <code>_ldraw_</code>...) and from
+ * the cluster <code>bb</code>, using the same coordinates as
+ * {@link DotStringFactory#solve(String)} gets from the SVG output.
+ */
+class GraphvizJsonLayout {
+	// ::remove file when __CORE__
+
+	private static final double PAD = 4;
+
+	private static final String[] NODE_DRAW = { "_draw_", "_ldraw_" };
+	private static final String[] EDGE_DRAW = { "_draw_", "_tdraw_", "_hdraw_", "_ldraw_", "_hldraw_", "_tldraw_" };
+	private static final String[] LABEL_DRAW = { "_ldraw_", "_hldraw_", "_tldraw_" };
+
+	private final int fullHeight;
+	private final List<JsonObject> subgraphs = new ArrayList<>();
+	private final Map<String, JsonObject> objects = new HashMap<>();
+	private final Map<String, JsonObject> edges = new HashMap<>();
+
+	GraphvizJsonLayout(JsonObject graph) {
+		final double bb[] = getBoundingBox(graph);
+		this.fullHeight = (int) Math.round(bb[3] - bb[1] + 2 * PAD);
+
+		final JsonValue allObjects = graph.get("objects");
+		final int subgraphCount = getInt(graph, "_subgraph_cnt");
+		if (allObjects != null) {
+			final JsonArray all = allObjects.asArray();
+			for (int i = 0; i < all.size(); i++) {
+				final JsonObject object = all.get(i).asObject();
+				if (i < subgraphCount)
+					subgraphs.add(object);
+				objects.put(getString(object, "name"), object);
+			}
+		}
+
+		final JsonValue allEdges = graph.get("edges");
+		if (allEdges != null)
+			for (JsonValue value : allEdges.asArray()) {
+				final JsonObject edge = value.asObject();
+				final String id = getString(edge, "id");
+				if (id != null)
+					edges.put(id, edge);
+			}
+	}
+
+	int getFullHeight() {
+		return fullHeight;
+	}
+
+	/**
+	 * Point lists of the polygons and polylines drawn for a node, shape first and
+	 * then HTML label, as SVG <code>points=</code> would list them.
+	 */
+	List<List<XPoint2D>> getNodePoints(String uid) {
+		return getPointLists(getNode(uid), NODE_DRAW, false);
+	}
+
+	/**
+	 * Points of the node first bezier, when it is drawn before any polygon
+	 * (rounded rectangles since Graphviz 2.30), or <code>null</code>.
+	 */
+	List<XPoint2D> getNodeBezier(String uid) {
+		final JsonObject node = getNode(uid);
+		for (String key : NODE_DRAW)
+			for (JsonObject op : getOps(node, key)) {
+				final String name = getString(op, "op");
+				if (isBezier(name))
+					return getPoints(op.get("points").asArray(), false);
+				if (isPolygon(name) || isPolyline(name))
+					return null;
+			}
+		return null;
+	}
+
+	/**
+	 * Center and radii of the first ellipse drawn for a node.
+	 */
+	double[] getNodeEllipse(String uid) {
+		final JsonObject node = getNode(uid);
+		for (String key : NODE_DRAW)
+			for (JsonObject op : getOps(node, key))
+				if (isEllipse(getString(op, "op"))) {
+					final JsonArray rect = op.get("rect").asArray();
+					return new double[] { rect.get(0).asDouble(), fullHeight - rect.get(1).asDouble(),
+							rect.get(2).asDouble(), rect.get(3).asDouble() };
+				}
+		throw new IllegalStateException("No ellipse for " + uid);
+	}
+
+	/**
+	 * Corners of a cluster, from its bounding box.
+	 */
+	List<XPoint2D> getClusterPoints(String clusterId) {
+		final JsonObject cluster = objects.get(clusterId);
+		if (cluster == null)
+			throw new IllegalStateException("Cannot find " + clusterId);
+
+		final double bb[] = getBoundingBox(cluster);
+		final List<XPoint2D> result = new ArrayList<>();
+		result.add(new XPoint2D(bb[0], fullHeight - bb[3]));
+		result.add(new XPoint2D(bb[2], fullHeight - bb[1]));
+		return result;
+	}
+
+	/**
+	 * Points of the HTML table filled with this color in a cluster label: cluster
+	 * titles and notes.
+	 */
+	List<XPoint2D> getClusterLabelPoints(int color) {
+		for (JsonObject subgraph : subgraphs) {
+			final List<XPoint2D> result = getFilledPolygon(subgraph, LABEL_DRAW, color);
+			if (result != null)
+				return result;
+		}
+		throw new IllegalStateException("Cannot find color " + toColorString(color));
+	}
+
+	/**
+	 * The edge path, from the first bezier of its <code>_draw_</code>, or
+	 * <code>null</code> when Graphviz did not route it.
+	 */
+	DotPath getEdgePath(String id) {
+		final JsonObject edge = edges.get(id);
+		if (edge == null)
+			return null;
+
+		for (JsonObject op : getOps(edge, "_draw_"))
+			if (isBezier(getString(op, "op"))) {
+				final List<XPoint2D> points = getPoints(op.get("points").asArray(), false);
+				if (points.size() < 4)
+					return null;
+				final List<XCubicCurve2D> beziers = new ArrayList<>();
+				XPoint2D start = points.get(0);
+				for (int i = 1; i + 2 < points.size(); i += 3) {
+					final XPoint2D p1 = points.get(i);
+					final XPoint2D p2 = points.get(i + 1);
+					final XPoint2D p = points.get(i + 2);
+					beziers.add(new XCubicCurve2D(start.getX(), start.getY(), p1.getX(), p1.getY(), p2.getX(),
+							p2.getY(), p.getX(), p.getY()));
+					start = p;
+				}
+				return DotPath.fromBeziers(beziers);
+			}
+		return null;
+	}
+
+	/**
+	 * Polygons and polylines drawn after the edge path: arrow heads first, then
+	 * labels.
+	 */
+	PointListIterator getEdgePoints(String id) {
+		final List<List<XPoint2D>> result = getPointLists(edges.get(id), EDGE_DRAW, true);
+		return new JsonPointListIterator(result, 0);
+	}
+
+	/**
+	 * Top left corner of the HTML table filled with this color in an edge label,
+	 * or <code>null</code>.
+	 */
+	XPoint2D getEdgeLabelPosition(String id, int color) {
+		final List<XPoint2D> points = getFilledPolygon(edges.get(id), LABEL_DRAW, color);
+		if (points == null)
+			return null;
+		return SvekUtils.getMinXY(points);
+	}
+
+	private JsonObject getNode(String uid) {
+		final JsonObject result = objects.get(uid);
+		if (result == null)
+			throw new IllegalStateException("Cannot find " + uid);
+		return result;
+	}
+
+	private List<List<XPoint2D>> getPointLists(JsonObject object, String[] keys, boolean afterPath) {
+		final List<List<XPoint2D>> result = new ArrayList<>();
+		boolean pathSeen = afterPath == false;
+		for (String key : keys)
+			for (JsonObject op : getOps(object, key)) {
+				final String name = getString(op, "op");
+				if (pathSeen == false) {
+					pathSeen = isBezier(name);
+					continue;
+				}
+				if (isPolygon(name))
+					result.add(getPoints(op.get("points").asArray(), true));
+				else if (isPolyline(name))
+					result.add(getPoints(op.get("points").asArray(), false));
+			}
+		return result;
+	}
+
+	private List<XPoint2D> getFilledPolygon(JsonObject object, String[] keys, int color) {
+		if (object == null)
+			return null;
+
+		final String searched = toColorString(color);
+		for (String key : keys) {
+			boolean found = false;
+			for (JsonObject op : getOps(object, key)) {
+				final String name = getString(op, "op");
+				if ("C".equals(name))
+					found = searched.equals(getColor(op));
+				else if (found && isPolygon(name))
+					return getPoints(op.get("points").asArray(), true);
+			}
+		}
+		return null;
+	}
+
+	private List<XPoint2D> getPoints(JsonArray points, boolean closed) {
+		final List<XPoint2D> result = new ArrayList<>();
+		for (JsonValue value : points) {
+			final JsonArray point = value.asArray();
+			result.add(new XPoint2D(point.get(0).asDouble(), fullHeight - point.get(1).asDouble()));
+		}
+		// Like the SVG output, polygons are closed by repeating their first point
+		if (closed && result.size() > 0)
+			result.add(result.get(0));
+
+		return result;
+	}
+
+	private static List<JsonObject> getOps(JsonObject object, String key) {
+		final JsonValue ops = object == null ? null : object.get(key);
+		if (ops == null || ops.isArray() == false)
+			return Collections.emptyList();
+
+		final List<JsonObject> result = new ArrayList<>();
+		for (JsonValue value : ops.asArray())
+			result.add(value.asObject());
+		return result;
+	}
+
+	private static boolean isPolygon(String op) {
+		return "p".equals(op) || "P".equals(op);
+	}
+
+	private static boolean isPolyline(String op) {
+		return "L".equals(op);
+	}
+
+	private static boolean isBezier(String op) {
+		return "b".equals(op) || "B".equals(op);
+	}
+
+	private static boolean isEllipse(String op) {
+		return "e".equals(op) || "E".equals(op);
+	}
+
+	private static String toColorString(int color) {
+		return StringUtils.goLowerCase(StringUtils.sharp000000(color));
+	}
+
+	private static String getColor(JsonObject op) {
+		final String color = getString(op, "color");
+		if (color == null)
+			return "none";
+
+		// #rrggbbaa is written by Graphviz as #rrggbb plus an opacity
+		if (color.length() == 9 && color.charAt(0) == '#')
+			return color.substring(0, 7).toLowerCase(Locale.US);
+
+		return color.toLowerCase(Locale.US);
+	}
+
+	private static double[] getBoundingBox(JsonObject object) {
+		final double result[] = new double[4];
+		final String bb = getString(object, "bb");
+		if (bb == null)
+			return result;
+
+		final String values[] = bb.split(",");
+		for (int i = 0; i < values.length && i < result.length; i++)
+			result[i] = Double.parseDouble(values[i].trim());
+
+		return result;
+	}
+
+	private static String getString(JsonObject object, String name) {
+		final JsonValue value = object.get(name);
+		if (value == null || value.isString() == false)
+			return null;
+		return value.asString();
+	}
+
+	private static int getInt(JsonObject object, String name) {
+		final JsonValue value = object.get(name);
+		if (value == null || value.isNumber() == false)
+			return 0;
+		return value.asInt();
+	}
+
+	static class JsonPointListIterator implements PointListIterator {
+
+		private final List<List<XPoint2D>> all;
+		private int pos;
+
+		JsonPointListIterator(List<List<XPoint2D>> all, int pos) {
+			this.all = all;
+			this.pos = pos;
+		}
+
+		public PointListIterator cloneMe() {
+			return new JsonPointListIterator(all, pos);
+		}
+
+		// Same contract as PointListIteratorImpl: an empty list marks the end
+		public boolean hasNext() {
+			return pos != -1;
+		}
+
+		public List<XPoint2D> next() {
+			if (pos == -1 || pos >= all.size()) {
+				pos = -1;
+				return Collections.emptyList();
+			}
+			return all.get(pos++);
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
@@ -438,6 +438,9 @@ public class SvekEdge extends XAbstractEdge implements XEdge, UDrawable {
 		if (link.getSametail() != null)
 			sb.append(",sametail=" + link.getSametail());
 
+		if ("json".equalsIgnoreCase(pragma.getValue(PragmaKey.GRAPHVIZ_OUTPUT)))
+			sb.append(",id=\"" + getJsonId() + "\"");
+
 		sb.append("];");
 		SvekUtils.println(sb);
 	}
@@ -594,7 +597,39 @@ public class SvekEdge extends XAbstractEdge implements XEdge, UDrawable {
 		if (path.isPathConsistent() == false)
 			return;
 
-		dotPath = path.toDotPath();
+		// Arrow heads are only read back from the SVG by the legacy strategies
+		final PointListIterator arrowPoints = getLinkStrategy() == LinkStrategy.SIMPLIER ? null
+				: fullSvg.substring(end).getPointsWithThisColor(lineColor);
+		final boolean hasLabel = hasNoteLabelText() || link.getLinkConstraint() != null;
+		solveLine(path.toDotPath(), arrowPoints,
+				hasLabel ? getXY(fullSvg, this.noteLabelColor) : null,
+				startTailText == null ? null : getXY(fullSvg, this.startTailColor),
+				endHeadText == null ? null : getXY(fullSvg, this.endHeadColor));
+	}
+
+	// ::comment when __CORE__
+	void solveLine(GraphvizJsonLayout layout) {
+		if (this.link.isInvis())
+			return;
+
+		final String id = getJsonId();
+		final DotPath path = layout.getEdgePath(id);
+		if (path == null)
+			return;
+
+		solveLine(path, layout.getEdgePoints(id), layout.getEdgeLabelPosition(id, this.noteLabelColor),
+				layout.getEdgeLabelPosition(id, this.startTailColor),
+				layout.getEdgeLabelPosition(id, this.endHeadColor));
+	}
+
+	String getJsonId() {
+		return "lnk" + lineColor;
+	}
+	// ::done
+
+	private void solveLine(DotPath path, PointListIterator arrowPoints, XPoint2D labelPos, XPoint2D startTailPos,
+			XPoint2D endHeadPos) {
+		dotPath = path;
 
 		final XPoint2D tmpStartPoint = dotPath.getStartPoint();
 		final XPoint2D tmpEndPoint = dotPath.getEndPoint();
@@ -631,7 +666,6 @@ public class SvekEdge extends XAbstractEdge implements XEdge, UDrawable {
 		dotPath = dotPath.simulateCompound(lhead == null ? null : lhead.getRectangleArea(),
 				ltail == null ? null : ltail.getRectangleArea());
 
-		final SvgResult lineSvg = fullSvg.substring(end);
 		PointListIterator pointListIterator = null;
 
 		final LinkType linkType = link.getType();
@@ -644,7 +678,7 @@ public class SvekEdge extends XAbstractEdge implements XEdge, UDrawable {
 					linkType.getDecor1().getExtremityFactoryComplete(backgroundColor), dotPath.getEndAngle(), lhead,
 					svekNode2, false, kal2);
 		} else {
-			pointListIterator = lineSvg.getPointsWithThisColor(lineColor);
+			pointListIterator = arrowPoints.cloneMe();
 			if (link.getLength() == 1 && isThereTwo(linkType) && count(pointListIterator.cloneMe()) == 2) {
 				// Sorry, this is ugly because of
 				// https://github.com/plantuml/plantuml/issues/1353
@@ -688,7 +722,7 @@ public class SvekEdge extends XAbstractEdge implements XEdge, UDrawable {
 				final double dist2start = p2.distance(dotPath.getStartPoint());
 				final double dist2end = p2.distance(dotPath.getEndPoint());
 				if (dist1start > dist1end && dist2end > dist2start) {
-					pointListIterator = lineSvg.getPointsWithThisColor(lineColor);
+					pointListIterator = arrowPoints.cloneMe();
 					this.extremity2 = getExtremity(dotPath.getEndPoint(), linkType.getDecor1(), pointListIterator,
 							dotPath.getEndAngle(), lhead, svekNode2);
 					this.extremity1 = getExtremity(dotPath.getStartPoint(), linkType.getDecor2(), pointListIterator,
@@ -699,7 +733,7 @@ public class SvekEdge extends XAbstractEdge implements XEdge, UDrawable {
 		}
 
 		if (hasNoteLabelText() || link.getLinkConstraint() != null) {
-			final XPoint2D pos = getXY(fullSvg, this.noteLabelColor);
+			final XPoint2D pos = labelPos;
 			if (pos != null) {
 //				corner1.manage(pos);
 				this.labelXY = hasNoteLabelText() ? TextBlockUtils.asPositionable(labelText, stringBounder, pos)
@@ -708,7 +742,7 @@ public class SvekEdge extends XAbstractEdge implements XEdge, UDrawable {
 		}
 
 		if (this.startTailText != null) {
-			final XPoint2D pos = getXY(fullSvg, this.startTailColor);
+			final XPoint2D pos = startTailPos;
 			if (pos != null) {
 //				corner1.manage(pos);
 				this.startTailLabelXY = TextBlockUtils.asPositionable(startTailText, stringBounder, pos);
@@ -716,7 +750,7 @@ public class SvekEdge extends XAbstractEdge implements XEdge, UDrawable {
 		}
 
 		if (this.endHeadText != null) {
-			final XPoint2D pos = getXY(fullSvg, this.endHeadColor);
+			final XPoint2D pos = endHeadPos;
 			if (pos != null) {
 //				corner1.manage(pos);
 				this.endHeadLabelXY = TextBlockUtils.asPositionable(endHeadText, stringBounder, pos);
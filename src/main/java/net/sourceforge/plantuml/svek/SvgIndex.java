@@ -0,0 +1,177 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.svek;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Positions of node titles and colors in the SVG produced by Graphviz, built in
+ * a single pass on first use so that nodes, clusters and edges are located without scanning
+ * the whole document again for each of them.
+ * <p>
+ * Every lookup returns the same position as the corresponding
+ * <code>String.indexOf</code> call on the original document.
+ */
+class SvgIndex {
+
+	enum ColorKey {
+		/** <code>stroke="#rrggbb"</code> */
+		STROKE_ATTRIBUTE("stroke=\"", '"'),
+		/** <code>;stroke:#rrggbb;</code> */
+		STROKE_STYLE(";stroke:", ';'),
+		/** <code>fill="#rrggbb"</code> */
+		FILL_ATTRIBUTE("fill=\"", '"'),
+		/** <code>="#rrggbb"</code> */
+		ANY_ATTRIBUTE("=\"", '"'),
+		/** <code>stroke:#rrggbb;</code> */
+		STROKE("stroke:", ';');
+
+		private final String prefix;
+		private final char suffix;
+
+		private ColorKey(String prefix, char suffix) {
+			this.prefix = prefix;
+			this.suffix = suffix;
+		}
+
+		int length() {
+			return prefix.length() + COLOR_LENGTH + 1;
+		}
+
+	}
+
+	private static final int COLOR_LENGTH = "#000000".length();
+	private static final String TITLE_START = "<title>";
+	private static final String TITLE_END = "</title>";
+
+	private final Map<String, Integer> titles = new HashMap<String, Integer>();
+	private final Map<ColorKey, Map<String, List<Integer>>> colors = new EnumMap<ColorKey, Map<String, List<Integer>>>(
+			ColorKey.class);
+
+	private final String svg;
+	private boolean built;
+
+	SvgIndex(String svg) {
+		this.svg = svg;
+	}
+
+	private void build() {
+		if (built)
+			return;
+		built = true;
+		for (ColorKey key : ColorKey.values())
+			colors.put(key, new HashMap<String, List<Integer>>());
+
+		for (int i = svg.indexOf(TITLE_START); i != -1; i = svg.indexOf(TITLE_START, i + 1)) {
+			final int end = svg.indexOf(TITLE_END, i + TITLE_START.length());
+			if (end == -1)
+				break;
+			final String title = svg.substring(i + TITLE_START.length(), end);
+			if (titles.containsKey(title) == false)
+				titles.put(title, i);
+		}
+
+		for (int i = svg.indexOf('#'); i != -1; i = svg.indexOf('#', i + 1)) {
+			if (i + COLOR_LENGTH >= svg.length())
+				break;
+			final char next = svg.charAt(i + COLOR_LENGTH);
+			if (next != '"' && next != ';')
+				continue;
+			String color = null;
+			for (ColorKey key : ColorKey.values()) {
+				final int start = i - key.prefix.length();
+				if (key.suffix == next && start >= 0 && svg.startsWith(key.prefix, start)) {
+					if (color == null)
+						color = svg.substring(i, i + COLOR_LENGTH);
+					getPositions(key, color, true).add(start);
+				}
+			}
+		}
+	}
+
+	private List<Integer> getPositions(ColorKey key, String color, boolean create) {
+		final Map<String, List<Integer>> map = colors.get(key);
+		List<Integer> result = map.get(color);
+		if (result == null) {
+			if (create == false)
+				return Collections.emptyList();
+			result = new ArrayList<Integer>(2);
+			map.put(color, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the position of the first <code>&lt;title&gt;uid&lt;/title&gt;</code>
+	 * of the document, or -1.
+	 */
+	int getTitle(String uid) {
+		build();
+		final Integer result = titles.get(uid);
+		if (result == null)
+			return -1;
+		return result;
+	}
+
+	/**
+	 * Returns the position of the first occurrence of <code>color</code> written
+	 * as <code>key</code> that lies entirely between <code>start</code> and
+	 * <code>end</code>, or -1.
+	 */
+	int getColor(ColorKey key, String color, int start, int end) {
+		build();
+		final List<Integer> positions = getPositions(key, color, false);
+		int low = 0;
+		int high = positions.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (positions.get(mid) < start)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		if (low < positions.size() && positions.get(low) + key.length() <= end)
+			return positions.get(low);
+
+		return -1;
+	}
+
+}
@@ -45,6 +45,7 @@ import net.sourceforge.plantuml.StringUtils;
 import net.sourceforge.plantuml.klimt.geom.XCubicCurve2D;
 import net.sourceforge.plantuml.klimt.geom.XPoint2D;
 import net.sourceforge.plantuml.klimt.shape.DotPath;
+import net.sourceforge.plantuml.svek.SvgIndex.ColorKey;
 
 public class SvgResult {
 
@@ -52,11 +53,21 @@ public class SvgResult {
 	public static final String POINTS_EQUALS = "points=\"";
 
 	private final String svg;
+	private final int start;
+	private final int end;
 	private final Point2DFunction function;
+	private final SvgIndex index;
 
 	public SvgResult(String svg, Point2DFunction function) {
+		this(svg, 0, svg.length(), function, new SvgIndex(svg));
+	}
+
+	private SvgResult(String svg, int start, int end, Point2DFunction function, SvgIndex index) {
 		this.svg = svg;
+		this.start = start;
+		this.end = end;
 		this.function = function;
+		this.index = index;
 	}
 
 	public PointListIterator getPointsWithThisColor(int lineColor) {
@@ -76,18 +87,16 @@ public class SvgResult {
 	}
 
 	public int getIndexFromColor(int color) {
-		String s = "stroke=\"" + StringUtils.goLowerCase(StringUtils.sharp000000(color)) + "\"";
-		int idx = svg.indexOf(s);
+		final String colorString = StringUtils.goLowerCase(StringUtils.sharp000000(color));
+		int idx = getColorIndex(ColorKey.STROKE_ATTRIBUTE, colorString);
 		if (idx != -1)
 			return idx;
 
-		s = ";stroke:" + StringUtils.goLowerCase(StringUtils.sharp000000(color)) + ";";
-		idx = svg.indexOf(s);
+		idx = getColorIndex(ColorKey.STROKE_STYLE, colorString);
 		if (idx != -1)
 			return idx;
 
-		s = "fill=\"" + StringUtils.goLowerCase(StringUtils.sharp000000(color)) + "\"";
-		idx = svg.indexOf(s);
+		idx = getColorIndex(ColorKey.FILL_ATTRIBUTE, colorString);
 		if (idx != -1)
 			return idx;
 
@@ -97,9 +106,35 @@ public class SvgResult {
 
 	}
 
+	public int getClusterIndex(int color) {
+		final String colorString = StringUtils.goLowerCase(StringUtils.sharp000000(color));
+		int idx = getColorIndex(ColorKey.ANY_ATTRIBUTE, colorString);
+		if (idx == -1)
+			idx = getColorIndex(ColorKey.STROKE, colorString);
+
+		if (idx == -1)
+			throw new IllegalStateException("Cannot find color " + colorString);
+
+		return idx;
+	}
+
+	private int getColorIndex(ColorKey key, String colorString) {
+		final int idx = index.getColor(key, colorString, start, end);
+		if (idx == -1)
+			return -1;
+		return idx - start;
+	}
+
+	public int getTitleIndex(String uid) {
+		if (start != 0 || end != svg.length())
+			return indexOf("<title>" + uid + "</title>", 0);
+
+		return index.getTitle(uid);
+	}
+
 	public List<XPoint2D> getPoints(String separator) {
 		try {
-			final StringTokenizer st = new StringTokenizer(svg, separator);
+			final StringTokenizer st = new StringTokenizer(getSvg(), separator);
 			final List<XPoint2D> result = new ArrayList<XPoint2D>();
 			while (st.hasMoreTokens())
 				result.add(getFirstPoint(st.nextToken()));
@@ -111,7 +146,7 @@ public class SvgResult {
 	}
 
 	public XPoint2D getNextPoint() {
-		return getFirstPoint(svg);
+		return getFirstPoint(getSvg());
 	}
 
 	private XPoint2D getFirstPoint(final String tmp) {
@@ -122,19 +157,25 @@ public class SvgResult {
 	}
 
 	public int indexOf(String s, int pos) {
-		return svg.indexOf(s, pos);
+		final int idx = svg.indexOf(s, start + Math.max(0, pos));
+		if (idx == -1 || idx + s.length() > end)
+			return -1;
+		return idx - start;
 	}
 
 	public SvgResult substring(int pos) {
-		return new SvgResult(svg.substring(pos), function);
+		return substring(pos, end - start);
 	}
 
 	public SvgResult substring(int start, int end) {
-		return new SvgResult(svg.substring(start, end), function);
+		if (start < 0 || end > this.end - this.start || start > end)
+			throw new StringIndexOutOfBoundsException("begin " + start + ", end " + end + ", length "
+					+ (this.end - this.start));
+		return new SvgResult(svg, this.start + start, this.start + end, function, index);
 	}
 
 	public final String getSvg() {
-		return svg;
+		return svg.substring(start, end);
 	}
 
 	public DotPath toDotPath() {
@@ -169,7 +210,7 @@ public class SvgResult {
 	}
 
 	public boolean isPathConsistent() {
-		if (this.getSvg().startsWith("M") == false)
+		if (start == end || svg.charAt(start) != 'M')
 			return false;
 
 		return true;
@@ -38,13 +38,14 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.util.List;
 
 import net.sourceforge.plantuml.file.AFile;
 import net.sourceforge.plantuml.log.Logme;
 import net.sourceforge.plantuml.preproc.FileWithSuffix;
 import net.sourceforge.plantuml.preproc.ImportedFiles;
+import net.sourceforge.plantuml.preproc.ReadLineCached;
 import net.sourceforge.plantuml.preproc.ReadLineReader;
 import net.sourceforge.plantuml.preproc2.PreprocessorUtils;
 import net.sourceforge.plantuml.security.SURL;
@@ -124,11 +125,11 @@ public class EaterTheme extends Eater {
 
 		try {
 			final FileWithSuffix file = context.getFileWithSuffix(from, realName);
-			final Reader tmp = file.getReader(UTF_8);
-			if (tmp == null)
+			final List<String> lines = file.getLines(UTF_8);
+			if (lines == null)
 				throw new EaterException("No such theme " + realName, getStringLocated());
 
-			return new Theme(ReadLineReader.create(tmp, "theme " + realName));
+			return new Theme(new ReadLineCached(lines, "theme " + realName, null));
 		} catch (IOException e) {
 			Logme.error(e);
 			throw new EaterException("Cannot load " + realName, getStringLocated());
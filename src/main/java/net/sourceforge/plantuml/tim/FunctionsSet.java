@@ -49,6 +49,11 @@ public class FunctionsSet {
 	private final Trie functions3 = new TrieImpl();
 	private TFunctionImpl pendingFunction;
 
+	private static final int EXISTS = 1;
+	private static final int LEGACY = 2;
+	private static final int UNQUOTED = 4;
+	private Map<String, Integer> flagsByName;
+
 	public TFunction getFunctionSmart(TFunctionSignature searched) {
 		final TFunction func = this.functions.get(searched);
 		if (func != null)
@@ -73,6 +78,50 @@ public class FunctionsSet {
 		return Collections.unmodifiableMap(functions);
 	}
 
+	public boolean doesFunctionExist(String functionName) {
+		return hasFlag(functionName, EXISTS);
+	}
+
+	public boolean isLegacyDefine(String functionName) {
+		return hasFlag(functionName, LEGACY);
+	}
+
+	public boolean isUnquoted(String functionName) {
+		return hasFlag(functionName, UNQUOTED);
+	}
+
+	private boolean hasFlag(String functionName, int flag) {
+		if (flagsByName == null) {
+			flagsByName = new HashMap<String, Integer>();
+			for (TFunction func : functions.values())
+				addFlags(func);
+
+		}
+		final Integer flags = flagsByName.get(functionName);
+		return flags != null && (flags & flag) != 0;
+	}
+
+	private void addFlags(TFunction func) {
+		final String name = func.getSignature().getFunctionName();
+		final Integer previous = flagsByName.get(name);
+		int flags = previous == null ? EXISTS : previous;
+		if (func.getFunctionType().isLegacy())
+			flags |= LEGACY;
+		if (func.isUnquoted())
+			flags |= UNQUOTED;
+		flagsByName.put(name, flags);
+	}
+
+	private void putFunction(TFunction func) {
+		final TFunction previous = this.functions.put(func.getSignature(), func);
+		if (previous != null)
+			flagsByName = null;
+		else if (flagsByName != null)
+			addFlags(func);
+
+		this.functions3.add(func.getSignature().getFunctionName() + "(");
+	}
+
 	public String getLonguestMatchStartingIn(String s, int pos) {
 		return functions3.getLonguestMatchStartingIn(s, pos);
 	}
@@ -85,8 +134,7 @@ public class FunctionsSet {
 		if (func.getFunctionType() == TFunctionType.LEGACY_DEFINELONG)
 			((TFunctionImpl) func).finalizeEnddefinelong();
 
-		this.functions.put(func.getSignature(), func);
-		this.functions3.add(func.getSignature().getFunctionName() + "(");
+		putFunction(func);
 	}
 
 	public void executeEndfunction() {
@@ -102,8 +150,7 @@ public class FunctionsSet {
 		final EaterLegacyDefine legacyDefine = new EaterLegacyDefine(s);
 		legacyDefine.analyze(context, memory);
 		final TFunction function = legacyDefine.getFunction();
-		this.functions.put(function.getSignature(), function);
-		this.functions3.add(function.getSignature().getFunctionName() + "(");
+		putFunction(function);
 	}
 
 	public void executeLegacyDefineLong(TContext context, TMemory memory, StringLocated s)
@@ -0,0 +1,99 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.tim;
+
+import java.util.Arrays;
+
+import net.sourceforge.plantuml.text.TLineType;
+import net.sourceforge.plantuml.utils.BoundedCache;
+
+/**
+ * Positions of a line where a function call or a variable may start.
+ * <p>
+ * A name can only start at the beginning of a word, or on a <code>$</code> or a
+ * <code>%</code>, so {@link TContext#applyFunctionsAndVariables} copies the
+ * text in between as is. A template depends only on the text of the line, not
+ * on the names currently defined: it never has to be invalidated and is shared
+ * by all diagrams.
+ */
+final class LineTemplate {
+
+	private static final int MAX_CACHED_LENGTH = 1024;
+
+	private static final BoundedCache<String, LineTemplate> cache = new BoundedCache<String, LineTemplate>(4096);
+
+	private final int[] starts;
+
+	private LineTemplate(String s) {
+		final int[] tmp = new int[s.length()];
+		int size = 0;
+		for (int pos = 0; pos < s.length(); pos++)
+			if (isNameStart(s, pos))
+				tmp[size++] = pos;
+
+		this.starts = Arrays.copyOf(tmp, size);
+	}
+
+	static LineTemplate compile(String s) {
+		if (s.length() > MAX_CACHED_LENGTH)
+			return new LineTemplate(s);
+
+		LineTemplate result = cache.get(s);
+		if (result == null) {
+			result = new LineTemplate(s);
+			cache.put(s, result);
+		}
+		return result;
+	}
+
+	static boolean isNameStart(String s, int pos) {
+		final char c = s.charAt(pos);
+		if (c == '$' || c == '%')
+			return true;
+
+		return pos == 0 || TLineType.isLetterOrEmojiOrUnderscoreOrDigit(s.charAt(pos - 1)) == false
+				|| VariableManager.justAfterBackslashN(s, pos);
+	}
+
+	int size() {
+		return starts.length;
+	}
+
+	int getStart(int index) {
+		return starts[index];
+	}
+
+}
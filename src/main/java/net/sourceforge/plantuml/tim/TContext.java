@@ -37,7 +37,6 @@ package net.sourceforge.plantuml.tim;
 import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
-import java.io.Reader;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -62,8 +61,8 @@ import net.sourceforge.plantuml.preproc.FileWithSuffix;
 import net.sourceforge.plantuml.preproc.ImportedFiles;
 import net.sourceforge.plantuml.preproc.PreprocessingArtifact;
 import net.sourceforge.plantuml.preproc.ReadLine;
+import net.sourceforge.plantuml.preproc.ReadLineCached;
 import net.sourceforge.plantuml.preproc.ReadLineList;
-import net.sourceforge.plantuml.preproc.ReadLineReader;
 import net.sourceforge.plantuml.preproc.ReadLineWithYamlHeader;
 import net.sourceforge.plantuml.preproc.StartDiagramExtractReader;
 import net.sourceforge.plantuml.preproc.Sub;
@@ -520,10 +519,18 @@ public class TContext {
 		if (memory.isEmpty() && functionsSet.size() == 0)
 			return str.getString();
 
-		final StringBuilder result = new StringBuilder();
-		for (int i = 0; i < str.length(); i++) {
-			final char c = str.charAt(i);
-			final String presentFunction = getFunctionNameAt(str.getString(), i);
+		final String line = str.getString();
+		final LineTemplate template = LineTemplate.compile(line);
+		final VariableManager variableManager = new VariableManager(this, memory, str);
+		final StringBuilder result = new StringBuilder(line.length());
+		int i = 0;
+		for (int k = 0; k < template.size(); k++) {
+			if (template.getStart(k) < i)
+				continue;
+
+			result.append(line, i, template.getStart(k));
+			i = template.getStart(k);
+			final String presentFunction = getFunctionNameAt(line, i);
 			if (presentFunction != null) {
 				final String sub = str.getString().substring(i);
 				final EaterFunctionCall call = new EaterFunctionCall(new StringLocated(sub, str.getLocation()),
@@ -566,12 +573,16 @@ public class TContext {
 				// }
 				result.append(tmp);
 				i += call.getCurrentPosition() - 1;
-			} else if (new VariableManager(this, memory, str).getVarnameAt(str.getString(), i) != null) {
-				i = new VariableManager(this, memory, str).replaceVariables(str.getString(), i, result);
+			} else if (variableManager.getVarnameAt(line, i) != null) {
+				i = variableManager.replaceVariables(line, i, result);
 			} else {
-				result.append(c);
+				result.append(line.charAt(i));
 			}
+			i++;
 		}
+		if (i < line.length())
+			result.append(line, i, line.length());
+
 		return result.toString();
 	}
 
@@ -632,17 +643,13 @@ public class TContext {
 					if (f2.fileOk()) {
 						saveImportedFiles = this.importedFiles;
 						this.importedFiles = this.importedFiles.withCurrentDir(f2.getParentFile());
-						final Reader reader = f2.getReader(charset);
-						if (reader == null)
+						final List<String> lines = f2.getLines(charset);
+						if (lines == null)
 							throw new EaterException("cannot include " + what, s);
 
-						try {
-							ReadLine readerline = ReadLineReader.create(reader, what, s.getLocation());
-							readerline = new UncommentReadLine(readerline);
-							sub = Sub.fromFile(readerline, blocname, this, memory);
-						} finally {
-							reader.close();
-						}
+						ReadLine readerline = new ReadLineCached(lines, what, s.getLocation());
+						readerline = new UncommentReadLine(readerline);
+						sub = Sub.fromFile(readerline, blocname, this, memory);
 					}
 				} catch (IOException e) {
 					Logme.error(e);
@@ -800,11 +807,11 @@ public class TContext {
 					if (StartDiagramExtractReader.containsStartDiagram(f2, s, charset)) {
 						reader = StartDiagramExtractReader.build(f2, s, charset);
 					} else {
-						final Reader tmp = f2.getReader(charset);
-						if (tmp == null)
+						final List<String> lines = f2.getLines(charset);
+						if (lines == null)
 							throw new EaterException("Cannot include file", s);
 
-						reader = ReadLineReader.create(tmp, what, s.getLocation());
+						reader = new ReadLineCached(lines, what, s.getLocation());
 					}
 					saveImportedFiles = this.importedFiles;
 					this.importedFiles = this.importedFiles.withCurrentDir(f2.getParentFile());
@@ -847,27 +854,15 @@ public class TContext {
 	}
 
 	public boolean isLegacyDefine(String functionName) {
-		for (Map.Entry<TFunctionSignature, TFunction> ent : functionsSet.functions().entrySet())
-			if (ent.getKey().getFunctionName().equals(functionName) && ent.getValue().getFunctionType().isLegacy())
-				return true;
-
-		return false;
+		return functionsSet.isLegacyDefine(functionName);
 	}
 
 	public boolean isUnquoted(String functionName) {
-		for (Map.Entry<TFunctionSignature, TFunction> ent : functionsSet.functions().entrySet())
-			if (ent.getKey().getFunctionName().equals(functionName) && ent.getValue().isUnquoted())
-				return true;
-
-		return false;
+		return functionsSet.isUnquoted(functionName);
 	}
 
 	public boolean doesFunctionExist(String functionName) {
-		for (Map.Entry<TFunctionSignature, TFunction> ent : functionsSet.functions().entrySet())
-			if (ent.getKey().getFunctionName().equals(functionName))
-				return true;
-
-		return false;
+		return functionsSet.doesFunctionExist(functionName);
 	}
 
 	@JawsStrange
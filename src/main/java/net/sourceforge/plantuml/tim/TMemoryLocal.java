@@ -51,6 +51,7 @@ public class TMemoryLocal extends ExecutionContexts implements TMemory {
 	private final Map<String, TValue> overridenVariables01 = new HashMap<String, TValue>();
 	private final TrieImpl localVariables00 = new TrieImpl();
 	private final Map<String, TValue> localVariables01 = new HashMap<String, TValue>();
+	private Trie variablesNames3;
 
 	public TMemoryLocal(TMemoryGlobal global, Map<String, TValue> input) {
 		this.memoryGlobal = global;
@@ -136,25 +137,28 @@ public class TMemoryLocal extends ExecutionContexts implements TMemory {
 				overridenVariables00.add(name);
 
 		}
-		return new Trie() {
-			public void add(String s) {
-				throw new UnsupportedOperationException();
-			}
+		if (variablesNames3 == null)
+			variablesNames3 = new Trie() {
+				public void add(String s) {
+					throw new UnsupportedOperationException();
+				}
 
-			public String getLonguestMatchStartingIn(String s, int pos) {
-				final String s1 = memoryGlobal.variablesNames3().getLonguestMatchStartingIn(s, pos);
-				final String s2 = overridenVariables00.getLonguestMatchStartingIn(s, pos);
-				final String s3 = localVariables00.getLonguestMatchStartingIn(s, pos);
+				public String getLonguestMatchStartingIn(String s, int pos) {
+					final String s1 = memoryGlobal.variablesNames3().getLonguestMatchStartingIn(s, pos);
+					final String s2 = overridenVariables00.getLonguestMatchStartingIn(s, pos);
+					final String s3 = localVariables00.getLonguestMatchStartingIn(s, pos);
 
-				if (s1.length() >= s2.length() && s1.length() >= s3.length())
-					return s1;
+					if (s1.length() >= s2.length() && s1.length() >= s3.length())
+						return s1;
 
-				if (s2.length() >= s3.length() && s2.length() >= s1.length())
-					return s2;
+					if (s2.length() >= s3.length() && s2.length() >= s1.length())
+						return s2;
 
-				return s3;
-			}
-		};
+					return s3;
+				}
+			};
+
+		return variablesNames3;
 		// final Trie result = new TrieImpl();
 		// for (String name : overridenVariables.keySet()) {
 		// result.add(name);
@@ -52,12 +52,9 @@ public class TrieImpl implements Trie {
 		if (s.length() == 0)
 			throw new UnsupportedOperationException();
 
-		while (s.length() > 0) {
-			final Character added = s.charAt(0);
-			final TrieImpl child = current.getOrCreate(added);
-			s = s.substring(1);
-			current = child;
-		}
+		for (int i = 0; i < s.length(); i++)
+			current = current.getOrCreate(s.charAt(i));
+
 	}
 
 	public boolean remove(String s) {
@@ -68,15 +65,13 @@ public class TrieImpl implements Trie {
 		if (s.length() <= 1)
 			throw new UnsupportedOperationException();
 
-		while (s.length() > 0) {
-			final Character first = s.charAt(0);
-			final TrieImpl child = current.brothers.get(first);
+		for (int i = 0; i < s.length(); i++) {
+			final TrieImpl child = current.brothers.get(s.charAt(i));
 			if (child == null)
 				return false;
 
-			s = s.substring(1);
-			if (s.length() == 1) {
-				assert s.charAt(0) == '\0';
+			if (i == s.length() - 2) {
+				assert s.charAt(i + 1) == '\0';
 				return child.brothers.remove('\0') != null;
 			}
 			current = child;
@@ -98,22 +93,21 @@ public class TrieImpl implements Trie {
 	}
 
 	private static String getLonguestMatchStartingIn(TrieImpl current, String s, int pos) {
-		final StringBuilder result = new StringBuilder();
+		final int start = pos;
 		while (current != null) {
 			if (s.length() == pos)
 				if (current.brothers.containsKey('\0'))
-					return result.toString();
+					return s.substring(start, pos);
 				else
 					return "";
 
 			final TrieImpl child = current.brothers.get(s.charAt(pos));
 			if (child == null || child.brothers.size() == 0)
 				if (current.brothers.containsKey('\0'))
-					return result.toString();
+					return s.substring(start, pos);
 				else
 					return "";
 
-			result.append(s.charAt(pos));
 			current = child;
 			pos++;
 		}
@@ -56,8 +56,9 @@ public class VariableManager {
 
 	public int replaceVariables(String str, int i, StringBuilder result) throws EaterException {
 		final String presentVariable = getVarnameAt(str, i);
-		if (result.toString().endsWith("##"))
-			result.setLength(result.length() - 2);
+		final int length = result.length();
+		if (length >= 2 && result.charAt(length - 1) == '#' && result.charAt(length - 2) == '#')
+			result.setLength(length - 2);
 
 		final TValue value = memory.getVariable(presentVariable);
 		i += presentVariable.length() - 1;
@@ -61,15 +61,19 @@ public class DateFunction extends SimpleReturnFunction {
 	@Override
 	public TValue executeReturnFunction(TContext context, TMemory memory, StringLocated location, List<TValue> values,
 			Map<String, TValue> named) throws EaterException {
-		if (values.size() == 0)
+		if (values.size() == 0) {
+			context.getPreprocessingArtifact().setNonDeterministic();
 			return TValue.fromString(new Date().toString());
+		}
 
 		final String format = values.get(0).toString();
 		final long now;
 		if (values.size() == 2)
 			now = 1000L * values.get(1).toInt();
-		else
+		else {
+			context.getPreprocessingArtifact().setNonDeterministic();
 			now = System.currentTimeMillis();
+		}
 
 		try {
 			return TValue.fromString(new SimpleDateFormat(format).format(now));
@@ -59,6 +59,7 @@ public class Now extends SimpleReturnFunction {
 	@Override
 	public TValue executeReturnFunction(TContext context, TMemory memory, StringLocated location, List<TValue> values,
 			Map<String, TValue> named) throws EaterException {
+		context.getPreprocessingArtifact().setNonDeterministic();
 		final long now = System.currentTimeMillis() / 1000L;
 		return TValue.fromInt((int) now);
 	}
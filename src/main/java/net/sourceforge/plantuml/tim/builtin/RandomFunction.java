@@ -62,6 +62,7 @@ public class RandomFunction extends SimpleReturnFunction {
 	@Override
 	public TValue executeReturnFunction(TContext context, TMemory memory, StringLocated location, List<TValue> values,
 			Map<String, TValue> named) throws EaterException {
+		context.getPreprocessingArtifact().setNonDeterministic();
 		switch (values.size()) {
 		case 0:
 			return TValue.fromInt(random.nextInt(2));
@@ -0,0 +1,152 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.utils;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe cache holding at most <code>maxSize</code> entries.
+ * <p>
+ * Lookups never lock. When the cache grows beyond its limit, one thread at a
+ * time evicts entries using the CLOCK algorithm (an approximation of LRU): an
+ * entry read since the last sweep gets a second chance, other entries are
+ * dropped.
+ */
+public final class BoundedCache<K, V> {
+	// ::remove file when __HAXE__
+
+	private final ConcurrentMap<K, Slot<V>> map = new ConcurrentHashMap<K, Slot<V>>();
+	private final int maxSize;
+
+	private final AtomicBoolean sweeping = new AtomicBoolean();
+	private Iterator<Map.Entry<K, Slot<V>>> hand;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	static class Slot<V> {
+		private final V value;
+		private volatile boolean referenced;
+
+		Slot(V value) {
+			this.value = value;
+		}
+	}
+
+	public BoundedCache(int maxSize) {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException();
+		this.maxSize = maxSize;
+	}
+
+	public V get(K key) {
+		final Slot<V> slot = map.get(key);
+		if (slot == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		slot.referenced = true;
+		return slot.value;
+	}
+
+	public void put(K key, V value) {
+		if (map.put(key, new Slot<V>(value)) == null && map.size() > maxSize)
+			evict();
+	}
+
+	private void evict() {
+		if (sweeping.compareAndSet(false, true) == false)
+			// Another thread is already sweeping
+			return;
+
+		try {
+			while (map.size() > maxSize) {
+				if (hand == null || hand.hasNext() == false)
+					hand = map.entrySet().iterator();
+
+				if (hand.hasNext() == false)
+					return;
+
+				final Map.Entry<K, Slot<V>> ent = hand.next();
+				final Slot<V> slot = ent.getValue();
+				if (slot.referenced)
+					slot.referenced = false;
+				else if (map.remove(ent.getKey(), slot))
+					evictions.increment();
+			}
+		} finally {
+			sweeping.set(false);
+		}
+	}
+
+	public void clear() {
+		map.clear();
+	}
+
+	public int size() {
+		return map.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "size=" + size() + "/" + maxSize + " hits=" + getHits() + " misses=" + getMisses() + " evictions="
+				+ getEvictions();
+	}
+
+}
@@ -0,0 +1,138 @@
+/* ========================================================================
+ * PlantUML : a free UML diagram generator
+ * ========================================================================
+ *
+ * (C) Copyright 2009-2024, Arnaud Roques
+ *
+ * Project Info:  https://plantuml.com
+ * 
+ * If you like this project or if you find it useful, you can support us at:
+ * 
+ * https://plantuml.com/patreon (only 1$ per month!)
+ * https://plantuml.com/paypal
+ * 
+ * This file is part of PlantUML.
+ *
+ * PlantUML is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * PlantUML distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301,
+ * USA.
+ *
+ *
+ * Original Author:  Arnaud Roques
+ *
+ *
+ */
+package net.sourceforge.plantuml.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A thread-safe LRU cache whose limit is a total weight, usually a number of
+ * bytes, rather than a number of entries.
+ * <p>
+ * Values heavier than the whole budget are never kept.
+ */
+public final class ByteBudgetCache<K, V> {
+	// ::remove file when __HAXE__
+
+	private final LinkedHashMap<K, Weighted<V>> map = new LinkedHashMap<K, Weighted<V>>(16, 0.75f, true);
+	private final long budget;
+	private long weight;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	static class Weighted<V> {
+		private final V value;
+		private final long weight;
+
+		Weighted(V value, long weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	public ByteBudgetCache(long budget) {
+		if (budget <= 0)
+			throw new IllegalArgumentException();
+		this.budget = budget;
+	}
+
+	public synchronized V get(K key) {
+		final Weighted<V> result = map.get(key);
+		if (result == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return result.value;
+	}
+
+	public synchronized void put(K key, V value, long weight) {
+		final Weighted<V> old = map.remove(key);
+		if (old != null)
+			this.weight -= old.weight;
+
+		if (weight > budget)
+			return;
+
+		map.put(key, new Weighted<V>(value, weight));
+		this.weight += weight;
+
+		for (Iterator<Weighted<V>> it = map.values().iterator(); this.weight > budget && it.hasNext();) {
+			final Weighted<V> eldest = it.next();
+			it.remove();
+			this.weight -= eldest.weight;
+			evictions++;
+		}
+	}
+
+	public synchronized void clear() {
+		map.clear();
+		weight = 0;
+	}
+
+	public synchronized int size() {
+		return map.size();
+	}
+
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "weight=" + weight + "/" + budget + " size=" + map.size() + " hits=" + hits + " misses=" + misses
+				+ " evictions=" + evictions;
+	}
+
+}
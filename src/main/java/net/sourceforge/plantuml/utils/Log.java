@@ -39,9 +39,34 @@ import net.sourceforge.plantuml.OptionFlags;
 import net.sourceforge.plantuml.ProgressBar;
 
 public abstract class Log {
+
+	public enum Level {
+		DEBUG, INFO, ERROR
+	}
+
+	/**
+	 * Cheap check that callers can use before building an expensive message.
+	 * Debug messages are always discarded, info messages are printed in verbose
+	 * mode only, errors are always printed.
+	 */
+	public static boolean isEnabled(Level level) {
+		if (level == Level.ERROR)
+			return true;
+		if (level == Level.INFO)
+			return OptionFlags.getInstance().isVerbose();
+		return false;
+	}
+
 	// ::comment when __HAXE__
 	private static final long start = System.currentTimeMillis();
 
+	private static final ThreadLocal<StringBuilder> buffer = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(128);
+		}
+	};
+
 	private static String format(String s) {
 		final long delta = System.currentTimeMillis() - start;
 		// final HealthCheck healthCheck = Performance.getHealthCheck();
@@ -49,16 +74,19 @@ public abstract class Log {
 		// final long dot = healthCheck.dotTime().getSum();
 
 		final long freeMemory = Runtime.getRuntime().freeMemory();
-		final long maxMemory = Runtime.getRuntime().maxMemory();
 		final long totalMemory = Runtime.getRuntime().totalMemory();
-		final long usedMemory = totalMemory - freeMemory;
-		final int threadActiveCount = Thread.activeCount();
 
-		final StringBuilder sb = new StringBuilder();
+		final StringBuilder sb = buffer.get();
+		sb.setLength(0);
 		sb.append("(");
 		sb.append(delta / 1000L);
 		sb.append(".");
-		sb.append(String.format("%03d", delta % 1000L));
+		final long millis = delta % 1000L;
+		if (millis < 100)
+			sb.append('0');
+		if (millis < 10)
+			sb.append('0');
+		sb.append(millis);
 		// if (cpu != -1) {
 		// sb.append(" - ");
 		// sb.append(cpu / 1000L);
@@ -80,26 +108,29 @@ public abstract class Log {
 		sb.append(free);
 		sb.append(" Mo - ");
 		sb.append(s);
-		return sb.toString();
+		final String result = sb.toString();
+		if (sb.capacity() > 4096)
+			buffer.remove();
+		return result;
 	}
 	
 	public static void println(Object s) {
 	}
 	// ::done
 
-	public synchronized static void debug(String s) {
+	public static void debug(String s) {
 	}
 
-	public synchronized static void info(String s) {
+	public static void info(String s) {
 		// ::comment when __CORE__ or __HAXE__
-		if (OptionFlags.getInstance().isVerbose()) {
+		if (isEnabled(Level.INFO)) {
 			ProgressBar.clear();
 			System.err.println(format(s));
 		}
 		// ::done
 	}
 
-	public synchronized static void error(String s) {
+	public static void error(String s) {
 		// ::comment when __CORE__ or __HAXE__
 		ProgressBar.clear();
 		// ::done
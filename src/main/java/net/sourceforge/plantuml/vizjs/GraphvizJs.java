@@ -143,6 +143,10 @@ public class GraphvizJs implements Graphviz {
 			public boolean ignoreHorizontalLinks() {
 				return false;
 			}
+
+			public boolean supportsJsonOutput() {
+				return false;
+			}
 		};
 	}
 
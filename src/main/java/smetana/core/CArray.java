@@ -68,7 +68,8 @@ final public class CArray<O> extends UnsupportedC {
 		if (old.offset != 0)
 			throw new IllegalStateException();
 
-		WasmLog.log("Realloc from " + old.data.length + " to " + size);
+		if (WasmLog.isEnabled())
+			WasmLog.log("Realloc from " + old.data.length + " to " + size);
 
 		final CArray<O> result = new CArray<O>(new Object[size], 0, type);
 		System.arraycopy(old.data, 0, result.data, 0, old.data.length);
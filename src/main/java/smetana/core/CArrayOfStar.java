@@ -68,7 +68,8 @@ final public class CArrayOfStar<O> extends UnsupportedC {
 		if (old.offset != 0)
 			throw new IllegalStateException();
 
-		WasmLog.log("Realloc* from " + old.data.length + " to " + size);
+		if (WasmLog.isEnabled())
+			WasmLog.log("Realloc* from " + old.data.length + " to " + size);
 
 		final CArrayOfStar<O> result = ALLOC(size, type);
 		System.arraycopy(old.data, 0, result.data, 0, old.data.length);
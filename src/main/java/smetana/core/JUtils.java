@@ -141,7 +141,8 @@ final public class JUtils {
 	}
 
 	public static void qsort(Globals zz, CArrayOfStar array, int nb, CFunction compare) {
-		WasmLog.log("bubble sort objects " + nb);
+		if (WasmLog.isEnabled())
+			WasmLog.log("bubble sort objects " + nb);
 		try {
 			for (int pass = 0; pass < nb - 1; pass++) {
 				boolean change = false;
@@ -173,7 +174,8 @@ final public class JUtils {
 	}
 
 	public static void qsortInt(Globals zz, int array[], int nb, CFunction compare) {
-		WasmLog.log("bubble sort int[] " + nb);
+		if (WasmLog.isEnabled())
+			WasmLog.log("bubble sort int[] " + nb);
 		try {
 			for (int pass = 0; pass < nb - 1; pass++) {
 				boolean change = false;
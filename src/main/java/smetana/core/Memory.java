@@ -48,7 +48,8 @@ final public class Memory {
 
 		int result = data.getUid();
 		zz.all.put(result, data);
-		WasmLog.log("hashsize = " + zz.all.size());
+		if (WasmLog.isEnabled())
+			WasmLog.log("hashsize = " + zz.all.size());
 		return result;
 	}
 
@@ -0,0 +1,117 @@
+package net.sourceforge.plantuml;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.sourceforge.plantuml.security.SFile;
+
+class IncrementalManifestTest {
+
+	private static final String MARKER = "kept from the previous run";
+
+	private static File write(Path dir, String name, String content) throws IOException {
+		final File result = dir.resolve(name).toFile();
+		Files.write(result.toPath(), content.getBytes(UTF_8));
+		return result;
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), UTF_8);
+	}
+
+	private static void run(File source) throws IOException {
+		final SourceFileReader reader = new SourceFileReader(source, source.getParentFile(),
+				new FileFormatOption(FileFormat.UTXT));
+		reader.setIncremental(true);
+		assertEquals(1, reader.getGeneratedImages().size());
+		IncrementalManifest.saveAll();
+	}
+
+	/**
+	 * Replaces the image by a marker, and tells whether the next run keeps it.
+	 */
+	private static boolean isUpToDate(File source) throws IOException {
+		final File image = new File(source.getParentFile(), source.getName().replace(".puml", ".utxt"));
+		Files.write(image.toPath(), MARKER.getBytes(UTF_8));
+		run(source);
+		return read(image).equals(MARKER);
+	}
+
+	@Test
+	void unchanged_diagrams_are_not_drawn_again(@TempDir Path dir) throws Exception {
+		final File source = write(dir, "a.puml", "@startuml\na -> b\n@enduml\n");
+		run(source);
+		assertTrue(isUpToDate(source));
+
+		write(dir, "a.puml", "@startuml\na -> c\n@enduml\n");
+		assertTrue(isUpToDate(source) == false);
+	}
+
+	@Test
+	void a_changed_include_draws_the_diagram_again(@TempDir Path dir) throws Exception {
+		write(dir, "inc.iuml", "a -> b\n");
+		final File source = write(dir, "a.puml", "@startuml\n!include inc.iuml\n@enduml\n");
+		run(source);
+		assertTrue(isUpToDate(source));
+
+		write(dir, "inc.iuml", "a -> c\n");
+		assertTrue(isUpToDate(source) == false);
+		assertTrue(isUpToDate(source));
+	}
+
+	@Test
+	void a_corrupt_manifest_is_ignored_and_rewritten(@TempDir Path dir) throws Exception {
+		write(dir, IncrementalManifest.FILENAME, "this is not a manifest");
+		final File source = write(dir, "a.puml", "@startuml\na -> b\n@enduml\n");
+		assertTrue(isUpToDate(source) == false);
+		assertTrue(isUpToDate(source));
+	}
+
+	@Test
+	void a_truncated_manifest_is_ignored(@TempDir Path dir) throws Exception {
+		final Path first = Files.createDirectory(dir.resolve("first"));
+		final File source = write(first, "a.puml", "@startuml\na -> b\n@enduml\n");
+		run(source);
+		final byte[] manifest = Files.readAllBytes(first.resolve(IncrementalManifest.FILENAME));
+
+		final Path second = Files.createDirectory(dir.resolve("second"));
+		final File copy = write(second, "a.puml", "@startuml\na -> b\n@enduml\n");
+		Files.write(second.resolve(IncrementalManifest.FILENAME), Arrays.copyOf(manifest, manifest.length - 3));
+		assertTrue(isUpToDate(copy) == false);
+		assertTrue(isUpToDate(copy));
+	}
+
+	@Test
+	void long_descriptions_are_saved(@TempDir Path dir) throws Exception {
+		final Path first = Files.createDirectory(dir.resolve("first"));
+		final Path second = Files.createDirectory(dir.resolve("second"));
+		final char[] chars = new char[100 * 1000];
+		Arrays.fill(chars, '\u00e9');
+		final String description = new String(chars);
+
+		final SFile image = SFile.fromFile(write(first, "a.png", "png"));
+		IncrementalManifest.forDirectory(SFile.fromFile(first.toFile())).record(image, "digest", description,
+				Collections.singletonList(image));
+		IncrementalManifest.saveAll();
+
+		Files.copy(first.resolve(IncrementalManifest.FILENAME), second.resolve(IncrementalManifest.FILENAME));
+		final SFile copy = SFile.fromFile(write(second, "a.png", "png"));
+		final IncrementalManifest.Entry entry = IncrementalManifest.forDirectory(SFile.fromFile(second.toFile()))
+				.getUpToDate(copy, "digest");
+		assertNotNull(entry);
+		assertEquals(description, entry.getDescription());
+	}
+
+}
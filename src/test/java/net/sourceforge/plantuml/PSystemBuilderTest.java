@@ -0,0 +1,114 @@
+package net.sourceforge.plantuml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.plantuml.api.PSystemFactory;
+import net.sourceforge.plantuml.api.PSystemFactorySniffer;
+import net.sourceforge.plantuml.core.Diagram;
+import net.sourceforge.plantuml.core.DiagramType;
+import net.sourceforge.plantuml.core.UmlSource;
+import net.sourceforge.plantuml.error.PSystemError;
+import net.sourceforge.plantuml.error.PSystemErrorUtils;
+import net.sourceforge.plantuml.preproc.PreprocessingArtifact;
+import net.sourceforge.plantuml.text.StringLocated;
+
+class PSystemBuilderTest {
+
+	private static List<StringLocated> preprocess(String text) {
+		return new SourceStringReader(text).getBlocks().get(0).getData();
+	}
+
+	/**
+	 * What the builder did before factories could be skipped: try every factory
+	 * in order, and merge all the errors if none accepts the source.
+	 */
+	private static Diagram withoutSniffing(List<StringLocated> source) {
+		final DiagramType type = DiagramType.getTypeFromArobaseStart(source.get(0).getString());
+		final UmlSource umlSource = UmlSource.createWithRaw(source, type == DiagramType.UML, source);
+		final List<PSystemError> errors = new ArrayList<>();
+		for (PSystemFactory factory : PSystemBuilder.getFactories(umlSource.getDiagramType())) {
+			final Diagram sys = factory.createSystem(umlSource, Previous.createEmpty(), new PreprocessingArtifact());
+			if (sys != null && sys instanceof PSystemError == false)
+				return sys;
+			errors.add((PSystemError) sys);
+		}
+		return PSystemErrorUtils.merge(errors);
+	}
+
+	private static Diagram withSniffing(List<StringLocated> source) {
+		return new PSystemBuilder().createPSystem(source, source, Previous.createEmpty(),
+				new PreprocessingArtifact());
+	}
+
+	private static void assertSameResult(String text) {
+		final List<StringLocated> source = preprocess(text);
+		final Diagram expected = withoutSniffing(source);
+		final Diagram actual = withSniffing(source);
+		assertEquals(expected.getClass(), actual.getClass(), text);
+		if (expected instanceof PSystemError) {
+			final PSystemError expectedError = (PSystemError) expected;
+			final PSystemError actualError = (PSystemError) actual;
+			assertEquals(expectedError.getFirstError(), actualError.getFirstError(), text);
+			assertEquals(expectedError.getFirstError().getError(), actualError.getFirstError().getError(), text);
+			assertEquals(expectedError.getLineLocation().getPosition(), actualError.getLineLocation().getPosition(),
+					text);
+			assertEquals(expectedError.getWarningOrError(), actualError.getWarningOrError(), text);
+		}
+	}
+
+	@Test
+	void accepted_diagrams_come_from_the_same_factory() {
+		assertSameResult("@startuml\nalice -> bob : hello\n@enduml\n");
+		assertSameResult("@startuml\nclass Foo\nFoo <|-- Bar\n@enduml\n");
+		assertSameResult("@startuml\nstart\n:step;\nstop\n@enduml\n");
+		assertSameResult("@startuml\n[*] --> State1\n@enduml\n");
+		assertSameResult("@startuml\nactor User\nUser --> (Use)\n@enduml\n");
+		assertSameResult("@startuml\nversion\n@enduml\n");
+		assertSameResult("@startmindmap\n* root\n** child\n@endmindmap\n");
+	}
+
+	@Test
+	void first_line_rejected_by_every_factory() {
+		assertSameResult("@startuml\n!!! this is not a diagram\nalice -> bob\n@enduml\n");
+		assertSameResult("@startuml\n}}}\n@enduml\n");
+	}
+
+	@Test
+	void empty_diagrams() {
+		assertSameResult("@startuml\n@enduml\n");
+		assertSameResult("@startuml\n\n\n@enduml\n");
+		assertSameResult("@startuml\n' only a comment\n@enduml\n");
+	}
+
+	@Test
+	void errors_after_an_accepted_first_line_are_merged_as_before() {
+		assertSameResult("@startuml\nalice -> bob\nthis line is wrong !!!\n@enduml\n");
+		assertSameResult("@startuml\nclass Foo\nFoo <|-- ((( \n@enduml\n");
+	}
+
+	@Test
+	void skipped_factories_would_have_failed() {
+		final String[] texts = { "@startuml\n!!! this is not a diagram\n@enduml\n",
+				"@startuml\nalice -> bob\n@enduml\n", "@startuml\nclass Foo\n@enduml\n",
+				"@startuml\nstart\n:step;\nstop\n@enduml\n" };
+		for (String text : texts) {
+			final List<StringLocated> source = preprocess(text);
+			final UmlSource umlSource = UmlSource.createWithRaw(source, true, source);
+			for (PSystemFactory factory : PSystemBuilder.getFactories(DiagramType.UML))
+				if (factory instanceof PSystemFactorySniffer
+						&& ((PSystemFactorySniffer) factory).mayAccept(umlSource) == false) {
+					final Diagram sys = factory.createSystem(umlSource, Previous.createEmpty(),
+							new PreprocessingArtifact());
+					assertTrue(sys == null || sys instanceof PSystemError,
+							factory.getClass().getSimpleName() + " " + text);
+				}
+		}
+	}
+
+}
@@ -107,6 +107,14 @@ class PipeTest {
 				"(?s).*(PNG.*Generated by https://plantuml.com.*PIPE-DELIMITOR.*){2}", Verification.REGEX, false,
 				false));
 
+		// several threads: output stays in input order
+		l.add(TestCase.of("-nbthread 4 -pipedelimitor PIPE-DELIMITOR",
+				"@startuml\n@@@format svg\na->b\n@enduml\n@startuml\n@@@format png\na->b\n@enduml\n@startuml\n@@@format svg\nc->d\n@enduml",
+				"(?s).*<svg.*</svg>.*PIPE-DELIMITOR.*PNG.*Generated by https://plantuml.com.*PIPE-DELIMITOR.*<svg.*</svg>.*PIPE-DELIMITOR.*",
+				Verification.REGEX, false, false));
+		l.add(TestCase.of("-nbthread 2 -pipewindow 1", "@startuml\na\n@enduml\n@startuml\na->b\n@enduml\n",
+				"(?s).*(PNG.*Generated by https://plantuml.com.*){2}", Verification.REGEX, true, false));
+
 		// if format is set in first diagram and not in the second, it will be used in
 		// both (Possibly incorrect: preseved from old behaviour)
 		l.add(TestCase.of("", "@startuml\n@@@format svg\na->b\n@enduml\n@startuml\na->b\n@enduml",
@@ -0,0 +1,106 @@
+package net.sourceforge.plantuml;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.sourceforge.plantuml.SourceFileReaderAbstract.ScheduledBlock;
+
+class RunMultithreadTest {
+
+	private static final String SOURCE = "" //
+			+ "@startuml\n" //
+			+ "a -> b\n" //
+			+ "newpage\n" //
+			+ "b -> c\n" //
+			+ "@enduml\n" //
+			+ "@startuml\n" //
+			+ "a -> b\n" //
+			+ "@enduml\n" //
+			+ "@startuml\n" //
+			+ "a -> b\n" //
+			+ "b -> c\n" //
+			+ "c -> d\n" //
+			+ "d -> e\n" //
+			+ "@enduml\n" //
+			+ "@startuml\n" //
+			+ "c -> d\n" //
+			+ "@enduml\n";
+
+	private static File write(Path dir, String name, String content) throws IOException {
+		final File result = dir.resolve(name).toFile();
+		Files.write(result.toPath(), content.getBytes(UTF_8));
+		return result;
+	}
+
+	private static String[] list(File dir) {
+		final String[] result = dir.list();
+		Arrays.sort(result);
+		return result;
+	}
+
+	@Test
+	void images_are_named_as_in_a_sequential_run(@TempDir Path tempDir) throws Exception {
+		final File source = write(tempDir, "foo.puml", SOURCE);
+		final File serial = tempDir.resolve("serial").toFile();
+		final File parallel = tempDir.resolve("parallel").toFile();
+
+		new SourceFileReader(source, serial, new FileFormatOption(FileFormat.UTXT)).getGeneratedImages();
+		final ErrorStatus error = ErrorStatus.init();
+		Run.multithread(new Option("-tutxt", "-nbthread", "3", "-o", parallel.getAbsolutePath(),
+				source.getAbsolutePath()), error);
+
+		assertFalse(error.hasError());
+		assertArrayEquals(new String[] { "foo.utxt", "foo_001.utxt", "foo_002.utxt", "foo_003.utxt", "foo_004.utxt" },
+				list(parallel));
+		for (String name : list(serial))
+			assertEquals(new String(Files.readAllBytes(new File(serial, name).toPath()), UTF_8),
+					new String(Files.readAllBytes(new File(parallel, name).toPath()), UTF_8));
+	}
+
+	@Test
+	void longest_diagrams_are_scheduled_first(@TempDir Path tempDir) throws Exception {
+		final File source = write(tempDir, "foo.puml", SOURCE);
+		final Option option = new Option("-tutxt", "-o", tempDir.resolve("out").toString());
+
+		final List<ScheduledBlock> blocks = Run.scheduleFile(source, option);
+		Run.sortByCost(blocks);
+
+		assertEquals(4, blocks.size());
+		assertEquals(6, blocks.get(0).getCost());
+		assertEquals(5, blocks.get(1).getCost());
+		assertEquals(3, blocks.get(2).getCost());
+		assertEquals(3, blocks.get(3).getCost());
+		assertEquals("a -> b", blocks.get(2).getBlocks().get(0).getData().get(1).getString());
+		assertEquals("c -> d", blocks.get(3).getBlocks().get(0).getData().get(1).getString());
+	}
+
+	@Test
+	void failfast_stops_after_the_first_error(@TempDir Path tempDir) throws Exception {
+		final File source = write(tempDir, "foo.puml", "@startuml\nfoo bar baz\n@enduml\n@startuml\na -> b\n@enduml\n");
+		final File out = tempDir.resolve("out").toFile();
+		final Option option = new Option("-tutxt", "-failfast2", "-o", out.getAbsolutePath());
+		final ErrorStatus error = ErrorStatus.init();
+
+		final List<ScheduledBlock> blocks = Run.scheduleFile(source, option);
+		Run.exportBlock(blocks.get(0), option, error);
+		assertTrue(error.hasError());
+		assertTrue(new File(out, "foo.utxt").exists());
+
+		Run.exportBlock(blocks.get(1), option, error);
+		assertFalse(new File(out, "foo_001.utxt").exists());
+	}
+
+}
@@ -45,6 +45,22 @@ class CompressionTest {
 		}
 	}
 
+	@Test
+	public void round_trip_after_malformed_input() throws Exception {
+		final Compression compression = new CompressionZlib();
+		final byte[] compressed = compression.compress("@startuml\nAlice -> Bob\n@enduml".getBytes(UTF_8));
+		for (int i = 0; i < 50; i++) {
+			final byte[] corrupted = compressed.clone();
+			corrupted[i % corrupted.length] ^= 0x55;
+			try {
+				compression.decompress(corrupted);
+			} catch (final NoPlantumlCompressionException e) {
+				// Expected for most corruptions
+			}
+			assertEquals("@startuml\nAlice -> Bob\n@enduml", compression.decompress(compressed).toUFT8String());
+		}
+	}
+
 	static private String repeat(final String s, final int times) {
 		final StringBuilder sb = new StringBuilder();
 		for (int idx = 0; idx < times; idx += 1) {
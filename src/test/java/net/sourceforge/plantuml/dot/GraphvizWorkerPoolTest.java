@@ -0,0 +1,174 @@
+package net.sourceforge.plantuml.dot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.plantuml.OptionFlags;
+
+class GraphvizWorkerPoolTest {
+
+	private static final Pattern WORKER = Pattern.compile("<!-- worker (\\d+) -->");
+
+	/**
+	 * Stands for <code>dot -Tsvg</code>: renders one graph per line, only once
+	 * the next graph starts, as dot does. A graph containing <code>error</code>
+	 * is reported on the error stream, one containing <code>hang</code> never
+	 * completes.
+	 */
+	public static class StubDot {
+
+		public static void main(String[] args) throws Exception {
+			final boolean exitOnError = args.length > 0 && args[0].equals("exit-on-error");
+			final String worker = Long.toString(System.nanoTime());
+			final BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+			final PrintStream out = new PrintStream(System.out, false, "UTF-8");
+			String pending = null;
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.startsWith("digraph") == false)
+					continue;
+
+				if (pending != null)
+					render(pending, worker, out, exitOnError);
+				pending = line;
+			}
+			if (pending != null)
+				render(pending, worker, out, exitOnError);
+		}
+
+		private static void render(String graph, String worker, PrintStream out, boolean exitOnError)
+				throws InterruptedException {
+			if (graph.contains("hang"))
+				Thread.sleep(Long.MAX_VALUE);
+
+			if (graph.contains("error")) {
+				System.err.println("Error: <stdin>: syntax error in line 1 near 'error'");
+				System.err.flush();
+				if (exitOnError)
+					System.exit(1);
+				return;
+			}
+			final String name = graph.split(" ")[1];
+			out.print("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+			out.print("<svg>\n");
+			out.print("<!-- Title: " + name + " Pages: 1 -->\n");
+			out.print("<!-- worker " + worker + " -->\n");
+			out.print("</svg>\n");
+			out.flush();
+		}
+
+	}
+
+	private static String[] stub(String... args) {
+		final String[] result = new String[4 + args.length];
+		result[0] = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		result[1] = "-cp";
+		result[2] = System.getProperty("java.class.path");
+		result[3] = StubDot.class.getName();
+		System.arraycopy(args, 0, result, 4, args.length);
+		return result;
+	}
+
+	private static String worker(String svg) {
+		final Matcher m = WORKER.matcher(svg);
+		assertTrue(m.find(), svg);
+		return m.group(1);
+	}
+
+	private static String render(String[] cmd, String graph) {
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		final ProcessState state = GraphvizWorkerPool.getInstance().render(cmd, graph.getBytes(StandardCharsets.UTF_8),
+				os);
+		assertFalse(state == null || state.differs(ProcessState.TERMINATED_OK()), graph + " " + state);
+		return new String(os.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void requestsAreSplitOnSentinelsAndShareTheWorker() {
+		GraphvizWorkerPool.getInstance().setSize(2);
+		final String[] cmd = stub("framing");
+		final String first = render(cmd, "digraph first { a -> b }");
+		final String second = render(cmd, "digraph second { c }");
+
+		assertTrue(first.contains("Title: first"), first);
+		assertTrue(second.contains("Title: second"), second);
+		assertFalse(first.contains("plantuml_sentinel_"), first);
+		assertFalse(second.contains("plantuml_sentinel_") || second.contains("Title: first"), second);
+		assertEquals(worker(first), worker(second));
+	}
+
+	@Test
+	void errorsFallBackWithoutWaitingForTheTimeout() {
+		GraphvizWorkerPool.getInstance().setSize(2);
+		final long timeout = OptionFlags.getInstance().getTimeoutMs();
+		OptionFlags.getInstance().setTimeoutMs(60 * 1000L);
+		try {
+			final String[] cmd = stub("errors");
+			final String before = render(cmd, "digraph before { a }");
+
+			final long start = System.currentTimeMillis();
+			final ByteArrayOutputStream os = new ByteArrayOutputStream();
+			assertNull(GraphvizWorkerPool.getInstance().render(cmd, "digraph bad { error }".getBytes(), os));
+			assertTrue(System.currentTimeMillis() - start < 30 * 1000L);
+			assertEquals(0, os.size());
+
+			// The worker survived its error, so it is kept
+			final String after = render(cmd, "digraph after { b }");
+			assertTrue(after.contains("Title: after"), after);
+			assertEquals(worker(before), worker(after));
+		} finally {
+			OptionFlags.getInstance().setTimeoutMs(timeout);
+		}
+	}
+
+	@Test
+	void workersThatExitAreReplaced() {
+		GraphvizWorkerPool.getInstance().setSize(2);
+		final String[] cmd = stub("exit-on-error");
+		final String before = render(cmd, "digraph before { a }");
+
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		assertNull(GraphvizWorkerPool.getInstance().render(cmd, "digraph bad { error }".getBytes(), os));
+
+		final String after = render(cmd, "digraph after { b }");
+		assertTrue(after.contains("Title: after"), after);
+		assertNotEquals(worker(before), worker(after));
+	}
+
+	@Test
+	void hungWorkersTimeOutAndAreReplaced() {
+		GraphvizWorkerPool.getInstance().setSize(2);
+		final long timeout = OptionFlags.getInstance().getTimeoutMs();
+		OptionFlags.getInstance().setTimeoutMs(2000L);
+		try {
+			final String[] cmd = stub("timeout");
+			final String before = render(cmd, "digraph before { a }");
+
+			final ByteArrayOutputStream os = new ByteArrayOutputStream();
+			final ProcessState state = GraphvizWorkerPool.getInstance().render(cmd, "digraph slow { hang }".getBytes(),
+					os);
+			assertEquals(ProcessState.TIMEOUT(), state);
+			assertEquals(0, os.size());
+
+			final String after = render(cmd, "digraph after { b }");
+			assertNotEquals(worker(before), worker(after));
+		} finally {
+			OptionFlags.getInstance().setTimeoutMs(timeout);
+		}
+	}
+
+}
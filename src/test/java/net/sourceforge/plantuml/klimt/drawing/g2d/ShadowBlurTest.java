@@ -0,0 +1,81 @@
+package net.sourceforge.plantuml.klimt.drawing.g2d;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Kernel;
+
+import org.junit.jupiter.api.Test;
+
+class ShadowBlurTest {
+
+	private static final Color GRAY = new Color(170, 170, 170);
+
+	/**
+	 * The former rendering, kept as a reference.
+	 */
+	private static BufferedImage convolve(Shape shape, Color color, boolean fill, double deltaShadow, double dpiFactor) {
+		final Rectangle2D bounds = shape.getBounds2D();
+		final double w = (bounds.getWidth() + deltaShadow * 2 + 6) * dpiFactor;
+		final double h = (bounds.getHeight() + deltaShadow * 2 + 6) * dpiFactor;
+		final BufferedImage image = new BufferedImage((int) w, (int) h, BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D gg = image.createGraphics();
+		gg.scale(dpiFactor, dpiFactor);
+		gg.translate(deltaShadow - bounds.getMinX(), deltaShadow - bounds.getMinY());
+		if (color != null)
+			gg.setColor(color);
+		if (fill)
+			gg.fill(shape);
+		else
+			gg.draw(shape);
+		gg.dispose();
+
+		final float[] elements = new float[(int) (36 * dpiFactor)];
+		for (int k = 0; k < elements.length; k++)
+			elements[k] = (float) (1.0 / elements.length);
+		final int size = (int) (6 * Math.sqrt(dpiFactor));
+		return new ConvolveOp(new Kernel(size, size, elements), ConvolveOp.EDGE_NO_OP, null).filter(image, null);
+	}
+
+	private static int[] pixels(BufferedImage image) {
+		return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+	private static void assertSameAsConvolve(Shape shape, Color color, boolean fill, double dpiFactor) {
+		assertArrayEquals(pixels(convolve(shape, color, fill, 4, dpiFactor)),
+				pixels(ShadowBlur.getShadow(shape, color, fill, 4, dpiFactor)));
+	}
+
+	@Test
+	void filledShapesMatchConvolveOp() {
+		assertSameAsConvolve(new Rectangle2D.Double(10.5, 20.25, 120.3, 48), GRAY, true, 1);
+		assertSameAsConvolve(new RoundRectangle2D.Double(3, 7.7, 80, 30.1, 10, 10), GRAY, true, 1);
+		assertSameAsConvolve(new Ellipse2D.Double(0.4, 0, 33, 21), GRAY, true, 1.5);
+		assertSameAsConvolve(new Rectangle2D.Double(17, 9, 64.6, 25), GRAY, true, 2);
+	}
+
+	@Test
+	void drawnShapesMatchConvolveOp() {
+		assertSameAsConvolve(new Line2D.Double(5, 5, 180.5, 5), new Color(30, 30, 30), false, 1);
+		assertSameAsConvolve(new RoundRectangle2D.Double(3, 7.7, 80, 30.1, 10, 10), null, false, 1);
+		assertSameAsConvolve(new Line2D.Double(1, 2, 40, 31), null, false, 2.3);
+	}
+
+	@Test
+	void identicalShapesShareTheirShadow() {
+		final BufferedImage first = ShadowBlur.getShadow(new Rectangle2D.Double(10, 10, 90, 40), GRAY, true, 4, 1);
+		final BufferedImage second = ShadowBlur.getShadow(new Rectangle2D.Double(300, 70, 90, 40), GRAY, true, 4, 1);
+		assertSame(first, second);
+	}
+
+}
@@ -0,0 +1,95 @@
+package net.sourceforge.plantuml.klimt.drawing.svg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.plantuml.klimt.UGroupType;
+import net.sourceforge.plantuml.klimt.UPath;
+import net.sourceforge.plantuml.klimt.color.HColors;
+import net.sourceforge.plantuml.skin.Pragma;
+
+class SvgStreamDocumentTest {
+
+	private static final String[] SAMPLES = { "", "plain", "a < b && c > d", "\"quoted\" 'single'",
+			"line\nbreak\r\n\ttab", "\u00e9t\u00e9 \u20ac \ud83d\ude00 \u00a0", "]]> x ]]]>", "\u0001\u001f\u007f\u0080",
+			"-- dash ---", "-", "\u00e9]]>\n<" };
+
+	private static String write(SvgDocument document, String sample) throws Exception {
+		final SvgElement root = document.getRoot();
+		root.setAttribute("xmlns", "http://www.w3.org/2000/svg");
+		root.setAttribute("b", sample);
+		root.setAttribute("A", "upper");
+		final SvgElement g = document.createLiveElement("g");
+		root.appendChild(g);
+
+		final SvgElement text = document.createElement("text");
+		text.setAttribute("z", sample);
+		text.setTextContent(sample);
+		g.appendChild(text);
+
+		final SvgElement style = document.createElement("style");
+		style.appendCData(sample);
+		g.appendChild(style);
+		g.appendComment(sample);
+
+		final SvgElement empty = document.createElement("g");
+		empty.setAttribute("id", "empty");
+		g.appendChild(empty);
+		root.setAttribute("late", "after children");
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		document.write(baos);
+		return baos.toString("US-ASCII");
+	}
+
+	@Test
+	void escapes_like_the_dom_serializer() throws Exception {
+		for (String sample : SAMPLES)
+			assertEquals(write(new SvgDomDocument(), sample), write(new SvgStreamDocument(), sample), sample);
+	}
+
+	private static String draw(boolean streaming) throws Exception {
+		final SvgOption option = SvgOption.basic().withStreaming(streaming).withBackcolor(HColors.BLUE)
+				.withHoverPathColorRGB("#FF0000").withPragma(Pragma.createEmpty());
+		final SvgGraphics svg = new SvgGraphics(42, option);
+		final Map<String, String> noAttributes = Collections.emptyMap();
+		svg.setFillColor(svg.createSvgGradient("#FFFFFF", "#000000", '|'));
+		svg.svgRectangle(10, 10, 50, 20, 2, 2, 3);
+
+		final Map<UGroupType, String> group = new EnumMap<UGroupType, String>(UGroupType.class);
+		group.put(UGroupType.TITLE, "entity <1>");
+		group.put(UGroupType.CLASS, "entity");
+		svg.startGroup(group);
+		svg.openLink("http://plantuml.com?a=1&b=2", "tip", "_top");
+		svg.text("\u00e9t\u00e9 & co", 12, 40, "monospaced", 14, "bold", null, null, 60, noAttributes, "#FFFF00");
+		svg.closeLink();
+		svg.svgLine(0, 0, 100, 100, 0);
+		svg.closeGroup();
+
+		// An empty group is dropped
+		svg.startGroup(group);
+		svg.closeGroup();
+
+		final UPath path = UPath.none();
+		path.moveTo(0, 0);
+		path.lineTo(20, 30);
+		svg.svgPath(5, 5, path, 0);
+		svg.addComment("done -- here");
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		svg.createXml(baos);
+		return baos.toString("US-ASCII");
+	}
+
+	@Test
+	void same_output_as_the_dom_backend() throws Exception {
+		assertEquals(draw(false), draw(true));
+	}
+
+}
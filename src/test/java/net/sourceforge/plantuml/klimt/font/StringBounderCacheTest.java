@@ -0,0 +1,26 @@
+package net.sourceforge.plantuml.klimt.font;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+
+class StringBounderCacheTest {
+
+	@Test
+	void keysAreComparedByValue() {
+		final StringBounderCache.Key key = new StringBounderCache.Key("g2d", UFont.sansSerif(12), "hello");
+		assertEquals(key, new StringBounderCache.Key("g2d", UFont.sansSerif(12), "hello"));
+		assertEquals(key.hashCode(), new StringBounderCache.Key("g2d", UFont.sansSerif(12), "hello").hashCode());
+		assertFalse(key.equals(new StringBounderCache.Key("g2d", UFont.sansSerif(12), "world")));
+		assertFalse(key.equals(new StringBounderCache.Key("g2d", UFont.sansSerif(14), "hello")));
+	}
+
+	@Test
+	void keysAreNeverEqualToOtherObjects() {
+		final StringBounderCache.Key key = new StringBounderCache.Key("g2d", UFont.sansSerif(12), "hello");
+		assertFalse(key.equals(null));
+		assertFalse(key.equals("hello"));
+	}
+
+}
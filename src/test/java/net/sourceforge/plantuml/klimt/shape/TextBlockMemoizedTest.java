@@ -0,0 +1,58 @@
+package net.sourceforge.plantuml.klimt.shape;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.plantuml.FileFormat;
+import net.sourceforge.plantuml.klimt.drawing.UGraphic;
+import net.sourceforge.plantuml.klimt.font.StringBounder;
+import net.sourceforge.plantuml.klimt.geom.MinMax;
+import net.sourceforge.plantuml.klimt.geom.XDimension2D;
+
+class TextBlockMemoizedTest {
+
+	static class Counting extends AbstractTextBlock {
+		private int dimensions;
+		private int draws;
+
+		public XDimension2D calculateDimension(StringBounder stringBounder) {
+			dimensions++;
+			return new XDimension2D(30, 20);
+		}
+
+		public void drawU(UGraphic ug) {
+			draws++;
+			ug.draw(URectangle.build(30, 20));
+		}
+	}
+
+	@Test
+	void values_are_computed_once_per_string_bounder() {
+		final Counting counting = new Counting();
+		final TextBlock memoized = TextBlockUtils.memoize(counting);
+		assertSame(memoized, TextBlockUtils.memoize(memoized));
+
+		final StringBounder sb1 = FileFormat.PNG.getDefaultStringBounder();
+		final StringBounder sb2 = FileFormat.SVG.getDefaultStringBounder();
+		final long before = TextBlockUtils.getAvoidedRecomputations();
+
+		final XDimension2D dim = memoized.calculateDimension(sb1);
+		assertSame(dim, memoized.calculateDimension(sb1));
+		assertEquals(1, counting.dimensions);
+		memoized.calculateDimension(sb2);
+		assertEquals(2, counting.dimensions);
+
+		final MinMax minMax = TextBlockUtils.getMinMax(memoized, sb1, true);
+		assertSame(minMax, TextBlockUtils.getMinMax(memoized, sb1, true));
+		assertEquals(1, counting.draws);
+		TextBlockUtils.getMinMax(memoized, sb1, false);
+		assertEquals(2, counting.draws);
+
+		assertEquals(2, TextBlockUtils.getAvoidedRecomputations() - before);
+		assertSame(counting, TextBlockUtils.unmemoize(memoized));
+		assertEquals(TextBlockUtils.getMinMax(counting, sb1, true).getMaxX(), minMax.getMaxX());
+	}
+
+}
@@ -0,0 +1,124 @@
+package net.sourceforge.plantuml.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class TraceTest {
+
+	private static String export() throws IOException {
+		final StringBuilder sb = new StringBuilder();
+		Trace.exportJson(sb);
+		return sb.toString();
+	}
+
+	private static int count(String s, String part) {
+		int result = 0;
+		for (int i = s.indexOf(part); i != -1; i = s.indexOf(part, i + 1))
+			result++;
+		return result;
+	}
+
+	@Test
+	void spans_are_recorded_per_thread() throws Exception {
+		final boolean old = Trace.isEnabled();
+		try {
+			Trace.setEnabled(true);
+			Trace.reset();
+			try (Trace.Span span = Trace.start(Trace.Phase.LAYOUT, "Sequence\"Diagram")) {
+				try (Trace.Span inner = Trace.start(Trace.Phase.DRAW)) {
+				}
+			}
+			final Thread other = new Thread(new Runnable() {
+				public void run() {
+					try (Trace.Span span = Trace.start(Trace.Phase.PARSE)) {
+					}
+				}
+			}, "worker");
+			other.start();
+			other.join();
+
+			final String json = export();
+			assertTrue(json.startsWith("{\"traceEvents\":["));
+			assertEquals(2, count(json, "\"ph\":\"M\""));
+			assertEquals(3, count(json, "\"ph\":\"X\""));
+			assertTrue(json.contains("{\"name\":\"draw\",\"cat\":\"plantuml\",\"ph\":\"X\""));
+			assertTrue(json.contains("\"args\":{\"detail\":\"Sequence\\\"Diagram\"}"));
+			assertTrue(json.contains("\"args\":{\"name\":\"worker\",\"dropped\":0}"));
+			// inner spans close first
+			assertTrue(json.indexOf("\"name\":\"draw\"") < json.indexOf("\"name\":\"layout\""));
+
+			Trace.reset();
+			assertEquals(0, count(export(), "\"ph\":\"X\""));
+		} finally {
+			Trace.setEnabled(old);
+		}
+	}
+
+	@Test
+	void export_and_reset_returns_each_span_once() throws Exception {
+		final boolean old = Trace.isEnabled();
+		try {
+			Trace.setEnabled(true);
+			Trace.reset();
+			for (int i = 0; i < 300; i++)
+				Trace.start(Trace.Phase.DRAW).close();
+
+			StringBuilder sb = new StringBuilder();
+			Trace.exportJsonAndReset(sb);
+			assertEquals(300, count(sb.toString(), "\"ph\":\"X\""));
+			assertEquals(0, Trace.getBufferCount());
+
+			Trace.start(Trace.Phase.ENCODE).close();
+			sb = new StringBuilder();
+			Trace.exportJsonAndReset(sb);
+			assertEquals(1, count(sb.toString(), "\"ph\":\"X\""));
+			assertTrue(sb.toString().contains("\"name\":\"encode\""));
+		} finally {
+			Trace.reset();
+			Trace.setEnabled(old);
+		}
+	}
+
+	@Test
+	void buffers_of_dead_threads_are_dropped() throws Exception {
+		final boolean old = Trace.isEnabled();
+		try {
+			Trace.setEnabled(true);
+			Trace.reset();
+			for (int i = 0; i < Trace.MAX_DEAD_BUFFERS + 10; i++) {
+				final Thread thread = new Thread(new Runnable() {
+					public void run() {
+						Trace.start(Trace.Phase.PARSE).close();
+					}
+				});
+				thread.start();
+				thread.join();
+			}
+			Trace.start(Trace.Phase.PARSE).close();
+			assertEquals(Trace.MAX_DEAD_BUFFERS + 1, Trace.getBufferCount());
+		} finally {
+			Trace.reset();
+			Trace.setEnabled(old);
+		}
+	}
+
+	@Test
+	void nothing_is_recorded_when_disabled() throws Exception {
+		final boolean old = Trace.isEnabled();
+		try {
+			Trace.setEnabled(false);
+			Trace.reset();
+			try (Trace.Span span = Trace.start(Trace.Phase.ENCODE)) {
+			}
+			assertFalse(export().contains("encode"));
+		} finally {
+			Trace.setEnabled(old);
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package net.sourceforge.plantuml.picoweb;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.sourceforge.plantuml.security.SFile;
+
+class ImageCacheTest {
+
+	private static DiagramResponse response(int size) {
+		return new DiagramResponse("200 OK", Arrays.asList("Content-length: " + size), new byte[size]);
+	}
+
+	@Test
+	void entriesAreEvictedWhenMemoryBudgetIsExceeded() {
+		final ImageCache cache = new ImageCache(2500, null);
+		cache.put("a", response(1000));
+		cache.put("b", response(1000));
+		cache.put("c", response(1000));
+
+		assertNull(cache.get("a"));
+		assertNotNull(cache.get("b"));
+		assertNotNull(cache.get("c"));
+		assertEquals(2, cache.getMemoryCount());
+	}
+
+	@Test
+	void evictedEntriesAreReadBackFromSpillDirectory(@TempDir Path tempDir) {
+		final ImageCache cache = new ImageCache(2500, SFile.fromFile(tempDir.toFile()));
+		final DiagramResponse first = response(1000);
+		cache.put("a", first);
+		cache.put("b", response(1000));
+		cache.put("c", response(1000));
+
+		final DiagramResponse reloaded = cache.get("a");
+		assertNotNull(reloaded);
+		assertEquals(first.getReturnCode(), reloaded.getReturnCode());
+		assertEquals(first.getHeaders(), reloaded.getHeaders());
+		assertArrayEquals(first.getData(), reloaded.getData());
+	}
+
+	@Test
+	void spillDirectoryIsPrunedWhenDiskBudgetIsExceeded(@TempDir Path tempDir) {
+		final ImageCache cache = new ImageCache(1500, SFile.fromFile(tempDir.toFile()), 2500);
+		cache.put("a", response(1000));
+		cache.put("b", response(1000));
+		cache.put("c", response(1000));
+		cache.put("d", response(1000));
+		cache.put("e", response(1000));
+
+		assertEquals(2, cache.getDiskCount());
+		assertTrue(cache.getDiskBytes() <= 2500);
+		assertEquals(2, tempDir.toFile().list().length);
+		assertNull(cache.get("a"));
+		assertNotNull(cache.get("c"));
+	}
+
+	@Test
+	void leftoversAreCleanedAtStartup(@TempDir Path tempDir) throws IOException {
+		final File dir = tempDir.toFile();
+		Files.write(new File(dir, "x.12.tmp").toPath(), new byte[10]);
+		final ImageCache first = new ImageCache(1000, SFile.fromFile(dir));
+		first.put("a", response(800));
+		first.put("b", response(800));
+
+		final ImageCache second = new ImageCache(1000, SFile.fromFile(dir));
+		assertEquals(1, second.getDiskCount());
+		assertEquals(1, dir.list().length);
+		assertNotNull(second.get("a"));
+	}
+
+}
@@ -18,6 +18,7 @@ import javax.imageio.stream.MemoryCacheImageInputStream;
 import net.sourceforge.plantuml.json.Json;
 import net.sourceforge.plantuml.json.JsonObject;
 import net.sourceforge.plantuml.log.Logme;
+import net.sourceforge.plantuml.log.Trace;
 
 // Newer Java versions have nice built-in HTTP classes in the jdk.incubator.httpclient / java.net.http packages
 // but PlantUML supports older Java versions so the tests here use a kludgy approach to HTTP.
@@ -34,6 +35,11 @@ public class PicoWebServerTest {
 		test_GET_svg();
 		test_POST_render();
 		test_unknown_path();
+		test_keep_alive();
+		test_etag();
+		test_no_etag_when_non_deterministic();
+		test_metrics();
+		test_trace();
 	}
 
 	//
@@ -227,6 +233,101 @@ public class PicoWebServerTest {
 		assert response.getHeaderField("Location").equals("/plantuml/png/oqbDJyrBuGh8ISmh2VNrKGZ8JCuFJqqAJYqgIotY0aefG5G00000");
 	}
 
+	private static void test_keep_alive() throws Exception {
+		final String get = "GET /txt/" + getDefaultTranscoder().encode("A -> B") + " HTTP/1.1\n";
+
+		// Three pipelined requests on one connection, the last one closes it
+		final String responses = httpRaw("" +
+				get + "\n" +
+				get + "\n" +
+				get + "Connection: close\n\n"
+		);
+		assert responses.split("HTTP/1.1 200 OK\n").length == 4;
+
+		// HTTP/1.0 connections are closed after the first answer
+		assert httpRaw("" +
+				"GET /foo HTTP/1.0\n\n" +
+				"GET /foo HTTP/1.0\n\n"
+		).equals("" +
+				"HTTP/1.1 302 Found\n" +
+				"Location: /plantuml/png/oqbDJyrBuGh8ISmh2VNrKGZ8JCuFJqqAJYqgIotY0aefG5G00000\n" +
+				"Content-length: 0\n" +
+				"\n"
+		);
+	}
+
+	private static void test_etag() throws Exception {
+		final String path = "/png/" + getDefaultTranscoder().encode("A -> B : etag");
+
+		HttpURLConnection response = httpGet(path);
+		assert response.getResponseCode() == 200;
+		final String etag = response.getHeaderField("ETag");
+		assert etag != null;
+		final byte[] image = readStreamAsBytes(response.getInputStream());
+
+		// Same URL: same ETag and same image, served from the cache
+		response = httpGet(path);
+		assert response.getResponseCode() == 200;
+		assert response.getHeaderField("ETag").equals(etag);
+		assert java.util.Arrays.equals(readStreamAsBytes(response.getInputStream()), image);
+
+		response = httpGet(path);
+		response.setRequestProperty("If-None-Match", etag);
+		assert response.getResponseCode() == 304;
+		assert response.getHeaderField("ETag").equals(etag);
+
+		response = httpGet("/svg/" + getDefaultTranscoder().encode("A -> B : etag"));
+		assert response.getResponseCode() == 200;
+		assert response.getHeaderField("ETag").equals(etag) == false;
+	}
+
+	private static void test_no_etag_when_non_deterministic() throws Exception {
+		final String[] sources = { "A -> B : %random(1000)", "A -> B : %now()", "A -> B : %date()",
+				"A -> B : %date(\"yyyy-MM-dd\")" };
+		for (String source : sources) {
+			final String path = "/svg/" + getDefaultTranscoder().encode(source);
+			HttpURLConnection response = httpGet(path);
+			assert response.getResponseCode() == 200;
+			assert response.getHeaderField("ETag") == null;
+
+			// Not served from the cache either
+			response = httpGet(path);
+			assert response.getResponseCode() == 200;
+			assert response.getHeaderField("ETag") == null;
+		}
+
+		// A fixed timestamp gives the same diagram every time
+		final HttpURLConnection response = httpGet(
+				"/svg/" + getDefaultTranscoder().encode("A -> B : %date(\"yyyy-MM-dd\", 0)"));
+		assert response.getResponseCode() == 200;
+		assert response.getHeaderField("ETag") != null;
+	}
+
+	private static void test_metrics() throws Exception {
+		assert httpGet("/png/" + getDefaultTranscoder().encode("A -> B : metrics")).getResponseCode() == 200;
+
+		final HttpURLConnection response = httpGet("/metrics");
+		assert response.getResponseCode() == 200;
+		assert response.getContentType().startsWith("text/plain");
+		final String metrics = readStreamAsString(response.getInputStream());
+		assert metrics.contains("# TYPE plantuml_phase_duration_seconds histogram");
+		assert metrics.contains("plantuml_phase_duration_seconds_count{type=\"SequenceDiagram\",phase=\"parse\"} ");
+		assert metrics.contains("plantuml_phase_duration_seconds_bucket{type=\"SequenceDiagram\",phase=\"encode\",le=\"+Inf\"} ");
+	}
+
+	private static void test_trace() throws Exception {
+		Trace.setEnabled(true);
+		assert httpGet("/png/" + getDefaultTranscoder().encode("A -> B : trace")).getResponseCode() == 200;
+
+		HttpURLConnection response = httpGet("/trace");
+		assert response.getResponseCode() == 200;
+		assert response.getContentType().startsWith("application/json");
+		assert readStreamAsString(response.getInputStream()).contains("\"name\":\"encode\"");
+
+		response = httpGet("/trace");
+		assert readStreamAsString(response.getInputStream()).contains("\"name\":\"encode\"") == false;
+	}
+
 	//
 	// Test DSL
 	//
@@ -262,13 +363,17 @@ public class PicoWebServerTest {
 	}
 
 	private static String readStreamAsString(InputStream in) throws IOException {
+		return new String(readStreamAsBytes(in), UTF_8.name());
+	}
+
+	private static byte[] readStreamAsBytes(InputStream in) throws IOException {
 		byte[] buffer = new byte[1024];
 		int length;
 		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		while ((length = in.read(buffer)) != -1) {
 			baos.write(buffer, 0, length);
 		}
-		return baos.toString(UTF_8.name());
+		return baos.toByteArray();
 	}
 
 	private static String renderRequestJson(String source, String... options) {
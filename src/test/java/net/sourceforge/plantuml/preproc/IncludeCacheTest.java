@@ -0,0 +1,58 @@
+package net.sourceforge.plantuml.preproc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.sourceforge.plantuml.security.SFile;
+import net.sourceforge.plantuml.text.StringLocated;
+
+class IncludeCacheTest {
+
+	@Test
+	void linesAreSharedWhileTheFileIsUnchanged(@TempDir Path dir) throws Exception {
+		final File file = dir.resolve("lib.iuml").toFile();
+		Files.write(file.toPath(), "\uFEFF!procedure $a()\n\u2013\n!endprocedure\n".getBytes(UTF_8));
+
+		final List<String> first = new FileWithSuffix(new SFile(file.getAbsolutePath()), null).getLines(UTF_8);
+		final List<String> second = new FileWithSuffix(new SFile(file.getAbsolutePath()), null).getLines(UTF_8);
+
+		assertEquals(Arrays.asList("!procedure $a()", "-", "!endprocedure"), first);
+		assertSame(first, second);
+	}
+
+	@Test
+	void changedFilesAreReadAgain(@TempDir Path dir) throws Exception {
+		final File file = dir.resolve("lib.iuml").toFile();
+		Files.write(file.toPath(), "a\n".getBytes(UTF_8));
+		final FileWithSuffix f = new FileWithSuffix(new SFile(file.getAbsolutePath()), null);
+		assertEquals(Arrays.asList("a"), f.getLines(UTF_8));
+
+		Files.write(file.toPath(), "a\nb\n".getBytes(UTF_8));
+		assertEquals(Arrays.asList("a", "b"), f.getLines(UTF_8));
+	}
+
+	@Test
+	void cachedLinesAreNumberedLikeTheReader() throws Exception {
+		final ReadLine reader = new ReadLineCached(Arrays.asList("a", "b"), "lib.iuml", null);
+		final StringLocated a = reader.readLine();
+		final StringLocated b = reader.readLine();
+
+		assertEquals("a", a.getString());
+		assertEquals(0, a.getLocation().getPosition());
+		assertEquals(1, b.getLocation().getPosition());
+		assertEquals("lib.iuml", b.getLocation().getDescription());
+		assertNull(reader.readLine());
+	}
+
+}
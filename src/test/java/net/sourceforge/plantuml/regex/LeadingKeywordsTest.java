@@ -0,0 +1,52 @@
+package net.sourceforge.plantuml.regex;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class LeadingKeywordsTest {
+
+	@Test
+	void literalWord() {
+		final IRegex regex = RegexConcat.build("t1", RegexLeaf.start(), new RegexLeaf("Class"),
+				RegexLeaf.spaceOneOrMore(), new RegexLeaf("NAME", "(\\w+)"), RegexLeaf.end());
+		assertArrayEquals(new String[] { "class" }, LeadingKeywords.of(regex));
+	}
+
+	@Test
+	void groupOfAlternatives() {
+		final IRegex regex = RegexConcat.build("t2", RegexLeaf.start(), new RegexLeaf("TYPE", "(abstract|interface)"),
+				RegexLeaf.end());
+		assertArrayEquals(new String[] { "abstract", "interface" }, LeadingKeywords.of(regex));
+	}
+
+	@Test
+	void regexOr() {
+		final IRegex regex = RegexConcat.build("t3", RegexLeaf.start(),
+				new RegexOr(new RegexLeaf("(?:end)"), new RegexLeaf("stop")), RegexLeaf.end());
+		assertArrayEquals(new String[] { "end", "stop" }, LeadingKeywords.of(regex));
+	}
+
+	@Test
+	void optionalCharacterEndsTheWord() {
+		final IRegex regex = RegexConcat.build("t4", RegexLeaf.start(), new RegexLeaf("end[%s]?note"),
+				RegexLeaf.end());
+		assertArrayEquals(new String[] { "end" }, LeadingKeywords.of(regex));
+		assertArrayEquals(new String[] { "not" },
+				LeadingKeywords.of(RegexConcat.build("t5", RegexLeaf.start(), new RegexLeaf("note?"), RegexLeaf.end())));
+	}
+
+	@Test
+	void unknownStart() {
+		assertNull(LeadingKeywords.of(RegexConcat.build("t6", RegexLeaf.start(), RegexLeaf.spaceZeroOrMore(),
+				new RegexLeaf("class"), RegexLeaf.end())));
+		assertNull(LeadingKeywords.of(RegexConcat.build("t7", RegexLeaf.start(),
+				new RegexOptional(new RegexLeaf("abstract")), new RegexLeaf("class"), RegexLeaf.end())));
+		assertNull(LeadingKeywords.of(
+				RegexConcat.build("t8", RegexLeaf.start(), new RegexLeaf("(class)?"), RegexLeaf.end())));
+		assertNull(LeadingKeywords.of(
+				RegexConcat.build("t9", RegexLeaf.start(), new RegexLeaf("class|enum"), RegexLeaf.end())));
+	}
+
+}
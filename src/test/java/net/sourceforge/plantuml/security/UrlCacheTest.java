@@ -0,0 +1,137 @@
+package net.sourceforge.plantuml.security;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+class UrlCacheTest {
+
+	private static final byte[] BODY = "@startuml\nA -> B\n@enduml\n".getBytes(StandardCharsets.UTF_8);
+	private static final String ETAG = "\"v1\"";
+
+	/**
+	 * Local HTTP server answering 304 when the client sends the current ETag.
+	 */
+	static class StubServer implements HttpHandler, AutoCloseable {
+
+		private final HttpServer server;
+		private final AtomicInteger requests = new AtomicInteger();
+		private final AtomicInteger notModified = new AtomicInteger();
+		private final long delayMs;
+
+		StubServer(long delayMs) throws IOException {
+			this.delayMs = delayMs;
+			this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			this.server.createContext("/", this);
+			this.server.start();
+			System.setProperty(SecurityUtils.ALLOWLIST_URL, "http://localhost:" + getPort() + "/");
+		}
+
+		int getPort() {
+			return server.getAddress().getPort();
+		}
+
+		SURL url(String path) {
+			return SURL.create("http://localhost:" + getPort() + path);
+		}
+
+		public void handle(HttpExchange exchange) throws IOException {
+			requests.incrementAndGet();
+			try {
+				Thread.sleep(delayMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.getResponseHeaders().add("ETag", ETAG);
+			if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				notModified.incrementAndGet();
+				exchange.sendResponseHeaders(304, -1);
+			} else {
+				exchange.sendResponseHeaders(200, BODY.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(BODY);
+				}
+			}
+			exchange.close();
+		}
+
+		public void close() {
+			server.stop(0);
+			System.getProperties().remove(SecurityUtils.ALLOWLIST_URL);
+		}
+	}
+
+	@Test
+	void freshEntriesAreServedFromMemory() throws Exception {
+		try (StubServer stub = new StubServer(0)) {
+			final UrlCache cache = new UrlCache(60000, 1024 * 1024, null);
+			final SURL url = stub.url("/fresh.puml");
+			assertArrayEquals(BODY, cache.getBytes(url));
+			assertArrayEquals(BODY, cache.getBytes(url));
+			assertEquals(1, stub.requests.get());
+		}
+	}
+
+	@Test
+	void staleEntriesAreRevalidated() throws Exception {
+		try (StubServer stub = new StubServer(0)) {
+			final UrlCache cache = new UrlCache(0, 1024 * 1024, null);
+			final SURL url = stub.url("/stale.puml");
+			assertArrayEquals(BODY, cache.getBytes(url));
+			assertArrayEquals(BODY, cache.getBytes(url));
+			assertEquals(2, stub.requests.get());
+			assertEquals(1, stub.notModified.get());
+		}
+	}
+
+	@Test
+	void concurrentRequestsShareOneDownload() throws Exception {
+		try (StubServer stub = new StubServer(300)) {
+			final UrlCache cache = new UrlCache(60000, 1024 * 1024, null);
+			final SURL url = stub.url("/shared.puml");
+			final List<Thread> threads = new ArrayList<>();
+			final AtomicInteger ok = new AtomicInteger();
+			for (int i = 0; i < 8; i++) {
+				final Thread thread = new Thread(() -> {
+					if (cache.getBytes(url) != null)
+						ok.incrementAndGet();
+				});
+				threads.add(thread);
+				thread.start();
+			}
+			for (Thread thread : threads)
+				thread.join();
+
+			assertEquals(8, ok.get());
+			assertEquals(1, stub.requests.get());
+		}
+	}
+
+	@Test
+	void entriesSurviveOnDisk(@TempDir Path tempDir) throws Exception {
+		try (StubServer stub = new StubServer(0)) {
+			final SFile dir = new SFile(tempDir.toFile().getAbsolutePath());
+			final SURL url = stub.url("/disk.puml");
+			assertArrayEquals(BODY, new UrlCache(0, 1024 * 1024, dir).getBytes(url));
+			assertArrayEquals(BODY, new UrlCache(0, 1024 * 1024, dir).getBytes(url));
+			assertEquals(2, stub.requests.get());
+			assertEquals(1, stub.notModified.get());
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+package net.sourceforge.plantuml.sequencediagram.graphic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ConstraintSetTest {
+
+	private static List<ParticipantBoxSimple> boxes(int count) {
+		final List<ParticipantBoxSimple> result = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+			result.add(new ParticipantBoxSimple(10 * (i + 1), "P" + i));
+
+		return result;
+	}
+
+	@Test
+	void constraints_are_shared_whatever_the_order() {
+		final List<ParticipantBoxSimple> p = boxes(3);
+		final ConstraintSet set = new ConstraintSet(p, 40);
+
+		assertSame(set.getConstraint(p.get(0), p.get(2)), set.getConstraint(p.get(2), p.get(0)));
+		assertSame(set.getConstraintAfter(p.get(0)), set.getConstraintBefore(p.get(1)));
+		assertSame(set.getFirstBorder(), set.getPrevious(p.get(0)));
+		assertSame(set.getLastborder(), set.getNext(p.get(2)));
+		assertThrows(IllegalArgumentException.class,
+				() -> set.getConstraint(p.get(0), new ParticipantBoxSimple(0, "other")));
+	}
+
+	@Test
+	void shorter_constraints_are_enforced_first() {
+		final List<ParticipantBoxSimple> p = boxes(5);
+		final ConstraintSet set = new ConstraintSet(p, 60);
+		set.getConstraint(p.get(2), p.get(4)).ensureValue(100);
+		set.getConstraint(p.get(0), p.get(3)).ensureValue(100);
+
+		set.takeConstraintIntoAccount(null);
+
+		assertEquals(10, p.get(0).getCenterX(null));
+		assertEquals(30, p.get(2).getCenterX(null));
+		assertEquals(110, p.get(3).getCenterX(null));
+		assertEquals(200, p.get(4).getCenterX(null));
+		assertEquals(210, set.getMaxX());
+	}
+
+	@Test
+	void push_starts_at_the_given_participant() {
+		final List<ParticipantBoxSimple> p = boxes(3);
+		final ConstraintSet set = new ConstraintSet(p, 40);
+
+		set.pushToLeftParticipantBox(5, p.get(1), false);
+		set.pushToLeftParticipantBox(1, p.get(1), true);
+
+		assertEquals(10, p.get(0).getCenterX(null));
+		assertEquals(21, p.get(1).getCenterX(null));
+		assertEquals(36, p.get(2).getCenterX(null));
+		assertEquals(46, set.getMaxX());
+	}
+
+}
@@ -0,0 +1,106 @@
+package net.sourceforge.plantuml.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.plantuml.json.JsonObject;
+import net.sourceforge.plantuml.log.Trace;
+
+class PhaseMetricsTest {
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	void nested_spans_are_recorded_as_self_time() throws Exception {
+		final boolean old = PhaseMetrics.isEnabled();
+		try {
+			PhaseMetrics.setEnabled(true);
+			PhaseMetrics.reset();
+
+			try (Trace.Span layout = Trace.start(Trace.Phase.LAYOUT)) {
+				layout.setDiagramType("FooDiagram");
+				sleep(5);
+				try (Trace.Span draw = Trace.start(Trace.Phase.DRAW)) {
+					sleep(60);
+				}
+			}
+
+			final JsonObject foo = PhaseMetrics.toJson().get("types").asObject().get("FooDiagram").asObject();
+			final double layout = foo.get("layout").asObject().get("sum_ms").asDouble();
+			final double draw = foo.get("draw").asObject().get("sum_ms").asDouble();
+			assertTrue(draw >= 60, "draw " + draw);
+			assertTrue(layout >= 5 && layout < 60, "layout " + layout);
+			assertEquals(1, foo.get("draw").asObject().get("count").asLong());
+		} finally {
+			PhaseMetrics.setEnabled(old);
+		}
+	}
+
+	@Test
+	void type_can_be_set_after_close() throws Exception {
+		final boolean old = PhaseMetrics.isEnabled();
+		try {
+			PhaseMetrics.setEnabled(true);
+			PhaseMetrics.reset();
+
+			final Trace.Span span;
+			try (Trace.Span preprocess = Trace.start(Trace.Phase.PREPROCESS)) {
+				span = preprocess;
+			}
+			assertEquals("{}", PhaseMetrics.toJson().get("types").toString());
+			span.setDiagramType("BarDiagram");
+			span.setDiagramType("BarDiagram");
+
+			final StringBuilder sb = new StringBuilder();
+			PhaseMetrics.exportPrometheus(sb);
+			final String text = sb.toString();
+			assertTrue(text.contains("plantuml_phase_duration_seconds_count{type=\"BarDiagram\",phase=\"preprocess\"} 1\n"));
+			assertTrue(text.contains(
+					"plantuml_phase_duration_seconds_bucket{type=\"BarDiagram\",phase=\"preprocess\",le=\"+Inf\"} 1\n"));
+			assertTrue(text.contains("plantuml_phase_allocated_bytes_total{type=\"BarDiagram\",phase=\"preprocess\"} "));
+		} finally {
+			PhaseMetrics.setEnabled(old);
+		}
+	}
+
+	@Test
+	void max_is_kept_under_concurrent_updates() throws Exception {
+		final PhaseMetrics.Series series = new PhaseMetrics.Series();
+		final Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < 10000; i++)
+						series.add(i * threads.length + offset, 0);
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(10000 * threads.length - 1, series.percentile(1.0));
+	}
+
+	@Test
+	void allocated_bytes_are_measured_or_unknown() {
+		final long before = PhaseMetrics.allocatedBytes();
+		final byte[] data = new byte[1024 * 1024];
+		final long after = PhaseMetrics.allocatedBytes();
+		if (before == -1)
+			assertEquals(-1, after);
+		else
+			assertTrue(after - before >= data.length, before + " " + after);
+	}
+
+}
@@ -0,0 +1,177 @@
+package net.sourceforge.plantuml.style;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class StyleBuilderTest {
+
+	private static final PName[] PROPERTIES = { PName.FontSize, PName.FontColor, PName.BackGroundColor,
+			PName.LineColor };
+
+	private StyleBuilder builder = new StyleBuilder(null);
+	private final List<Style> loaded = new ArrayList<>();
+
+	private void load(String value, String... names) {
+		StyleSignatureBasic signature = StyleSignatureBasic.empty();
+		for (String name : names)
+			signature = name.equals("*") ? signature.addStar() : signature.add(name);
+
+		final EnumMap<PName, Value> map = new EnumMap<PName, Value>(PName.class);
+		map.put(PROPERTIES[loaded.size() % PROPERTIES.length], ValueImpl.regular(value, builder));
+		if (loaded.size() % 3 == 0)
+			map.put(PName.FontSize, ValueImpl.regular(value, builder));
+
+		final Style style = new Style(signature, map);
+		if (signature.isStarred())
+			builder = builder.muteStyle(style);
+		else
+			builder.loadInternal(signature, style);
+		loaded.add(style);
+	}
+
+	/**
+	 * The former linear scan, kept as a reference.
+	 */
+	private Style reference(StyleSignatureBasic signature) {
+		Style result = null;
+		for (Style style : loaded)
+			if (style.getSignature().matchAll(signature))
+				result = result == null ? style : result.mergeWith(style, MergeStrategy.OVERWRITE_EXISTING_VALUE);
+		return result;
+	}
+
+	private static String describe(Style style) {
+		if (style == null)
+			return null;
+
+		final StringBuilder sb = new StringBuilder(style.getSignature().getNames().toString());
+		for (PName name : PROPERTIES)
+			sb.append(' ').append(style.value(name).asString());
+		return sb.toString();
+	}
+
+	private static StyleSignatureBasic signature(String... names) {
+		StyleSignatureBasic result = StyleSignatureBasic.empty();
+		for (String name : names)
+			result = name.equals("*") ? result.addStar() : result.add(name);
+		return result;
+	}
+
+	@Test
+	void same_merge_as_a_linear_scan() {
+		load("1", "root");
+		load("2", "root", "element");
+		load("3", "element", "class");
+		load("4", "class", "stereotype");
+		load("5", "node", "depth(1)", "*");
+		load("6", "root", "*");
+		load("7", "element", "arrow");
+		load("8", "class");
+
+		final StyleSignatureBasic[] queries = { signature("root"), signature("root", "element", "class"),
+				signature("root", "element", "class", "stereotype"), signature("root", "element", "arrow"),
+				signature("root", "node", "depth(2)", "*"), signature("root", "node", "depth(0)", "*"),
+				signature("root", "node", "*"), signature("nothing") };
+
+		for (int round = 0; round < 2; round++)
+			for (StyleSignatureBasic query : queries)
+				assertEquals(describe(reference(query)), describe(builder.getMergedStyle(query)), query.toString());
+
+		assertNull(builder.getMergedStyle(signature("nothing")));
+		// Styles 5 and 6 went through muteStyle, which returned a new builder
+		assertEquals(10, builder.getCacheMisses());
+		assertEquals(7, builder.getCacheHits());
+	}
+
+	@Test
+	void load_invalidates_merged_styles() {
+		load("1", "root");
+		load("2", "root", "element");
+		final StyleSignatureBasic query = signature("root", "element");
+		assertEquals("[root, element] 1 2  ", describe(builder.getMergedStyle(query)));
+
+		load("3", "element");
+		assertEquals(describe(reference(query)), describe(builder.getMergedStyle(query)));
+		assertEquals(2, builder.getCacheMisses());
+	}
+
+	@Test
+	void mute_does_not_change_the_original() {
+		load("1", "root");
+		final StyleSignatureBasic query = signature("root");
+		final Style before = builder.getMergedStyle(query);
+
+		final EnumMap<PName, Value> map = new EnumMap<PName, Value>(PName.class);
+		map.put(PName.FontSize, ValueImpl.regular("42", builder));
+		final StyleBuilder muted = builder.muteStyle(new Style(query, map));
+
+		assertEquals("42", muted.getMergedStyle(query).value(PName.FontSize).asString());
+		assertEquals(describe(before), describe(builder.getMergedStyle(query)));
+	}
+
+	private Style referenceSpecial(StyleSignatureBasic signature, int deltaPriority) {
+		Style result = null;
+		for (Style style : loaded)
+			if (style.getSignature().matchAll(signature)) {
+				final Style tmp = style.getSignature().isStarred() ? style.deltaPriority(deltaPriority) : style;
+				result = result == null ? tmp : result.mergeWith(tmp, MergeStrategy.OVERWRITE_EXISTING_VALUE);
+			}
+		return result;
+	}
+
+	@Test
+	void special_is_cached_per_priority() {
+		load("1", "node", "*");
+		load("2", "node");
+		load("3", "node", "leaf");
+		final StyleSignatureBasic query = signature("node", "leaf", "*");
+		for (int delta : new int[] { 100, 0, -100, 100 })
+			assertEquals(describe(referenceSpecial(query, delta)),
+					describe(builder.getMergedStyleSpecial(query, delta)));
+
+		assertEquals(1, builder.getCacheHits());
+	}
+
+	private Style style(String value, String... names) {
+		final EnumMap<PName, Value> map = new EnumMap<PName, Value>(PName.class);
+		map.put(PName.FontSize, ValueImpl.regular(value, 1000));
+		map.put(PName.FontColor, ValueImpl.regular(value, 1000));
+		return new Style(signature(names), map);
+	}
+
+	@Test
+	void shared_skin_behaves_like_a_copy() {
+		load("1", "root");
+		load("2", "root", "element");
+		load("3", "element", "class");
+		final StyleBuilder skin = new StyleBuilder(null);
+		final StyleBuilder copy = new StyleBuilder(null);
+		for (Style style : loaded) {
+			skin.loadInternal(style.getSignature(), style);
+			copy.loadInternal(style.getSignature(), style);
+		}
+		skin.share();
+
+		StyleBuilder overlay = skin.forSkinParam(null);
+		StyleBuilder reference = copy;
+		final Style[] changes = { style("4", "element", "class"), style("5", "arrow"), style("6", "root") };
+		for (Style change : changes) {
+			overlay = overlay.muteStyle(change);
+			reference = reference.muteStyle(change);
+		}
+
+		final StyleSignatureBasic[] queries = { signature("root"), signature("root", "element", "class"),
+				signature("root", "arrow") };
+		for (StyleSignatureBasic query : queries) {
+			assertEquals(describe(reference.getMergedStyle(query)), describe(overlay.getMergedStyle(query)));
+			assertEquals(describe(copy.getMergedStyle(query)), describe(skin.forSkinParam(null).getMergedStyle(query)));
+		}
+	}
+
+}
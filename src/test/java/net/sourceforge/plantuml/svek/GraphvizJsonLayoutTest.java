@@ -0,0 +1,95 @@
+package net.sourceforge.plantuml.svek;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.plantuml.json.Json;
+import net.sourceforge.plantuml.klimt.geom.XPoint2D;
+import net.sourceforge.plantuml.klimt.shape.DotPath;
+
+class GraphvizJsonLayoutTest {
+
+	private static final String JSON = "{\"name\":\"unix\",\"directed\":true,\"strict\":false,\"bb\":\"0,0,54,108\"," //
+			+ "\"_draw_\":[{\"op\":\"c\",\"grad\":\"none\",\"color\":\"#fffffe00\"}," //
+			+ "{\"op\":\"C\",\"grad\":\"none\",\"color\":\"#ffffff\"}," //
+			+ "{\"op\":\"P\",\"points\":[[0,0],[0,108],[54,108],[54,0]]}]," //
+			+ "\"_subgraph_cnt\":1,\"objects\":[" //
+			+ "{\"_gvid\":0,\"name\":\"cluster5\",\"bb\":\"8,8,46,100\"," //
+			+ "\"_draw_\":[{\"op\":\"c\",\"grad\":\"none\",\"color\":\"#000005\"}," //
+			+ "{\"op\":\"p\",\"points\":[[8,8],[8,100],[46,100],[46,8]]}]," //
+			+ "\"_ldraw_\":[{\"op\":\"C\",\"grad\":\"none\",\"color\":\"#000006\"}," //
+			+ "{\"op\":\"P\",\"points\":[[12,96],[12,90],[40,90],[40,96]]}],\"nodes\":[1,2]}," //
+			+ "{\"_gvid\":1,\"name\":\"sh0001\",\"_draw_\":[{\"op\":\"c\",\"grad\":\"none\",\"color\":\"black\"}," //
+			+ "{\"op\":\"p\",\"points\":[[46,100],[16,100],[16,70],[46,70]]}]," //
+			+ "\"_ldraw_\":[{\"op\":\"T\",\"pt\":[31,81],\"align\":\"c\",\"width\":10,\"text\":\"sh0002\"}]}," //
+			+ "{\"_gvid\":2,\"name\":\"sh0002\",\"_draw_\":[{\"op\":\"c\",\"grad\":\"none\",\"color\":\"black\"}," //
+			+ "{\"op\":\"e\",\"rect\":[31,31,15,15]}]}]," //
+			+ "\"edges\":[{\"_gvid\":0,\"tail\":1,\"head\":2,\"color\":\"#000003\",\"id\":\"lnk3\"," //
+			+ "\"_draw_\":[{\"op\":\"c\",\"grad\":\"none\",\"color\":\"#000003\"}," //
+			+ "{\"op\":\"b\",\"points\":[[31,69.7],[31,63],[31,56],[31,49]]}]," //
+			+ "\"_hdraw_\":[{\"op\":\"S\",\"style\":\"solid\"},{\"op\":\"c\",\"grad\":\"none\",\"color\":\"#000003\"}," //
+			+ "{\"op\":\"C\",\"grad\":\"none\",\"color\":\"#000003\"}," //
+			+ "{\"op\":\"P\",\"points\":[[34.5,49],[31,39],[27.5,49]]}]," //
+			+ "\"_tldraw_\":[{\"op\":\"C\",\"grad\":\"none\",\"color\":\"#00000AFF\"}," //
+			+ "{\"op\":\"P\",\"points\":[[33,68],[33,60],[45,60],[45,68]]}]}]}";
+
+	private static GraphvizJsonLayout parse() {
+		return new GraphvizJsonLayout(Json.parse(JSON).asObject());
+	}
+
+	@Test
+	void heightIncludesGraphvizPadding() {
+		assertEquals(116, parse().getFullHeight());
+	}
+
+	@Test
+	void nodesAreFoundByNameWithFlippedCoordinates() {
+		final List<List<XPoint2D>> all = parse().getNodePoints("sh0001");
+		assertEquals(1, all.size());
+		assertEquals(5, all.get(0).size());
+		assertEquals(new XPoint2D(16, 16), SvekUtils.getMinXY(all.get(0)));
+		assertNull(parse().getNodeBezier("sh0001"));
+
+		final double ellipse[] = parse().getNodeEllipse("sh0002");
+		assertEquals(31, ellipse[0]);
+		assertEquals(85, ellipse[1]);
+		assertEquals(15, ellipse[2]);
+		assertEquals(15, ellipse[3]);
+	}
+
+	@Test
+	void clustersUseTheirBoundingBoxAndLabelColor() {
+		final GraphvizJsonLayout layout = parse();
+		final List<XPoint2D> points = layout.getClusterPoints("cluster5");
+		assertEquals(new XPoint2D(8, 16), SvekUtils.getMinXY(points));
+		assertEquals(new XPoint2D(46, 108), SvekUtils.getMaxXY(points));
+		assertEquals(new XPoint2D(12, 20), SvekUtils.getMinXY(layout.getClusterLabelPoints(0x000006)));
+	}
+
+	@Test
+	void edgesAreFoundById() {
+		final GraphvizJsonLayout layout = parse();
+		final DotPath path = layout.getEdgePath("lnk3");
+		assertEquals(new XPoint2D(31, 116 - 69.7), path.getStartPoint());
+		assertEquals(new XPoint2D(31, 67), path.getEndPoint());
+		assertNull(layout.getEdgePath("lnk4"));
+
+		final PointListIterator arrows = layout.getEdgePoints("lnk3");
+		// Closed head arrow, then the tail label table
+		assertEquals(4, arrows.next().size());
+		assertEquals(5, arrows.next().size());
+		assertTrue(arrows.hasNext());
+		assertTrue(arrows.next().isEmpty());
+		assertFalse(arrows.hasNext());
+
+		assertEquals(new XPoint2D(33, 48), layout.getEdgeLabelPosition("lnk3", 0x00000a));
+		assertNull(layout.getEdgeLabelPosition("lnk3", 0x00000b));
+	}
+
+}
@@ -0,0 +1,81 @@
+package net.sourceforge.plantuml.svek;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.sourceforge.plantuml.klimt.geom.XPoint2D;
+
+class SvgResultTest {
+
+	private static final String SVG = "<svg width=\"62pt\" height=\"116pt\">\n" //
+			+ "<g id=\"graph0\" class=\"graph\">\n" //
+			+ "<g id=\"clust1\" class=\"cluster\"><title>cluster_p0</title>\n" //
+			+ "<polygon fill=\"none\" stroke=\"#010204\" points=\"8,-8 8,-108 54,-108 54,-8 8,-8\"/>\n" //
+			+ "</g>\n" //
+			+ "<g id=\"node1\" class=\"node\"><title>sh0001</title>\n" //
+			+ "<polygon fill=\"#f0f0f0\" stroke=\"black\" points=\"46,-100 16,-100 16,-70 46,-70 46,-100\"/>\n" //
+			+ "</g>\n" //
+			+ "<g id=\"node2\" class=\"node\"><title>sh0002</title>\n" //
+			+ "<polygon fill=\"#f0f0f0\" stroke=\"black\" points=\"46,-46 16,-46 16,-16 46,-16 46,-46\"/>\n" //
+			+ "</g>\n" //
+			+ "<g id=\"edge1\" class=\"edge\"><title>sh0001&#45;&gt;sh0002</title>\n" //
+			+ "<path fill=\"none\" style=\"fill:none;stroke:#000003;\" d=\"M31,-69.7C31,-63 31,-56 31,-49\"/>\n" //
+			+ "<polygon fill=\"#000003\" stroke=\"#000003\" points=\"34.5,-49 31,-39 27.5,-49 34.5,-49\"/>\n" //
+			+ "</g>\n" //
+			+ "</g>\n" //
+			+ "</svg>\n";
+
+	private static final Point2DFunction IDENTITY = new Point2DFunction() {
+		public XPoint2D apply(XPoint2D point) {
+			return point;
+		}
+	};
+
+	@Test
+	void titleIndexMatchesIndexOf() {
+		final SvgResult svgResult = new SvgResult(SVG, IDENTITY);
+		assertEquals(SVG.indexOf("<title>sh0001</title>"), svgResult.getTitleIndex("sh0001"));
+		assertEquals(SVG.indexOf("<title>sh0002</title>"), svgResult.getTitleIndex("sh0002"));
+		assertEquals(-1, svgResult.getTitleIndex("sh0003"));
+	}
+
+	@Test
+	void colorIndexMatchesIndexOf() {
+		final SvgResult svgResult = new SvgResult(SVG, IDENTITY);
+		assertEquals(SVG.indexOf("stroke=\"#000003\""), svgResult.getIndexFromColor(0x000003));
+		assertEquals(SVG.indexOf("fill=\"#f0f0f0\""), svgResult.getIndexFromColor(0xF0F0F0));
+		assertEquals(SVG.indexOf("=\"#010204\""), svgResult.getClusterIndex(0x010204));
+		assertEquals(-1, svgResult.getIndexFromColor(0x123456));
+		assertThrows(IllegalStateException.class, () -> svgResult.getClusterIndex(0x123456));
+	}
+
+	@Test
+	void colorIndexIsRelativeToSubstring() {
+		final SvgResult svgResult = new SvgResult(SVG, IDENTITY);
+		final int path = SVG.indexOf("d=\"M31");
+		final SvgResult after = svgResult.substring(path);
+		assertEquals(SVG.substring(path).indexOf("stroke=\"#000003\""), after.getIndexFromColor(0x000003));
+		assertEquals(-1, after.getIndexFromColor(0xF0F0F0));
+		assertEquals(-1, svgResult.substring(0, path).getIndexFromColor(0x000003 + 1));
+	}
+
+	@Test
+	void extractListReadsPointsAfterTitle() {
+		final SvgResult svgResult = new SvgResult(SVG, IDENTITY);
+		final List<XPoint2D> points = svgResult.substring(svgResult.getTitleIndex("sh0002"))
+				.extractList(SvgResult.POINTS_EQUALS);
+		assertEquals(5, points.size());
+		assertEquals(new XPoint2D(46, -46), points.get(0));
+	}
+
+	@Test
+	void substringOutOfBoundsThrows() {
+		final SvgResult svgResult = new SvgResult(SVG, IDENTITY);
+		assertThrows(StringIndexOutOfBoundsException.class, () -> svgResult.substring(-1));
+	}
+
+}
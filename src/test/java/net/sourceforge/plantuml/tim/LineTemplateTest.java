@@ -0,0 +1,38 @@
+package net.sourceforge.plantuml.tim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class LineTemplateTest {
+
+	private static String starts(String line) {
+		final LineTemplate template = LineTemplate.compile(line);
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < template.size(); i++) {
+			if (sb.length() > 0)
+				sb.append(',');
+			sb.append(template.getStart(i));
+		}
+		return sb.toString();
+	}
+
+	@Test
+	void namesStartAtWordBoundaries() {
+		assertEquals("0,6,7", starts("Alice->Bob"));
+		assertEquals("0,2,3,4,5", starts("a $x$x"));
+		assertEquals("0,2,3", starts("ab%f"));
+	}
+
+	@Test
+	void backslashNIsAWordBoundary() {
+		assertEquals("0,1,2", starts("\\nFOO"));
+	}
+
+	@Test
+	void templatesAreShared() {
+		assertSame(LineTemplate.compile("Alice -> Bob : $x"), LineTemplate.compile("Alice -> Bob : $x"));
+	}
+
+}
@@ -0,0 +1,49 @@
+package net.sourceforge.plantuml.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedCacheTest {
+
+	@Test
+	void getReturnsWhatWasPut() {
+		final BoundedCache<String, Integer> cache = new BoundedCache<>(10);
+		cache.put("a", 1);
+		assertEquals(1, cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	void sizeNeverExceedsMaxSize() {
+		final BoundedCache<Integer, Integer> cache = new BoundedCache<>(100);
+		for (int i = 0; i < 1000; i++)
+			cache.put(i, i);
+
+		assertEquals(100, cache.size());
+		assertEquals(900, cache.getEvictions());
+	}
+
+	@Test
+	void recentlyReadEntriesSurviveEviction() {
+		final BoundedCache<Integer, Integer> cache = new BoundedCache<>(4);
+		for (int i = 0; i < 4; i++)
+			cache.put(i, i);
+
+		cache.get(0);
+		cache.put(4, 4);
+		assertEquals(0, cache.get(0));
+		assertTrue(cache.size() <= 4);
+	}
+
+	@Test
+	void maxSizeMustBePositive() {
+		assertThrows(IllegalArgumentException.class, () -> new BoundedCache<String, String>(0));
+	}
+
+}
@@ -0,0 +1,60 @@
+package net.sourceforge.plantuml.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class ByteBudgetCacheTest {
+
+	@Test
+	void getReturnsWhatWasPut() {
+		final ByteBudgetCache<String, String> cache = new ByteBudgetCache<>(100);
+		cache.put("a", "A", 10);
+		assertEquals("A", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(10, cache.getWeight());
+	}
+
+	@Test
+	void weightNeverExceedsBudget() {
+		final ByteBudgetCache<Integer, Integer> cache = new ByteBudgetCache<>(100);
+		for (int i = 0; i < 50; i++)
+			cache.put(i, i, 30);
+
+		assertEquals(3, cache.size());
+		assertEquals(90, cache.getWeight());
+		assertEquals(47, cache.getEvictions());
+	}
+
+	@Test
+	void leastRecentlyUsedIsEvictedFirst() {
+		final ByteBudgetCache<Integer, Integer> cache = new ByteBudgetCache<>(30);
+		cache.put(0, 0, 10);
+		cache.put(1, 1, 10);
+		cache.put(2, 2, 10);
+		cache.get(0);
+		cache.put(3, 3, 10);
+		assertEquals(0, cache.get(0));
+		assertNull(cache.get(1));
+	}
+
+	@Test
+	void valuesHeavierThanBudgetAreNotKept() {
+		final ByteBudgetCache<String, String> cache = new ByteBudgetCache<>(10);
+		cache.put("a", "A", 5);
+		cache.put("b", "B", 11);
+		assertNull(cache.get("b"));
+		assertEquals("A", cache.get("a"));
+	}
+
+	@Test
+	void replacingAnEntryUpdatesTheWeight() {
+		final ByteBudgetCache<String, String> cache = new ByteBudgetCache<>(100);
+		cache.put("a", "A", 40);
+		cache.put("a", "AA", 60);
+		assertEquals(60, cache.getWeight());
+		assertEquals(1, cache.size());
+	}
+
+}